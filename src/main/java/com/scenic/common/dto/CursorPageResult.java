@@ -0,0 +1,61 @@
+package com.scenic.common.dto;
+
+import java.util.List;
+
+/**
+ * 游标分页结果类
+ * 不统计总数，客户端用nextCursor请求下一页，hasMore为false时已到末尾
+ */
+public class CursorPageResult<T> {
+    private List<T> records;
+    private String nextCursor;
+    private boolean hasMore;
+
+    // 构造函数
+    public CursorPageResult() {}
+
+    public CursorPageResult(List<T> records, String nextCursor, boolean hasMore) {
+        this.records = records;
+        this.nextCursor = nextCursor;
+        this.hasMore = hasMore;
+    }
+
+    // 静态方法创建游标分页结果
+    public static <T> CursorPageResult<T> of(List<T> records, String nextCursor, boolean hasMore) {
+        return new CursorPageResult<>(records, nextCursor, hasMore);
+    }
+
+    // Getter 和 Setter 方法
+    public List<T> getRecords() {
+        return records;
+    }
+
+    public void setRecords(List<T> records) {
+        this.records = records;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+
+    @Override
+    public String toString() {
+        return "CursorPageResult{" +
+                "records=" + records +
+                ", nextCursor='" + nextCursor + '\'' +
+                ", hasMore=" + hasMore +
+                '}';
+    }
+}
@@ -0,0 +1,64 @@
+package com.scenic.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 客户端直传MinIO配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "file.direct-upload")
+public class DirectUploadProperties {
+
+    /**
+     * 预签名上传URL有效期（秒）
+     */
+    private int uploadUrlExpirySeconds = 900;
+
+    /**
+     * 单个文件最大大小（MB），单次PUT上限为5GB
+     */
+    private long maxFileSizeMb = 2048;
+
+    /**
+     * 未完成的直传记录保留时间（小时），超时后删除记录和已上传的对象
+     */
+    private long pendingExpireHours = 24;
+
+    /**
+     * 每次清理的最大记录数
+     */
+    private int cleanupBatchSize = 200;
+
+    public int getUploadUrlExpirySeconds() {
+        return uploadUrlExpirySeconds;
+    }
+
+    public void setUploadUrlExpirySeconds(int uploadUrlExpirySeconds) {
+        this.uploadUrlExpirySeconds = uploadUrlExpirySeconds;
+    }
+
+    public long getMaxFileSizeMb() {
+        return maxFileSizeMb;
+    }
+
+    public void setMaxFileSizeMb(long maxFileSizeMb) {
+        this.maxFileSizeMb = maxFileSizeMb;
+    }
+
+    public long getPendingExpireHours() {
+        return pendingExpireHours;
+    }
+
+    public void setPendingExpireHours(long pendingExpireHours) {
+        this.pendingExpireHours = pendingExpireHours;
+    }
+
+    public int getCleanupBatchSize() {
+        return cleanupBatchSize;
+    }
+
+    public void setCleanupBatchSize(int cleanupBatchSize) {
+        this.cleanupBatchSize = cleanupBatchSize;
+    }
+}
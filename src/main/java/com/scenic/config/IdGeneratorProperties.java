@@ -0,0 +1,38 @@
+package com.scenic.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * ID生成器配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "id-generator")
+public class IdGeneratorProperties {
+
+    /**
+     * 固定的工作机器ID（0-1023），小于0表示通过Redis租约自动分配
+     */
+    private long workerId = -1;
+
+    /**
+     * Redis租约有效期（秒），续约间隔为其三分之一
+     */
+    private long leaseTtlSeconds = 60;
+
+    public long getWorkerId() {
+        return workerId;
+    }
+
+    public void setWorkerId(long workerId) {
+        this.workerId = workerId;
+    }
+
+    public long getLeaseTtlSeconds() {
+        return leaseTtlSeconds;
+    }
+
+    public void setLeaseTtlSeconds(long leaseTtlSeconds) {
+        this.leaseTtlSeconds = leaseTtlSeconds;
+    }
+}
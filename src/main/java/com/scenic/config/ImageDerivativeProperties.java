@@ -0,0 +1,116 @@
+package com.scenic.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 图片派生尺寸生成配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "file.image-derivative")
+public class ImageDerivativeProperties {
+
+    /**
+     * 是否在上传后生成派生尺寸
+     */
+    private boolean enabled = true;
+
+    /**
+     * 生成线程数
+     */
+    private int workerThreads = 2;
+
+    /**
+     * 等待队列长度，队列满时跳过，由补偿任务稍后生成
+     */
+    private int queueCapacity = 200;
+
+    /**
+     * 缩略图最长边（像素）
+     */
+    private int thumbnailSize = 320;
+
+    /**
+     * 中等尺寸预览图最长边（像素）
+     */
+    private int mediumSize = 1080;
+
+    /**
+     * JPEG压缩质量（0-1）
+     */
+    private float jpegQuality = 0.8f;
+
+    /**
+     * 原图像素数上限，超过时不解码
+     */
+    private long maxSourcePixels = 50_000_000L;
+
+    /**
+     * 补偿任务每次提交的最大图片数
+     */
+    private int backfillBatchSize = 50;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    public void setWorkerThreads(int workerThreads) {
+        this.workerThreads = workerThreads;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public int getThumbnailSize() {
+        return thumbnailSize;
+    }
+
+    public void setThumbnailSize(int thumbnailSize) {
+        this.thumbnailSize = thumbnailSize;
+    }
+
+    public int getMediumSize() {
+        return mediumSize;
+    }
+
+    public void setMediumSize(int mediumSize) {
+        this.mediumSize = mediumSize;
+    }
+
+    public float getJpegQuality() {
+        return jpegQuality;
+    }
+
+    public void setJpegQuality(float jpegQuality) {
+        this.jpegQuality = jpegQuality;
+    }
+
+    public long getMaxSourcePixels() {
+        return maxSourcePixels;
+    }
+
+    public void setMaxSourcePixels(long maxSourcePixels) {
+        this.maxSourcePixels = maxSourcePixels;
+    }
+
+    public int getBackfillBatchSize() {
+        return backfillBatchSize;
+    }
+
+    public void setBackfillBatchSize(int backfillBatchSize) {
+        this.backfillBatchSize = backfillBatchSize;
+    }
+}
@@ -0,0 +1,116 @@
+package com.scenic.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 全员通知分批发送配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "notification.dispatch")
+public class NotificationDispatchProperties {
+
+    /**
+     * 每批加载的用户数
+     */
+    private int chunkSize = 500;
+
+    /**
+     * 发送线程数（所有通知共享）
+     */
+    private int senderThreads = 16;
+
+    /**
+     * 同时分发的通知数
+     */
+    private int concurrentNotifications = 4;
+
+    /**
+     * 未单独配置渠道时的每秒发送上限
+     */
+    private double defaultRateLimit = 100;
+
+    /**
+     * 各渠道每秒发送上限（key为渠道名称：短信、邮件、小程序、服务号）
+     */
+    private Map<String, Double> channelRateLimits = new HashMap<>();
+
+    /**
+     * 分发锁有效期（秒），每处理完一批续期一次，节点宕机后由其他节点接手
+     */
+    private long lockTtlSeconds = 600;
+
+    /**
+     * 断点保留时间（秒）
+     */
+    private long checkpointTtlSeconds = 259200;
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public int getSenderThreads() {
+        return senderThreads;
+    }
+
+    public void setSenderThreads(int senderThreads) {
+        this.senderThreads = senderThreads;
+    }
+
+    public int getConcurrentNotifications() {
+        return concurrentNotifications;
+    }
+
+    public void setConcurrentNotifications(int concurrentNotifications) {
+        this.concurrentNotifications = concurrentNotifications;
+    }
+
+    public double getDefaultRateLimit() {
+        return defaultRateLimit;
+    }
+
+    public void setDefaultRateLimit(double defaultRateLimit) {
+        this.defaultRateLimit = defaultRateLimit;
+    }
+
+    public Map<String, Double> getChannelRateLimits() {
+        return channelRateLimits;
+    }
+
+    public void setChannelRateLimits(Map<String, Double> channelRateLimits) {
+        this.channelRateLimits = channelRateLimits;
+    }
+
+    public long getLockTtlSeconds() {
+        return lockTtlSeconds;
+    }
+
+    public void setLockTtlSeconds(long lockTtlSeconds) {
+        this.lockTtlSeconds = lockTtlSeconds;
+    }
+
+    public long getCheckpointTtlSeconds() {
+        return checkpointTtlSeconds;
+    }
+
+    public void setCheckpointTtlSeconds(long checkpointTtlSeconds) {
+        this.checkpointTtlSeconds = checkpointTtlSeconds;
+    }
+
+    /**
+     * 获取指定渠道的每秒发送上限
+     * @param channel 渠道名称
+     * @return 每秒发送上限
+     */
+    public double getRateLimit(String channel) {
+        Double limit = channel == null ? null : channelRateLimits.get(channel);
+        return limit != null ? limit : defaultRateLimit;
+    }
+}
@@ -0,0 +1,103 @@
+package com.scenic.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 照片打卡热门排行配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "photo.hot-ranking")
+public class PhotoHotRankingProperties {
+
+    /**
+     * 热度半衰期（小时），事件的贡献每经过一个半衰期减半
+     */
+    private double halfLifeHours = 24;
+
+    /**
+     * 点赞权重
+     */
+    private double likeWeight = 1;
+
+    /**
+     * 收藏权重
+     */
+    private double favoriteWeight = 2;
+
+    /**
+     * 发布权重，新发布的照片获得随时间衰减的初始热度
+     */
+    private double publishWeight = 3;
+
+    /**
+     * 重建时统计的半衰期个数，更早的事件贡献可忽略
+     */
+    private int rebuildWindowHalfLives = 10;
+
+    /**
+     * 每个排行保留的最大照片数
+     */
+    private int maxSize = 2000;
+
+    /**
+     * 重建锁有效期（秒），同一时刻只有一个节点重建
+     */
+    private long lockTtlSeconds = 300;
+
+    public double getHalfLifeHours() {
+        return halfLifeHours;
+    }
+
+    public void setHalfLifeHours(double halfLifeHours) {
+        this.halfLifeHours = halfLifeHours;
+    }
+
+    public double getLikeWeight() {
+        return likeWeight;
+    }
+
+    public void setLikeWeight(double likeWeight) {
+        this.likeWeight = likeWeight;
+    }
+
+    public double getFavoriteWeight() {
+        return favoriteWeight;
+    }
+
+    public void setFavoriteWeight(double favoriteWeight) {
+        this.favoriteWeight = favoriteWeight;
+    }
+
+    public double getPublishWeight() {
+        return publishWeight;
+    }
+
+    public void setPublishWeight(double publishWeight) {
+        this.publishWeight = publishWeight;
+    }
+
+    public int getRebuildWindowHalfLives() {
+        return rebuildWindowHalfLives;
+    }
+
+    public void setRebuildWindowHalfLives(int rebuildWindowHalfLives) {
+        this.rebuildWindowHalfLives = rebuildWindowHalfLives;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public long getLockTtlSeconds() {
+        return lockTtlSeconds;
+    }
+
+    public void setLockTtlSeconds(long lockTtlSeconds) {
+        this.lockTtlSeconds = lockTtlSeconds;
+    }
+}
@@ -0,0 +1,51 @@
+package com.scenic.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 照片打卡点赞计数合并写入配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "photo.like-counter")
+public class PhotoLikeCounterProperties {
+
+    /**
+     * 点赞增量写回数据库的间隔（毫秒）
+     */
+    private long flushIntervalMillis = 2000;
+
+    /**
+     * 每条批量UPDATE包含的照片数
+     */
+    private int batchSize = 500;
+
+    /**
+     * 写回锁有效期（秒），同一时刻只有一个节点写回，每写回一批续期一次
+     */
+    private long lockTtlSeconds = 60;
+
+    public long getFlushIntervalMillis() {
+        return flushIntervalMillis;
+    }
+
+    public void setFlushIntervalMillis(long flushIntervalMillis) {
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public long getLockTtlSeconds() {
+        return lockTtlSeconds;
+    }
+
+    public void setLockTtlSeconds(long lockTtlSeconds) {
+        this.lockTtlSeconds = lockTtlSeconds;
+    }
+}
@@ -1,47 +1,82 @@
 package com.scenic.config;
 
 import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
-import javax.servlet.FilterConfig;
 import javax.servlet.ServletException;
 import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerMapping;
+
+import com.scenic.utils.EndpointMetrics;
+import com.scenic.utils.RequestStats;
 
 /**
  * 请求日志过滤器
- * 用于记录所有传入的HTTP请求
+ * 每个请求统计耗时和SQL条数并计入接口耗时直方图；日志每个请求最多一行键值对，
+ * 正常请求按比例采样，慢请求和出错的请求总是输出。日志经异步Appender写出，不阻塞请求线程
  */
 @Component
 public class RequestLoggingFilter implements Filter {
-    
+
     private static final Logger logger = LoggerFactory.getLogger(RequestLoggingFilter.class);
-    
-    @Override
-    public void init(FilterConfig filterConfig) throws ServletException {
-        logger.info("RequestLoggingFilter 初始化");
-    }
-    
+
+    @Autowired
+    private RequestLoggingProperties requestLoggingProperties;
+
+    @Autowired
+    private EndpointMetrics endpointMetrics;
+
     @Override
     public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
             throws IOException, ServletException {
         HttpServletRequest httpRequest = (HttpServletRequest) request;
-        
-        // 记录请求信息
-        logger.info("收到请求: {} {}", httpRequest.getMethod(), httpRequest.getRequestURI());
-        logger.info("请求来源: {}", httpRequest.getRemoteAddr());
-        logger.info("User-Agent: {}", httpRequest.getHeader("User-Agent"));
-        
-        // 继续处理请求
-        chain.doFilter(request, response);
+        HttpServletResponse httpResponse = (HttpServletResponse) response;
+
+        long start = System.nanoTime();
+        RequestStats stats = RequestStats.begin();
+        Throwable failure = null;
+        try {
+            chain.doFilter(request, response);
+        } catch (IOException | ServletException | RuntimeException e) {
+            failure = e;
+            throw e;
+        } finally {
+            RequestStats.end();
+            long durationMillis = (System.nanoTime() - start) / 1_000_000;
+            int status = failure != null ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : httpResponse.getStatus();
+            boolean error = status >= 500;
+            String endpoint = endpointOf(httpRequest);
+            endpointMetrics.record(endpoint, durationMillis, stats.getSqlCount(), error);
+
+            boolean slow = durationMillis >= requestLoggingProperties.getSlowThresholdMillis();
+            if (requestLoggingProperties.isEnabled() && (error || slow
+                    || ThreadLocalRandom.current().nextDouble() < requestLoggingProperties.getSampleRate())) {
+                String line = "method={} path={} endpoint=\"{}\" status={} durationMs={} sqlCount={} sqlMs={} sqlRows={} slowSql={} ip={}";
+                Object[] args = {httpRequest.getMethod(), httpRequest.getRequestURI(), endpoint, status, durationMillis,
+                        stats.getSqlCount(), stats.getSqlMillis(), stats.getSqlRows(), stats.getSlowSqlCount(),
+                        httpRequest.getRemoteAddr()};
+                if (error || slow) {
+                    logger.warn(line, args);
+                } else {
+                    logger.info(line, args);
+                }
+            }
+        }
     }
-    
-    @Override
-    public void destroy() {
-        logger.info("RequestLoggingFilter 销毁");
+
+    /**
+     * 接口名称：请求方法加匹配到的路径模式（如 GET /api/file/{fileId}），避免路径变量使统计项无限增长
+     */
+    private String endpointOf(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return request.getMethod() + " " + (pattern != null ? pattern : "UNMATCHED");
     }
-}
\ No newline at end of file
+}
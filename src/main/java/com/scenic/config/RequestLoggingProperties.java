@@ -0,0 +1,64 @@
+package com.scenic.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 请求日志与接口耗时统计配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "request-log")
+public class RequestLoggingProperties {
+
+    /**
+     * 是否输出请求日志（耗时统计不受影响）
+     */
+    private boolean enabled = true;
+
+    /**
+     * 正常请求的日志采样比例（0~1），慢请求和出错的请求总是输出
+     */
+    private double sampleRate = 0.1;
+
+    /**
+     * 慢请求阈值（毫秒）
+     */
+    private long slowThresholdMillis = 1000;
+
+    /**
+     * 最多统计的接口数，超出后新接口计入 OTHER
+     */
+    private int maxEndpoints = 1000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    public void setSampleRate(double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    public long getSlowThresholdMillis() {
+        return slowThresholdMillis;
+    }
+
+    public void setSlowThresholdMillis(long slowThresholdMillis) {
+        this.slowThresholdMillis = slowThresholdMillis;
+    }
+
+    public int getMaxEndpoints() {
+        return maxEndpoints;
+    }
+
+    public void setMaxEndpoints(int maxEndpoints) {
+        this.maxEndpoints = maxEndpoints;
+    }
+}
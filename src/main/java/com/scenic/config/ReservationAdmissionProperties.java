@@ -0,0 +1,77 @@
+package com.scenic.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 小程序预约排队准入配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "reservation.admission")
+public class ReservationAdmissionProperties {
+
+    /**
+     * 是否启用排队准入（默认关闭，放号高峰期开启；关闭后不启动出队线程，提交的预约同步创建）
+     */
+    private boolean enabled = false;
+
+    /**
+     * 单节点每秒放行的预约请求数
+     */
+    private double permitsPerSecond = 50;
+
+    /**
+     * 单节点出队处理线程数，应明显小于数据库连接池大小
+     */
+    private int workerThreads = 4;
+
+    /**
+     * 队列最大长度，超出后直接拒绝
+     */
+    private long maxQueueLength = 20000;
+
+    /**
+     * 凭证及处理结果保留时间（秒）
+     */
+    private long ticketTtlSeconds = 600;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public double getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    public void setPermitsPerSecond(double permitsPerSecond) {
+        this.permitsPerSecond = permitsPerSecond;
+    }
+
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    public void setWorkerThreads(int workerThreads) {
+        this.workerThreads = workerThreads;
+    }
+
+    public long getMaxQueueLength() {
+        return maxQueueLength;
+    }
+
+    public void setMaxQueueLength(long maxQueueLength) {
+        this.maxQueueLength = maxQueueLength;
+    }
+
+    public long getTicketTtlSeconds() {
+        return ticketTtlSeconds;
+    }
+
+    public void setTicketTtlSeconds(long ticketTtlSeconds) {
+        this.ticketTtlSeconds = ticketTtlSeconds;
+    }
+}
@@ -0,0 +1,90 @@
+package com.scenic.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 预约余量台账配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "reservation.capacity")
+public class ReservationCapacityProperties {
+
+    /**
+     * 是否启用余量台账
+     */
+    private boolean enabled = true;
+
+    /**
+     * 未单独配置的时段使用的默认人数上限
+     */
+    private int defaultSlotLimit = 500;
+
+    /**
+     * 各时段人数上限（key为时段：1-上午，2-下午）
+     */
+    private Map<Integer, Integer> slotLimits = new HashMap<>();
+
+    /**
+     * 启动重建及定时对账覆盖的天数（从当天起）
+     */
+    private int horizonDays = 30;
+
+    /**
+     * 时段键在入区日期之后保留的天数
+     */
+    private int retainDays = 1;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getDefaultSlotLimit() {
+        return defaultSlotLimit;
+    }
+
+    public void setDefaultSlotLimit(int defaultSlotLimit) {
+        this.defaultSlotLimit = defaultSlotLimit;
+    }
+
+    public Map<Integer, Integer> getSlotLimits() {
+        return slotLimits;
+    }
+
+    public void setSlotLimits(Map<Integer, Integer> slotLimits) {
+        this.slotLimits = slotLimits;
+    }
+
+    public int getHorizonDays() {
+        return horizonDays;
+    }
+
+    public void setHorizonDays(int horizonDays) {
+        this.horizonDays = horizonDays;
+    }
+
+    public int getRetainDays() {
+        return retainDays;
+    }
+
+    public void setRetainDays(int retainDays) {
+        this.retainDays = retainDays;
+    }
+
+    /**
+     * 获取指定时段的人数上限
+     * @param timeSlot 时段
+     * @return 人数上限
+     */
+    public int getLimit(Integer timeSlot) {
+        Integer limit = timeSlot == null ? null : slotLimits.get(timeSlot);
+        return limit != null ? limit : defaultSlotLimit;
+    }
+}
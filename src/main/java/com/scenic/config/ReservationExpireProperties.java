@@ -0,0 +1,70 @@
+package com.scenic.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 个人预约过期任务配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "reservation.expire")
+public class ReservationExpireProperties {
+
+    /**
+     * 每批更新的最大行数
+     */
+    private int chunkSize = 2000;
+
+    /**
+     * 单次任务最长执行时间（秒），超时后剩余数据留到下次执行
+     */
+    private long maxRunSeconds = 300;
+
+    /**
+     * 各时段结束时间（key为时段，value为HH:mm），入区当天超过结束时间即过期
+     */
+    private Map<Integer, String> slotEndTimes = new HashMap<>();
+
+    public ReservationExpireProperties() {
+        slotEndTimes.put(1, "12:00");
+        slotEndTimes.put(2, "16:00");
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public long getMaxRunSeconds() {
+        return maxRunSeconds;
+    }
+
+    public void setMaxRunSeconds(long maxRunSeconds) {
+        this.maxRunSeconds = maxRunSeconds;
+    }
+
+    public Map<Integer, String> getSlotEndTimes() {
+        return slotEndTimes;
+    }
+
+    public void setSlotEndTimes(Map<Integer, String> slotEndTimes) {
+        this.slotEndTimes = slotEndTimes;
+    }
+
+    /**
+     * 获取指定时段的结束时间
+     * @param timeSlot 时段
+     * @return 结束时间，未配置时返回null（当天不过期）
+     */
+    public LocalTime getSlotEndTime(Integer timeSlot) {
+        String endTime = timeSlot == null ? null : slotEndTimes.get(timeSlot);
+        return endTime != null ? LocalTime.parse(endTime) : null;
+    }
+}
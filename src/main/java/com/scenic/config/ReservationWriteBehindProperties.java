@@ -0,0 +1,90 @@
+package com.scenic.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 个人预约异步批量写入配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "reservation.write-behind")
+public class ReservationWriteBehindProperties {
+
+    /**
+     * 是否启用异步批量写入（默认关闭，高峰期按需开启）
+     */
+    private boolean enabled = false;
+
+    /**
+     * 单批最大预约数
+     */
+    private int batchSize = 100;
+
+    /**
+     * 未攒满一批时的最长等待时间（毫秒）
+     */
+    private long flushIntervalMillis = 200;
+
+    /**
+     * 写入线程数
+     */
+    private int writerThreads = 2;
+
+    /**
+     * 内存队列容量，队列满时回退为同步写入
+     */
+    private int queueCapacity = 10000;
+
+    /**
+     * 待写入/失败状态的保留时间（秒）
+     */
+    private long statusTtlSeconds = 3600;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public long getFlushIntervalMillis() {
+        return flushIntervalMillis;
+    }
+
+    public void setFlushIntervalMillis(long flushIntervalMillis) {
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    public int getWriterThreads() {
+        return writerThreads;
+    }
+
+    public void setWriterThreads(int writerThreads) {
+        this.writerThreads = writerThreads;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public long getStatusTtlSeconds() {
+        return statusTtlSeconds;
+    }
+
+    public void setStatusTtlSeconds(long statusTtlSeconds) {
+        this.statusTtlSeconds = statusTtlSeconds;
+    }
+}
@@ -0,0 +1,174 @@
+package com.scenic.config;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+/**
+ * 接口认证策略注册表
+ * 认证规则集中声明在这里：无需经过JWT拦截器的路径（{@link #EXCLUDED_PATH_PATTERNS}，由WebConfig注册拦截器时排除），
+ * 以及拦截器内按路径区分的认证方式。启动时对所有 @RequestMapping 接口逐个求出认证方式，
+ * 按处理方法保存在哈希表中；请求到达拦截器时Spring已解析出处理方法，认证方式只需一次查表，
+ * 不再逐条做字符串和正则匹配。静态资源等非控制器请求退回按路径求值。
+ */
+@Component
+public class RoutePolicyRegistry implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(RoutePolicyRegistry.class);
+
+    /**
+     * 认证方式
+     */
+    public enum AuthMode {
+        /** 无需认证 */
+        PUBLIC,
+        /** 管理后台令牌 */
+        ADMIN,
+        /** 管理后台或小程序令牌（直传接口） */
+        ADMIN_OR_MINIAPP,
+        /** 无法识别的接口，拒绝访问 */
+        DENY
+    }
+
+    /**
+     * 不经过JWT拦截器的路径
+     */
+    static final String[] EXCLUDED_PATH_PATTERNS = {
+            "/api/manage/login",              // 管理后台登录接口
+            "/api/manage/park-open-time/**",  // 公园开放时间接口
+            "/api/uniapp/**",                 // 小程序接口
+            "/api/**/register/**",            // 注册接口
+            "/uploads/**"                     // 静态资源
+    };
+
+    private static final Set<String> ADMIN_OR_MINIAPP_PATHS = Collections.unmodifiableSet(
+            new java.util.HashSet<>(Arrays.asList("/api/upload/presign", "/api/upload/complete")));
+
+    private static final Pattern AVATAR_UPLOAD_PATTERN = Pattern.compile("/api/avatar/(\\d+|\\{[^/]+\\})/upload");
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Value("${admin.api.prefix}")
+    private String adminPrefix;
+
+    /**
+     * 处理方法到认证策略的映射，启动后只读
+     */
+    private volatile Map<Method, RoutePolicy> handlerPolicies = Collections.emptyMap();
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        RequestMappingHandlerMapping handlerMapping = applicationContext.getBean(
+                "requestMappingHandlerMapping", RequestMappingHandlerMapping.class);
+        Map<Method, RoutePolicy> policies = new HashMap<>();
+        List<String> ambiguous = new ArrayList<>();
+        for (Map.Entry<RequestMappingInfo, HandlerMethod> entry : handlerMapping.getHandlerMethods().entrySet()) {
+            RoutePolicy policy = null;
+            boolean consistent = true;
+            for (String pattern : entry.getKey().getPatternValues()) {
+                RoutePolicy candidate = new RoutePolicy(resolve(pattern, "GET"), resolve(pattern, "POST"));
+                if (policy == null) {
+                    policy = candidate;
+                } else if (!policy.equals(candidate)) {
+                    consistent = false;
+                }
+            }
+            Method method = entry.getValue().getMethod();
+            if (policy != null && consistent) {
+                policies.put(method, policy);
+            } else {
+                // 多个路径的认证方式不同，请求时按实际路径求值
+                ambiguous.add(method.toGenericString());
+            }
+        }
+        handlerPolicies = policies;
+        log.info("接口认证策略表构建完成，接口数: {}，按路径求值: {}", policies.size(), ambiguous);
+    }
+
+    /**
+     * 获取请求的认证方式
+     * @param handler 拦截器收到的处理器
+     * @param requestURI 请求路径
+     * @param method 请求方法
+     * @return 认证方式
+     */
+    public AuthMode resolve(Object handler, String requestURI, String method) {
+        if (handler instanceof HandlerMethod) {
+            RoutePolicy policy = handlerPolicies.get(((HandlerMethod) handler).getMethod());
+            if (policy != null) {
+                return "GET".equals(method) ? policy.getMode : policy.otherMode;
+            }
+        }
+        return resolve(requestURI, method);
+    }
+
+    /**
+     * 按路径求认证方式，path 可以是请求路径或接口声明的路径模式
+     */
+    AuthMode resolve(String path, String method) {
+        // 头像、文件的GET请求无需验证JWT
+        if ("GET".equals(method) && (path.startsWith("/api/avatar/") || path.startsWith("/api/files/avatar/")
+                || path.startsWith("/api/file/"))) {
+            return AuthMode.PUBLIC;
+        }
+        // 直传接口管理后台和小程序共用，接受任一端的令牌，用户身份由控制器从令牌中解析
+        if (ADMIN_OR_MINIAPP_PATHS.contains(path)) {
+            return AuthMode.ADMIN_OR_MINIAPP;
+        }
+        if (path.startsWith(adminPrefix) || path.startsWith("/api/content/") || path.equals("/api/upload")
+                || AVATAR_UPLOAD_PATTERN.matcher(path).matches()) {
+            return AuthMode.ADMIN;
+        }
+        return AuthMode.DENY;
+    }
+
+    /**
+     * 单个接口的认证策略，规则只区分GET和其他请求方法
+     */
+    private static final class RoutePolicy {
+
+        private final AuthMode getMode;
+
+        private final AuthMode otherMode;
+
+        private RoutePolicy(AuthMode getMode, AuthMode otherMode) {
+            this.getMode = getMode;
+            this.otherMode = otherMode;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof RoutePolicy)) {
+                return false;
+            }
+            RoutePolicy that = (RoutePolicy) o;
+            return getMode == that.getMode && otherMode == that.otherMode;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * getMode.hashCode() + otherMode.hashCode();
+        }
+    }
+}
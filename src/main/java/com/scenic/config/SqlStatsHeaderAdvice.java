@@ -0,0 +1,43 @@
+package com.scenic.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import com.scenic.utils.RequestStats;
+
+/**
+ * 在响应头 X-Sql-Stats 中返回本次请求到写出响应体为止执行的SQL统计，便于开发时发现N+1查询；prod环境不注册
+ */
+@Profile("!prod")
+@ControllerAdvice
+public class SqlStatsHeaderAdvice implements ResponseBodyAdvice<Object> {
+
+    private static final String HEADER_NAME = "X-Sql-Stats";
+
+    @Autowired
+    private SqlStatsProperties sqlStatsProperties;
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return sqlStatsProperties.isResponseHeader();
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        RequestStats stats = RequestStats.current();
+        if (stats != null) {
+            response.getHeaders().set(HEADER_NAME, "count=" + stats.getSqlCount() + "; rows=" + stats.getSqlRows()
+                    + "; timeMs=" + stats.getSqlMillis() + "; slow=" + stats.getSlowSqlCount());
+        }
+        return body;
+    }
+}
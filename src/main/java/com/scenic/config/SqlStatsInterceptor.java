@@ -0,0 +1,163 @@
+package com.scenic.config;
+
+import java.lang.reflect.Proxy;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.ParameterMode;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.SystemMetaObject;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.scenic.utils.RequestStats;
+import com.scenic.utils.SqlStatementStats;
+
+/**
+ * SQL统计拦截器
+ * 拦截StatementHandler的执行方法，按实际发往数据库的语句计数（包括分页插件生成的count查询），
+ * 把条数、耗时和行数累加到当前请求的 {@link RequestStats}，并按语句ID计入 {@link SqlStatementStats} 的滑动窗口。
+ * 超过慢SQL阈值的语句输出语句ID、SQL和绑定参数；绑定参数只在慢SQL时解析
+ */
+@Component
+@Intercepts({
+        @Signature(type = StatementHandler.class, method = "query", args = {Statement.class, ResultHandler.class}),
+        @Signature(type = StatementHandler.class, method = "update", args = {Statement.class}),
+        @Signature(type = StatementHandler.class, method = "batch", args = {Statement.class})
+})
+public class SqlStatsInterceptor implements Interceptor {
+
+    private static final Logger log = LoggerFactory.getLogger(SqlStatsInterceptor.class);
+
+    // 日志中单个参数值的最大长度
+    private static final int MAX_PARAMETER_LENGTH = 200;
+
+    @Autowired
+    private SqlStatsProperties sqlStatsProperties;
+
+    @Autowired
+    private SqlStatementStats sqlStatementStats;
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        long start = System.nanoTime();
+        Object result = null;
+        try {
+            result = invocation.proceed();
+            return result;
+        } finally {
+            long elapsedNanos = System.nanoTime() - start;
+            long rows = rowsOf(result);
+            boolean slow = elapsedNanos / 1_000_000 >= sqlStatsProperties.getSlowThresholdMillis();
+            StatementHandler handler = (StatementHandler) invocation.getTarget();
+            MappedStatement mappedStatement = mappedStatementOf(handler);
+            String statementId = mappedStatement != null ? mappedStatement.getId() : "unknown";
+
+            RequestStats.recordSql(elapsedNanos, rows, slow);
+            sqlStatementStats.record(statementId, elapsedNanos, rows, slow);
+            if (slow) {
+                logSlowStatement(handler, mappedStatement, statementId, elapsedNanos, rows);
+            }
+        }
+    }
+
+    private void logSlowStatement(StatementHandler handler, MappedStatement mappedStatement, String statementId,
+                                  long elapsedNanos, long rows) {
+        try {
+            BoundSql boundSql = handler.getBoundSql();
+            String sql = boundSql.getSql().replaceAll("\\s+", " ");
+            List<String> parameters = mappedStatement != null
+                    ? parametersOf(mappedStatement.getConfiguration(), boundSql) : new ArrayList<>();
+            log.warn("慢SQL: id={} elapsedMs={} rows={} sql=\"{}\" params={}",
+                    statementId, elapsedNanos / 1_000_000, rows, sql, parameters);
+        } catch (Exception e) {
+            log.warn("慢SQL: id={} elapsedMs={} rows={}（解析参数失败: {}）",
+                    statementId, elapsedNanos / 1_000_000, rows, e.getMessage());
+        }
+    }
+
+    /**
+     * 按占位符顺序取出绑定参数，与MyBatis DefaultParameterHandler的取值规则一致
+     */
+    private List<String> parametersOf(Configuration configuration, BoundSql boundSql) {
+        List<String> parameters = new ArrayList<>();
+        Object parameterObject = boundSql.getParameterObject();
+        MetaObject metaObject = null;
+        for (ParameterMapping parameterMapping : boundSql.getParameterMappings()) {
+            if (parameterMapping.getMode() == ParameterMode.OUT) {
+                continue;
+            }
+            String property = parameterMapping.getProperty();
+            Object value;
+            if (boundSql.hasAdditionalParameter(property)) {
+                value = boundSql.getAdditionalParameter(property);
+            } else if (parameterObject == null) {
+                value = null;
+            } else if (configuration.getTypeHandlerRegistry().hasTypeHandler(parameterObject.getClass())) {
+                value = parameterObject;
+            } else {
+                if (metaObject == null) {
+                    metaObject = configuration.newMetaObject(parameterObject);
+                }
+                value = metaObject.getValue(property);
+            }
+            String text = String.valueOf(value);
+            parameters.add(text.length() > MAX_PARAMETER_LENGTH ? text.substring(0, MAX_PARAMETER_LENGTH) + "..." : text);
+        }
+        return parameters;
+    }
+
+    /**
+     * 取出被其他插件代理的StatementHandler中的MappedStatement
+     */
+    private MappedStatement mappedStatementOf(StatementHandler handler) {
+        try {
+            Object target = handler;
+            while (Proxy.isProxyClass(target.getClass())) {
+                MetaObject plugin = SystemMetaObject.forObject(Proxy.getInvocationHandler(target));
+                if (!plugin.hasGetter("target")) {
+                    break;
+                }
+                target = plugin.getValue("target");
+            }
+            MetaObject metaObject = SystemMetaObject.forObject(target);
+            if (metaObject.hasGetter("delegate.mappedStatement")) {
+                return (MappedStatement) metaObject.getValue("delegate.mappedStatement");
+            }
+            return (MappedStatement) metaObject.getValue("mappedStatement");
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static long rowsOf(Object result) {
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof Integer) {
+            return (Integer) result;
+        }
+        if (result instanceof int[]) {
+            long rows = 0;
+            for (int count : (int[]) result) {
+                rows += Math.max(count, 0);
+            }
+            return rows;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,64 @@
+package com.scenic.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * SQL执行统计配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "sql-stats")
+public class SqlStatsProperties {
+
+    /**
+     * 慢SQL阈值（毫秒），超过时输出语句ID和绑定参数
+     */
+    private long slowThresholdMillis = 200;
+
+    /**
+     * 语句排行的统计窗口（分钟），按分钟滑动
+     */
+    private int windowMinutes = 5;
+
+    /**
+     * 语句排行返回的条数
+     */
+    private int topSize = 20;
+
+    /**
+     * 是否在响应头 X-Sql-Stats 中返回本次请求的SQL统计（prod环境不生效）
+     */
+    private boolean responseHeader = true;
+
+    public long getSlowThresholdMillis() {
+        return slowThresholdMillis;
+    }
+
+    public void setSlowThresholdMillis(long slowThresholdMillis) {
+        this.slowThresholdMillis = slowThresholdMillis;
+    }
+
+    public int getWindowMinutes() {
+        return windowMinutes;
+    }
+
+    public void setWindowMinutes(int windowMinutes) {
+        this.windowMinutes = windowMinutes;
+    }
+
+    public int getTopSize() {
+        return topSize;
+    }
+
+    public void setTopSize(int topSize) {
+        this.topSize = topSize;
+    }
+
+    public boolean isResponseHeader() {
+        return responseHeader;
+    }
+
+    public void setResponseHeader(boolean responseHeader) {
+        this.responseHeader = responseHeader;
+    }
+}
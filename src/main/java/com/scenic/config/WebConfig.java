@@ -44,15 +44,9 @@ public class WebConfig implements WebMvcConfigurer {
      */
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
-        // 注册JWT拦截器，拦截所有请求
+        // 注册JWT拦截器，无需认证的路径统一在RoutePolicyRegistry中声明
         registry.addInterceptor(jwtInterceptor)
                 .addPathPatterns("/api/**")
-                .excludePathPatterns("/api/manage/login")  // 排除管理后台登录接口
-                .excludePathPatterns("/api/manage/park-open-time/**")  // 排除公园开放时间接口
-                .excludePathPatterns("/api/uniapp/**")  // 排除所有小程序接口
-                .excludePathPatterns("/api/**/register/**")  // 排除注册接口
-                .excludePathPatterns("/uploads/**");  // 排除静态资源
-                // 注意：不再排除所有的/api/avatar/**和/api/file/**路径
-                // 而是在JwtInterceptor中根据请求方法进行判断
+                .excludePathPatterns(RoutePolicyRegistry.EXCLUDED_PATH_PATTERNS);
     }
 }
@@ -5,8 +5,13 @@ import com.scenic.entity.ResourceFile;
 import com.scenic.entity.user.User;
 import com.scenic.mapper.ResourceFileMapper;
 import com.scenic.mapper.user.UserMapper;
+import com.scenic.config.DirectUploadProperties;
+import com.scenic.service.ResourceFileService;
 import com.scenic.utils.FileUploadUtil;
 import com.scenic.utils.JwtUtil;
+import com.scenic.utils.ResourceFileUrlResolver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
@@ -25,6 +30,8 @@ import java.util.UUID;
 @RestController
 @RequestMapping("/api")
 public class FileController {
+    
+    private static final Logger log = LoggerFactory.getLogger(FileController.class);
 
     @Autowired
     private FileUploadUtil fileUploadUtil;
@@ -37,6 +44,15 @@ public class FileController {
     
     @Autowired
     private JwtUtil jwtUtil;
+    
+    @Autowired
+    private ResourceFileUrlResolver resourceFileUrlResolver;
+    
+    @Autowired
+    private ResourceFileService resourceFileService;
+    
+    @Autowired
+    private DirectUploadProperties directUploadProperties;
 
     /**
      * 上传文件（后端上传）
@@ -50,27 +66,7 @@ public class FileController {
                                                  @RequestParam(value = "type", defaultValue = "0") String typeStr,
                                                  HttpServletRequest request) {
         // 将字符串类型转换为整数类型
-        Integer type = 0; // 默认为0-其他
-        if (typeStr != null && !typeStr.isEmpty()) {
-            try {
-                type = Integer.parseInt(typeStr);
-            } catch (NumberFormatException e) {
-                // 如果无法解析为整数，则根据字符串值设置相应的类型
-                switch (typeStr.toLowerCase()) {
-                    case "image":
-                        type = 1; // 1-图片
-                        break;
-                    case "video":
-                        type = 2; // 2-视频
-                        break;
-                    case "audio":
-                        type = 3; // 3-音频
-                        break;
-                    default:
-                        type = 0; // 0-其他
-                }
-            }
-        }
+        Integer type = parseFileType(typeStr);
         try {
             if (file.isEmpty()) {
                 return Result.error("文件不能为空");
@@ -86,7 +82,7 @@ public class FileController {
                     if (jwtUtil.validateAdminToken(token)) {
                         // 使用公共方法从令牌中获取userId
                         currentUserId = jwtUtil.getClaimFromToken(token, claims -> claims.get("userId", Long.class), jwtUtil.getAdminSecret());
-                        System.out.println("当前登录用户ID: " + currentUserId);
+                        log.debug("当前登录用户ID: {}", currentUserId);
                     } else {
                         System.err.println("令牌无效");
                     }
@@ -98,7 +94,7 @@ public class FileController {
             // 如果无法获取用户ID，使用默认测试用户ID
             if (currentUserId == null) {
                 currentUserId = 1741502342987124736L; // 使用测试用户ID
-                System.out.println("使用默认测试用户ID: " + currentUserId);
+                log.debug("使用默认测试用户ID: {}", currentUserId);
             }
             
             // 获取文件原始名称
@@ -117,37 +113,9 @@ public class FileController {
             String fileKey = UUID.randomUUID().toString() + extension;
             
             // 根据文件类型选择不同的存储桶
-            String bucketName = "files"; // 默认存储桶
-            switch (type) {
-                case 1: // 图片文件
-                    bucketName = "content-management-photo";
-                    break;
-                case 2: // 视频文件
-                    bucketName = "content-management";
-                    break;
-                case 3: // 音频文件
-                    bucketName = "content-management-audio";
-                    break;
-                default: // 其他文件
-                    bucketName = "files";
-                    break;
-            }
+            String bucketName = resolveBucketName(type);
             
-            // 兼容字符串类型的type参数
-            if ("image".equalsIgnoreCase(typeStr)) {
-                bucketName = "content-management-photo";
-            } else if ("video".equalsIgnoreCase(typeStr)) {
-                bucketName = "content-management";
-            } else if ("audio".equalsIgnoreCase(typeStr)) {
-                bucketName = "content-management-audio";
-            }
-            
-            // 上传到MinIO
-            try (InputStream inputStream = file.getInputStream()) {
-                fileUploadUtil.putObject(bucketName, fileKey, inputStream, file.getSize(), file.getContentType());
-            }
-            
-            // 保存文件信息到数据库
+            // 文件信息
             ResourceFile resourceFile = new ResourceFile();
             resourceFile.setFileName(originalFilename);
             resourceFile.setFileKey(fileKey);
@@ -161,12 +129,12 @@ public class FileController {
             resourceFile.setCreateBy(currentUserId); // 设置创建者ID
             resourceFile.setUpdateBy(currentUserId); // 设置更新者ID
             
-            // 保存文件记录
-            resourceFileMapper.insert(resourceFile);
+            // 上传到MinIO并保存文件记录，内容相同的文件复用已有记录
+            resourceFile = resourceFileService.store(resourceFile, file);
             Long fileId = resourceFile.getId();
             
             // 获取文件URL
-            String fileUrl = fileUploadUtil.getPresignedUrl(bucketName, fileKey, 3600);
+            String fileUrl = resourceFileUrlResolver.resolveUrl(fileId, 3600);
             
             // 返回文件ID和URL
             Map<String, Object> result = new HashMap<>();
@@ -235,11 +203,13 @@ public class FileController {
      * 根据文件ID获取文件的临时URL
      *
      * @param fileId 文件ID
+     * @param variant 图片尺寸：thumbnail-缩略图，medium-预览图，不传为原图
      * @return 文件的临时URL
      */
     @GetMapping("/file/{fileId}")
-    public Result<String> getFileUrlById(@PathVariable String fileId) {
-        System.out.println("获取文件URL，文件ID: " + fileId);
+    public Result<String> getFileUrlById(@PathVariable String fileId,
+                                         @RequestParam(value = "variant", required = false) String variant) {
+        log.debug("获取文件URL，文件ID: {}", fileId);
         try {
             if (fileId == null || fileId.isEmpty()) {
                 System.err.println("文件ID为null或空");
@@ -255,21 +225,14 @@ public class FileController {
                 return Result.error("文件ID格式不正确");
             }
             
-            // 根据文件ID查询文件信息
-            ResourceFile resourceFile = resourceFileMapper.selectById(fileIdLong);
-            System.out.println("查询文件结果: " + (resourceFile != null ? "找到文件" : "文件不存在"));
-            
-            if (resourceFile == null) {
+            // 获取文件的临时URL，设置更长的有效期（7天），已签名的URL走缓存
+            String fileUrl = resourceFileUrlResolver.resolveUrl(fileIdLong, ResourceFileUrlResolver.LONG_EXPIRY_SECONDS,
+                    parseVariant(variant));
+            if (fileUrl == null) {
                 System.err.println("文件不存在，ID: " + fileId);
                 return Result.error("文件不存在");
             }
             
-            System.out.println("文件信息: bucketName=" + resourceFile.getBucketName() + ", fileKey=" + resourceFile.getFileKey());
-            
-            // 获取文件的临时URL，设置更长的有效期（7天）
-            String fileUrl = fileUploadUtil.getPresignedUrl(resourceFile.getBucketName(), resourceFile.getFileKey(), 604800);
-            System.out.println("生成的文件URL: " + fileUrl);
-            
             return Result.success(fileUrl);
         } catch (Exception e) {
             System.err.println("获取文件URL失败: " + e.getMessage());
@@ -282,25 +245,19 @@ public class FileController {
      * 获取图片URL（短期有效）
      *
      * @param fileId 文件ID
+     * @param variant 图片尺寸：thumbnail-缩略图，medium-预览图，不传为原图
      * @return 短期有效的预签名URL
      */
     @GetMapping("/get-image-url")
-    public Result<String> getImageUrl(@RequestParam Long fileId) {
+    public Result<String> getImageUrl(@RequestParam Long fileId,
+                                      @RequestParam(value = "variant", required = false) String variant) {
         try {
-            // 根据ID查询文件信息
-            ResourceFile resourceFile = resourceFileMapper.selectById(fileId);
-            
-            if (resourceFile == null) {
+            // 生成短期有效的预签名URL（5分钟）
+            String presignedUrl = resourceFileUrlResolver.resolveUrl(fileId, 300, parseVariant(variant));
+            if (presignedUrl == null) {
                 return Result.error("文件不存在");
             }
             
-            // 生成短期有效的预签名URL（5分钟）
-            String presignedUrl = fileUploadUtil.getPresignedUrl(
-                resourceFile.getBucketName(),
-                resourceFile.getFileKey(),
-                300 // 5分钟有效期
-            );
-            
             return Result.success(presignedUrl);
         } catch (Exception e) {
             System.err.println("获取图片URL失败: " + e.getMessage());
@@ -428,26 +385,7 @@ public class FileController {
             Long fileId = resourceFile.getId();
             
             // 更新用户头像ID（删除原来的头像信息）
-            User user = userMapper.selectById(userId);
-            if (user != null) {
-                // 获取用户当前的头像ID
-                Long oldAvatarFileId = user.getAvatarFileId();
-                
-                // 如果用户已经有头像，则删除旧头像记录和文件
-                if (oldAvatarFileId != null) {
-                    ResourceFile oldAvatarFile = resourceFileMapper.selectById(oldAvatarFileId);
-                    if (oldAvatarFile != null) {
-                        // 删除MinIO中的旧头像文件
-                        fileUploadUtil.removeObject(oldAvatarFile.getBucketName(), oldAvatarFile.getFileKey());
-                    }
-                    // 删除resource_file表中的旧头像记录
-                    resourceFileMapper.deleteById(oldAvatarFileId);
-                }
-                
-                // 更新用户头像ID为新头像
-                user.setAvatarFileId(fileId);
-                userMapper.updateById(user);
-            }
+            replaceUserAvatar(userId, fileId);
             
             // 返回头像URL
             String avatarUrl = fileUploadUtil.getPresignedUrl(bucketName, fileKey, 3600);
@@ -457,4 +395,237 @@ public class FileController {
             return Result.error("上传头像失败: " + e.getMessage());
         }
     }
+    
+    /**
+     * 直传第一阶段：登记待上传文件并返回预签名上传URL
+     * 客户端用返回的uploadUrl以PUT方式把文件直接上传到MinIO（请求头Content-Type需与contentType一致），
+     * 上传成功后调用 /upload/complete 激活文件记录
+     *
+     * @param fileName 原始文件名
+     * @param contentType 文件类型（MIME）
+     * @param fileSize 文件大小（字节）
+     * @param typeStr 文件类型（0-其他 1-图片 2-视频 3-音频，或image/video/audio/avatar）
+     * @return 包含fileId、uploadUrl和有效期的对象
+     */
+    @PostMapping("/upload/presign")
+    public Result<Map<String, Object>> presignUpload(@RequestParam("fileName") String fileName,
+                                                     @RequestParam(value = "contentType", required = false) String contentType,
+                                                     @RequestParam("fileSize") Long fileSize,
+                                                     @RequestParam(value = "type", defaultValue = "0") String typeStr,
+                                                     HttpServletRequest request) {
+        try {
+            Long currentUserId = resolveCurrentUserId(request);
+            if (currentUserId == null) {
+                return Result.error("未授权：认证令牌无效或已过期");
+            }
+            if (fileName == null || fileName.trim().isEmpty()) {
+                return Result.error("文件名不能为空");
+            }
+            if (fileSize == null || fileSize <= 0) {
+                return Result.error("文件大小无效");
+            }
+            
+            boolean avatar = "avatar".equalsIgnoreCase(typeStr);
+            if (avatar) {
+                if (contentType == null || !contentType.startsWith("image/")) {
+                    return Result.error("只支持上传图片文件");
+                }
+                if (fileSize > 5 * 1024 * 1024) { // 5MB
+                    return Result.error("头像文件大小不能超过5MB");
+                }
+            } else if (fileSize > directUploadProperties.getMaxFileSizeMb() * 1024 * 1024) {
+                return Result.error("文件大小不能超过" + directUploadProperties.getMaxFileSizeMb() + "MB");
+            }
+            
+            String extension = fileName.contains(".") ? fileName.substring(fileName.lastIndexOf(".")) : "";
+            Integer type = avatar ? 1 : parseFileType(typeStr);
+            String bucketName = avatar ? "user-avatars" : resolveBucketName(type);
+            
+            ResourceFile resourceFile = new ResourceFile();
+            resourceFile.setFileName(fileName);
+            resourceFile.setFileKey(UUID.randomUUID().toString() + extension);
+            resourceFile.setBucketName(bucketName);
+            resourceFile.setFileSize(fileSize);
+            resourceFile.setMimeType(contentType);
+            resourceFile.setFileType(type);
+            resourceFile.setUploadUserId(currentUserId);
+            resourceFile.setCreateTime(LocalDateTime.now());
+            resourceFile.setUpdateTime(LocalDateTime.now());
+            resourceFile.setCreateBy(currentUserId);
+            resourceFile.setUpdateBy(currentUserId);
+            
+            String uploadUrl = resourceFileService.createPendingUpload(resourceFile);
+            
+            Map<String, Object> result = new HashMap<>();
+            result.put("fileId", resourceFile.getId());
+            result.put("uploadUrl", uploadUrl);
+            result.put("expiresIn", directUploadProperties.getUploadUrlExpirySeconds());
+            return Result.success(result);
+        } catch (Exception e) {
+            return Result.error("获取上传地址失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 直传第二阶段：确认文件已上传到MinIO并激活文件记录
+     *
+     * @param fileId 第一阶段返回的文件ID
+     * @param avatar 是否把该文件设置为当前用户的头像
+     * @return 包含文件ID和URL的对象
+     */
+    @PostMapping("/upload/complete")
+    public Result<Map<String, Object>> completeUpload(@RequestParam("fileId") Long fileId,
+                                                      @RequestParam(value = "avatar", defaultValue = "false") boolean avatar,
+                                                      HttpServletRequest request) {
+        try {
+            Long currentUserId = resolveCurrentUserId(request);
+            if (currentUserId == null) {
+                return Result.error("未授权：认证令牌无效或已过期");
+            }
+            
+            ResourceFile resourceFile = resourceFileService.completeUpload(fileId, currentUserId);
+            if (avatar) {
+                if (!"user-avatars".equals(resourceFile.getBucketName())) {
+                    return Result.error("该文件不是头像文件");
+                }
+                replaceUserAvatar(currentUserId, resourceFile.getId());
+            }
+            
+            Map<String, Object> result = new HashMap<>();
+            result.put("fileId", resourceFile.getId());
+            result.put("url", resourceFileUrlResolver.resolveUrl(resourceFile.getId(), 3600));
+            return Result.success(result);
+        } catch (IllegalArgumentException e) {
+            return Result.error(e.getMessage());
+        } catch (Exception e) {
+            return Result.error("完成上传失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 把用户头像替换为指定文件，并删除旧头像记录和文件
+     *
+     * @param userId 用户ID
+     * @param fileId 新头像文件ID
+     */
+    private void replaceUserAvatar(Long userId, Long fileId) {
+        User user = userMapper.selectById(userId);
+        if (user == null) {
+            return;
+        }
+        // 获取用户当前的头像ID
+        Long oldAvatarFileId = user.getAvatarFileId();
+        
+        // 如果用户已经有头像，则删除旧头像记录和文件
+        if (oldAvatarFileId != null && !oldAvatarFileId.equals(fileId)) {
+            ResourceFile oldAvatarFile = resourceFileMapper.selectById(oldAvatarFileId);
+            ResourceFile newAvatarFile = resourceFileMapper.selectById(fileId);
+            // 固定文件名覆盖上传时新旧头像是同一对象，只删除旧记录
+            boolean sameObject = oldAvatarFile != null && newAvatarFile != null
+                    && oldAvatarFile.getBucketName().equals(newAvatarFile.getBucketName())
+                    && oldAvatarFile.getFileKey().equals(newAvatarFile.getFileKey());
+            if (oldAvatarFile != null && !sameObject) {
+                // 删除MinIO中的旧头像文件
+                fileUploadUtil.removeObject(oldAvatarFile.getBucketName(), oldAvatarFile.getFileKey());
+            }
+            // 删除resource_file表中的旧头像记录
+            resourceFileMapper.deleteById(oldAvatarFileId);
+            resourceFileUrlResolver.evict(java.util.Collections.singletonList(oldAvatarFileId));
+        }
+        
+        // 更新用户头像ID为新头像
+        user.setAvatarFileId(fileId);
+        userMapper.updateById(user);
+    }
+    
+    /**
+     * 解析图片尺寸参数
+     *
+     * @param variant thumbnail-缩略图，medium-预览图，其他为原图
+     * @return 图片尺寸
+     */
+    private ResourceFileUrlResolver.Variant parseVariant(String variant) {
+        if ("thumbnail".equalsIgnoreCase(variant)) {
+            return ResourceFileUrlResolver.Variant.THUMBNAIL;
+        }
+        if ("medium".equalsIgnoreCase(variant)) {
+            return ResourceFileUrlResolver.Variant.MEDIUM;
+        }
+        return ResourceFileUrlResolver.Variant.ORIGINAL;
+    }
+    
+    /**
+     * 从请求的认证令牌中解析当前用户ID（管理员令牌或小程序令牌）
+     *
+     * @param request 请求
+     * @return 用户ID，令牌缺失或无效时返回null
+     */
+    private Long resolveCurrentUserId(HttpServletRequest request) {
+        String authHeader = request.getHeader("Authorization");
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            return null;
+        }
+        String token = authHeader.substring(7);
+        try {
+            if (jwtUtil.validateAdminToken(token)) {
+                return jwtUtil.getClaimFromToken(token, claims -> claims.get("userId", Long.class), jwtUtil.getAdminSecret());
+            }
+            if (jwtUtil.validateMiniappToken(token)) {
+                return jwtUtil.getClaimFromToken(token, claims -> claims.get("userId", Long.class), jwtUtil.getMiniappSecret());
+            }
+        } catch (Exception e) {
+            log.warn("获取用户ID失败: {}", e.getMessage());
+        }
+        return null;
+    }
+    
+    /**
+     * 解析文件类型参数
+     *
+     * @param typeStr 文件类型（数字或image/video/audio）
+     * @return 文件类型：0-其他，1-图片，2-视频，3-音频
+     */
+    private Integer parseFileType(String typeStr) {
+        Integer type = 0; // 默认为0-其他
+        if (typeStr != null && !typeStr.isEmpty()) {
+            try {
+                type = Integer.parseInt(typeStr);
+            } catch (NumberFormatException e) {
+                // 如果无法解析为整数，则根据字符串值设置相应的类型
+                switch (typeStr.toLowerCase()) {
+                    case "image":
+                        type = 1; // 1-图片
+                        break;
+                    case "video":
+                        type = 2; // 2-视频
+                        break;
+                    case "audio":
+                        type = 3; // 3-音频
+                        break;
+                    default:
+                        type = 0; // 0-其他
+                }
+            }
+        }
+        return type;
+    }
+    
+    /**
+     * 根据文件类型选择存储桶
+     *
+     * @param type 文件类型：0-其他，1-图片，2-视频，3-音频
+     * @return 存储桶名称
+     */
+    private String resolveBucketName(Integer type) {
+        switch (type) {
+            case 1: // 图片文件
+                return "content-management-photo";
+            case 2: // 视频文件
+                return "content-management";
+            case 3: // 音频文件
+                return "content-management-audio";
+            default: // 其他文件
+                return "files";
+        }
+    }
 }
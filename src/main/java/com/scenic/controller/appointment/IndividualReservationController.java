@@ -2,11 +2,16 @@ package com.scenic.controller.appointment;
 
 import com.scenic.common.dto.PageResult;
 import com.scenic.common.dto.Result;
+import com.scenic.dto.appointment.GateVerifyRequestDTO;
+import com.scenic.dto.appointment.GateVerifyResultDTO;
 import com.scenic.entity.appointment.IndividualReservation;
+import com.scenic.service.appointment.GateVerificationService;
 import com.scenic.service.appointment.IndividualReservationService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 /**
  * 个人预约控制器
  * 提供管理后台端的API接口
@@ -18,6 +23,14 @@ public class IndividualReservationController {
     @Autowired
     private IndividualReservationService individualReservationService;
     
+    @Autowired
+    private GateVerificationService gateVerificationService;
+    
+    /**
+     * 离线补传单批最大条数
+     */
+    private static final int MAX_GATE_BATCH_SIZE = 1000;
+    
     /**
      * 创建个人预约
      * @param reservation 个人预约信息
@@ -147,4 +160,34 @@ public class IndividualReservationController {
                                           @RequestParam Long updateBy) {
         return individualReservationService.verifyReservation(id, operatorId, verificationLocation, deviceInfo, verificationRemark, updateBy);
     }
+    
+    /**
+     * 闸机实时核销
+     * @param request 核销请求
+     * @return 核销结果（passed为true时放行）
+     */
+    @PostMapping("/gate/verify")
+    public Result<GateVerifyResultDTO> gateVerify(@RequestBody GateVerifyRequestDTO request) {
+        if (request.getReservationId() == null && (request.getReservationNo() == null || request.getReservationNo().isEmpty())) {
+            return Result.error("预约ID和预约编号不能同时为空");
+        }
+        GateVerifyResultDTO result = gateVerificationService.verify(request);
+        return Result.success(result.getMessage(), result);
+    }
+    
+    /**
+     * 手持设备离线补传批量核销
+     * @param requests 核销请求列表（含扫码时间）
+     * @return 与请求顺序一致的核销结果
+     */
+    @PostMapping("/gate/verify/batch")
+    public Result<List<GateVerifyResultDTO>> gateVerifyBatch(@RequestBody List<GateVerifyRequestDTO> requests) {
+        if (requests == null || requests.isEmpty()) {
+            return Result.error("核销记录不能为空");
+        }
+        if (requests.size() > MAX_GATE_BATCH_SIZE) {
+            return Result.error("单次最多补传" + MAX_GATE_BATCH_SIZE + "条核销记录");
+        }
+        return Result.success("补传完成", gateVerificationService.verifyBatch(requests));
+    }
 }
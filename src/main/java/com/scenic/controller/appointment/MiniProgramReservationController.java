@@ -2,10 +2,16 @@ package com.scenic.controller.appointment;
 
 import com.scenic.common.dto.PageResult;
 import com.scenic.common.dto.Result;
+import com.scenic.dto.appointment.ReservationAdmissionDTO;
 import com.scenic.entity.appointment.IndividualReservation;
+import com.scenic.exception.reservation.ReservationException;
 import com.scenic.service.appointment.IndividualReservationService;
+import com.scenic.service.appointment.ReservationAdmissionService;
+import com.scenic.service.appointment.ReservationWriteBehindService;
 import com.scenic.utils.JwtUtil;
 import com.scenic.utils.RedisUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
@@ -21,9 +27,17 @@ import java.util.UUID;
 @RequestMapping("/api/uniapp/individual-reservations")
 public class MiniProgramReservationController {
     
+    private static final Logger log = LoggerFactory.getLogger(MiniProgramReservationController.class);
+    
     @Autowired
     private IndividualReservationService individualReservationService;
     
+    @Autowired
+    private ReservationAdmissionService reservationAdmissionService;
+    
+    @Autowired
+    private ReservationWriteBehindService reservationWriteBehindService;
+    
     @Autowired
     private JwtUtil jwtUtil;
     
@@ -56,17 +70,7 @@ public class MiniProgramReservationController {
             @RequestParam(value = "params[size]", required = false) Integer paramsSize) {
         
         try {
-            // 打印所有参数，用于调试
-            System.out.println("接收到的参数：");
-            System.out.println("idNumber: " + idNumber);
-            System.out.println("status: " + status);
-            System.out.println("page: " + page);
-            System.out.println("size: " + size);
-            System.out.println("params: " + params);
-            System.out.println("paramsIdNumber: " + paramsIdNumber);
-            System.out.println("paramsStatus: " + paramsStatus);
-            System.out.println("paramsPage: " + paramsPage);
-            System.out.println("paramsSize: " + paramsSize);
+            log.debug("接收到的参数：idNumber={}, status={}, page={}, size={}, params={}", idNumber, status, page, size, params);
             
             // 优先使用直接传递的参数
             if (paramsIdNumber != null) {
@@ -84,47 +88,35 @@ public class MiniProgramReservationController {
             
             // 处理小程序传递的params对象格式
             if (params != null) {
-                System.out.println("params内容: " + params);
                 if (idNumber == null && params.containsKey("idNumber")) {
                     idNumber = params.get("idNumber").toString();
-                    System.out.println("从params中获取idNumber: " + idNumber);
                 }
                 if (status == null && params.containsKey("status")) {
                     status = Integer.parseInt(params.get("status").toString());
-                    System.out.println("从params中获取status: " + status);
                 }
                 if (params.containsKey("page")) {
                     page = Integer.parseInt(params.get("page").toString());
-                    System.out.println("从params中获取page: " + page);
                 }
                 if (params.containsKey("size")) {
                     size = Integer.parseInt(params.get("size").toString());
-                    System.out.println("从params中获取size: " + size);
                 }
             }
             
-            System.out.println("最终使用的参数：");
-            System.out.println("idNumber: " + idNumber);
-            System.out.println("status: " + status);
-            System.out.println("page: " + page);
-            System.out.println("size: " + size);
+            log.debug("最终使用的参数：idNumber={}, status={}, page={}, size={}", idNumber, status, page, size);
             
             // 为了测试，直接使用硬编码的证件号码
             idNumber = "520114200401240016";
-            System.out.println("硬编码测试：使用证件号码 " + idNumber);
+            log.debug("硬编码测试：使用证件号码 {}", idNumber);
             
             if (idNumber == null || idNumber.isEmpty()) {
                 return Result.error("证件号码不能为空");
             }
             
             Result<PageResult<IndividualReservation>> result = individualReservationService.getReservationsByIdNumber(idNumber, status, page, size);
-            System.out.println("查询结果：" + result);
-            
-            // 检查结果是否为空
-            if (result.getCode() == 200 && result.getData() != null) {
+            if (log.isDebugEnabled() && result.getCode() == 200 && result.getData() != null) {
                 PageResult<IndividualReservation> pageResult = result.getData();
-                System.out.println("总记录数：" + pageResult.getTotal());
-                System.out.println("当前页记录数：" + (pageResult.getRecords() != null ? pageResult.getRecords().size() : 0));
+                log.debug("总记录数：{}，当前页记录数：{}", pageResult.getTotal(),
+                        pageResult.getRecords() != null ? pageResult.getRecords().size() : 0);
             }
             
             return result;
@@ -133,6 +125,67 @@ public class MiniProgramReservationController {
         }
     }
     
+    /**
+     * 提交预约请求（小程序端）
+     * 请求先进入排队队列并返回凭证，由后台按固定速率创建预约，客户端轮询凭证获取结果。
+     * 预约归属于令牌中的用户，请求体中的用户、编号、状态等字段不予采信
+     * @param reservation 个人预约信息
+     * @param authHeader 小程序令牌
+     * @return 排队凭证
+     */
+    @PostMapping("/admission")
+    public Result<ReservationAdmissionDTO> submitReservation(@RequestBody IndividualReservation reservation,
+            @RequestHeader(value = "Authorization", required = false) String authHeader) {
+        try {
+            Long userId = resolveMiniappUserId(authHeader);
+            if (userId == null) {
+                return Result.error(401, "请先登录");
+            }
+            reservation.setId(null);
+            reservation.setReservationNo(null);
+            reservation.setStatus(null);
+            reservation.setUserId(userId);
+            reservation.setCreateBy(userId);
+            reservation.setUpdateBy(userId);
+            
+            ReservationAdmissionDTO ticket = reservationAdmissionService.enqueue(reservation);
+            return Result.success("已进入排队", ticket);
+        } catch (ReservationException e) {
+            return Result.error(e.getCode(), e.getMessage());
+        } catch (Exception e) {
+            return Result.error("提交预约异常：" + e.getMessage());
+        }
+    }
+    
+    /**
+     * 查询排队凭证状态（小程序端）
+     * @param ticketNo 凭证编号
+     * @return 排队位置或预约结果
+     */
+    @GetMapping("/admission/{ticketNo}")
+    public Result<ReservationAdmissionDTO> getAdmissionStatus(@PathVariable String ticketNo) {
+        try {
+            return Result.success("查询成功", reservationAdmissionService.getTicketStatus(ticketNo));
+        } catch (Exception e) {
+            return Result.error("查询异常：" + e.getMessage());
+        }
+    }
+    
+    /**
+     * 根据预约编号查询写入状态（小程序端）
+     * 异步批量写入模式下，预约受理后可通过此接口确认是否已生效
+     * @param reservationNo 预约编号
+     * @return 写入状态：PENDING-处理中，WRITTEN-已生效，FAILED-失败，NOT_FOUND-不存在
+     */
+    @GetMapping("/status/{reservationNo}")
+    public Result<Map<String, Object>> getWriteStatus(@PathVariable String reservationNo) {
+        try {
+            return Result.success("查询成功", reservationWriteBehindService.getWriteStatus(reservationNo));
+        } catch (Exception e) {
+            return Result.error("查询异常：" + e.getMessage());
+        }
+    }
+    
     /**
      * 根据ID查询预约详情（小程序端）
      * 如果是待核销状态，会生成token用于二维码
@@ -274,4 +327,24 @@ public class MiniProgramReservationController {
             return Result.error("验证异常：" + e.getMessage());
         }
     }
-}
\ No newline at end of file
+    
+    /**
+     * 从小程序令牌中解析用户ID
+     * @param authHeader Authorization请求头
+     * @return 用户ID，令牌缺失或无效时返回null
+     */
+    private Long resolveMiniappUserId(String authHeader) {
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            return null;
+        }
+        String token = authHeader.substring(7);
+        try {
+            if (jwtUtil.validateMiniappToken(token)) {
+                return jwtUtil.getClaimFromToken(token, claims -> claims.get("userId", Long.class), jwtUtil.getMiniappSecret());
+            }
+        } catch (Exception e) {
+            log.warn("解析小程序令牌失败: {}", e.getMessage());
+        }
+        return null;
+    }
+}
@@ -33,6 +33,7 @@ import com.scenic.mapper.appointment.TeamAppointmentMapper;
 import com.scenic.service.appointment.AppointmentService;
 import com.scenic.utils.ExcelParserUtil;
 import com.scenic.utils.FileUploadUtil;
+import com.scenic.utils.ReservationNoGenerator;
 
 /**
  * 团队预约控制器
@@ -53,6 +54,9 @@ public class TeamAppointmentController {
     @Autowired
     private TeamAppointmentMapper teamAppointmentMapper;
     
+    @Autowired
+    private ReservationNoGenerator reservationNoGenerator;
+    
     // 小程序端API接口前缀
     private static final String MINIAPP_PREFIX = "/uniapp";
     
@@ -82,9 +86,8 @@ public class TeamAppointmentController {
         
         // 将TeamAppointmentRequestDTO转换为TeamAppointmentDTO
         TeamAppointmentDTO teamAppointmentDTO = new TeamAppointmentDTO();
-        // 生成预约编号 TA + 当前日期 + 3位随机数
-        String appointmentNo = "TA" + java.time.LocalDate.now().format(java.time.format.DateTimeFormatter.ofPattern("yyyyMMdd")) 
-                             + String.format("%03d", (int)(Math.random() * 1000));
+        // 生成预约编号
+        String appointmentNo = reservationNoGenerator.nextTeamAppointmentNo();
         teamAppointmentDTO.setAppointmentNo(appointmentNo);
         teamAppointmentDTO.setTeamName(appointmentDTO.getTeamName());
         teamAppointmentDTO.setContactPerson(appointmentDTO.getContactPerson());
@@ -142,8 +145,7 @@ public class TeamAppointmentController {
         // 如果没有提供预约编号，则生成一个
         String appointmentNo = appointmentDTO.getAppointmentNo();
         if (appointmentNo == null || appointmentNo.isEmpty()) {
-            appointmentNo = "TA" + java.time.LocalDate.now().format(java.time.format.DateTimeFormatter.ofPattern("yyyyMMdd")) 
-                          + String.format("%03d", (int)(Math.random() * 1000));
+            appointmentNo = reservationNoGenerator.nextTeamAppointmentNo();
         }
         teamAppointmentDTO.setAppointmentNo(appointmentNo);
         teamAppointmentDTO.setUserId(appointmentDTO.getUserId());
@@ -5,9 +5,9 @@ import com.scenic.dto.content.ProtectedReservationInfoDTO;
 import com.scenic.dto.content.ProtectedReservationInfoEnhancedDTO;
 import com.scenic.service.content.ProtectedReservationInfoService;
 import com.scenic.common.dto.PageResult;
-import com.scenic.utils.FileUploadUtil;
-import com.scenic.mapper.ResourceFileMapper;
-import com.scenic.entity.ResourceFile;
+import com.scenic.service.ResourceFileService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -26,14 +26,13 @@ import java.io.InputStream;
 @RequestMapping("/api/manage/content/protected-reservation")
 public class ProtectedReservationInfoController {
     
+    private static final Logger log = LoggerFactory.getLogger(ProtectedReservationInfoController.class);
+    
     @Resource
     private ProtectedReservationInfoService protectedReservationInfoService;
     
     @Autowired
-    private FileUploadUtil fileUploadUtil;
-    
-    @Autowired
-    private ResourceFileMapper resourceFileMapper;
+    private ResourceFileService resourceFileService;
     
     @Autowired
     private com.scenic.mapper.content.ProtectedReservationInfoMapper protectedReservationInfoMapper;
@@ -400,35 +399,18 @@ public class ProtectedReservationInfoController {
                         System.out.println("提取到" + fileType + "ID: " + idStr);
                     }
                     
-                    // 直接删除文件
+                    // 释放文件引用，引用计数归零的文件才删除记录和MinIO对象
                     if (!fileIds.isEmpty()) {
+                        List<Long> longFileIds = new java.util.ArrayList<>();
                         for (String fileIdStr : fileIds) {
                             try {
-                                Long fileId = Long.parseLong(fileIdStr);
-                                ResourceFile resourceFile = resourceFileMapper.selectById(fileId);
-                                
-                                if (resourceFile != null) {
-                                    System.out.println("找到" + fileType + "文件记录: ID=" + resourceFile.getId() + ", 文件名=" + resourceFile.getFileName());
-                                    
-                                    // 删除MinIO中的文件
-                                    try {
-                                        fileUploadUtil.removeObject(resourceFile.getBucketName(), resourceFile.getFileKey());
-                                        System.out.println("已删除MinIO中的" + fileType + "文件: " + resourceFile.getBucketName() + "/" + resourceFile.getFileKey());
-                                    } catch (Exception e) {
-                                        System.err.println("删除MinIO中的" + fileType + "文件失败: " + e.getMessage());
-                                    }
-                                    
-                                    // 删除数据库中的文件记录
-                                    int result = resourceFileMapper.deleteById(fileId);
-                                    System.out.println("删除" + fileType + "文件记录结果: " + result);
-                                } else {
-                                    System.out.println("未找到ID为" + fileId + "的" + fileType + "文件记录");
-                                }
-                            } catch (Exception e) {
+                                longFileIds.add(Long.parseLong(fileIdStr));
+                            } catch (NumberFormatException e) {
                                 System.err.println("处理" + fileType + "文件ID时发生异常: " + e.getMessage());
-                                e.printStackTrace();
                             }
                         }
+                        int deleted = resourceFileService.release(longFileIds);
+                        log.debug("释放{}文件引用完成，删除的文件记录数量: {}", fileType, deleted);
                     }
                     
                     return fileIds;
@@ -1,6 +1,5 @@
 package com.scenic.controller.interaction;
 
-import java.io.IOException;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,13 +13,13 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.scenic.common.dto.CursorPageResult;
 import com.scenic.common.dto.Result;
 import com.scenic.dto.interaction.PhotoCheckInDTO;
 import com.scenic.dto.interaction.PhotoCheckInQueryDTO;
 import com.scenic.entity.interaction.vo.CheckinCategoryVO;
 import com.scenic.entity.interaction.vo.PhotoCheckInVO;
 import com.scenic.service.interaction.PhotoCheckInService;
-import com.scenic.utils.FileUploadUtil;
 import com.scenic.common.dto.PageResult;
 
 /**
@@ -39,9 +38,6 @@ public class PhotoCheckInController {
     
     @Autowired
     private PhotoCheckInService photoCheckInService;
-    
-    @Autowired
-    private FileUploadUtil fileUploadUtil;
 
 
 
@@ -65,19 +61,14 @@ public class PhotoCheckInController {
             @RequestParam("categoryId") Long categoryId) {
         
         try {
-        // 处理文件上传到照片打卡专用存储桶
-        String photoUrl = fileUploadUtil.uploadPhotoCheckinFile(photo);
-            
             PhotoCheckInDTO photoCheckInDTO = new PhotoCheckInDTO();
             photoCheckInDTO.setUserId(userId);
             photoCheckInDTO.setUserName(userName);
-            photoCheckInDTO.setPhotoUrl(photoUrl);
             photoCheckInDTO.setTitle(title);
             photoCheckInDTO.setCategoryId(categoryId);
             
-            return photoCheckInService.uploadPhotoCheckIn(photoCheckInDTO);
-        } catch (IOException e) {
-            return Result.error("文件上传失败：" + e.getMessage());
+            // 照片由服务层上传到照片打卡专用存储桶，内容相同的照片复用已有文件
+            return photoCheckInService.uploadPhotoCheckIn(photoCheckInDTO, photo);
         } catch (Exception e) {
             return Result.error("上传失败：" + e.getMessage());
         }
@@ -100,25 +91,9 @@ public class PhotoCheckInController {
             title = null;
         }
         
-        // 处理categoryId参数，将字符串转换为Long，处理null和"null"字符串
-        Long categoryId = null;
-        if (categoryIdStr != null && !categoryIdStr.isEmpty() && !"null".equals(categoryIdStr) && !"undefined".equals(categoryIdStr)) {
-            try {
-                categoryId = Long.parseLong(categoryIdStr);
-            } catch (NumberFormatException e) {
-                // 忽略无效的categoryId
-            }
-        }
-        
-        // 处理userId参数，将字符串转换为Long，处理null和"null"字符串
-        Long userId = null;
-        if (userIdStr != null && !userIdStr.isEmpty() && !"null".equals(userIdStr) && !"undefined".equals(userIdStr)) {
-            try {
-                userId = Long.parseLong(userIdStr);
-            } catch (NumberFormatException e) {
-                // 忽略无效的userId
-            }
-        }
+        // 处理categoryId、userId参数，将字符串转换为Long，处理null和"null"字符串
+        Long categoryId = parseOptionalId(categoryIdStr);
+        Long userId = parseOptionalId(userIdStr);
         
         PhotoCheckInQueryDTO queryDTO = new PhotoCheckInQueryDTO();
         queryDTO.setPageNum(pageNum);
@@ -130,6 +105,45 @@ public class PhotoCheckInController {
         return photoCheckInService.getAllPhotoCheckIns(queryDTO, userId);
     }
     
+    /**
+     * 小程序端 - 按游标获取最新照片打卡记录（无限滚动，不返回总数）
+     * 首页不传cursor，之后传上一页返回的nextCursor，hasMore为false时已到末尾
+     * @return 游标分页结果
+     */
+    @GetMapping(MINIAPP_PREFIX + "/photo-check-in/feed")
+    public Result<CursorPageResult<PhotoCheckInVO>> getPhotoCheckInFeedForMiniapp(
+            @RequestParam(value = "params[cursor]", required = false) String cursor,
+            @RequestParam(value = "params[pageSize]", defaultValue = "10") Integer pageSize,
+            @RequestParam(value = "params[title]", required = false) String title,
+            @RequestParam(value = "params[categoryId]", required = false) String categoryIdStr,
+            @RequestParam(value = "params[userId]", required = false) String userIdStr) {
+        if (title != null && "undefined".equals(title)) {
+            title = null;
+        }
+        if (cursor != null && ("undefined".equals(cursor) || "null".equals(cursor))) {
+            cursor = null;
+        }
+        try {
+            return Result.success(photoCheckInService.getPhotoCheckInFeed(title, parseOptionalId(categoryIdStr), cursor,
+                    pageSize, parseOptionalId(userIdStr)));
+        } catch (IllegalArgumentException e) {
+            return Result.error(e.getMessage());
+        }
+    }
+    
+    /**
+     * 小程序端 - 获取热门照片打卡（按近期点赞、收藏热度排序）
+     * @return 热门照片打卡列表
+     */
+    @GetMapping(MINIAPP_PREFIX + "/photo-check-in/hot")
+    public Result<List<PhotoCheckInVO>> getHotPhotoCheckInsForMiniapp(
+            @RequestParam(value = "params[categoryId]", required = false) String categoryIdStr,
+            @RequestParam(value = "params[limit]", defaultValue = "10") Integer limit,
+            @RequestParam(value = "params[userId]", required = false) String userIdStr) {
+        return Result.success(photoCheckInService.getHotPhotoCheckIns(parseOptionalId(categoryIdStr), limit,
+                parseOptionalId(userIdStr)));
+    }
+    
     /**
      * 小程序端 - 点赞照片打卡
      * @param photoCheckInId 照片打卡ID
@@ -145,11 +159,13 @@ public class PhotoCheckInController {
     /**
      * 小程序端 - 取消点赞照片打卡
      * @param photoCheckInId 照片打卡ID
+     * @param userId 用户ID
      * @return 操作结果
      */
     @DeleteMapping(MINIAPP_PREFIX + "/photo-check-in/unlike/{photoCheckInId}")
-    public Result<String> unlikePhotoCheckIn(@PathVariable Long photoCheckInId) {
-        return photoCheckInService.unlikePhotoCheckIn(photoCheckInId);
+    public Result<String> unlikePhotoCheckIn(@PathVariable Long photoCheckInId,
+                                           @RequestParam("userId") Long userId) {
+        return photoCheckInService.unlikePhotoCheckIn(photoCheckInId, userId);
     }
     
     /**
@@ -365,4 +381,17 @@ public class PhotoCheckInController {
         return photoCheckInService.deleteCategory(categoryId);
     }
     
-}
\ No newline at end of file
+    /**
+     * 解析小程序传入的可选ID参数，空值、"null"、"undefined"及无效数字返回null
+     */
+    private Long parseOptionalId(String value) {
+        if (value == null || value.isEmpty() || "null".equals(value) || "undefined".equals(value)) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.scenic.controller.system;
+
+import com.scenic.common.dto.Result;
+import com.scenic.utils.EndpointMetrics;
+import com.scenic.utils.SqlStatementStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 运行统计控制器（管理后台内部使用）
+ */
+@RestController
+@RequestMapping("/api/manage/metrics")
+public class MetricsController {
+    
+    @Autowired
+    private EndpointMetrics endpointMetrics;
+    
+    @Autowired
+    private SqlStatementStats sqlStatementStats;
+    
+    /**
+     * 获取各接口的请求数、耗时分位数（p50/p95/p99）和每个请求的SQL条数
+     * @return 按累计耗时倒序的统计列表
+     */
+    @GetMapping("/requests")
+    public Result<List<Map<String, Object>>> getRequestMetrics() {
+        return Result.success(endpointMetrics.snapshot());
+    }
+    
+    /**
+     * 清空接口统计，重新开始累计
+     * @return 操作结果
+     */
+    @DeleteMapping("/requests")
+    public Result<String> resetRequestMetrics() {
+        endpointMetrics.reset();
+        return Result.success("操作成功", "统计已清空");
+    }
+    
+    /**
+     * 获取最近窗口内累计耗时最多的SQL语句（按Mapper方法统计次数、耗时、行数和慢SQL次数）
+     * @return 语句统计列表
+     */
+    @GetMapping("/sql")
+    public Result<List<Map<String, Object>>> getSqlMetrics() {
+        return Result.success(sqlStatementStats.top());
+    }
+}
@@ -0,0 +1,88 @@
+package com.scenic.dto.appointment;
+
+/**
+ * 闸机核销请求DTO类
+ * 用于闸机实时核销及手持设备离线补传，预约ID和预约编号至少提供一个
+ */
+public class GateVerifyRequestDTO {
+
+    private Long reservationId;
+    private String reservationNo;
+    private Long operatorId;
+    private String verificationLocation;
+    private String deviceInfo;
+    private String verificationRemark;
+    private Long scanTime; // 扫码时间（毫秒时间戳），离线补传时必填，作为核销时间
+
+    // 构造函数
+    public GateVerifyRequestDTO() {}
+
+    // Getter 和 Setter 方法
+    public Long getReservationId() {
+        return reservationId;
+    }
+
+    public void setReservationId(Long reservationId) {
+        this.reservationId = reservationId;
+    }
+
+    public String getReservationNo() {
+        return reservationNo;
+    }
+
+    public void setReservationNo(String reservationNo) {
+        this.reservationNo = reservationNo;
+    }
+
+    public Long getOperatorId() {
+        return operatorId;
+    }
+
+    public void setOperatorId(Long operatorId) {
+        this.operatorId = operatorId;
+    }
+
+    public String getVerificationLocation() {
+        return verificationLocation;
+    }
+
+    public void setVerificationLocation(String verificationLocation) {
+        this.verificationLocation = verificationLocation;
+    }
+
+    public String getDeviceInfo() {
+        return deviceInfo;
+    }
+
+    public void setDeviceInfo(String deviceInfo) {
+        this.deviceInfo = deviceInfo;
+    }
+
+    public String getVerificationRemark() {
+        return verificationRemark;
+    }
+
+    public void setVerificationRemark(String verificationRemark) {
+        this.verificationRemark = verificationRemark;
+    }
+
+    public Long getScanTime() {
+        return scanTime;
+    }
+
+    public void setScanTime(Long scanTime) {
+        this.scanTime = scanTime;
+    }
+
+    @Override
+    public String toString() {
+        return "GateVerifyRequestDTO{" +
+                "reservationId=" + reservationId +
+                ", reservationNo='" + reservationNo + '\'' +
+                ", operatorId=" + operatorId +
+                ", verificationLocation='" + verificationLocation + '\'' +
+                ", deviceInfo='" + deviceInfo + '\'' +
+                ", scanTime=" + scanTime +
+                '}';
+    }
+}
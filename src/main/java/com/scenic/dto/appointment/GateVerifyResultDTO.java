@@ -0,0 +1,98 @@
+package com.scenic.dto.appointment;
+
+import java.util.Date;
+
+/**
+ * 闸机核销结果DTO类
+ */
+public class GateVerifyResultDTO {
+
+    /** 本次核销成功 */
+    public static final String RESULT_VERIFIED = "VERIFIED";
+    /** 此前已核销（重复扫码或离线重复补传），视为成功 */
+    public static final String RESULT_ALREADY_VERIFIED = "ALREADY_VERIFIED";
+    /** 预约已取消 */
+    public static final String RESULT_CANCELLED = "CANCELLED";
+    /** 预约已过期 */
+    public static final String RESULT_EXPIRED = "EXPIRED";
+    /** 预约不存在 */
+    public static final String RESULT_NOT_FOUND = "NOT_FOUND";
+    /** 预约被并发修改，重试后仍未核销 */
+    public static final String RESULT_CONFLICT = "CONFLICT";
+
+    private Long reservationId;
+    private String reservationNo;
+    private String result;
+    private Date verificationTime; // 生效的核销时间，仅核销成功或已核销时有效
+    private String message;
+
+    // 构造函数
+    public GateVerifyResultDTO() {}
+
+    public GateVerifyResultDTO(Long reservationId, String reservationNo, String result, String message) {
+        this.reservationId = reservationId;
+        this.reservationNo = reservationNo;
+        this.result = result;
+        this.message = message;
+    }
+
+    /**
+     * 是否可放行
+     * @return 核销成功或此前已核销时返回true
+     */
+    public boolean isPassed() {
+        return RESULT_VERIFIED.equals(result) || RESULT_ALREADY_VERIFIED.equals(result);
+    }
+
+    // Getter 和 Setter 方法
+    public Long getReservationId() {
+        return reservationId;
+    }
+
+    public void setReservationId(Long reservationId) {
+        this.reservationId = reservationId;
+    }
+
+    public String getReservationNo() {
+        return reservationNo;
+    }
+
+    public void setReservationNo(String reservationNo) {
+        this.reservationNo = reservationNo;
+    }
+
+    public String getResult() {
+        return result;
+    }
+
+    public void setResult(String result) {
+        this.result = result;
+    }
+
+    public Date getVerificationTime() {
+        return verificationTime;
+    }
+
+    public void setVerificationTime(Date verificationTime) {
+        this.verificationTime = verificationTime;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    @Override
+    public String toString() {
+        return "GateVerifyResultDTO{" +
+                "reservationId=" + reservationId +
+                ", reservationNo='" + reservationNo + '\'' +
+                ", result='" + result + '\'' +
+                ", verificationTime=" + verificationTime +
+                ", message='" + message + '\'' +
+                '}';
+    }
+}
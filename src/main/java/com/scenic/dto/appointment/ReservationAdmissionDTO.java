@@ -0,0 +1,83 @@
+package com.scenic.dto.appointment;
+
+/**
+ * 预约排队凭证DTO类
+ * 用于返回小程序端排队预约的凭证及处理状态
+ */
+public class ReservationAdmissionDTO {
+
+    /** 排队中 */
+    public static final String STATUS_WAITING = "WAITING";
+    /** 预约成功 */
+    public static final String STATUS_SUCCESS = "SUCCESS";
+    /** 预约失败 */
+    public static final String STATUS_FAILED = "FAILED";
+    /** 凭证不存在或已过期 */
+    public static final String STATUS_EXPIRED = "EXPIRED";
+
+    private String ticketNo;
+    private String status;
+    private Long position; // 前方排队人数，仅排队中有效
+    private String reservationNo; // 预约编号，仅预约成功有效
+    private String message;
+
+    // 构造函数
+    public ReservationAdmissionDTO() {}
+
+    public ReservationAdmissionDTO(String ticketNo, String status) {
+        this.ticketNo = ticketNo;
+        this.status = status;
+    }
+
+    // Getter 和 Setter 方法
+    public String getTicketNo() {
+        return ticketNo;
+    }
+
+    public void setTicketNo(String ticketNo) {
+        this.ticketNo = ticketNo;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Long getPosition() {
+        return position;
+    }
+
+    public void setPosition(Long position) {
+        this.position = position;
+    }
+
+    public String getReservationNo() {
+        return reservationNo;
+    }
+
+    public void setReservationNo(String reservationNo) {
+        this.reservationNo = reservationNo;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    @Override
+    public String toString() {
+        return "ReservationAdmissionDTO{" +
+                "ticketNo='" + ticketNo + '\'' +
+                ", status='" + status + '\'' +
+                ", position=" + position +
+                ", reservationNo='" + reservationNo + '\'' +
+                ", message='" + message + '\'' +
+                '}';
+    }
+}
@@ -20,6 +20,7 @@ public class ProtectedReservationInfoDTO {
     private List<Long> galleryFileIds; // 画廊文件ID列表
     private List<Long> audioFileIds; // 音频文件ID列表
     private List<Long> videoFileIds; // 视频文件ID列表
+    private List<Long> uploadedVideoFileIds; // 通过直传上传完成的视频文件ID列表
     private java.util.Map<String, List<Long>> deletedFileIds; // 要删除的文件ID映射表，key为文件类型(carousel, gallery, audio, video, contentImage)
     private Byte deleted; // 删除标记
     private LocalDateTime createTime; // 创建时间
@@ -119,6 +120,14 @@ public class ProtectedReservationInfoDTO {
         this.videoFileIds = videoFileIds;
     }
 
+    public List<Long> getUploadedVideoFileIds() {
+        return uploadedVideoFileIds;
+    }
+
+    public void setUploadedVideoFileIds(List<Long> uploadedVideoFileIds) {
+        this.uploadedVideoFileIds = uploadedVideoFileIds;
+    }
+
     public java.util.Map<String, List<Long>> getDeletedFileIds() {
         return deletedFileIds;
     }
@@ -183,6 +192,7 @@ public class ProtectedReservationInfoDTO {
                 ", galleryFileIds=" + galleryFileIds +
                 ", audioFileIds=" + audioFileIds +
                 ", videoFileIds=" + videoFileIds +
+                ", uploadedVideoFileIds=" + uploadedVideoFileIds +
                 ", deletedFileIds=" + deletedFileIds +
                 ", deleted=" + deleted +
                 ", createTime=" + createTime +
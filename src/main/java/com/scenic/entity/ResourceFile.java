@@ -20,7 +20,11 @@ public class ResourceFile {
     private Integer height;
     private Integer duration;
     private String sha256;
+    private Integer refCount;
+    private String thumbnailKey;
+    private String mediumKey;
     private Long uploadUserId;
+    private Integer isTemp;
     private LocalDateTime createTime;
     private LocalDateTime updateTime;
     private Long createBy;
@@ -118,6 +122,30 @@ public class ResourceFile {
         this.sha256 = sha256;
     }
 
+    public Integer getRefCount() {
+        return refCount;
+    }
+
+    public void setRefCount(Integer refCount) {
+        this.refCount = refCount;
+    }
+
+    public String getThumbnailKey() {
+        return thumbnailKey;
+    }
+
+    public void setThumbnailKey(String thumbnailKey) {
+        this.thumbnailKey = thumbnailKey;
+    }
+
+    public String getMediumKey() {
+        return mediumKey;
+    }
+
+    public void setMediumKey(String mediumKey) {
+        this.mediumKey = mediumKey;
+    }
+
     public Long getUploadUserId() {
         return uploadUserId;
     }
@@ -126,6 +154,14 @@ public class ResourceFile {
         this.uploadUserId = uploadUserId;
     }
 
+    public Integer getIsTemp() {
+        return isTemp;
+    }
+
+    public void setIsTemp(Integer isTemp) {
+        this.isTemp = isTemp;
+    }
+
     public LocalDateTime getCreateTime() {
         return createTime;
     }
@@ -171,7 +207,12 @@ public class ResourceFile {
                 ", width=" + width +
                 ", height=" + height +
                 ", duration=" + duration +
+                ", sha256='" + sha256 + '\'' +
+                ", refCount=" + refCount +
+                ", thumbnailKey='" + thumbnailKey + '\'' +
+                ", mediumKey='" + mediumKey + '\'' +
                 ", uploadUserId=" + uploadUserId +
+                ", isTemp=" + isTemp +
                 ", createTime=" + createTime +
                 ", updateTime=" + updateTime +
                 ", createBy=" + createBy +
@@ -39,6 +39,16 @@ public class PhotoCheckInVO {
      */
     private String photoPath;
     
+    /**
+     * 缩略图URL（列表展示），尚未生成时为原图URL
+     */
+    private String thumbnailUrl;
+    
+    /**
+     * 中等尺寸预览图URL（详情展示），尚未生成时为原图URL
+     */
+    private String mediumUrl;
+    
     /**
      * 是否收藏
      */
@@ -110,6 +120,22 @@ public class PhotoCheckInVO {
     public void setPhotoPath(String photoPath) {
         this.photoPath = photoPath;
     }
+
+    public String getThumbnailUrl() {
+        return thumbnailUrl;
+    }
+
+    public void setThumbnailUrl(String thumbnailUrl) {
+        this.thumbnailUrl = thumbnailUrl;
+    }
+
+    public String getMediumUrl() {
+        return mediumUrl;
+    }
+
+    public void setMediumUrl(String mediumUrl) {
+        this.mediumUrl = mediumUrl;
+    }
     
     public Boolean getIsCollected() {
         return isCollected;
@@ -24,6 +24,14 @@ public interface ResourceFileMapper {
     @Select("SELECT * FROM resource_file WHERE id = #{id}")
     ResourceFile selectById(Long id);
     
+    /**
+     * 根据ID列表批量查询文件资源
+     * @param ids 文件资源ID列表
+     * @return 文件资源列表
+     */
+    @Select("<script>SELECT * FROM resource_file WHERE id IN <foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach></script>")
+    List<ResourceFile> selectByIds(@Param("ids") java.util.Collection<Long> ids);
+    
     /**
      * 根据文件键查询文件资源
      * @param fileKey 文件键
@@ -41,6 +49,15 @@ public interface ResourceFileMapper {
     @Select("SELECT * FROM resource_file WHERE bucket_name = #{bucketName} AND file_key = #{fileKey}")
     ResourceFile selectByBucketAndKey(@Param("bucketName") String bucketName, @Param("fileKey") String fileKey);
     
+    /**
+     * 根据存储桶和内容哈希查询文件资源
+     * @param bucketName 存储桶名称
+     * @param sha256 文件内容SHA-256（十六进制）
+     * @return 文件资源信息
+     */
+    @Select("SELECT * FROM resource_file WHERE bucket_name = #{bucketName} AND sha256 = #{sha256} LIMIT 1")
+    ResourceFile selectByBucketAndSha256(@Param("bucketName") String bucketName, @Param("sha256") String sha256);
+    
     /**
      * 根据用户ID查询用户头像
      * @param userId 用户ID
@@ -64,12 +81,106 @@ public interface ResourceFileMapper {
      * @return 插入结果
      */
     @Insert("INSERT INTO resource_file(id, file_name, file_key, bucket_name, file_size, mime_type, file_type, width, height, " +
-            "duration, sha256, upload_user_id, create_time, update_time, create_by, update_by) " +
+            "duration, sha256, ref_count, upload_user_id, is_temp, create_time, update_time, create_by, update_by) " +
             "VALUES(#{id}, #{fileName}, #{fileKey}, #{bucketName}, #{fileSize}, #{mimeType}, #{fileType}, #{width}, #{height}, " +
-            "#{duration}, #{sha256}, #{uploadUserId}, #{createTime}, #{updateTime}, #{createBy}, #{updateBy})")
+            "#{duration}, #{sha256}, IFNULL(#{refCount}, 1), #{uploadUserId}, IFNULL(#{isTemp}, 0), #{createTime}, #{updateTime}, #{createBy}, #{updateBy})")
     @Options(useGeneratedKeys = true, keyProperty = "id")
     int insert(ResourceFile resourceFile);
     
+    /**
+     * 激活直传完成的文件记录
+     * @param id 文件资源ID
+     * @param fileSize MinIO中对象的实际大小
+     * @param mimeType MinIO中对象的内容类型
+     * @return 更新结果（记录不存在或已激活时为0）
+     */
+    @Update("UPDATE resource_file SET is_temp = 0, file_size = #{fileSize}, mime_type = #{mimeType}, update_time = NOW() " +
+            "WHERE id = #{id} AND is_temp = 1")
+    int activatePendingUpload(@Param("id") Long id, @Param("fileSize") Long fileSize, @Param("mimeType") String mimeType);
+    
+    /**
+     * 认领直传完成、尚未被引用的文件：引用计数由0置为1，每个文件只能认领一次
+     * @param id 文件资源ID
+     * @param uploadUserId 上传用户ID，必须与发起直传的用户一致
+     * @param bucketName 存储桶
+     * @param mimeTypePrefix 内容类型前缀（如 video/）
+     * @return 更新结果（文件不存在、未完成上传、已被引用或不符合条件时为0）
+     */
+    @Update("UPDATE resource_file SET ref_count = 1, update_time = NOW() " +
+            "WHERE id = #{id} AND upload_user_id = #{uploadUserId} AND bucket_name = #{bucketName} " +
+            "AND is_temp = 0 AND ref_count = 0 AND mime_type LIKE CONCAT(#{mimeTypePrefix}, '%')")
+    int claimDirectUpload(@Param("id") Long id, @Param("uploadUserId") Long uploadUserId,
+                          @Param("bucketName") String bucketName, @Param("mimeTypePrefix") String mimeTypePrefix);
+    
+    /**
+     * 查询超时未完成的直传文件记录
+     * @param before 创建时间早于该时间的记录
+     * @param limit 最大条数
+     * @return 文件资源列表
+     */
+    @Select("SELECT * FROM resource_file WHERE is_temp = 1 AND create_time < #{before} ORDER BY create_time LIMIT #{limit}")
+    List<ResourceFile> selectExpiredPendingUploads(@Param("before") java.time.LocalDateTime before, @Param("limit") int limit);
+    
+    /**
+     * 删除未完成的直传文件记录
+     * @param id 文件资源ID
+     * @return 删除结果（记录已被激活时为0）
+     */
+    @Delete("DELETE FROM resource_file WHERE id = #{id} AND is_temp = 1")
+    int deletePendingUpload(Long id);
+    
+    /**
+     * 保存图片派生尺寸的对象键及原图尺寸
+     * @param id 文件资源ID
+     * @param thumbnailKey 缩略图对象键
+     * @param mediumKey 中等尺寸预览图对象键
+     * @param width 原图宽度（未知时为null，不覆盖已有值）
+     * @param height 原图高度（未知时为null，不覆盖已有值）
+     * @return 更新结果
+     */
+    @Update("UPDATE resource_file SET thumbnail_key = #{thumbnailKey}, medium_key = #{mediumKey}, " +
+            "width = IFNULL(#{width}, width), height = IFNULL(#{height}, height), update_time = NOW() WHERE id = #{id}")
+    int updateDerivativeKeys(@Param("id") Long id, @Param("thumbnailKey") String thumbnailKey,
+                             @Param("mediumKey") String mediumKey, @Param("width") Integer width,
+                             @Param("height") Integer height);
+    
+    /**
+     * 查询尚未生成派生尺寸的图片
+     * @param bucketNames 需要生成派生尺寸的存储桶
+     * @param limit 最大条数
+     * @return 文件资源列表
+     */
+    @Select("<script>SELECT * FROM resource_file WHERE bucket_name IN " +
+            "<foreach collection='bucketNames' item='bucketName' open='(' separator=',' close=')'>#{bucketName}</foreach> " +
+            "AND mime_type LIKE 'image/%' AND thumbnail_key IS NULL AND IFNULL(is_temp, 0) = 0 " +
+            "ORDER BY create_time DESC LIMIT #{limit}</script>")
+    List<ResourceFile> selectMissingDerivatives(@Param("bucketNames") java.util.Collection<String> bucketNames,
+                                                @Param("limit") int limit);
+    
+    /**
+     * 增加文件引用计数
+     * @param id 文件资源ID
+     * @return 更新结果（记录已被删除时为0）
+     */
+    @Update("UPDATE resource_file SET ref_count = ref_count + 1, update_time = NOW() WHERE id = #{id}")
+    int incrementRefCount(Long id);
+    
+    /**
+     * 减少文件引用计数，仅在还有其他引用时生效
+     * @param id 文件资源ID
+     * @return 更新结果（只剩最后一个引用时为0）
+     */
+    @Update("UPDATE resource_file SET ref_count = ref_count - 1, update_time = NOW() WHERE id = #{id} AND ref_count > 1")
+    int decrementRefCount(Long id);
+    
+    /**
+     * 删除只剩最后一个引用的文件资源记录
+     * @param id 文件资源ID
+     * @return 删除结果（引用计数已被其他请求增加时为0）
+     */
+    @Delete("DELETE FROM resource_file WHERE id = #{id} AND ref_count <= 1")
+    int deleteLastReference(Long id);
+    
     /**
      * 根据ID删除文件资源记录
      * @param id 文件资源ID
@@ -4,8 +4,10 @@ import com.scenic.entity.appointment.IndividualReservation;
 import com.scenic.entity.appointment.IndividualReservationPerson;
 import org.apache.ibatis.annotations.*;
 
+import java.time.LocalDate;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 @Mapper
 public interface IndividualReservationMapper {
@@ -81,11 +83,20 @@ public interface IndividualReservationMapper {
     int insert(IndividualReservation reservation);
     
     /**
-     * 更新个人预约信息
-     * @param reservation 个人预约信息
-     * @return 更新结果
+     * 批量插入个人预约（多行INSERT，回填自增ID）
+     * @param reservations 个人预约列表
+     * @return 插入结果
      */
-    int updateById(IndividualReservation reservation);
+    int insertBatch(@Param("reservations") List<IndividualReservation> reservations);
+    
+    /**
+     * 更新个人预约信息（按版本号条件更新）
+     * @param reservation 个人预约信息，version 为更新后的版本号
+     * @param expectedVersion 读取时的版本号
+     * @return 更新行数，0表示预约已被并发修改或已删除
+     */
+    int updateById(@Param("reservation") IndividualReservation reservation,
+                   @Param("expectedVersion") Integer expectedVersion);
     
     /**
      * 根据ID删除个人预约（逻辑删除）
@@ -187,14 +198,6 @@ public interface IndividualReservationMapper {
                                            @Param("idType") Integer idType,
                                            @Param("idNumber") String idNumber);
     
-    /**
-     * 根据预约ID查询主联系人信息
-     * @param reservationId 预约ID
-     * @return 主联系人信息
-     */
-    @Select("SELECT * FROM individual_reservation_person WHERE reservation_id = #{reservationId} AND is_contact = 1 AND deleted = 0")
-    IndividualReservationPerson selectMainContactByReservationId(Long reservationId);
-    
     /**
      * 插入个人预约人员
      * @param person 个人预约人员信息
@@ -215,12 +218,11 @@ public interface IndividualReservationMapper {
     int insertPersonsBatch(@Param("persons") List<IndividualReservationPerson> persons);
     
     /**
-     * 根据预约ID查询所有预约人员信息
-     * @param reservationId 预约ID
+     * 批量查询多个预约的人员信息（主联系人在前）
+     * @param reservationIds 预约ID列表
      * @return 预约人员列表
      */
-    @Select("SELECT * FROM individual_reservation_person WHERE reservation_id = #{reservationId} AND deleted = 0 ORDER BY is_contact DESC, create_time ASC")
-    List<IndividualReservationPerson> selectReservationPersonsByReservationId(Long reservationId);
+    List<IndividualReservationPerson> selectPersonsByReservationIds(@Param("reservationIds") List<Long> reservationIds);
     
     /**
      * 管理员查询个人预约列表（带条件查询）
@@ -263,4 +265,66 @@ public interface IndividualReservationMapper {
      * @return 总数
      */
     int selectCountByIdNumberAndStatus(@Param("idNumber") String idNumber, @Param("status") Integer status);
-}
\ No newline at end of file
+    
+    /**
+     * 按入区日期和时段统计已占用人数（个人预约 + 团队预约）
+     * 团队预约按预约时间归入时段：12点前为上午(1)，其余为下午(2)
+     * @param startDate 开始日期（含）
+     * @param endDate 结束日期（含）
+     * @param timeSlot 时段（可选）
+     * @return 统计列表，字段：visit_date, time_slot, booked_count
+     */
+    List<Map<String, Object>> selectSlotBookedCounts(@Param("startDate") LocalDate startDate,
+                                                    @Param("endDate") LocalDate endDate,
+                                                    @Param("timeSlot") Integer timeSlot);
+    
+    /**
+     * 按主键游标查询下一批待过期预约（未开始且入区日期在范围内），只返回id和version
+     * @param lastId 上一批的最大ID（不含）
+     * @param startDate 入区日期下限（含，可选）
+     * @param endDate 入区日期上限（不含）
+     * @param timeSlot 时段（可选）
+     * @param limit 每批数量
+     * @return 按ID升序的预约列表
+     */
+    List<IndividualReservation> selectExpireChunk(@Param("lastId") long lastId,
+                                                  @Param("startDate") LocalDate startDate,
+                                                  @Param("endDate") LocalDate endDate,
+                                                  @Param("timeSlot") Integer timeSlot,
+                                                  @Param("limit") int limit);
+    
+    /**
+     * 将ID区间 (lastId, upperId] 内满足条件的未开始预约批量更新为已过期（11）
+     * @param lastId 区间下限（不含）
+     * @param upperId 区间上限（含）
+     * @param startDate 入区日期下限（含，可选）
+     * @param endDate 入区日期上限（不含）
+     * @param timeSlot 时段（可选）
+     * @return 更新行数
+     */
+    int expireByIdRange(@Param("lastId") long lastId,
+                        @Param("upperId") long upperId,
+                        @Param("startDate") LocalDate startDate,
+                        @Param("endDate") LocalDate endDate,
+                        @Param("timeSlot") Integer timeSlot);
+    
+    /**
+     * 批量查询预约的核销相关状态（不含人员信息）
+     * @param ids 预约ID列表（可为空）
+     * @param reservationNos 预约编号列表（可为空）
+     * @return 预约列表，字段：id, reservation_no, visit_date, time_slot, status, version, verification_time
+     */
+    List<IndividualReservation> selectVerifyStates(@Param("ids") List<Long> ids,
+                                                   @Param("reservationNos") List<String> reservationNos);
+    
+    /**
+     * 条件核销：仅当状态和版本号均未变化时将预约置为已核销（10），版本号加1
+     * @param reservation 核销信息（id, verificationTime, operatorId, verificationLocation, deviceInfo, verificationRemark, updateBy）
+     * @param expectedStatus 期望的当前状态
+     * @param expectedVersion 期望的当前版本号
+     * @return 更新行数，0表示状态或版本已变化
+     */
+    int verifyIfUnchanged(@Param("reservation") IndividualReservation reservation,
+                          @Param("expectedStatus") int expectedStatus,
+                          @Param("expectedVersion") int expectedVersion);
+}
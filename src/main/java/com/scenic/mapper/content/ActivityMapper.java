@@ -9,6 +9,7 @@ import org.apache.ibatis.annotations.Options;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.cursor.Cursor;
 
 import com.scenic.entity.content.Activity;
 
@@ -68,6 +69,15 @@ public interface ActivityMapper {
     @Select("SELECT * FROM activity WHERE (deleted IS NULL OR deleted = 0) ORDER BY create_time DESC LIMIT #{offset}, #{limit}")
     List<Activity> selectList(@Param("offset") int offset, @Param("limit") int limit);
     
+    /**
+     * 流式查询所有未删除的活动（配合 CursorScanner 使用）
+     * @param limit 最多返回的行数
+     * @return 活动游标
+     */
+    @Select("SELECT * FROM activity WHERE (deleted IS NULL OR deleted = 0) ORDER BY create_time DESC LIMIT #{limit}")
+    @Options(fetchSize = Integer.MIN_VALUE)
+    Cursor<Activity> scanAll(@Param("limit") int limit);
+    
     /**
      * 查询活动总数
      * @return 活动总数
@@ -9,6 +9,7 @@ import org.apache.ibatis.annotations.Options;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.cursor.Cursor;
 
 import com.scenic.entity.interaction.ArContent;
 
@@ -111,4 +112,23 @@ public interface ArContentMapper {
      */
     @Select("SELECT * FROM ar_content WHERE enabled = 1 ORDER BY create_time DESC")
     List<ArContent> selectAllEnabled();
+    
+    /**
+     * 流式查询所有启用的AR内容（配合 CursorScanner 使用）
+     * @param limit 最多返回的行数
+     * @return AR内容游标
+     */
+    @Select("SELECT * FROM ar_content WHERE enabled = 1 ORDER BY create_time DESC LIMIT #{limit}")
+    @Options(fetchSize = Integer.MIN_VALUE)
+    Cursor<ArContent> scanAllEnabled(@Param("limit") int limit);
+    
+    /**
+     * 按内容类型流式查询启用的AR内容（配合 CursorScanner 使用）
+     * @param contentType 内容类型
+     * @param limit 最多返回的行数
+     * @return AR内容游标
+     */
+    @Select("SELECT * FROM ar_content WHERE content_type = #{contentType} AND enabled = 1 ORDER BY create_time DESC LIMIT #{limit}")
+    @Options(fetchSize = Integer.MIN_VALUE)
+    Cursor<ArContent> scanByContentType(@Param("contentType") String contentType, @Param("limit") int limit);
 }
@@ -2,6 +2,7 @@ package com.scenic.mapper.interaction;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.ibatis.annotations.Delete;
 import org.apache.ibatis.annotations.Insert;
@@ -33,12 +34,12 @@ public interface PhotoCheckInMapper {
     int insert(PhotoCheckIn photoCheckIn);
     
     /**
-     * 更新照片打卡信息
+     * 更新照片打卡信息（不更新点赞数，点赞数只通过增量累加）
      * @param photoCheckIn 照片打卡信息
      * @return 更新结果
      */
     @Update("UPDATE photo_checkin SET user_name = #{userName}, user_avatar = #{userAvatar}, title = #{title}, content = #{content}, " +
-            "category_id = #{categoryId}, photo_id = #{photoId}, like_count = #{likeCount}, view_count = #{viewCount}, " +
+            "category_id = #{categoryId}, photo_id = #{photoId}, view_count = #{viewCount}, " +
             "status = #{status}, version = #{version}, deleted = #{deleted}, update_time = #{updateTime}, update_by = #{updateBy} WHERE id = #{id}")
     int updateById(PhotoCheckIn photoCheckIn);
     
@@ -126,6 +127,19 @@ public interface PhotoCheckInMapper {
      */
     int selectCountForMiniapp(@Param("title") String title, @Param("categoryId") Long categoryId);
     
+    /**
+     * 小程序端按游标查询最新照片打卡（按创建时间、ID倒序，不统计总数）
+     * @param title 标题（可选）
+     * @param categoryId 分类ID（可选）
+     * @param cursorTime 上一页最后一条的创建时间（首页为null）
+     * @param cursorId 上一页最后一条的ID（首页为null）
+     * @param limit 查询条数
+     * @return 照片打卡列表
+     */
+    List<PhotoCheckIn> selectFeedForMiniapp(@Param("title") String title, @Param("categoryId") Long categoryId,
+                                           @Param("cursorTime") LocalDateTime cursorTime, @Param("cursorId") Long cursorId,
+                                           @Param("limit") int limit);
+    
     /**
      * 查询所有照片打卡
      * @return 照片打卡列表
@@ -150,6 +164,30 @@ public interface PhotoCheckInMapper {
     })
     List<PhotoCheckIn> selectByIds(@Param("ids") List<Long> ids);
     
+    /**
+     * 根据ID列表查询已发布的照片打卡（包含分类名称，不保证顺序）
+     * @param ids 照片打卡ID列表
+     * @return 照片打卡列表
+     */
+    List<PhotoCheckIn> selectPublishedByIds(@Param("ids") List<Long> ids);
+    
+    /**
+     * 统计热门排行重建所需的热度：发布和点赞、收藏事件按 权重 * e^((事件时间 - 基准时间) / tau) 累加
+     * @param since 只统计该时间之后的事件
+     * @param epochTime 基准时间
+     * @param tauSeconds 衰减时间常数（秒），等于半衰期 / ln2
+     * @param likeWeight 点赞权重
+     * @param favoriteWeight 收藏权重
+     * @param publishWeight 发布权重
+     * @return 统计列表，字段：photo_id, category_id, score
+     */
+    List<Map<String, Object>> selectHotScores(@Param("since") LocalDateTime since,
+                                              @Param("epochTime") LocalDateTime epochTime,
+                                              @Param("tauSeconds") double tauSeconds,
+                                              @Param("likeWeight") double likeWeight,
+                                              @Param("favoriteWeight") double favoriteWeight,
+                                              @Param("publishWeight") double publishWeight);
+    
     /**
      * 增加点赞数
      * @param id 照片打卡ID
@@ -166,6 +204,14 @@ public interface PhotoCheckInMapper {
     @Update("UPDATE photo_checkin SET like_count = like_count - 1, update_time = #{updateTime} WHERE id = #{id} AND like_count > 0")
     int decrementLikes(@Param("id") Long id, @Param("updateTime") java.time.LocalDateTime updateTime);
     
+    /**
+     * 批量累加点赞数
+     * @param deltas 照片打卡ID到点赞增量的映射
+     * @param updateTime 更新时间
+     * @return 更新结果
+     */
+    int addLikeCounts(@Param("deltas") java.util.Map<Long, Long> deltas, @Param("updateTime") java.time.LocalDateTime updateTime);
+    
     /**
      * 根据用户ID和分类ID查询照片打卡列表（分页）
      * @param userId 用户ID
@@ -0,0 +1,33 @@
+package com.scenic.mapper.interaction;
+
+import java.time.LocalDateTime;
+
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+/**
+ * 点赞增量写回批次记录Mapper
+ * 与点赞数的批量UPDATE在同一事务中插入，批次号已存在说明该批增量已写入数据库
+ */
+@Mapper
+public interface PhotoLikeFlushBatchMapper {
+    
+    /**
+     * 记录写回批次
+     * @param batchId 批次号
+     * @param photoCount 批次包含的照片数
+     * @return 插入行数，批次号已存在时为0
+     */
+    @Insert("INSERT IGNORE INTO photo_like_flush_batch (batch_id, photo_count, create_time) VALUES (#{batchId}, #{photoCount}, NOW())")
+    int insertIgnore(@Param("batchId") String batchId, @Param("photoCount") int photoCount);
+    
+    /**
+     * 删除早于指定时间的批次记录
+     * @param before 截止时间
+     * @return 删除行数
+     */
+    @Delete("DELETE FROM photo_like_flush_batch WHERE create_time < #{before}")
+    int deleteBefore(@Param("before") LocalDateTime before);
+}
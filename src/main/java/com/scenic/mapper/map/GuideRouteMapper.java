@@ -9,6 +9,7 @@ import org.apache.ibatis.annotations.Options;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.cursor.Cursor;
 
 import com.scenic.entity.map.GuideRoute;
 
@@ -69,6 +70,34 @@ public interface GuideRouteMapper {
     @Select("SELECT * FROM guide_route WHERE enabled = 1 ORDER BY create_time DESC LIMIT #{offset}, #{limit}")
     List<GuideRoute> selectList(@Param("offset") int offset, @Param("limit") int limit);
     
+    /**
+     * 流式查询启用的导览路线（配合 CursorScanner 使用）
+     * @param limit 最多返回的行数
+     * @return 导览路线游标
+     */
+    @Select("SELECT * FROM guide_route WHERE enabled = 1 ORDER BY create_time DESC LIMIT #{limit}")
+    @Options(fetchSize = Integer.MIN_VALUE)
+    Cursor<GuideRoute> scanEnabled(@Param("limit") int limit);
+    
+    /**
+     * 按分类流式查询启用的导览路线（配合 CursorScanner 使用）
+     * @param category 分类
+     * @param limit 最多返回的行数
+     * @return 导览路线游标
+     */
+    @Select("SELECT * FROM guide_route WHERE category = #{category} AND enabled = 1 ORDER BY create_time DESC LIMIT #{limit}")
+    @Options(fetchSize = Integer.MIN_VALUE)
+    Cursor<GuideRoute> scanByCategory(@Param("category") String category, @Param("limit") int limit);
+    
+    /**
+     * 流式查询所有导览路线（包括已禁用的）（配合 CursorScanner 使用）
+     * @param limit 最多返回的行数
+     * @return 导览路线游标
+     */
+    @Select("SELECT * FROM guide_route ORDER BY create_time DESC LIMIT #{limit}")
+    @Options(fetchSize = Integer.MIN_VALUE)
+    Cursor<GuideRoute> scanAll(@Param("limit") int limit);
+    
     /**
      * 查询导览路线总数
      * @return 导览路线总数
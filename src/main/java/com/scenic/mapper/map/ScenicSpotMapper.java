@@ -9,6 +9,7 @@ import org.apache.ibatis.annotations.Options;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.cursor.Cursor;
 
 import com.scenic.entity.map.ScenicSpot;
 
@@ -69,6 +70,34 @@ public interface ScenicSpotMapper {
     @Select("SELECT * FROM scenic_spot WHERE enabled = 1 ORDER BY create_time DESC LIMIT #{offset}, #{limit}")
     List<ScenicSpot> selectList(@Param("offset") int offset, @Param("limit") int limit);
     
+    /**
+     * 流式查询启用的景点（配合 CursorScanner 使用）
+     * @param limit 最多返回的行数
+     * @return 景点游标
+     */
+    @Select("SELECT * FROM scenic_spot WHERE enabled = 1 ORDER BY create_time DESC LIMIT #{limit}")
+    @Options(fetchSize = Integer.MIN_VALUE)
+    Cursor<ScenicSpot> scanEnabled(@Param("limit") int limit);
+    
+    /**
+     * 按分类流式查询启用的景点（配合 CursorScanner 使用）
+     * @param category 分类
+     * @param limit 最多返回的行数
+     * @return 景点游标
+     */
+    @Select("SELECT * FROM scenic_spot WHERE category = #{category} AND enabled = 1 ORDER BY create_time DESC LIMIT #{limit}")
+    @Options(fetchSize = Integer.MIN_VALUE)
+    Cursor<ScenicSpot> scanByCategory(@Param("category") String category, @Param("limit") int limit);
+    
+    /**
+     * 流式查询所有景点（包括已禁用的）（配合 CursorScanner 使用）
+     * @param limit 最多返回的行数
+     * @return 景点游标
+     */
+    @Select("SELECT * FROM scenic_spot ORDER BY create_time DESC LIMIT #{limit}")
+    @Options(fetchSize = Integer.MIN_VALUE)
+    Cursor<ScenicSpot> scanAll(@Param("limit") int limit);
+    
     /**
      * 查询景点总数
      * @return 景点总数
@@ -79,6 +79,15 @@ public interface UserFavoriteMapper {
     @Options(useGeneratedKeys = true, keyProperty = "id")
     int insert(UserFavorite userFavorite);
     
+    /**
+     * 插入用户收藏，唯一键 (user_id, content_id, content_type) 已存在时忽略
+     * @param userFavorite 收藏信息
+     * @return 插入的行数，已存在时为0
+     */
+    @Insert("INSERT IGNORE INTO user_favorite(user_id, content_id, content_type, version, create_time, update_time, create_by, update_by, category_id) " +
+            "VALUES(#{userId}, #{contentId}, #{contentType}, #{version}, #{createTime}, #{updateTime}, #{createBy}, #{updateBy}, #{categoryId})")
+    int insertIgnore(UserFavorite userFavorite);
+    
     /**
      * 根据ID删除用户收藏（硬删除）
      * @param id 收藏ID
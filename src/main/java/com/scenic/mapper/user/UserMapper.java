@@ -120,9 +120,10 @@ public interface UserMapper {
     List<User> selectByIds(@Param("ids") List<Long> ids);
     
     /**
-     * 查询所有启用状态的普通用户（用于批量发送通知）
-     * @return 用户列表
+     * 按主键游标分批查询启用状态的普通用户（用于分批发送通知）
+     * @param lastId 上一批的最大用户ID（不含）
+     * @param limit 每批数量
+     * @return 按ID升序的用户列表
      */
-    @Select("SELECT * FROM user WHERE user_type = 1 AND status = 1 AND deleted = 0")
-    List<User> selectAllActiveUsers();
-}
\ No newline at end of file
+    List<User> selectActiveUsersAfter(@Param("lastId") long lastId, @Param("limit") int limit);
+}
@@ -0,0 +1,35 @@
+package com.scenic.schedule;
+
+import com.scenic.service.ImageDerivativeService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 图片派生尺寸补偿定时任务
+ */
+@Component
+public class ImageDerivativeBackfillSchedule {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageDerivativeBackfillSchedule.class);
+
+    @Autowired
+    private ImageDerivativeService imageDerivativeService;
+
+    /**
+     * 每5分钟为尚未生成派生尺寸的图片补提交生成任务
+     */
+    @Scheduled(cron = "0 */5 * * * ?")
+    public void backfillDerivatives() {
+        try {
+            int submitted = imageDerivativeService.backfill();
+            if (submitted > 0) {
+                log.info("补提交图片派生尺寸生成任务，数量: {}", submitted);
+            }
+        } catch (Exception e) {
+            log.error("补提交图片派生尺寸生成任务失败", e);
+        }
+    }
+}
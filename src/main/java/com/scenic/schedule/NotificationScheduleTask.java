@@ -4,6 +4,7 @@ import com.scenic.entity.system.Notification;
 import com.scenic.entity.user.User;
 import com.scenic.mapper.system.NotificationMapper;
 import com.scenic.mapper.user.UserMapper;
+import com.scenic.service.system.NotificationDispatchService;
 import com.scenic.service.system.NotificationService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -17,6 +18,7 @@ import java.util.List;
 /**
  * 定时通知发送任务
  * 定时扫描待发送的通知，通过4种方式（短信、邮件、小程序、服务号）发送给所有用户
+ * 全员通知由NotificationDispatchService在后台分批发送
  */
 @Component
 public class NotificationScheduleTask {
@@ -32,6 +34,9 @@ public class NotificationScheduleTask {
     @Autowired
     private UserMapper userMapper;
     
+    @Autowired
+    private NotificationDispatchService notificationDispatchService;
+    
     /**
      * 定时扫描并发送待发送的通知
      * 每5分钟执行一次
@@ -52,12 +57,16 @@ public class NotificationScheduleTask {
             log.info("找到 {} 条待发送的通知", pendingNotifications.size());
             
             for (Notification notification : pendingNotifications) {
+                // 全员通知交给分发服务在后台分批发送，完成后由分发服务更新发送状态
+                if (notification.getReceiverType() != null && "all".equalsIgnoreCase(notification.getReceiverType())) {
+                    if (notificationDispatchService.submit(notification)) {
+                        log.info("通知ID {} 已提交分批发送", notification.getId());
+                    }
+                    continue;
+                }
+                
                 try {
-                    // 根据通知的接收人类型决定发送范围
-                    if (notification.getReceiverType() != null && "all".equalsIgnoreCase(notification.getReceiverType())) {
-                        // 发送给所有用户
-                        sendToAllUsers(notification);
-                    } else if (notification.getReceiverId() != null) {
+                    if (notification.getReceiverId() != null) {
                         // 发送给指定用户
                         sendToSpecificUser(notification, notification.getReceiverId());
                     }
@@ -85,53 +94,6 @@ public class NotificationScheduleTask {
         }
     }
     
-    /**
-     * 发送通知给所有用户
-     * @param notification 通知实体
-     */
-    private void sendToAllUsers(Notification notification) {
-        try {
-            log.info("开始发送通知给所有用户，通知ID: {}, 渠道: {}", notification.getId(), notification.getChannel());
-            
-            // 查询所有启用状态的普通用户（user_type = 1, status = 1, deleted = 0）
-            List<User> allUsers = userMapper.selectAllActiveUsers();
-            
-            if (allUsers.isEmpty()) {
-                log.warn("没有找到可用的用户");
-                return;
-            }
-            
-            log.info("找到 {} 个用户，开始批量发送", allUsers.size());
-            
-            int successCount = 0;
-            int failCount = 0;
-            
-            // 批量发送通知
-            for (User user : allUsers) {
-                try {
-                    // 创建针对该用户的通知副本
-                    Notification userNotification = createUserNotification(notification, user);
-                    
-                    // 根据渠道发送通知
-                    notificationService.sendNotificationByChannel(userNotification);
-                    
-                    successCount++;
-                    
-                    // 添加小延迟，避免请求过于频繁
-                    Thread.sleep(100);
-                } catch (Exception e) {
-                    failCount++;
-                    log.error("向用户ID {} 发送通知失败: {}", user.getId(), e.getMessage());
-                }
-            }
-            
-            log.info("通知发送完成，成功: {}, 失败: {}", successCount, failCount);
-        } catch (Exception e) {
-            log.error("批量发送通知给所有用户失败", e);
-            throw e;
-        }
-    }
-    
     /**
      * 发送通知给指定用户
      * @param notification 通知实体
@@ -0,0 +1,35 @@
+package com.scenic.schedule;
+
+import com.scenic.service.ResourceFileService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 未完成直传文件清理定时任务
+ */
+@Component
+public class PendingUploadCleanupSchedule {
+
+    private static final Logger log = LoggerFactory.getLogger(PendingUploadCleanupSchedule.class);
+
+    @Autowired
+    private ResourceFileService resourceFileService;
+
+    /**
+     * 每小时清理一次超时未回调的直传记录及其对象
+     */
+    @Scheduled(cron = "0 20 * * * ?")
+    public void cleanupPendingUploads() {
+        try {
+            int cleaned = resourceFileService.cleanupPendingUploads();
+            if (cleaned > 0) {
+                log.info("清理未完成的直传文件，数量: {}", cleaned);
+            }
+        } catch (Exception e) {
+            log.error("清理未完成的直传文件失败", e);
+        }
+    }
+}
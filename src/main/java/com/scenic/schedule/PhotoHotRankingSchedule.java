@@ -0,0 +1,53 @@
+package com.scenic.schedule;
+
+import com.scenic.service.interaction.PhotoHotRankingService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 照片热门排行重建定时任务
+ */
+@Component
+public class PhotoHotRankingSchedule {
+
+    private static final Logger log = LoggerFactory.getLogger(PhotoHotRankingSchedule.class);
+
+    @Autowired
+    private PhotoHotRankingService photoHotRankingService;
+
+    /**
+     * 每小时从数据库重建热门排行，消除增量更新的误差并前移衰减基准时间
+     */
+    @Scheduled(cron = "0 10 * * * ?")
+    public void rebuildHotRanking() {
+        rebuild();
+    }
+
+    /**
+     * 启动后及Redis数据丢失后尽快构建排行，已构建时跳过
+     */
+    @Scheduled(initialDelay = 30000, fixedDelay = 300000)
+    public void ensureHotRankingBuilt() {
+        try {
+            if (!photoHotRankingService.isBuilt()) {
+                rebuild();
+            }
+        } catch (Exception e) {
+            log.error("检查照片热门排行失败", e);
+        }
+    }
+
+    private void rebuild() {
+        try {
+            int size = photoHotRankingService.rebuild();
+            if (size >= 0) {
+                log.info("照片热门排行重建完成，照片数: {}", size);
+            }
+        } catch (Exception e) {
+            log.error("照片热门排行重建失败", e);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.scenic.schedule;
+
+import com.scenic.service.interaction.PhotoLikeCounterService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 照片打卡点赞计数写回定时任务
+ */
+@Component
+public class PhotoLikeCounterSchedule {
+
+    private static final Logger log = LoggerFactory.getLogger(PhotoLikeCounterSchedule.class);
+
+    @Autowired
+    private PhotoLikeCounterService photoLikeCounterService;
+
+    /**
+     * 定期把Redis中累加的点赞增量批量写回数据库
+     */
+    @Scheduled(fixedDelayString = "${photo.like-counter.flush-interval-millis:2000}")
+    public void flushLikeCounts() {
+        try {
+            photoLikeCounterService.flush();
+        } catch (Exception e) {
+            // 未写回的增量保留在Redis中，下次继续写回
+            log.error("点赞增量写回失败", e);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.scenic.schedule;
+
+import com.scenic.config.ReservationCapacityProperties;
+import com.scenic.service.appointment.ReservationCapacityService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDate;
+
+/**
+ * 预约余量台账定时任务
+ * 启动时从个人预约和团队预约重建台账，之后定期对账
+ */
+@Component
+public class ReservationCapacitySchedule {
+
+    private static final Logger log = LoggerFactory.getLogger(ReservationCapacitySchedule.class);
+
+    @Autowired
+    private ReservationCapacityService reservationCapacityService;
+
+    @Autowired
+    private ReservationCapacityProperties capacityProperties;
+
+    /**
+     * 应用启动时重建余量台账
+     */
+    @PostConstruct
+    public void rebuildOnStartup() {
+        try {
+            log.info("开始重建预约余量台账");
+            reconcileHorizon();
+        } catch (Exception e) {
+            // 重建失败不影响启动，台账会在首次占用时按时段懒加载
+            log.error("预约余量台账重建失败", e);
+        }
+    }
+
+    /**
+     * 每10分钟对账一次
+     */
+    @Scheduled(cron = "0 */10 * * * ?")
+    public void reconcileCapacity() {
+        try {
+            reconcileHorizon();
+        } catch (Exception e) {
+            log.error("预约余量台账对账任务执行异常", e);
+        }
+    }
+
+    private void reconcileHorizon() {
+        LocalDate today = LocalDate.now();
+        reservationCapacityService.reconcile(today, today.plusDays(capacityProperties.getHorizonDays()));
+    }
+}
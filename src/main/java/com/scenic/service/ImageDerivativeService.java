@@ -0,0 +1,31 @@
+package com.scenic.service;
+
+import com.scenic.entity.ResourceFile;
+
+/**
+ * 图片派生尺寸服务接口
+ * 打卡照片和内容管理照片上传后异步生成缩略图和中等尺寸预览图，与原图存放在同一存储桶，对象键记录在文件记录上
+ */
+public interface ImageDerivativeService {
+
+    /**
+     * 判断文件是否需要生成派生尺寸
+     * @param resourceFile 文件记录
+     * @return 是否需要生成
+     */
+    boolean isEligible(ResourceFile resourceFile);
+
+    /**
+     * 提交派生尺寸生成任务
+     * 只在文件需要生成且队列未满时提交，未提交的文件由补偿任务稍后生成
+     * @param resourceFile 文件记录
+     * @return 是否已提交
+     */
+    boolean submit(ResourceFile resourceFile);
+
+    /**
+     * 为尚未生成派生尺寸的图片补提交生成任务（服务重启、队列已满或历史图片）
+     * @return 提交的任务数
+     */
+    int backfill();
+}
@@ -38,6 +38,10 @@ public class MinioService {
     private String filesBucket;
     
     // Getter方法
+    public String getPhotoCheckinBucket() {
+        return photoCheckinBucket;
+    }
+    
     public String getContentManagementVideoBucket() {
         return contentManagementVideoBucket;
     }
@@ -266,4 +270,57 @@ public class MinioService {
                         .build()
         );
     }
+    
+    /**
+     * 生成指定存储桶的预签名上传URL（客户端直接PUT到MinIO）
+     *
+     * @param bucket 存储桶名称
+     * @param objectName 对象名称
+     * @param expiry 过期时间（秒）
+     * @return 预签名上传URL
+     */
+    public String getPresignedUploadUrl(String bucket, String objectName, int expiry) throws Exception {
+        createBucketIfNotExists(bucket);
+        return minioClient.getPresignedObjectUrl(
+                GetPresignedObjectUrlArgs.builder()
+                        .method(Method.PUT)
+                        .bucket(bucket)
+                        .object(objectName)
+                        .expiry(expiry, java.util.concurrent.TimeUnit.SECONDS)
+                        .build()
+        );
+    }
+    
+    /**
+     * 查询对象元数据
+     *
+     * @param bucket 存储桶名称
+     * @param objectName 对象名称
+     * @return 对象元数据
+     * @throws ErrorResponseException 对象不存在时错误码为NoSuchKey
+     */
+    public StatObjectResponse statObject(String bucket, String objectName) throws Exception {
+        return minioClient.statObject(
+                StatObjectArgs.builder()
+                        .bucket(bucket)
+                        .object(objectName)
+                        .build()
+        );
+    }
+    
+    /**
+     * 读取对象内容，调用方负责关闭返回的流
+     *
+     * @param bucket 存储桶名称
+     * @param objectName 对象名称
+     * @return 对象内容输入流
+     */
+    public InputStream getObject(String bucket, String objectName) throws Exception {
+        return minioClient.getObject(
+                GetObjectArgs.builder()
+                        .bucket(bucket)
+                        .object(objectName)
+                        .build()
+        );
+    }
 }
@@ -0,0 +1,68 @@
+package com.scenic.service;
+
+import java.util.Collection;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import com.scenic.entity.ResourceFile;
+
+/**
+ * 文件资源存储服务接口
+ * 上传时按内容SHA-256去重，同一存储桶内相同内容共用一条文件记录和一个MinIO对象，按引用计数释放
+ */
+public interface ResourceFileService {
+
+    /**
+     * 上传文件并保存文件记录
+     * 内容哈希在写入MinIO的同一次读取中计算；存储桶内已有相同内容时删除刚写入的对象，
+     * 增加已有记录的引用计数并返回已有记录
+     * @param resourceFile 待保存的文件记录（需已设置存储桶、文件键等字段）
+     * @param file 上传的文件
+     * @return 实际使用的文件记录（可能是已有记录，ID与传入记录不同）
+     * @throws Exception 上传或保存失败
+     */
+    ResourceFile store(ResourceFile resourceFile, MultipartFile file) throws Exception;
+
+    /**
+     * 释放文件引用
+     * 引用计数减一，减到零时删除文件记录和MinIO对象，并清除访问URL缓存
+     * @param fileIds 文件ID集合（可包含null）
+     * @return 实际删除的文件记录数
+     */
+    int release(Collection<Long> fileIds);
+
+    /**
+     * 直传第一阶段：保存待完成的文件记录并生成预签名上传URL
+     * 直传文件的引用计数为0，被业务记录认领后才计一个引用
+     * @param resourceFile 待保存的文件记录（需已设置存储桶、文件键、声明的文件大小等字段）
+     * @return 预签名上传URL，客户端用PUT把文件直接上传到MinIO
+     * @throws Exception 生成URL失败
+     */
+    String createPendingUpload(ResourceFile resourceFile) throws Exception;
+
+    /**
+     * 直传第二阶段：确认对象已上传到MinIO并激活文件记录
+     * @param fileId 文件ID
+     * @param userId 当前用户ID，必须与发起上传的用户一致
+     * @return 激活后的文件记录
+     * @throws IllegalArgumentException 记录不存在、不属于当前用户、对象未上传或大小不符
+     */
+    ResourceFile completeUpload(Long fileId, Long userId) throws Exception;
+
+    /**
+     * 认领当前用户直传完成的文件，作为业务记录的一个引用
+     * 每个直传文件只能被认领一次，已被引用（包括去重共享）的文件不能认领，保证 release 与引用一一对应
+     * @param fileId 文件ID
+     * @param userId 当前用户ID，必须与发起上传的用户一致
+     * @param bucketName 文件所在存储桶
+     * @param mimeTypePrefix 内容类型前缀（如 video/）
+     * @return 是否认领成功
+     */
+    boolean claimDirectUpload(Long fileId, Long userId, String bucketName, String mimeTypePrefix);
+
+    /**
+     * 清理超时未完成的直传记录及已上传的对象
+     * @return 清理的记录数
+     */
+    int cleanupPendingUploads();
+}
@@ -0,0 +1,29 @@
+package com.scenic.service.appointment;
+
+import com.scenic.dto.appointment.GateVerifyRequestDTO;
+import com.scenic.dto.appointment.GateVerifyResultDTO;
+
+import java.util.List;
+
+/**
+ * 闸机核销服务接口
+ * 从预约详情缓存判断状态，以带status和version条件的单条UPDATE完成核销
+ */
+public interface GateVerificationService {
+
+    /**
+     * 实时核销
+     * @param request 核销请求
+     * @return 核销结果
+     */
+    GateVerifyResultDTO verify(GateVerifyRequestDTO request);
+
+    /**
+     * 离线补传批量核销
+     * 按扫码时间先后处理，重复扫码及已被其他闸机核销的预约视为已核销；
+     * 扫码发生在时段结束前、补传时已被过期任务置为过期的预约仍按扫码时间核销
+     * @param requests 核销请求列表
+     * @return 与请求顺序一致的核销结果
+     */
+    List<GateVerifyResultDTO> verifyBatch(List<GateVerifyRequestDTO> requests);
+}
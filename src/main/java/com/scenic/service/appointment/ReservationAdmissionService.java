@@ -0,0 +1,25 @@
+package com.scenic.service.appointment;
+
+import com.scenic.dto.appointment.ReservationAdmissionDTO;
+import com.scenic.entity.appointment.IndividualReservation;
+
+/**
+ * 预约排队准入服务接口
+ * 小程序端预约先领取排队凭证，由后台按固定速率出队创建预约，避免放号时瞬时流量压垮数据库
+ */
+public interface ReservationAdmissionService {
+
+    /**
+     * 提交预约请求并领取排队凭证
+     * @param reservation 个人预约信息
+     * @return 排队凭证
+     */
+    ReservationAdmissionDTO enqueue(IndividualReservation reservation);
+
+    /**
+     * 查询排队凭证状态
+     * @param ticketNo 凭证编号
+     * @return 凭证状态（排队位置或处理结果）
+     */
+    ReservationAdmissionDTO getTicketStatus(String ticketNo);
+}
@@ -0,0 +1,51 @@
+package com.scenic.service.appointment;
+
+import java.time.LocalDate;
+import java.util.Date;
+
+/**
+ * 预约余量台账服务接口
+ * 按（入区日期，时段）维护已占用人数，在Redis中原子扣减
+ */
+public interface ReservationCapacityService {
+
+    /**
+     * 尝试占用余量
+     * @param visitDate 入区日期
+     * @param timeSlot 时段
+     * @param count 人数
+     * @return 是否占用成功（余量不足时返回false）
+     */
+    boolean tryAcquire(Date visitDate, Integer timeSlot, int count);
+
+    /**
+     * 释放已占用的余量（取消、删除或创建失败时调用）
+     * @param visitDate 入区日期
+     * @param timeSlot 时段
+     * @param count 人数
+     */
+    void release(Date visitDate, Integer timeSlot, int count);
+
+    /**
+     * 移除已结束时段的台账（时段结束后不再接受预约）
+     * @param visitDate 入区日期
+     * @param timeSlot 时段
+     */
+    void evict(LocalDate visitDate, Integer timeSlot);
+
+    /**
+     * 查询剩余余量
+     * @param visitDate 入区日期
+     * @param timeSlot 时段
+     * @return 剩余人数
+     */
+    int getRemaining(Date visitDate, Integer timeSlot);
+
+    /**
+     * 根据个人预约和团队预约数据对账重建台账
+     * @param startDate 开始日期（含）
+     * @param endDate 结束日期（含）
+     * @return 对账的时段数
+     */
+    int reconcile(LocalDate startDate, LocalDate endDate);
+}
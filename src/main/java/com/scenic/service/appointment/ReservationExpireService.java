@@ -0,0 +1,18 @@
+package com.scenic.service.appointment;
+
+import java.time.LocalDateTime;
+
+/**
+ * 个人预约过期服务接口
+ * 按入区日期和时段分批将未开始的预约更新为已过期
+ */
+public interface ReservationExpireService {
+
+    /**
+     * 过期截至指定时间已结束的所有未开始预约
+     * 入区日期早于当天的全部过期；入区日期为当天的按时段结束时间判断
+     * @param now 当前时间
+     * @return 过期的预约数
+     */
+    int expireDueReservations(LocalDateTime now);
+}
@@ -0,0 +1,41 @@
+package com.scenic.service.appointment;
+
+import com.scenic.entity.appointment.IndividualReservation;
+
+import java.util.Map;
+
+/**
+ * 个人预约异步批量写入服务接口
+ * 校验通过的预约先返回预约编号，由写入线程合并为多行INSERT批量落库
+ */
+public interface ReservationWriteBehindService {
+
+    /** 等待写入 */
+    String STATUS_PENDING = "PENDING";
+    /** 已写入 */
+    String STATUS_WRITTEN = "WRITTEN";
+    /** 写入失败 */
+    String STATUS_FAILED = "FAILED";
+    /** 不存在 */
+    String STATUS_NOT_FOUND = "NOT_FOUND";
+
+    /**
+     * 是否启用异步批量写入
+     * @return 是否启用
+     */
+    boolean isEnabled();
+
+    /**
+     * 提交待写入的预约（已完成校验、编号生成和余量占用）
+     * @param reservation 个人预约信息
+     * @return 是否入队成功（队列已满时返回false，调用方应同步写入）
+     */
+    boolean submit(IndividualReservation reservation);
+
+    /**
+     * 查询预约写入状态
+     * @param reservationNo 预约编号
+     * @return 状态信息，包含status和message
+     */
+    Map<String, Object> getWriteStatus(String reservationNo);
+}
@@ -28,6 +28,7 @@ import com.scenic.mapper.appointment.IndividualReservationMapper;
 import com.scenic.mapper.appointment.TeamAppointmentMapper;
 import com.scenic.mapper.appointment.TeamMemberMapper;
 import com.scenic.service.appointment.AppointmentService;
+import com.scenic.utils.ReservationNoGenerator;
 import com.scenic.utils.UserContextUtil;
 
 /**
@@ -56,6 +57,9 @@ public class AppointmentServiceImpl implements AppointmentService {
     
     @Autowired
     private UserContextUtil userContextUtil;
+
+    @Autowired
+    private ReservationNoGenerator reservationNoGenerator;
     
     /**
      * 创建个人预约
@@ -156,8 +160,7 @@ public class AppointmentServiceImpl implements AppointmentService {
             String appointmentNo = appointmentDTO.getAppointmentNo();
             System.out.println("DEBUG: appointmentNo from DTO = " + appointmentNo);
             if (appointmentNo == null || appointmentNo.isEmpty()) {
-                appointmentNo = "TA" + java.time.LocalDate.now().format(java.time.format.DateTimeFormatter.ofPattern("yyyyMMdd")) 
-                              + String.format("%03d", (int)(Math.random() * 1000));
+                appointmentNo = reservationNoGenerator.nextTeamAppointmentNo();
                 System.out.println("DEBUG: Generated appointmentNo = " + appointmentNo);
             }
             teamAppointment.setAppointmentNo(appointmentNo);
@@ -286,8 +289,7 @@ public class AppointmentServiceImpl implements AppointmentService {
             // 创建团队预约主表记录
             TeamAppointment teamAppointment = new TeamAppointment();
             // 生成预约编号
-            String appointmentNo = "TA" + java.time.LocalDate.now().format(java.time.format.DateTimeFormatter.ofPattern("yyyyMMdd")) 
-                          + String.format("%03d", (int)(Math.random() * 1000));
+            String appointmentNo = reservationNoGenerator.nextTeamAppointmentNo();
             teamAppointment.setAppointmentNo(appointmentNo);
             
             // 设置用户ID，如果DTO中提供了则使用，否则使用默认值1
@@ -455,8 +457,7 @@ public class AppointmentServiceImpl implements AppointmentService {
             }
                     // 生成预约编号
                     if (activityAppointment.getRegistrationNo() == null || activityAppointment.getRegistrationNo().isEmpty()) {
-                        String registrationNo = "ACT" + java.time.LocalDate.now().format(java.time.format.DateTimeFormatter.ofPattern("yyyyMMdd")) 
-                              + String.format("%03d", (int)(Math.random() * 1000));
+                        String registrationNo = reservationNoGenerator.nextActivityRegistrationNo();
                         activityAppointment.setRegistrationNo(registrationNo);
                     }
                     if (activityAppointment.getCreateTime() == null) {
@@ -627,8 +628,7 @@ public class AppointmentServiceImpl implements AppointmentService {
             // 创建活动预约主表记录
             ActivityAppointment activityAppointment = new ActivityAppointment();
             // 生成预约编号
-            String registrationNo = "ACT" + java.time.LocalDate.now().format(java.time.format.DateTimeFormatter.ofPattern("yyyyMMdd")) 
-                          + String.format("%03d", (int)(Math.random() * 1000));
+            String registrationNo = reservationNoGenerator.nextActivityRegistrationNo();
             activityAppointment.setRegistrationNo(registrationNo);
             activityAppointment.setActivityName(appointmentDTO.getActivityName());
             activityAppointment.setTeamName(appointmentDTO.getTeamName());
@@ -708,8 +708,7 @@ public class AppointmentServiceImpl implements AppointmentService {
             // 创建活动预约主表记录
             ActivityAppointment activityAppointment = new ActivityAppointment();
             // 生成预约编号
-            String registrationNo = "ACT" + java.time.LocalDate.now().format(java.time.format.DateTimeFormatter.ofPattern("yyyyMMdd")) 
-                          + String.format("%03d", (int)(Math.random() * 1000));
+            String registrationNo = reservationNoGenerator.nextActivityRegistrationNo();
             activityAppointment.setRegistrationNo(registrationNo);
             activityAppointment.setActivityName(appointmentDTO.getActivityName());
             activityAppointment.setTeamName(appointmentDTO.getTeamName());
@@ -0,0 +1,222 @@
+package com.scenic.service.appointment.impl;
+
+import com.scenic.config.ReservationExpireProperties;
+import com.scenic.dto.appointment.GateVerifyRequestDTO;
+import com.scenic.dto.appointment.GateVerifyResultDTO;
+import com.scenic.entity.appointment.IndividualReservation;
+import com.scenic.mapper.appointment.IndividualReservationMapper;
+import com.scenic.service.appointment.GateVerificationService;
+import com.scenic.utils.ReservationDetailCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 闸机核销服务实现类
+ * 状态优先从预约详情缓存读取（缓存由版本栅栏保证不会读到旧状态），
+ * 核销只执行一条 UPDATE ... WHERE status = ? AND version = ?，不开启事务。
+ * 条件不满足时重新读取最新状态判定结果，已核销的预约重复扫码按成功处理，保证幂等。
+ */
+@Service
+public class GateVerificationServiceImpl implements GateVerificationService {
+
+    private static final Logger log = LoggerFactory.getLogger(GateVerificationServiceImpl.class);
+
+    private static final int STATUS_PENDING = 0;
+    private static final int STATUS_CANCELLED = 1;
+    private static final int STATUS_VERIFIED = 10;
+    private static final int STATUS_EXPIRED = 11;
+
+    /**
+     * 条件更新失败后的最大重试次数（版本被其他修改推进时）
+     */
+    private static final int MAX_RETRIES = 2;
+
+    @Autowired
+    private IndividualReservationMapper individualReservationMapper;
+
+    @Autowired
+    private ReservationDetailCache reservationDetailCache;
+
+    @Autowired
+    private ReservationExpireProperties expireProperties;
+
+    @Override
+    public GateVerifyResultDTO verify(GateVerifyRequestDTO request) {
+        IndividualReservation state = null;
+        Long id = request.getReservationId();
+        if (id == null) {
+            id = reservationDetailCache.getIdByNo(request.getReservationNo());
+        }
+        if (id != null) {
+            state = reservationDetailCache.get(id);
+        }
+        if (state == null) {
+            state = loadState(request.getReservationId(), request.getReservationNo());
+        }
+        return apply(request, state, false);
+    }
+
+    @Override
+    public List<GateVerifyResultDTO> verifyBatch(List<GateVerifyRequestDTO> requests) {
+        if (requests == null || requests.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        // 1. 一次查询预加载所有预约的状态
+        List<Long> ids = new ArrayList<>();
+        List<String> reservationNos = new ArrayList<>();
+        for (GateVerifyRequestDTO request : requests) {
+            if (request.getReservationId() != null) {
+                ids.add(request.getReservationId());
+            } else if (request.getReservationNo() != null) {
+                reservationNos.add(request.getReservationNo());
+            }
+        }
+        Map<Long, IndividualReservation> statesById = new HashMap<>();
+        Map<String, IndividualReservation> statesByNo = new HashMap<>();
+        if (!ids.isEmpty() || !reservationNos.isEmpty()) {
+            for (IndividualReservation state : individualReservationMapper.selectVerifyStates(ids, reservationNos)) {
+                statesById.put(state.getId(), state);
+                statesByNo.put(state.getReservationNo(), state);
+            }
+        }
+
+        // 2. 按扫码时间先后处理，同一预约的后续扫码自然得到“已核销”
+        Integer[] order = new Integer[requests.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing(i -> requests.get(i).getScanTime(),
+                Comparator.nullsLast(Comparator.naturalOrder())));
+
+        GateVerifyResultDTO[] results = new GateVerifyResultDTO[requests.size()];
+        for (Integer index : order) {
+            GateVerifyRequestDTO request = requests.get(index);
+            IndividualReservation state = request.getReservationId() != null
+                    ? statesById.get(request.getReservationId())
+                    : statesByNo.get(request.getReservationNo());
+            try {
+                results[index] = apply(request, state, true);
+            } catch (Exception e) {
+                log.error("离线核销失败: {}", request, e);
+                results[index] = new GateVerifyResultDTO(request.getReservationId(), request.getReservationNo(),
+                        GateVerifyResultDTO.RESULT_CONFLICT, "核销异常，请重试");
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * 根据当前状态执行条件核销，条件不满足时重新读取状态后重试
+     * @param request 核销请求
+     * @param state 预约当前状态（可能为null）
+     * @param offline 是否离线补传
+     * @return 核销结果
+     */
+    private GateVerifyResultDTO apply(GateVerifyRequestDTO request, IndividualReservation state, boolean offline) {
+        Date verificationTime = offline && request.getScanTime() != null ? new Date(request.getScanTime()) : new Date();
+
+        for (int attempt = 0; attempt <= MAX_RETRIES; attempt++) {
+            if (state == null) {
+                return new GateVerifyResultDTO(request.getReservationId(), request.getReservationNo(),
+                        GateVerifyResultDTO.RESULT_NOT_FOUND, "预约记录不存在");
+            }
+
+            int status = state.getStatus() != null ? state.getStatus() : STATUS_PENDING;
+            if (status == STATUS_VERIFIED) {
+                GateVerifyResultDTO result = result(state, GateVerifyResultDTO.RESULT_ALREADY_VERIFIED, "预约已核销");
+                result.setVerificationTime(state.getVerificationTime());
+                return result;
+            }
+            if (status == STATUS_CANCELLED) {
+                return result(state, GateVerifyResultDTO.RESULT_CANCELLED, "预约已取消");
+            }
+            if (status == STATUS_EXPIRED && !(offline && scannedBeforeSlotEnd(state, verificationTime))) {
+                return result(state, GateVerifyResultDTO.RESULT_EXPIRED, "预约已过期");
+            }
+            if (status != STATUS_PENDING && status != STATUS_EXPIRED) {
+                return result(state, GateVerifyResultDTO.RESULT_CONFLICT, "预约状态异常");
+            }
+
+            int version = state.getVersion() != null ? state.getVersion() : 0;
+            IndividualReservation update = new IndividualReservation();
+            update.setId(state.getId());
+            update.setVerificationTime(verificationTime);
+            update.setOperatorId(request.getOperatorId());
+            update.setVerificationLocation(request.getVerificationLocation());
+            update.setDeviceInfo(request.getDeviceInfo());
+            update.setVerificationRemark(request.getVerificationRemark());
+            update.setUpdateBy(request.getOperatorId());
+
+            // 先按新版本设置缓存栅栏，UPDATE生效后缓存中不会残留旧状态
+            reservationDetailCache.invalidate(state.getId(), version + 1);
+            if (individualReservationMapper.verifyIfUnchanged(update, status, version) > 0) {
+                state.setStatus(STATUS_VERIFIED);
+                state.setVersion(version + 1);
+                state.setVerificationTime(verificationTime);
+                GateVerifyResultDTO result = result(state, GateVerifyResultDTO.RESULT_VERIFIED, "核销成功");
+                result.setVerificationTime(verificationTime);
+                return result;
+            }
+
+            // 状态或版本已变化（其他闸机同时核销、后台修改等），重新读取后判定
+            log.debug("条件核销未命中，重新读取状态，预约ID: {}, 版本: {}", state.getId(), version);
+            state = loadState(state.getId(), null);
+        }
+
+        if (state == null) {
+            return new GateVerifyResultDTO(request.getReservationId(), request.getReservationNo(),
+                    GateVerifyResultDTO.RESULT_NOT_FOUND, "预约记录不存在");
+        }
+        return result(state, GateVerifyResultDTO.RESULT_CONFLICT, "预约正在被修改，请重试");
+    }
+
+    /**
+     * 从数据库读取预约状态
+     */
+    private IndividualReservation loadState(Long id, String reservationNo) {
+        if (id == null && reservationNo == null) {
+            return null;
+        }
+        List<IndividualReservation> states = individualReservationMapper.selectVerifyStates(
+                id != null ? Collections.singletonList(id) : null,
+                id == null ? Collections.singletonList(reservationNo) : null);
+        return states.isEmpty() ? null : states.get(0);
+    }
+
+    /**
+     * 判断扫码是否发生在入区当天、时段结束之前
+     */
+    private boolean scannedBeforeSlotEnd(IndividualReservation state, Date scanTime) {
+        if (state.getVisitDate() == null) {
+            return false;
+        }
+        LocalTime endTime = expireProperties.getSlotEndTime(state.getTimeSlot());
+        if (endTime == null) {
+            return false;
+        }
+        LocalDate visitDate = new java.sql.Date(state.getVisitDate().getTime()).toLocalDate();
+        LocalDateTime scanned = LocalDateTime.ofInstant(Instant.ofEpochMilli(scanTime.getTime()), ZoneId.systemDefault());
+        return scanned.toLocalDate().equals(visitDate) && !scanned.toLocalTime().isAfter(endTime);
+    }
+
+    private GateVerifyResultDTO result(IndividualReservation state, String result, String message) {
+        return new GateVerifyResultDTO(state.getId(), state.getReservationNo(), result, message);
+    }
+}
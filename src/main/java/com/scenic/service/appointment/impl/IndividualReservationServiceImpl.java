@@ -8,7 +8,10 @@ import com.scenic.exception.reservation.DuplicateReservationException;
 import com.scenic.exception.reservation.ServiceUnavailableException;
 import com.scenic.mapper.appointment.IndividualReservationMapper;
 import com.scenic.service.appointment.IndividualReservationService;
+import com.scenic.service.appointment.ReservationCapacityService;
+import com.scenic.service.appointment.ReservationWriteBehindService;
 import com.scenic.utils.RedisUtil;
+import com.scenic.utils.ReservationDetailCache;
 import com.scenic.utils.ReservationUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -19,7 +22,13 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 /**
  * 个人预约服务实现类
@@ -29,6 +38,9 @@ public class IndividualReservationServiceImpl implements IndividualReservationSe
     
     private static final Logger log = LoggerFactory.getLogger(IndividualReservationServiceImpl.class);
     
+    // 条件更新未命中（版本号已变化）时的提示
+    private static final String CONCURRENT_MODIFICATION_MESSAGE = "预约状态已变化，请刷新后重试";
+    
     @Autowired
     private IndividualReservationMapper individualReservationMapper;
     
@@ -38,6 +50,15 @@ public class IndividualReservationServiceImpl implements IndividualReservationSe
     @Autowired
     private ReservationUtil reservationUtil;
     
+    @Autowired
+    private ReservationCapacityService reservationCapacityService;
+    
+    @Autowired
+    private ReservationWriteBehindService reservationWriteBehindService;
+    
+    @Autowired
+    private ReservationDetailCache reservationDetailCache;
+    
     /**
      * 创建个人预约
      * @param reservation 个人预约信息
@@ -49,6 +70,7 @@ public class IndividualReservationServiceImpl implements IndividualReservationSe
         log.info("开始处理预约请求，用户:{}, 时段:{}", 
             reservation.getContactIdNumber(), reservation.getTimeSlot());
         
+        boolean capacityAcquired = false;
         try {
             // 1. 防重复检查
             reservationUtil.checkDuplicateReservation(reservation);
@@ -61,10 +83,27 @@ public class IndividualReservationServiceImpl implements IndividualReservationSe
             // 3. 设置默认值
             setDefaultValues(reservation);
             
-            // 4. 插入预约记录
+            // 4. 占用时段余量（Redis原子扣减，余量不足直接拒绝）
+            if (!reservationCapacityService.tryAcquire(reservation.getVisitDate(), reservation.getTimeSlot(), reservation.getTotalCount())) {
+                reservationUtil.releaseReservationLock(reservation);
+                return Result.error("该时段预约已满，请选择其他时间");
+            }
+            capacityAcquired = true;
+            
+            // 5. 启用异步批量写入时，入队后直接返回预约编号，由写入线程批量落库
+            if (reservationWriteBehindService.isEnabled()) {
+                preparePersons(reservation);
+                if (reservationWriteBehindService.submit(reservation)) {
+                    log.info("预约已受理，等待批量写入，预约编号: {}", reservation.getReservationNo());
+                    return Result.success("预约已受理", reservation.getReservationNo());
+                }
+                log.warn("异步写入队列已满，回退为同步写入，预约编号: {}", reservation.getReservationNo());
+            }
+            
+            // 6. 插入预约记录
             int result = individualReservationMapper.insert(reservation);
             
-            // 5. 再插入主预约人和同行预约人信息到individual_reservation_person表
+            // 7. 再插入主预约人和同行预约人信息到individual_reservation_person表
             if (result > 0) {
                 insertReservationPersons(reservation);
             }
@@ -74,6 +113,7 @@ public class IndividualReservationServiceImpl implements IndividualReservationSe
                 return Result.success("预约创建成功", reservation.getReservationNo());
             } else {
                 log.error("预约创建失败，数据库插入返回0");
+                releaseCapacity(reservation);
                 return Result.error("预约创建失败");
             }
         } catch (DuplicateReservationException e) {
@@ -90,15 +130,30 @@ public class IndividualReservationServiceImpl implements IndividualReservationSe
             log.error("数据库访问异常", e);
             // 释放Redis锁
             reservationUtil.releaseReservationLock(reservation);
+            if (capacityAcquired) {
+                releaseCapacity(reservation);
+            }
             throw new ServiceUnavailableException("该预约订单中已经有人预约过了");
         } catch (Exception e) {
             log.error("预约创建异常", e);
             // 释放Redis锁
             reservationUtil.releaseReservationLock(reservation);
+            if (capacityAcquired) {
+                releaseCapacity(reservation);
+            }
             return Result.error("预约创建异常：" + e.getMessage());
         }
     }
     
+    /**
+     * 释放预约占用的时段余量
+     */
+    private void releaseCapacity(IndividualReservation reservation) {
+        if (reservation.getTotalCount() != null) {
+            reservationCapacityService.release(reservation.getVisitDate(), reservation.getTimeSlot(), reservation.getTotalCount());
+        }
+    }
+    
     /**
      * 设置默认值
      */
@@ -135,29 +190,9 @@ public class IndividualReservationServiceImpl implements IndividualReservationSe
      */
     private void insertReservationPersons(IndividualReservation reservation) {
         if (reservation.getReservationPersons() != null && !reservation.getReservationPersons().isEmpty()) {
-            // 设置预约人员的公共字段
+            preparePersons(reservation);
             for (IndividualReservationPerson person : reservation.getReservationPersons()) {
                 person.setReservationId(reservation.getId());
-                person.setVisitDate(reservation.getVisitDate());
-                person.setTimeSlot(reservation.getTimeSlot());
-                if (person.getVersion() == null) {
-                    person.setVersion(0);
-                }
-                if (person.getDeleted() == null) {
-                    person.setDeleted(0);
-                }
-                if (person.getCreateTime() == null) {
-                    person.setCreateTime(LocalDateTime.now());
-                }
-                if (person.getUpdateTime() == null) {
-                    person.setUpdateTime(LocalDateTime.now());
-                }
-                if (person.getCreateBy() == null) {
-                    person.setCreateBy(reservation.getCreateBy());
-                }
-                if (person.getUpdateBy() == null) {
-                    person.setUpdateBy(reservation.getUpdateBy());
-                }
             }
             
             // 批量插入预约人员
@@ -165,6 +200,38 @@ public class IndividualReservationServiceImpl implements IndividualReservationSe
         }
     }
     
+    /**
+     * 设置预约人员的公共字段（预约ID除外，插入主记录后回填）
+     * @param reservation 预约信息
+     */
+    private void preparePersons(IndividualReservation reservation) {
+        if (reservation.getReservationPersons() == null) {
+            return;
+        }
+        for (IndividualReservationPerson person : reservation.getReservationPersons()) {
+            person.setVisitDate(reservation.getVisitDate());
+            person.setTimeSlot(reservation.getTimeSlot());
+            if (person.getVersion() == null) {
+                person.setVersion(0);
+            }
+            if (person.getDeleted() == null) {
+                person.setDeleted(0);
+            }
+            if (person.getCreateTime() == null) {
+                person.setCreateTime(LocalDateTime.now());
+            }
+            if (person.getUpdateTime() == null) {
+                person.setUpdateTime(LocalDateTime.now());
+            }
+            if (person.getCreateBy() == null) {
+                person.setCreateBy(reservation.getCreateBy());
+            }
+            if (person.getUpdateBy() == null) {
+                person.setUpdateBy(reservation.getUpdateBy());
+            }
+        }
+    }
+    
     /**
      * 更新预约人员信息
      * @param reservation 预约信息
@@ -256,21 +323,18 @@ public class IndividualReservationServiceImpl implements IndividualReservationSe
     @Override
     public Result<IndividualReservation> getReservationById(Long id) {
         try {
+            // 先查缓存
+            IndividualReservation cached = reservationDetailCache.get(id);
+            if (cached != null) {
+                return Result.success("查询成功", cached);
+            }
+            
             IndividualReservation reservation = individualReservationMapper.selectById(id);
             
             if (reservation != null) {
-                // 获取主联系人信息
-                IndividualReservationPerson mainContact = individualReservationMapper.selectMainContactByReservationId(id);
-                if (mainContact != null) {
-                    reservation.setContactName(mainContact.getName());
-                    reservation.setContactIdType(mainContact.getIdType());
-                    reservation.setContactIdNumber(mainContact.getIdNumber());
-                    reservation.setContactPhone(mainContact.getPhone());
-                }
-                
-                // 获取所有预约人员信息
-                List<IndividualReservationPerson> reservationPersons = individualReservationMapper.selectReservationPersonsByReservationId(id);
-                reservation.setReservationPersons(reservationPersons);
+                // 填充主联系人及预约人员信息
+                loadPersons(Collections.singletonList(reservation));
+                reservationDetailCache.put(reservation);
                 
                 return Result.success("查询成功", reservation);
             } else {
@@ -338,6 +402,10 @@ public class IndividualReservationServiceImpl implements IndividualReservationSe
     @Override
     @Transactional(rollbackFor = Exception.class)
     public Result<String> updateReservation(IndividualReservation reservation) {
+        // 本次修改额外占用的余量，修改未生效时归还
+        Date acquiredDate = null;
+        Integer acquiredSlot = null;
+        int acquiredCount = 0;
         try {
             // 检查预约是否存在
             IndividualReservation existingReservation = individualReservationMapper.selectById(reservation.getId());
@@ -345,28 +413,105 @@ public class IndividualReservationServiceImpl implements IndividualReservationSe
                 return Result.error("预约记录不存在");
             }
             
+            // 计算余量台账的调整：改期或改时段时整体占用新时段、归还原时段，只改人数时占用或归还差额
+            Date newDate = reservation.getVisitDate() != null ? reservation.getVisitDate() : existingReservation.getVisitDate();
+            Integer newSlot = reservation.getTimeSlot() != null ? reservation.getTimeSlot() : existingReservation.getTimeSlot();
+            int oldCount = existingReservation.getTotalCount() != null ? existingReservation.getTotalCount() : 0;
+            int newCount = reservation.getTotalCount() != null ? reservation.getTotalCount() : oldCount;
+            boolean slotChanged = !sameDay(newDate, existingReservation.getVisitDate())
+                    || !Objects.equals(newSlot, existingReservation.getTimeSlot());
+            int acquireCount = 0;
+            int releaseCount = 0;
+            if (holdsCapacity(existingReservation)) {
+                if (slotChanged) {
+                    acquireCount = newCount;
+                    releaseCount = oldCount;
+                } else if (newCount > oldCount) {
+                    acquireCount = newCount - oldCount;
+                } else {
+                    releaseCount = oldCount - newCount;
+                }
+            }
+            if (acquireCount > 0) {
+                if (!reservationCapacityService.tryAcquire(newDate, newSlot, acquireCount)) {
+                    return Result.error("该时段预约已满，请选择其他时间");
+                }
+                acquiredDate = newDate;
+                acquiredSlot = newSlot;
+                acquiredCount = acquireCount;
+            }
+            
             // 更新时间
             reservation.setUpdateTime(LocalDateTime.now());
             // 版本号增加
-            reservation.setVersion(existingReservation.getVersion() + 1);
+            Integer expectedVersion = existingReservation.getVersion();
+            reservation.setVersion(expectedVersion + 1);
             
-            // 更新预约记录
-            int result = individualReservationMapper.updateById(reservation);
-            System.out.println(result);
-            if (result > 0) {
-                // 如果有预约人员信息，同时更新预约人员表
-                if (reservation.getReservationPersons() != null && !reservation.getReservationPersons().isEmpty()) {
-                    updateReservationPersons(reservation);
+            // 更新预约记录，版本号已变化说明有并发修改，不失效缓存
+            int result = individualReservationMapper.updateById(reservation, expectedVersion);
+            if (result <= 0) {
+                log.warn("预约已被并发修改，更新放弃，预约ID: {}", reservation.getId());
+                releaseAcquired(acquiredDate, acquiredSlot, acquiredCount);
+                return Result.error(CONCURRENT_MODIFICATION_MESSAGE);
+            }
+            // 记录已修改，此后的失败不再归还新占用的余量（台账宁可多占，由对账修正）
+            acquiredCount = 0;
+            
+            // 如果有预约人员信息，同时更新预约人员表
+            if (reservation.getReservationPersons() != null && !reservation.getReservationPersons().isEmpty()) {
+                updateReservationPersons(reservation);
+            }
+            reservationDetailCache.invalidate(reservation.getId(), reservation.getVersion());
+            
+            if (releaseCount > 0) {
+                if (slotChanged) {
+                    reservationCapacityService.release(existingReservation.getVisitDate(), existingReservation.getTimeSlot(), releaseCount);
+                } else {
+                    reservationCapacityService.release(newDate, newSlot, releaseCount);
                 }
-                return Result.success("预约更新成功");
-            } else {
-                return Result.error("预约更新失败");
             }
+            return Result.success("预约更新成功");
+        } catch (ServiceUnavailableException e) {
+            // 缓存失效失败，抛出异常回滚本次修改
+            releaseAcquired(acquiredDate, acquiredSlot, acquiredCount);
+            throw e;
         } catch (Exception e) {
+            releaseAcquired(acquiredDate, acquiredSlot, acquiredCount);
             return Result.error("预约更新异常：" + e.getMessage());
         }
     }
     
+    /**
+     * 预约是否占用余量（已取消、已过期的预约已归还余量）
+     */
+    private boolean holdsCapacity(IndividualReservation reservation) {
+        Integer status = reservation.getStatus();
+        return status == null || (status != 1 && status != 11);
+    }
+    
+    /**
+     * 归还修改预约时额外占用、但修改未生效的余量
+     */
+    private void releaseAcquired(Date visitDate, Integer timeSlot, int count) {
+        if (count > 0) {
+            reservationCapacityService.release(visitDate, timeSlot, count);
+        }
+    }
+    
+    private static boolean sameDay(Date a, Date b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        return toLocalDate(a).equals(toLocalDate(b));
+    }
+    
+    private static java.time.LocalDate toLocalDate(Date date) {
+        if (date instanceof java.sql.Date) {
+            return ((java.sql.Date) date).toLocalDate();
+        }
+        return new java.sql.Date(date.getTime()).toLocalDate();
+    }
+    
     /**
      * 删除个人预约（逻辑删除）
      * @param id 预约ID
@@ -390,10 +535,18 @@ public class IndividualReservationServiceImpl implements IndividualReservationSe
             int result = individualReservationMapper.deleteById(id, updateBy);
             
             if (result > 0) {
+                reservationDetailCache.invalidate(id, existingReservation.getVersion() + 1);
+                // 未取消、未过期的预约删除后归还余量
+                if (existingReservation.getStatus() != null && existingReservation.getStatus() != 1 && existingReservation.getStatus() != 11) {
+                    releaseCapacity(existingReservation);
+                }
                 return Result.success("预约删除成功");
             } else {
                 return Result.error("预约删除失败");
             }
+        } catch (ServiceUnavailableException e) {
+            // 缓存失效失败，抛出异常回滚本次修改
+            throw e;
         } catch (Exception e) {
             return Result.error("预约删除异常：" + e.getMessage());
         }
@@ -407,21 +560,21 @@ public class IndividualReservationServiceImpl implements IndividualReservationSe
     @Override
     public Result<IndividualReservation> getReservationByNo(String reservationNo) {
         try {
+            // 先查缓存
+            Long cachedId = reservationDetailCache.getIdByNo(reservationNo);
+            if (cachedId != null) {
+                IndividualReservation cached = reservationDetailCache.get(cachedId);
+                if (cached != null) {
+                    return Result.success("查询成功", cached);
+                }
+            }
+            
             IndividualReservation reservation = individualReservationMapper.selectByReservationNo(reservationNo);
             
             if (reservation != null) {
-                // 获取主联系人信息
-                IndividualReservationPerson mainContact = individualReservationMapper.selectMainContactByReservationId(reservation.getId());
-                if (mainContact != null) {
-                    reservation.setContactName(mainContact.getName());
-                    reservation.setContactIdType(mainContact.getIdType());
-                    reservation.setContactIdNumber(mainContact.getIdNumber());
-                    reservation.setContactPhone(mainContact.getPhone());
-                }
-                
-                // 获取所有预约人员信息
-                List<IndividualReservationPerson> reservationPersons = individualReservationMapper.selectReservationPersonsByReservationId(reservation.getId());
-                reservation.setReservationPersons(reservationPersons);
+                // 填充主联系人及预约人员信息
+                loadPersons(Collections.singletonList(reservation));
+                reservationDetailCache.put(reservation);
                 
                 return Result.success("查询成功", reservation);
             } else {
@@ -466,16 +619,23 @@ public class IndividualReservationServiceImpl implements IndividualReservationSe
             existingReservation.setCancelReason(cancelReason);
             existingReservation.setUpdateBy(updateBy);
             existingReservation.setUpdateTime(LocalDateTime.now());
-            existingReservation.setVersion(existingReservation.getVersion() + 1);
+            Integer expectedVersion = existingReservation.getVersion();
+            existingReservation.setVersion(expectedVersion + 1);
             
-            // 更新预约记录
-            int result = individualReservationMapper.updateById(existingReservation);
+            // 更新预约记录，版本号已变化说明有并发修改（如闸机核销、过期任务），不失效缓存也不归还余量
+            int result = individualReservationMapper.updateById(existingReservation, expectedVersion);
             
             if (result > 0) {
+                reservationDetailCache.invalidate(id, existingReservation.getVersion());
+                releaseCapacity(existingReservation);
                 return Result.success("预约取消成功");
             } else {
-                return Result.error("预约取消失败");
+                log.warn("预约已被并发修改，取消放弃，预约ID: {}", id);
+                return Result.error(CONCURRENT_MODIFICATION_MESSAGE);
             }
+        } catch (ServiceUnavailableException e) {
+            // 缓存失效失败，抛出异常回滚本次修改
+            throw e;
         } catch (Exception e) {
             return Result.error("预约取消异常：" + e.getMessage());
         }
@@ -521,16 +681,22 @@ public class IndividualReservationServiceImpl implements IndividualReservationSe
             existingReservation.setVerificationRemark(verificationRemark);
             existingReservation.setUpdateBy(updateBy);
             existingReservation.setUpdateTime(LocalDateTime.now());
-            existingReservation.setVersion(existingReservation.getVersion() + 1);
+            Integer expectedVersion = existingReservation.getVersion();
+            existingReservation.setVersion(expectedVersion + 1);
             
-            // 更新预约记录
-            int result = individualReservationMapper.updateById(existingReservation);
+            // 更新预约记录，版本号已变化说明有并发修改（如闸机核销、过期任务），不失效缓存
+            int result = individualReservationMapper.updateById(existingReservation, expectedVersion);
             
             if (result > 0) {
+                reservationDetailCache.invalidate(id, existingReservation.getVersion());
                 return Result.success("预约核销成功");
             } else {
-                return Result.error("预约核销失败");
+                log.warn("预约已被并发修改，核销放弃，预约ID: {}", id);
+                return Result.error(CONCURRENT_MODIFICATION_MESSAGE);
             }
+        } catch (ServiceUnavailableException e) {
+            // 缓存失效失败，抛出异常回滚本次修改
+            throw e;
         } catch (Exception e) {
             return Result.error("预约核销异常：" + e.getMessage());
         }
@@ -553,21 +719,8 @@ public class IndividualReservationServiceImpl implements IndividualReservationSe
             // 获取总数
             int total = individualReservationMapper.selectCountByIdNumberAndStatus(idNumber, status);
             
-            // 为每个预约记录填充详细信息
-            for (IndividualReservation reservation : reservations) {
-                // 获取主联系人信息
-                IndividualReservationPerson mainContact = individualReservationMapper.selectMainContactByReservationId(reservation.getId());
-                if (mainContact != null) {
-                    reservation.setContactName(mainContact.getName());
-                    reservation.setContactIdType(mainContact.getIdType());
-                    reservation.setContactIdNumber(mainContact.getIdNumber());
-                    reservation.setContactPhone(mainContact.getPhone());
-                }
-                
-                // 获取所有预约人员信息
-                List<IndividualReservationPerson> reservationPersons = individualReservationMapper.selectReservationPersonsByReservationId(reservation.getId());
-                reservation.setReservationPersons(reservationPersons);
-            }
+            // 一次查询填充本页所有预约的主联系人及预约人员信息
+            loadPersons(reservations);
             
             PageResult<IndividualReservation> pageResult = PageResult.of(total, size, page, reservations);
             return Result.success("查询成功", pageResult);
@@ -575,4 +728,39 @@ public class IndividualReservationServiceImpl implements IndividualReservationSe
             return Result.error("查询异常：" + e.getMessage());
         }
     }
-}
\ No newline at end of file
+    
+    /**
+     * 批量填充预约的主联系人及预约人员信息
+     * 一次IN查询取出所有预约的人员，再在内存中按预约ID分组
+     * @param reservations 预约列表
+     */
+    private void loadPersons(List<IndividualReservation> reservations) {
+        if (reservations == null || reservations.isEmpty()) {
+            return;
+        }
+        
+        List<Long> reservationIds = new ArrayList<>(reservations.size());
+        for (IndividualReservation reservation : reservations) {
+            reservationIds.add(reservation.getId());
+        }
+        
+        Map<Long, List<IndividualReservationPerson>> personsByReservation = new HashMap<>();
+        for (IndividualReservationPerson person : individualReservationMapper.selectPersonsByReservationIds(reservationIds)) {
+            personsByReservation.computeIfAbsent(person.getReservationId(), k -> new ArrayList<>()).add(person);
+        }
+        
+        for (IndividualReservation reservation : reservations) {
+            List<IndividualReservationPerson> persons = personsByReservation.getOrDefault(reservation.getId(), new ArrayList<>());
+            for (IndividualReservationPerson person : persons) {
+                if (person.getIsContact() != null && person.getIsContact() == 1) {
+                    reservation.setContactName(person.getName());
+                    reservation.setContactIdType(person.getIdType());
+                    reservation.setContactIdNumber(person.getIdNumber());
+                    reservation.setContactPhone(person.getPhone());
+                    break;
+                }
+            }
+            reservation.setReservationPersons(persons);
+        }
+    }
+}
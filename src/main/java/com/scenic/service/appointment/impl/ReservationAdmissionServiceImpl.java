@@ -0,0 +1,446 @@
+package com.scenic.service.appointment.impl;
+
+import com.google.common.util.concurrent.RateLimiter;
+import com.scenic.common.dto.Result;
+import com.scenic.config.ReservationAdmissionProperties;
+import com.scenic.dto.appointment.ReservationAdmissionDTO;
+import com.scenic.entity.appointment.IndividualReservation;
+import com.scenic.exception.reservation.DuplicateReservationException;
+import com.scenic.exception.reservation.ReservationException;
+import com.scenic.exception.reservation.ServiceUnavailableException;
+import com.scenic.service.appointment.IndividualReservationService;
+import com.scenic.service.appointment.ReservationAdmissionService;
+import com.scenic.utils.RedisUtil;
+import com.scenic.utils.ReservationUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 预约排队准入服务实现类
+ * 队列存放在Redis中，多节点共享；每个节点按配置速率出队，总吞吐 = 节点数 × permitsPerSecond
+ *
+ * 出队用RPOPLPUSH把凭证移入处理中列表，同时写入带过期时间的认领键，处理期间由续期线程定期延长；
+ * 处理结束后无论成败都写入结果，再从处理中列表移除。节点在处理过程中宕机时，认领键不再续期而过期，
+ * 巡检把凭证放回队列重新处理。预约编号在入队时生成，重新处理时若防重检查命中的正是本凭证已创建的预约，
+ * 按成功返回。未启用排队时直接同步创建预约。
+ */
+@Service
+public class ReservationAdmissionServiceImpl implements ReservationAdmissionService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReservationAdmissionServiceImpl.class);
+
+    private static final String QUEUE_KEY = "reservation:admission:queue";
+    private static final String PROCESSING_KEY = "reservation:admission:processing";
+    private static final String CLAIM_KEY_PREFIX = "reservation:admission:claim:";
+    private static final String SEQ_KEY = "reservation:admission:seq";
+    private static final String DONE_KEY = "reservation:admission:done";
+    private static final String PAYLOAD_KEY_PREFIX = "reservation:admission:payload:";
+    private static final String RESULT_KEY_PREFIX = "reservation:admission:result:";
+
+    // 队列为空时的轮询间隔（毫秒）
+    private static final long IDLE_WAIT_MILLIS = 100L;
+
+    // 认领键过期时间（秒），超过该时间仍未处理完的凭证视为处理节点已失效
+    private static final long CLAIM_TTL_SECONDS = 60L;
+
+    // 认领键续期间隔（秒），远小于过期时间，单次续期失败不会导致认领过期
+    private static final long CLAIM_RENEW_INTERVAL_SECONDS = 20L;
+
+    // 处理中列表巡检间隔（毫秒）
+    private static final long RECOVER_INTERVAL_MILLIS = 30000L;
+
+    /**
+     * 出队脚本：KEYS[1]=队列，KEYS[2]=处理中列表，KEYS[3]=已出队计数，ARGV[1]=认领键前缀，ARGV[2]=认领过期秒数，ARGV[3]=认领标识
+     * 凭证移入处理中列表的同时写入认领键，返回凭证编号，队列为空返回nil
+     */
+    private static final RedisScript<String> POP_SCRIPT = new DefaultRedisScript<>(
+            "local t = redis.call('RPOPLPUSH', KEYS[1], KEYS[2]) " +
+            "if t then " +
+            "  redis.call('SET', ARGV[1] .. t, ARGV[3], 'EX', ARGV[2]) " +
+            "  redis.call('INCR', KEYS[3]) " +
+            "end " +
+            "return t",
+            String.class);
+
+    /**
+     * 回收脚本：KEYS[1]=处理中列表，KEYS[2]=队列，KEYS[3]=已出队计数，KEYS[4]=认领键，KEYS[5]=结果键，ARGV[1]=凭证编号
+     * 认领键仍在时不处理；已有结果的只移出处理中列表（返回1）；否则放回队列出队端（返回2）
+     */
+    private static final RedisScript<Long> RECOVER_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[4]) == 1 then return 0 end " +
+            "if redis.call('LREM', KEYS[1], 1, ARGV[1]) == 0 then return 0 end " +
+            "if redis.call('EXISTS', KEYS[5]) == 1 then return 1 end " +
+            "redis.call('RPUSH', KEYS[2], ARGV[1]) " +
+            "redis.call('DECR', KEYS[3]) " +
+            "return 2",
+            Long.class);
+
+    /**
+     * 续期脚本：KEYS[1]=认领键，ARGV[1]=认领标识，ARGV[2]=认领过期秒数
+     * 认领键仍属于自己时延长过期时间返回1，否则返回0
+     */
+    private static final RedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then " +
+            "  return redis.call('EXPIRE', KEYS[1], ARGV[2]) " +
+            "end " +
+            "return 0",
+            Long.class);
+
+    /**
+     * 释放脚本：KEYS[1]=认领键，ARGV[1]=认领标识，认领键仍属于自己时删除
+     */
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then " +
+            "  return redis.call('DEL', KEYS[1]) " +
+            "end " +
+            "return 0",
+            Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisUtil redisUtil;
+
+    @Autowired
+    private IndividualReservationService individualReservationService;
+
+    @Autowired
+    private ReservationUtil reservationUtil;
+
+    @Autowired
+    private ReservationAdmissionProperties admissionProperties;
+
+    private RateLimiter rateLimiter;
+
+    private ExecutorService workers;
+
+    private ScheduledExecutorService claimRenewer;
+
+    // 本节点正在处理的凭证及其认领标识
+    private final Map<String, String> processingClaims = new ConcurrentHashMap<>();
+
+    private volatile boolean running;
+
+    private final AtomicLong lastRecoverMillis = new AtomicLong();
+
+    /**
+     * 启动出队线程
+     */
+    @PostConstruct
+    public void start() {
+        if (!admissionProperties.isEnabled()) {
+            log.info("预约排队准入未启用");
+            return;
+        }
+        rateLimiter = RateLimiter.create(admissionProperties.getPermitsPerSecond());
+        AtomicInteger threadIndex = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(admissionProperties.getWorkerThreads(), r -> {
+            Thread thread = new Thread(r, "reservation-admission-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        claimRenewer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "reservation-admission-renew");
+            thread.setDaemon(true);
+            return thread;
+        });
+        claimRenewer.scheduleWithFixedDelay(this::renewClaims,
+                CLAIM_RENEW_INTERVAL_SECONDS, CLAIM_RENEW_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        running = true;
+        for (int i = 0; i < admissionProperties.getWorkerThreads(); i++) {
+            workers.submit(this::drainLoop);
+        }
+        log.info("预约排队准入已启动，速率: {}/s, 线程数: {}",
+                admissionProperties.getPermitsPerSecond(), admissionProperties.getWorkerThreads());
+    }
+
+    /**
+     * 停止出队线程
+     */
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (workers != null) {
+            workers.shutdown();
+            try {
+                workers.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (claimRenewer != null) {
+            claimRenewer.shutdownNow();
+        }
+    }
+
+    @Override
+    public ReservationAdmissionDTO enqueue(IndividualReservation reservation) {
+        if (!admissionProperties.isEnabled()) {
+            // 未启用排队时没有出队线程，直接同步创建并返回最终结果
+            return createNow(null, reservation);
+        }
+
+        Long queueLength = stringRedisTemplate.opsForList().size(QUEUE_KEY);
+        if (queueLength != null && queueLength >= admissionProperties.getMaxQueueLength()) {
+            throw new ServiceUnavailableException("当前排队人数过多，请稍后再试");
+        }
+
+        Long seq = stringRedisTemplate.opsForValue().increment(SEQ_KEY);
+        if (seq == null) {
+            throw new ServiceUnavailableException();
+        }
+        String ticketNo = seq + "-" + UUID.randomUUID().toString().replace("-", "").substring(0, 12);
+
+        // 入队时确定预约编号，重新处理时据此识别本凭证已创建的预约
+        if (reservation.getReservationNo() == null || reservation.getReservationNo().isEmpty()) {
+            reservation.setReservationNo(reservationUtil.generateReservationNo());
+        }
+
+        // 先保存预约内容，再入队，保证出队时一定能取到内容
+        if (!redisUtil.set(PAYLOAD_KEY_PREFIX + ticketNo, reservation, admissionProperties.getTicketTtlSeconds())) {
+            throw new ServiceUnavailableException();
+        }
+        stringRedisTemplate.opsForList().leftPush(QUEUE_KEY, ticketNo);
+
+        ReservationAdmissionDTO ticket = new ReservationAdmissionDTO(ticketNo, ReservationAdmissionDTO.STATUS_WAITING);
+        ticket.setPosition(calculatePosition(seq));
+        log.debug("预约请求已入队，凭证: {}, 前方排队: {}", ticketNo, ticket.getPosition());
+        return ticket;
+    }
+
+    @Override
+    public ReservationAdmissionDTO getTicketStatus(String ticketNo) {
+        Object result = redisUtil.get(RESULT_KEY_PREFIX + ticketNo);
+        if (result instanceof ReservationAdmissionDTO) {
+            return (ReservationAdmissionDTO) result;
+        }
+
+        if (!redisUtil.hasKey(PAYLOAD_KEY_PREFIX + ticketNo)) {
+            ReservationAdmissionDTO expired = new ReservationAdmissionDTO(ticketNo, ReservationAdmissionDTO.STATUS_EXPIRED);
+            expired.setMessage("排队凭证不存在或已过期");
+            return expired;
+        }
+
+        ReservationAdmissionDTO waiting = new ReservationAdmissionDTO(ticketNo, ReservationAdmissionDTO.STATUS_WAITING);
+        waiting.setPosition(calculatePosition(parseSeq(ticketNo)));
+        return waiting;
+    }
+
+    /**
+     * 出队循环：按速率取出凭证并创建预约
+     */
+    private void drainLoop() {
+        while (running) {
+            try {
+                recoverIfDue();
+                // 先取得许可再出队，凭证出队后立即处理，处理时间不包含限速等待
+                rateLimiter.acquire();
+                String owner = UUID.randomUUID().toString();
+                String ticketNo = pollTicket(owner);
+                if (ticketNo == null) {
+                    Thread.sleep(IDLE_WAIT_MILLIS);
+                    continue;
+                }
+                process(ticketNo, owner);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("预约排队出队异常", e);
+                try {
+                    Thread.sleep(1000L);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * 出队一个凭证并以给定标识认领，认领期间由续期线程延长认领键
+     * @param owner 认领标识
+     * @return 凭证编号，队列为空返回null
+     */
+    private String pollTicket(String owner) {
+        String ticketNo = stringRedisTemplate.execute(POP_SCRIPT,
+                Arrays.asList(QUEUE_KEY, PROCESSING_KEY, DONE_KEY),
+                CLAIM_KEY_PREFIX, String.valueOf(CLAIM_TTL_SECONDS), owner);
+        if (ticketNo != null) {
+            processingClaims.put(ticketNo, owner);
+        }
+        return ticketNo;
+    }
+
+    /**
+     * 处理单个凭证，处理结束后总是写入结果
+     */
+    private void process(String ticketNo, String owner) {
+        try {
+            String payloadKey = PAYLOAD_KEY_PREFIX + ticketNo;
+            Object payload = redisUtil.get(payloadKey);
+            if (payload == null && !redisUtil.isRedisAvailable()) {
+                // 读取失败时保留在处理中列表，停止续期，认领键过期后由巡检放回队列
+                log.warn("读取排队凭证内容失败，等待重新处理: {}", ticketNo);
+                return;
+            }
+
+            ReservationAdmissionDTO outcome;
+            if (payload instanceof IndividualReservation) {
+                outcome = createNow(ticketNo, (IndividualReservation) payload);
+            } else {
+                log.warn("排队凭证内容不存在或已过期: {}", ticketNo);
+                outcome = new ReservationAdmissionDTO(ticketNo, ReservationAdmissionDTO.STATUS_EXPIRED);
+                outcome.setMessage("排队凭证不存在或已过期");
+            }
+
+            if (redisUtil.set(RESULT_KEY_PREFIX + ticketNo, outcome, admissionProperties.getTicketTtlSeconds())) {
+                stringRedisTemplate.opsForList().remove(PROCESSING_KEY, 1, ticketNo);
+                redisUtil.delete(payloadKey);
+                stringRedisTemplate.execute(RELEASE_SCRIPT,
+                        Collections.singletonList(CLAIM_KEY_PREFIX + ticketNo), owner);
+            }
+        } finally {
+            processingClaims.remove(ticketNo);
+        }
+    }
+
+    /**
+     * 续期本节点正在处理的凭证的认领键，认领已失效的不再续期
+     */
+    private void renewClaims() {
+        for (Map.Entry<String, String> claim : processingClaims.entrySet()) {
+            String ticketNo = claim.getKey();
+            try {
+                Long renewed = stringRedisTemplate.execute(RENEW_SCRIPT,
+                        Collections.singletonList(CLAIM_KEY_PREFIX + ticketNo),
+                        claim.getValue(), String.valueOf(CLAIM_TTL_SECONDS));
+                if (renewed == null || renewed == 0L) {
+                    log.warn("排队凭证认领已失效，停止续期: {}", ticketNo);
+                    processingClaims.remove(ticketNo, claim.getValue());
+                }
+            } catch (Exception e) {
+                log.warn("排队凭证认领续期失败: {}, 错误: {}", ticketNo, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 创建预约并转换为凭证结果，任何异常都转换为失败结果
+     */
+    private ReservationAdmissionDTO createNow(String ticketNo, IndividualReservation reservation) {
+        ReservationAdmissionDTO outcome = new ReservationAdmissionDTO(ticketNo, ReservationAdmissionDTO.STATUS_FAILED);
+        try {
+            Result<String> result = individualReservationService.createReservation(reservation);
+            if (result.getCode() == 200) {
+                outcome.setStatus(ReservationAdmissionDTO.STATUS_SUCCESS);
+                outcome.setReservationNo(result.getData());
+            }
+            outcome.setMessage(result.getMessage());
+        } catch (DuplicateReservationException e) {
+            if (ticketNo != null && isCreatedByTicket(reservation)) {
+                // 凭证重新处理时，防重检查命中的是本凭证上次已创建的预约
+                log.info("排队凭证的预约已创建，按成功返回，凭证: {}, 预约编号: {}", ticketNo, reservation.getReservationNo());
+                outcome.setStatus(ReservationAdmissionDTO.STATUS_SUCCESS);
+                outcome.setReservationNo(reservation.getReservationNo());
+                outcome.setMessage("预约创建成功");
+            } else {
+                outcome.setMessage(e.getMessage());
+            }
+        } catch (ReservationException e) {
+            outcome.setMessage(e.getMessage());
+        } catch (Exception e) {
+            log.error("排队预约创建异常，凭证: {}", ticketNo, e);
+            outcome.setMessage("预约创建异常");
+        }
+        return outcome;
+    }
+
+    /**
+     * 判断凭证中的预约编号是否已创建预约
+     */
+    private boolean isCreatedByTicket(IndividualReservation reservation) {
+        if (reservation.getReservationNo() == null || reservation.getReservationNo().isEmpty()) {
+            return false;
+        }
+        Result<IndividualReservation> existing = individualReservationService.getReservationByNo(reservation.getReservationNo());
+        return existing.getCode() == 200 && existing.getData() != null;
+    }
+
+    /**
+     * 按间隔巡检处理中列表，每个节点同一时间只有一个线程执行
+     */
+    private void recoverIfDue() {
+        long now = System.currentTimeMillis();
+        long last = lastRecoverMillis.get();
+        if (now - last < RECOVER_INTERVAL_MILLIS || !lastRecoverMillis.compareAndSet(last, now)) {
+            return;
+        }
+        try {
+            List<String> tickets = stringRedisTemplate.opsForList().range(PROCESSING_KEY, 0, -1);
+            if (tickets == null) {
+                return;
+            }
+            int requeued = 0;
+            for (String ticketNo : tickets) {
+                Long recovered = stringRedisTemplate.execute(RECOVER_SCRIPT,
+                        Arrays.asList(PROCESSING_KEY, QUEUE_KEY, DONE_KEY,
+                                CLAIM_KEY_PREFIX + ticketNo, RESULT_KEY_PREFIX + ticketNo),
+                        ticketNo);
+                if (recovered != null && recovered == 2L) {
+                    requeued++;
+                }
+            }
+            if (requeued > 0) {
+                log.warn("处理节点失效的排队凭证已放回队列，数量: {}", requeued);
+            }
+        } catch (Exception e) {
+            log.warn("巡检排队处理中列表失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 计算前方排队人数
+     */
+    private Long calculatePosition(Long seq) {
+        if (seq == null) {
+            return null;
+        }
+        String done = stringRedisTemplate.opsForValue().get(DONE_KEY);
+        long doneCount = done != null ? Long.parseLong(done) : 0L;
+        return Math.max(0L, seq - doneCount - 1);
+    }
+
+    private Long parseSeq(String ticketNo) {
+        int index = ticketNo.indexOf('-');
+        if (index <= 0) {
+            return null;
+        }
+        try {
+            return Long.parseLong(ticketNo.substring(0, index));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.scenic.service.appointment.impl;
+
+import com.scenic.config.ReservationCapacityProperties;
+import com.scenic.mapper.appointment.IndividualReservationMapper;
+import com.scenic.service.appointment.ReservationCapacityService;
+import com.scenic.utils.RedisUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 预约余量台账服务实现类
+ * Redis键：reservation:capacity:{yyyy-MM-dd}:{timeSlot}，值为已占用人数
+ */
+@Service
+public class ReservationCapacityServiceImpl implements ReservationCapacityService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReservationCapacityServiceImpl.class);
+
+    private static final String CAPACITY_KEY_PREFIX = "reservation:capacity:";
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+    /** 台账键不存在 */
+    private static final long NOT_INITIALIZED = -2L;
+
+    /** 余量不足 */
+    private static final long INSUFFICIENT = -1L;
+
+    /**
+     * 占用脚本：KEYS[1]=台账键，ARGV[1]=人数，ARGV[2]=上限
+     * 返回占用后的人数；余量不足返回-1；键不存在返回-2
+     */
+    private static final RedisScript<Long> ACQUIRE_SCRIPT = new DefaultRedisScript<>(
+            "local used = redis.call('GET', KEYS[1]) " +
+            "if not used then return -2 end " +
+            "if tonumber(used) + tonumber(ARGV[1]) > tonumber(ARGV[2]) then return -1 end " +
+            "return redis.call('INCRBY', KEYS[1], ARGV[1])",
+            Long.class);
+
+    /**
+     * 释放脚本：KEYS[1]=台账键，ARGV[1]=人数
+     * 键不存在时不处理（由下次占用或对账从数据库加载），结果不低于0
+     */
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return -2 end " +
+            "local v = redis.call('DECRBY', KEYS[1], ARGV[1]) " +
+            "if v < 0 then redis.call('INCRBY', KEYS[1], -v) return 0 end " +
+            "return v",
+            Long.class);
+
+    /**
+     * 对账脚本：KEYS[1]=台账键，ARGV[1]=数据库人数，ARGV[2]=查询前快照（-1表示无快照），ARGV[3]=过期秒数
+     * 将查询数据库期间发生的增减叠加到数据库人数上，避免覆盖进行中的占用
+     */
+    private static final RedisScript<Long> RECONCILE_SCRIPT = new DefaultRedisScript<>(
+            "local cur = redis.call('GET', KEYS[1]) " +
+            "local snap = tonumber(ARGV[2]) " +
+            "local v = tonumber(ARGV[1]) " +
+            "if cur and snap >= 0 then v = v + tonumber(cur) - snap end " +
+            "if v < 0 then v = 0 end " +
+            "redis.call('SET', KEYS[1], v, 'EX', ARGV[3]) " +
+            "return v",
+            Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private IndividualReservationMapper individualReservationMapper;
+
+    @Autowired
+    private ReservationCapacityProperties capacityProperties;
+
+    @Autowired
+    private RedisUtil redisUtil;
+
+    @Override
+    public boolean tryAcquire(Date visitDate, Integer timeSlot, int count) {
+        if (!capacityProperties.isEnabled() || visitDate == null || timeSlot == null || count <= 0) {
+            return true;
+        }
+
+        LocalDate date = toLocalDate(visitDate);
+        String key = buildKey(date, timeSlot);
+        String limit = String.valueOf(capacityProperties.getLimit(timeSlot));
+
+        try {
+            Long result = stringRedisTemplate.execute(ACQUIRE_SCRIPT, Collections.singletonList(key),
+                    String.valueOf(count), limit);
+            if (result != null && result == NOT_INITIALIZED) {
+                // 台账键不存在时从数据库加载一次，再重试占用
+                stringRedisTemplate.opsForValue().setIfAbsent(key, String.valueOf(loadBookedCount(date, timeSlot)),
+                        ttlSeconds(date), TimeUnit.SECONDS);
+                result = stringRedisTemplate.execute(ACQUIRE_SCRIPT, Collections.singletonList(key),
+                        String.valueOf(count), limit);
+            }
+            redisUtil.setRedisAvailable(true);
+
+            if (result == null || result == INSUFFICIENT || result == NOT_INITIALIZED) {
+                log.info("时段余量不足，日期:{}, 时段:{}, 申请人数:{}", date, timeSlot, count);
+                return false;
+            }
+            log.debug("余量占用成功，key: {}, 已占用: {}", key, result);
+            return true;
+        } catch (RedisConnectionFailureException e) {
+            log.warn("Redis连接失败，余量检查降级到数据库: {}", key);
+            redisUtil.setRedisAvailable(false);
+            return loadBookedCount(date, timeSlot) + count <= capacityProperties.getLimit(timeSlot);
+        }
+    }
+
+    @Override
+    public void release(Date visitDate, Integer timeSlot, int count) {
+        if (!capacityProperties.isEnabled() || visitDate == null || timeSlot == null || count <= 0) {
+            return;
+        }
+
+        String key = buildKey(toLocalDate(visitDate), timeSlot);
+        try {
+            stringRedisTemplate.execute(RELEASE_SCRIPT, Collections.singletonList(key), String.valueOf(count));
+            log.debug("释放余量，key: {}, 人数: {}", key, count);
+        } catch (RedisConnectionFailureException e) {
+            // 释放失败由定时对账修正
+            log.warn("Redis连接失败，释放余量失败: {}", key);
+            redisUtil.setRedisAvailable(false);
+        }
+    }
+
+    @Override
+    public void evict(LocalDate visitDate, Integer timeSlot) {
+        if (!capacityProperties.isEnabled() || visitDate == null || timeSlot == null) {
+            return;
+        }
+
+        String key = buildKey(visitDate, timeSlot);
+        try {
+            stringRedisTemplate.delete(key);
+            log.debug("移除已结束时段台账，key: {}", key);
+        } catch (RedisConnectionFailureException e) {
+            // 移除失败不影响正确性，台账键会按过期时间自动清理
+            log.warn("Redis连接失败，移除台账失败: {}", key);
+            redisUtil.setRedisAvailable(false);
+        }
+    }
+
+    @Override
+    public int getRemaining(Date visitDate, Integer timeSlot) {
+        LocalDate date = toLocalDate(visitDate);
+        int limit = capacityProperties.getLimit(timeSlot);
+        int used;
+        try {
+            String value = stringRedisTemplate.opsForValue().get(buildKey(date, timeSlot));
+            used = value != null ? Integer.parseInt(value) : loadBookedCount(date, timeSlot);
+        } catch (RedisConnectionFailureException e) {
+            log.warn("Redis连接失败，余量查询降级到数据库");
+            used = loadBookedCount(date, timeSlot);
+        }
+        return Math.max(0, limit - used);
+    }
+
+    @Override
+    public int reconcile(LocalDate startDate, LocalDate endDate) {
+        if (!capacityProperties.isEnabled()) {
+            return 0;
+        }
+
+        // 1. 先取快照，再查询数据库，对账时把期间的增减叠加回去
+        Set<Integer> slots = new TreeSet<>(capacityProperties.getSlotLimits().keySet());
+        slots.add(1);
+        slots.add(2);
+
+        List<String> keys = new ArrayList<>();
+        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+            for (Integer slot : slots) {
+                keys.add(buildKey(date, slot));
+            }
+        }
+        List<String> snapshotValues = stringRedisTemplate.opsForValue().multiGet(keys);
+        Map<String, String> snapshot = new HashMap<>();
+        for (int i = 0; i < keys.size(); i++) {
+            String value = snapshotValues != null ? snapshotValues.get(i) : null;
+            snapshot.put(keys.get(i), value != null ? value : "-1");
+        }
+
+        // 2. 统计数据库中的已占用人数
+        Map<String, Long> booked = new HashMap<>();
+        for (String key : keys) {
+            booked.put(key, 0L);
+        }
+        List<Map<String, Object>> rows = individualReservationMapper.selectSlotBookedCounts(startDate, endDate, null);
+        for (Map<String, Object> row : rows) {
+            Object timeSlot = row.get("time_slot");
+            if (row.get("visit_date") == null || timeSlot == null) {
+                continue;
+            }
+            LocalDate date = LocalDate.parse(String.valueOf(row.get("visit_date")).substring(0, 10));
+            String key = buildKey(date, ((Number) timeSlot).intValue());
+            booked.put(key, toLong(row.get("booked_count")));
+        }
+
+        // 3. 写回台账
+        for (Map.Entry<String, Long> entry : booked.entrySet()) {
+            String key = entry.getKey();
+            LocalDate date = LocalDate.parse(key.substring(CAPACITY_KEY_PREFIX.length(), CAPACITY_KEY_PREFIX.length() + 10));
+            stringRedisTemplate.execute(RECONCILE_SCRIPT, Collections.singletonList(key),
+                    String.valueOf(entry.getValue()),
+                    snapshot.getOrDefault(key, "-1"),
+                    String.valueOf(ttlSeconds(date)));
+        }
+
+        log.info("预约余量台账对账完成，日期范围: {} ~ {}, 时段数: {}", startDate, endDate, booked.size());
+        return booked.size();
+    }
+
+    /**
+     * 从数据库统计单个时段的已占用人数
+     */
+    private int loadBookedCount(LocalDate date, Integer timeSlot) {
+        List<Map<String, Object>> rows = individualReservationMapper.selectSlotBookedCounts(date, date, timeSlot);
+        long total = 0;
+        for (Map<String, Object> row : rows) {
+            total += toLong(row.get("booked_count"));
+        }
+        return (int) total;
+    }
+
+    private long toLong(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : 0L;
+    }
+
+    private String buildKey(LocalDate date, Integer timeSlot) {
+        return CAPACITY_KEY_PREFIX + date.format(DATE_FORMATTER) + ":" + timeSlot;
+    }
+
+    private LocalDate toLocalDate(Date date) {
+        if (date instanceof java.sql.Date) {
+            return ((java.sql.Date) date).toLocalDate();
+        }
+        return new java.sql.Date(date.getTime()).toLocalDate();
+    }
+
+    /**
+     * 台账键保留到入区日期之后retainDays天
+     */
+    private long ttlSeconds(LocalDate date) {
+        LocalDateTime expireAt = date.plusDays(1L + capacityProperties.getRetainDays()).atStartOfDay();
+        return Math.max(60L, ChronoUnit.SECONDS.between(LocalDateTime.now(), expireAt));
+    }
+}
@@ -0,0 +1,128 @@
+package com.scenic.service.appointment.impl;
+
+import com.scenic.config.ReservationExpireProperties;
+import com.scenic.entity.appointment.IndividualReservation;
+import com.scenic.mapper.appointment.IndividualReservationMapper;
+import com.scenic.service.appointment.ReservationCapacityService;
+import com.scenic.service.appointment.ReservationExpireService;
+import com.scenic.utils.ReservationDetailCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 个人预约过期服务实现类
+ * 以主键游标分批：先取下一批的ID和版本号，再对ID区间执行一条UPDATE，每批单独提交，
+ * 避免一次性加载大量数据或长事务锁表。条件中保留status = 0，多节点同时执行时结果一致。
+ * 每批更新前按新版本号失效预约详情缓存，UPDATE提交后缓存中不会残留未过期状态。
+ */
+@Service
+public class ReservationExpireServiceImpl implements ReservationExpireService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReservationExpireServiceImpl.class);
+
+    @Autowired
+    private IndividualReservationMapper individualReservationMapper;
+
+    @Autowired
+    private ReservationCapacityService reservationCapacityService;
+
+    @Autowired
+    private ReservationExpireProperties expireProperties;
+
+    @Autowired
+    private ReservationDetailCache reservationDetailCache;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    @Override
+    public int expireDueReservations(LocalDateTime now) {
+        if (!running.compareAndSet(false, true)) {
+            log.warn("上一次过期任务仍在执行，本次跳过");
+            return 0;
+        }
+        try {
+            long deadline = System.currentTimeMillis() + expireProperties.getMaxRunSeconds() * 1000L;
+            LocalDate today = now.toLocalDate();
+            int total = 0;
+
+            // 1. 入区日期早于当天的全部过期
+            total += expireRange(null, today, null, deadline);
+
+            // 2. 入区日期为当天且时段已结束的过期，并移除该时段台账
+            Map<Integer, String> slotEndTimes = new TreeMap<>(expireProperties.getSlotEndTimes());
+            for (Integer timeSlot : slotEndTimes.keySet()) {
+                LocalTime endTime = expireProperties.getSlotEndTime(timeSlot);
+                if (endTime == null || !now.toLocalTime().isAfter(endTime)) {
+                    continue;
+                }
+                total += expireRange(today, today.plusDays(1), timeSlot, deadline);
+                reservationCapacityService.evict(today, timeSlot);
+            }
+            return total;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * 分批过期指定范围内的预约
+     * @param startDate 入区日期下限（含，可选）
+     * @param endDate 入区日期上限（不含）
+     * @param timeSlot 时段（可选）
+     * @param deadline 截止时间戳（毫秒）
+     * @return 过期的预约数
+     */
+    private int expireRange(LocalDate startDate, LocalDate endDate, Integer timeSlot, long deadline) {
+        int chunkSize = expireProperties.getChunkSize();
+        long lastId = 0L;
+        int total = 0;
+        int chunks = 0;
+        long maxChunkMillis = 0L;
+        long rangeStart = System.currentTimeMillis();
+
+        while (true) {
+            if (System.currentTimeMillis() > deadline) {
+                log.warn("过期任务超出最长执行时间，剩余数据留到下次执行，范围: [{}, {}), 时段: {}, 游标: {}",
+                        startDate, endDate, timeSlot, lastId);
+                break;
+            }
+
+            long chunkStart = System.currentTimeMillis();
+            List<IndividualReservation> chunk = individualReservationMapper.selectExpireChunk(lastId, startDate, endDate, timeSlot, chunkSize);
+            if (chunk.isEmpty()) {
+                break;
+            }
+            long upperId = chunk.get(chunk.size() - 1).getId();
+            // 版本号将随UPDATE加1，先按新版本设置缓存栅栏再更新
+            for (IndividualReservation reservation : chunk) {
+                reservation.setVersion(reservation.getVersion() != null ? reservation.getVersion() + 1 : null);
+            }
+            reservationDetailCache.invalidateAll(chunk);
+            int updated = individualReservationMapper.expireByIdRange(lastId, upperId, startDate, endDate, timeSlot);
+            long chunkMillis = System.currentTimeMillis() - chunkStart;
+
+            chunks++;
+            total += updated;
+            maxChunkMillis = Math.max(maxChunkMillis, chunkMillis);
+            log.debug("过期批次完成，范围: [{}, {}), 时段: {}, ID区间: ({}, {}], 更新: {}, 耗时: {}ms",
+                    startDate, endDate, timeSlot, lastId, upperId, updated, chunkMillis);
+            lastId = upperId;
+        }
+
+        if (chunks > 0) {
+            log.info("过期范围处理完成，范围: [{}, {}), 时段: {}, 批次数: {}, 过期数: {}, 总耗时: {}ms, 最慢批次: {}ms",
+                    startDate, endDate, timeSlot, chunks, total, System.currentTimeMillis() - rangeStart, maxChunkMillis);
+        }
+        return total;
+    }
+}
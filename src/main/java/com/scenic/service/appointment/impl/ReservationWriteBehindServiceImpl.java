@@ -0,0 +1,277 @@
+package com.scenic.service.appointment.impl;
+
+import com.scenic.config.ReservationWriteBehindProperties;
+import com.scenic.entity.appointment.IndividualReservation;
+import com.scenic.entity.appointment.IndividualReservationPerson;
+import com.scenic.mapper.appointment.IndividualReservationMapper;
+import com.scenic.service.appointment.ReservationCapacityService;
+import com.scenic.service.appointment.ReservationWriteBehindService;
+import com.scenic.utils.RedisUtil;
+import com.scenic.utils.ReservationUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * 个人预约异步批量写入服务实现类
+ * 进程内有界队列 + 少量写入线程，每批一个事务：一条多行INSERT写主表，一条多行INSERT写人员表。
+ * 入队与停止由读写锁互斥：停止后不会再有预约入队，写入线程退出后剩余的预约由停止线程同步落库。
+ * 注意：队列在内存中，进程异常退出时未落库的预约会丢失，仅建议在放号高峰期开启。
+ */
+@Service
+public class ReservationWriteBehindServiceImpl implements ReservationWriteBehindService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReservationWriteBehindServiceImpl.class);
+
+    private static final String STATUS_KEY_PREFIX = "reservation:write-behind:";
+
+    @Autowired
+    private ReservationWriteBehindProperties writeBehindProperties;
+
+    @Autowired
+    private IndividualReservationMapper individualReservationMapper;
+
+    @Autowired
+    private ReservationCapacityService reservationCapacityService;
+
+    @Autowired
+    private ReservationUtil reservationUtil;
+
+    @Autowired
+    private RedisUtil redisUtil;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    private BlockingQueue<IndividualReservation> queue;
+
+    private ExecutorService writers;
+
+    private volatile boolean running;
+
+    /**
+     * 入队持有读锁，停止持有写锁
+     */
+    private final ReadWriteLock lifecycleLock = new ReentrantReadWriteLock();
+
+    /**
+     * 启动写入线程
+     */
+    @PostConstruct
+    public void start() {
+        if (!writeBehindProperties.isEnabled()) {
+            return;
+        }
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        queue = new ArrayBlockingQueue<>(writeBehindProperties.getQueueCapacity());
+        AtomicInteger threadIndex = new AtomicInteger();
+        writers = Executors.newFixedThreadPool(writeBehindProperties.getWriterThreads(), r -> {
+            Thread thread = new Thread(r, "reservation-writer-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        running = true;
+        for (int i = 0; i < writeBehindProperties.getWriterThreads(); i++) {
+            writers.submit(this::writeLoop);
+        }
+        log.info("个人预约异步批量写入已启动，批大小: {}, 线程数: {}",
+                writeBehindProperties.getBatchSize(), writeBehindProperties.getWriterThreads());
+    }
+
+    /**
+     * 停止接收新请求，并等待队列中的预约全部落库
+     */
+    @PreDestroy
+    public void stop() {
+        lifecycleLock.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            lifecycleLock.writeLock().unlock();
+        }
+        if (writers == null) {
+            return;
+        }
+        writers.shutdown();
+        try {
+            if (!writers.awaitTermination(30, TimeUnit.SECONDS)) {
+                log.error("异步写入线程未能在30秒内退出，剩余未落库预约数: {}", queue.size());
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        // 写入线程已全部退出，队列中剩余的预约在当前线程落库
+        List<IndividualReservation> batch = new ArrayList<>(writeBehindProperties.getBatchSize());
+        while (queue.drainTo(batch, writeBehindProperties.getBatchSize()) > 0) {
+            flush(batch);
+            batch.clear();
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return running;
+    }
+
+    @Override
+    public boolean submit(IndividualReservation reservation) {
+        lifecycleLock.readLock().lock();
+        try {
+            if (!running) {
+                return false;
+            }
+            String statusKey = STATUS_KEY_PREFIX + reservation.getReservationNo();
+            redisUtil.set(statusKey, buildStatus(STATUS_PENDING, "预约处理中"), writeBehindProperties.getStatusTtlSeconds());
+            if (!queue.offer(reservation)) {
+                redisUtil.delete(statusKey);
+                return false;
+            }
+            return true;
+        } finally {
+            lifecycleLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Map<String, Object> getWriteStatus(String reservationNo) {
+        Object status = redisUtil.get(STATUS_KEY_PREFIX + reservationNo);
+        if (status instanceof Map) {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> statusMap = (Map<String, Object>) status;
+            return statusMap;
+        }
+        IndividualReservation reservation = individualReservationMapper.selectByReservationNo(reservationNo);
+        if (reservation != null) {
+            return buildStatus(STATUS_WRITTEN, "预约已生效");
+        }
+        return buildStatus(STATUS_NOT_FOUND, "预约记录不存在");
+    }
+
+    /**
+     * 写入循环：等待第一条后在flushInterval内攒批，攒满或超时即落库
+     */
+    private void writeLoop() {
+        int batchSize = writeBehindProperties.getBatchSize();
+        long flushNanos = TimeUnit.MILLISECONDS.toNanos(writeBehindProperties.getFlushIntervalMillis());
+        List<IndividualReservation> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                IndividualReservation first = queue.poll(flushNanos, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + flushNanos;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    IndividualReservation next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("异步写入线程异常", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * 落库一批预约，整批失败时逐条重试以隔离出错的预约
+     */
+    private void flush(List<IndividualReservation> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> writeBatch(batch));
+            onWritten(batch);
+            log.debug("批量写入预约 {} 条", batch.size());
+        } catch (Exception e) {
+            log.warn("批量写入预约失败，逐条重试，批大小: {}, 原因: {}", batch.size(), e.getMessage());
+            for (IndividualReservation reservation : batch) {
+                reservation.setId(null);
+                List<IndividualReservation> single = Collections.singletonList(reservation);
+                try {
+                    transactionTemplate.executeWithoutResult(status -> writeBatch(single));
+                    onWritten(single);
+                } catch (Exception ex) {
+                    onFailed(reservation, ex);
+                }
+            }
+        }
+    }
+
+    private void writeBatch(List<IndividualReservation> batch) {
+        individualReservationMapper.insertBatch(batch);
+        List<IndividualReservationPerson> persons = new ArrayList<>();
+        for (IndividualReservation reservation : batch) {
+            if (reservation.getReservationPersons() == null) {
+                continue;
+            }
+            for (IndividualReservationPerson person : reservation.getReservationPersons()) {
+                person.setReservationId(reservation.getId());
+                persons.add(person);
+            }
+        }
+        if (!persons.isEmpty()) {
+            individualReservationMapper.insertPersonsBatch(persons);
+        }
+    }
+
+    private void onWritten(List<IndividualReservation> batch) {
+        redisUtil.delete(batch.stream()
+                .map(reservation -> STATUS_KEY_PREFIX + reservation.getReservationNo())
+                .collect(Collectors.toList()));
+    }
+
+    private void onFailed(IndividualReservation reservation, Exception e) {
+        log.error("预约写入失败，预约编号: {}", reservation.getReservationNo(), e);
+        String message = e instanceof DataIntegrityViolationException ? "该预约订单中已经有人预约过了" : "预约创建失败";
+        redisUtil.set(STATUS_KEY_PREFIX + reservation.getReservationNo(), buildStatus(STATUS_FAILED, message),
+                writeBehindProperties.getStatusTtlSeconds());
+        reservationUtil.releaseReservationLock(reservation);
+        if (reservation.getTotalCount() != null) {
+            reservationCapacityService.release(reservation.getVisitDate(), reservation.getTimeSlot(), reservation.getTotalCount());
+        }
+    }
+
+    private Map<String, Object> buildStatus(String status, String message) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("status", status);
+        result.put("message", message);
+        return result;
+    }
+}
@@ -7,6 +7,10 @@ import com.scenic.entity.user.User;
 import com.scenic.mapper.content.ActivityMapper;
 import com.scenic.mapper.user.UserMapper;
 import com.scenic.service.content.ActivityService;
+import com.scenic.utils.CursorScanner;
+import com.scenic.service.ResourceFileService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -15,12 +19,10 @@ import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
-import com.scenic.utils.FileUploadUtil;
-import com.scenic.mapper.ResourceFileMapper;
-import com.scenic.entity.ResourceFile;
 import java.util.ArrayList;
 
 /**
@@ -29,6 +31,8 @@ import java.util.ArrayList;
 @Service
 public class ActivityServiceImpl implements ActivityService {
     
+    private static final Logger log = LoggerFactory.getLogger(ActivityServiceImpl.class);
+    
     @Autowired
     private ActivityMapper activityMapper;
     
@@ -36,10 +40,10 @@ public class ActivityServiceImpl implements ActivityService {
     private UserMapper userMapper;
     
     @Autowired
-    private FileUploadUtil fileUploadUtil;
+    private CursorScanner cursorScanner;
     
     @Autowired
-    private ResourceFileMapper resourceFileMapper;
+    private ResourceFileService resourceFileService;
     
     /**
      * 新增活动
@@ -82,11 +86,9 @@ public class ActivityServiceImpl implements ActivityService {
     @Override
     public Result<List<ActivityDTO>> getAllActivities() {
         try {
-            // 直接从数据库查询所有活动（包括禁用的）
-            List<Activity> activities = activityMapper.selectList(0, 1000); // 获取前1000个活动
-            List<ActivityDTO> activityDTOs = activities.stream()
-                    .map(this::convertToDTO)
-                    .collect(Collectors.toList());
+            // 流式读取所有活动（包括禁用的），游标打开期间不能再查库，发布人在读取完成后批量填充
+            List<ActivityDTO> activityDTOs = cursorScanner.map(activityMapper::scanAll, CursorScanner.MAX_LIST_ROWS, this::copyToDTO);
+            fillPublishers(activityDTOs);
             
             return Result.success("查询成功", activityDTOs);
         } catch (Exception e) {
@@ -274,44 +276,9 @@ public class ActivityServiceImpl implements ActivityService {
             System.out.println("=== 开始删除" + fileType + "文件 ===");
             System.out.println("文件ID列表: " + fileIds);
             
-            // 先查询所有文件记录，用于删除MinIO中的文件
-            for (Long fileId : fileIds) {
-                try {
-                    if (fileId == null) {
-                        System.out.println("文件ID为null，跳过");
-                        continue;
-                    }
-                    
-                    // 使用MyBatis Mapper查询文件信息
-                    ResourceFile resourceFile = resourceFileMapper.selectById(fileId);
-                    
-                    if (resourceFile != null) {
-                        System.out.println("找到" + fileType + "文件记录: ID=" + resourceFile.getId() + ", 文件名=" + resourceFile.getFileName() + ", 文件Key=" + resourceFile.getFileKey());
-                        
-                        // 删除MinIO中的文件
-                        try {
-                            fileUploadUtil.removeObject(resourceFile.getBucketName(), resourceFile.getFileKey());
-                            System.out.println("已删除MinIO中的" + fileType + "文件: " + resourceFile.getBucketName() + "/" + resourceFile.getFileKey());
-                        } catch (Exception e) {
-                            System.err.println("删除MinIO中的" + fileType + "文件失败: " + e.getMessage());
-                        }
-                    } else {
-                        System.out.println("未找到ID为" + fileId + "的" + fileType + "文件记录");
-                    }
-                } catch (Exception e) {
-                    System.err.println("处理" + fileType + "文件记录时发生异常: " + e.getMessage());
-                    e.printStackTrace();
-                }
-            }
-            
-            // 批量删除数据库中的文件记录
-            try {
-                int result = resourceFileMapper.deleteByIds(fileIds);
-                System.out.println("批量删除数据库中的" + fileType + "文件记录，数量: " + result);
-            } catch (Exception e) {
-                System.err.println("批量删除" + fileType + "文件记录时发生异常: " + e.getMessage());
-                e.printStackTrace();
-            }
+            // 释放文件引用，引用计数归零的文件才删除记录和MinIO对象
+            int deleted = resourceFileService.release(fileIds);
+            log.debug("释放{}文件引用完成，删除的文件记录数量: {}", fileType, deleted);
         } catch (Exception e) {
             System.err.println("删除" + fileType + "文件时发生异常: " + e.getMessage());
             e.printStackTrace();
@@ -438,6 +405,25 @@ public class ActivityServiceImpl implements ActivityService {
      * @return ActivityDTO
      */
     private ActivityDTO convertToDTO(Activity activity) {
+        ActivityDTO dto = copyToDTO(activity);
+        
+        // 根据createBy查询用户信息，设置publisher字段
+        if (activity.getCreateBy() != null) {
+            User user = userMapper.selectById(activity.getCreateBy());
+            if (user != null) {
+                dto.setPublisher(user.getRealName());
+            }
+        }
+        
+        return dto;
+    }
+    
+    /**
+     * 复制Activity实体字段到ActivityDTO（不查询发布人）
+     * @param activity Activity实体
+     * @return ActivityDTO
+     */
+    private ActivityDTO copyToDTO(Activity activity) {
         ActivityDTO dto = new ActivityDTO();
         dto.setId(activity.getId());
         dto.setTitle(activity.getTitle());
@@ -456,16 +442,34 @@ public class ActivityServiceImpl implements ActivityService {
         dto.setCreateBy(activity.getCreateBy());
         dto.setUpdateBy(activity.getUpdateBy());
         dto.setReservationPriority(activity.getReservationPriority());
+        return dto;
+    }
+    
+    /**
+     * 按创建人批量查询用户，设置活动列表的publisher字段
+     * @param activityDTOs 活动DTO列表
+     */
+    private void fillPublishers(List<ActivityDTO> activityDTOs) {
+        List<Long> creatorIds = activityDTOs.stream()
+                .map(ActivityDTO::getCreateBy)
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList());
+        if (creatorIds.isEmpty()) {
+            return;
+        }
         
-        // 根据createBy查询用户信息，设置publisher字段
-        if (activity.getCreateBy() != null) {
-            User user = userMapper.selectById(activity.getCreateBy());
-            if (user != null) {
-                dto.setPublisher(user.getRealName());
+        Map<Long, String> publishers = new HashMap<>();
+        for (User user : userMapper.selectByIds(creatorIds)) {
+            if (user.getRealName() != null) {
+                publishers.put(user.getId(), user.getRealName());
+            }
+        }
+        for (ActivityDTO dto : activityDTOs) {
+            if (dto.getCreateBy() != null) {
+                dto.setPublisher(publishers.get(dto.getCreateBy()));
             }
         }
-        
-        return dto;
     }
 
     /**
@@ -483,39 +487,9 @@ public class ActivityServiceImpl implements ActivityService {
             System.out.println("=== 开始删除指定的" + fileType + "文件 ===");
             System.out.println("要删除的文件ID列表: " + fileIds);
             
-            for (Long fileId : fileIds) {
-                try {
-                    if (fileId == null) {
-                        System.out.println("文件ID为null，跳过删除");
-                        continue;
-                    }
-                    
-                    System.out.println("尝试删除" + fileType + "文件，ID: " + fileId);
-                    
-                    // 查询文件记录
-                    ResourceFile resourceFile = resourceFileMapper.selectById(fileId);
-                    if (resourceFile != null) {
-                        System.out.println("找到文件记录: " + resourceFile.getFileName() + ", Bucket: " + resourceFile.getBucketName() + ", Key: " + resourceFile.getFileKey());
-                        
-                        // 从MinIO删除文件
-                        try {
-                            fileUploadUtil.removeObject(resourceFile.getBucketName(), resourceFile.getFileKey());
-                            System.out.println("从MinIO删除文件成功: " + resourceFile.getBucketName() + "/" + resourceFile.getFileKey());
-                        } catch (Exception e) {
-                            System.err.println("从MinIO删除文件失败: " + e.getMessage());
-                        }
-                        
-                        // 从数据库删除记录
-                        int result = resourceFileMapper.deleteById(fileId);
-                        System.out.println("从数据库删除文件记录结果: " + (result > 0 ? "成功" : "失败"));
-                    } else {
-                        System.err.println("未找到ID为" + fileId + "的文件记录");
-                    }
-                } catch (Exception e) {
-                    System.err.println("删除文件时发生异常: " + e.getMessage());
-                    e.printStackTrace();
-                }
-            }
+            // 释放文件引用，引用计数归零的文件才删除记录和MinIO对象
+            int deleted = resourceFileService.release(fileIds);
+            log.debug("释放{}文件引用完成，删除的文件记录数量: {}", fileType, deleted);
             
             System.out.println("删除指定的" + fileType + "文件完成");
         } catch (Exception e) {
@@ -10,6 +10,8 @@ import com.scenic.service.content.ProtectedReservationInfoService;
 import com.scenic.dto.content.ProtectedReservationInfoDTO;
 import com.scenic.dto.content.ProtectedReservationInfoEnhancedDTO;
 import com.scenic.common.dto.PageResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -23,10 +25,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
-import com.scenic.utils.FileUploadUtil;
-import com.scenic.mapper.ResourceFileMapper;
 import com.scenic.entity.ResourceFile;
 import com.scenic.service.MinioService;
+import com.scenic.service.ResourceFileService;
 
 /**
  * 保护区介绍服务实现类
@@ -34,6 +35,8 @@ import com.scenic.service.MinioService;
 @Service
 public class ProtectedReservationInfoServiceImpl extends ServiceImpl<ProtectedReservationInfoMapper, ProtectedReservationInfo> implements ProtectedReservationInfoService {
     
+    private static final Logger log = LoggerFactory.getLogger(ProtectedReservationInfoServiceImpl.class);
+    
     @Resource
     private ProtectedReservationInfoMapper protectedReservationInfoMapper;
     
@@ -41,10 +44,7 @@ public class ProtectedReservationInfoServiceImpl extends ServiceImpl<ProtectedRe
     private com.scenic.mapper.user.UserMapper userMapper;
     
     @Resource
-    private FileUploadUtil fileUploadUtil;
-    
-    @Resource
-    private ResourceFileMapper resourceFileMapper;
+    private ResourceFileService resourceFileService;
     
     @Autowired
     private MinioService minioService;
@@ -384,56 +384,9 @@ public class ProtectedReservationInfoServiceImpl extends ServiceImpl<ProtectedRe
             
             System.out.println("有效的" + fileType + "文件ID列表: " + validFileIds);
             
-            // 先查询所有文件记录，用于删除MinIO中的文件
-            for (Long fileId : validFileIds) {
-                try {
-                    // 使用MyBatis Mapper查询文件信息
-                    ResourceFile resourceFile = resourceFileMapper.selectById(fileId);
-                    
-                    if (resourceFile != null) {
-                        System.out.println("找到" + fileType + "文件记录: ID=" + resourceFile.getId() + ", 文件名=" + resourceFile.getFileName() + ", 文件Key=" + resourceFile.getFileKey());
-                        
-                        // 删除MinIO中的文件
-                        try {
-                            fileUploadUtil.removeObject(resourceFile.getBucketName(), resourceFile.getFileKey());
-                            System.out.println("已删除MinIO中的" + fileType + "文件: " + resourceFile.getBucketName() + "/" + resourceFile.getFileKey());
-                        } catch (Exception e) {
-                            System.err.println("删除MinIO中的" + fileType + "文件失败: " + e.getMessage());
-                        }
-                    } else {
-                        System.out.println("未找到ID为" + fileId + "的" + fileType + "文件记录");
-                    }
-                } catch (Exception e) {
-                    System.err.println("处理" + fileType + "文件记录时发生异常: " + e.getMessage());
-                    e.printStackTrace();
-                }
-            }
-            
-            // 使用新的批量删除方法删除数据库中的文件记录
-            try {
-                if (!validFileIds.isEmpty()) {
-                    // 尝试使用Long类型ID删除
-                    try {
-                        int result = resourceFileMapper.deleteByIds(validFileIds);
-                        System.out.println("使用Long类型ID批量删除数据库中的" + fileType + "文件记录，数量: " + result);
-                    } catch (Exception e) {
-                        System.err.println("使用Long类型ID批量删除失败: " + e.getMessage());
-                    }
-                }
-                
-                // 同时尝试使用字符串ID删除，避免精度问题
-                if (!fileIdStrings.isEmpty()) {
-                    try {
-                        int result = resourceFileMapper.deleteByStringIds(fileIdStrings);
-                        System.out.println("使用String类型ID批量删除数据库中的" + fileType + "文件记录，数量: " + result);
-                    } catch (Exception e) {
-                        System.err.println("使用String类型ID批量删除失败: " + e.getMessage());
-                    }
-                }
-            } catch (Exception e) {
-                System.err.println("批量删除" + fileType + "文件记录时发生异常: " + e.getMessage());
-                e.printStackTrace();
-            }
+            // 释放文件引用，引用计数归零的文件才删除记录和MinIO对象
+            int deleted = resourceFileService.release(validFileIds);
+            log.debug("释放{}文件引用完成，删除的文件记录数量: {}", fileType, deleted);
         } catch (Exception e) {
             System.err.println("删除" + fileType + "文件时发生异常: " + e.getMessage());
             e.printStackTrace();
@@ -466,9 +419,8 @@ public class ProtectedReservationInfoServiceImpl extends ServiceImpl<ProtectedRe
                         String bucketName = minioService.getContentManagementVideoBucket(); // 视频文件存储在content-management桶中
                         
                         String fileKey = java.util.UUID.randomUUID().toString() + "_" + videoFile.getOriginalFilename();
-                        fileUploadUtil.putObject(bucketName, fileKey, videoFile.getInputStream(), videoFile.getSize(), videoFile.getContentType());
                         
-                        // 保存文件信息到数据库
+                        // 文件信息
                         ResourceFile resourceFile = new ResourceFile();
                         resourceFile.setFileName(videoFile.getOriginalFilename());
                         resourceFile.setFileKey(fileKey); // 存储文件key而不是URL
@@ -495,13 +447,10 @@ public class ProtectedReservationInfoServiceImpl extends ServiceImpl<ProtectedRe
                         resourceFile.setCreateTime(LocalDateTime.now());
                         resourceFile.setUpdateTime(LocalDateTime.now());
                         
-                        int result = resourceFileMapper.insert(resourceFile);
-                        if (result > 0) {
-                            System.out.println("成功插入视频文件记录，ID: " + resourceFile.getId() + ", 上传用户ID: " + userId);
-                            videoFileIds.add(resourceFile.getId());
-                        } else {
-                            System.err.println("插入视频文件记录失败");
-                        }
+                        // 上传到MinIO并保存文件记录，内容相同的文件复用已有记录
+                        resourceFile = resourceFileService.store(resourceFile, videoFile);
+                        log.debug("成功保存视频文件记录，ID: {}, 上传用户ID: {}", resourceFile.getId(), userId);
+                        videoFileIds.add(resourceFile.getId());
                     } catch (Exception e) {
                         System.err.println("处理视频文件时发生异常: " + e.getMessage());
                         e.printStackTrace();
@@ -530,9 +479,8 @@ public class ProtectedReservationInfoServiceImpl extends ServiceImpl<ProtectedRe
                         String bucketName = minioService.getContentManagementAudioBucket(); // 音频文件存储在content-management-audio桶中
                         
                         String fileKey = java.util.UUID.randomUUID().toString() + "_" + audioFile.getOriginalFilename();
-                        fileUploadUtil.putObject(bucketName, fileKey, audioFile.getInputStream(), audioFile.getSize(), audioFile.getContentType());
                         
-                        // 保存文件信息到数据库
+                        // 文件信息
                         ResourceFile resourceFile = new ResourceFile();
                         resourceFile.setFileName(audioFile.getOriginalFilename());
                         resourceFile.setFileKey(fileKey);
@@ -559,13 +507,10 @@ public class ProtectedReservationInfoServiceImpl extends ServiceImpl<ProtectedRe
                         resourceFile.setCreateTime(LocalDateTime.now());
                         resourceFile.setUpdateTime(LocalDateTime.now());
                         
-                        int result = resourceFileMapper.insert(resourceFile);
-                        if (result > 0) {
-                            System.out.println("成功插入音频文件记录，ID: " + resourceFile.getId() + ", 上传用户ID: " + userId);
-                            audioFileIds.add(resourceFile.getId());
-                        } else {
-                            System.err.println("插入音频文件记录失败");
-                        }
+                        // 上传到MinIO并保存文件记录，内容相同的文件复用已有记录
+                        resourceFile = resourceFileService.store(resourceFile, audioFile);
+                        log.debug("成功保存音频文件记录，ID: {}, 上传用户ID: {}", resourceFile.getId(), userId);
+                        audioFileIds.add(resourceFile.getId());
                     } catch (Exception e) {
                         System.err.println("处理音频文件时发生异常: " + e.getMessage());
                         e.printStackTrace();
@@ -638,42 +583,17 @@ public class ProtectedReservationInfoServiceImpl extends ServiceImpl<ProtectedRe
             System.out.println("文件ID字符串列表: " + fileIdStrings);
             System.out.println("文件ID列表大小: " + fileIdStrings.size());
             
-            // 先查询所有文件记录，用于删除MinIO中的文件
+            // 转换为Long后释放文件引用，引用计数归零的文件才删除记录和MinIO对象
+            List<Long> fileIds = new java.util.ArrayList<>();
             for (String fileIdStr : fileIdStrings) {
                 try {
-                    // 转换为Long，用于查询
-                    Long fileId = Long.parseLong(fileIdStr);
-                    
-                    // 使用MyBatis Mapper查询文件信息
-                    ResourceFile resourceFile = resourceFileMapper.selectById(fileId);
-                    
-                    if (resourceFile != null) {
-                        System.out.println("找到" + fileType + "文件记录: ID=" + resourceFile.getId() + ", 文件名=" + resourceFile.getFileName() + ", 文件Key=" + resourceFile.getFileKey());
-                        
-                        // 删除MinIO中的文件
-                        try {
-                            fileUploadUtil.removeObject(resourceFile.getBucketName(), resourceFile.getFileKey());
-                            System.out.println("已删除MinIO中的" + fileType + "文件: " + resourceFile.getBucketName() + "/" + resourceFile.getFileKey());
-                        } catch (Exception e) {
-                            System.err.println("删除MinIO中的" + fileType + "文件失败: " + e.getMessage());
-                        }
-                    } else {
-                        System.out.println("未找到ID为" + fileId + "的" + fileType + "文件记录");
-                    }
-                } catch (Exception e) {
-                    System.err.println("处理" + fileType + "文件记录时发生异常: " + e.getMessage());
-                    e.printStackTrace();
+                    fileIds.add(Long.parseLong(fileIdStr));
+                } catch (NumberFormatException e) {
+                    log.warn("无法将字符串转换为Long: {}, 错误: {}", fileIdStr, e.getMessage());
                 }
             }
-            
-            // 使用字符串ID批量删除数据库中的文件记录
-            try {
-                int result = resourceFileMapper.deleteByStringIds(fileIdStrings);
-                System.out.println("使用String类型ID批量删除数据库中的" + fileType + "文件记录，数量: " + result);
-            } catch (Exception e) {
-                System.err.println("批量删除" + fileType + "文件记录时发生异常: " + e.getMessage());
-                e.printStackTrace();
-            }
+            int deleted = resourceFileService.release(fileIds);
+            log.debug("释放{}文件引用完成，删除的文件记录数量: {}", fileType, deleted);
         } catch (Exception e) {
             System.err.println("删除" + fileType + "文件时发生异常: " + e.getMessage());
             e.printStackTrace();
@@ -697,9 +617,8 @@ public class ProtectedReservationInfoServiceImpl extends ServiceImpl<ProtectedRe
                         String bucketName = minioService.getContentManagementPhotoBucket(); // 照片文件存储在content-management-photo桶中
                         
                         String fileKey = java.util.UUID.randomUUID().toString() + "_" + photoFile.getOriginalFilename();
-                        fileUploadUtil.putObject(bucketName, fileKey, photoFile.getInputStream(), photoFile.getSize(), photoFile.getContentType());
                         
-                        // 保存文件信息到数据库
+                        // 文件信息
                         ResourceFile resourceFile = new ResourceFile();
                         resourceFile.setFileName(photoFile.getOriginalFilename());
                         resourceFile.setFileKey(fileKey);
@@ -726,13 +645,10 @@ public class ProtectedReservationInfoServiceImpl extends ServiceImpl<ProtectedRe
                         resourceFile.setCreateTime(LocalDateTime.now());
                         resourceFile.setUpdateTime(LocalDateTime.now());
                         
-                        int result = resourceFileMapper.insert(resourceFile);
-                        if (result > 0) {
-                            System.out.println("成功插入照片文件记录，ID: " + resourceFile.getId() + ", 上传用户ID: " + userId);
-                            photoFileIds.add(resourceFile.getId());
-                        } else {
-                            System.err.println("插入照片文件记录失败");
-                        }
+                        // 上传到MinIO并保存文件记录，内容相同的文件复用已有记录
+                        resourceFile = resourceFileService.store(resourceFile, photoFile);
+                        log.debug("成功保存照片文件记录，ID: {}, 上传用户ID: {}", resourceFile.getId(), userId);
+                        photoFileIds.add(resourceFile.getId());
                     } catch (Exception e) {
                         System.err.println("处理照片文件时发生异常: " + e.getMessage());
                         e.printStackTrace();
@@ -787,6 +703,9 @@ public class ProtectedReservationInfoServiceImpl extends ServiceImpl<ProtectedRe
             System.out.println("新上传的视频文件ID: " + newVideoFileIds);
         }
         
+        // 追加客户端直传完成的视频文件
+        newVideoFileIds.addAll(claimUploadedVideoFiles(dto.getUploadedVideoFileIds(), currentUserId));
+        
         // 设置视频文件ID
         dto.setVideoFileIds(newVideoFileIds);
         System.out.println("最终的视频文件ID: " + newVideoFileIds);
@@ -983,9 +902,42 @@ public class ProtectedReservationInfoServiceImpl extends ServiceImpl<ProtectedRe
             System.out.println("没有上传视频，设置为空列表");
         }
         
+        // 追加客户端直传完成的视频文件（大视频不经过应用服务器，不受multipart大小限制）
+        List<Long> uploadedVideoFileIds = claimUploadedVideoFiles(dto.getUploadedVideoFileIds(), currentUserId);
+        if (!uploadedVideoFileIds.isEmpty()) {
+            List<Long> videoFileIds = new java.util.ArrayList<>(dto.getVideoFileIds());
+            videoFileIds.addAll(uploadedVideoFileIds);
+            dto.setVideoFileIds(videoFileIds);
+            log.debug("追加直传视频文件ID: {}", uploadedVideoFileIds);
+        }
+        
         System.out.println("=== 完成处理新增操作的文件 ===");
     }
     
+    /**
+     * 认领当前用户直传完成的视频文件，只保留认领成功的文件
+     * 其他用户的文件、未完成上传的文件、非视频文件以及已被引用的文件都不能挂到本记录上，
+     * 认领成功的文件计一个引用，删除记录时的 release 与之对应
+     * @param fileIds 直传文件ID列表
+     * @param currentUserId 当前用户ID
+     * @return 认领成功的文件ID列表
+     */
+    private List<Long> claimUploadedVideoFiles(List<Long> fileIds, Long currentUserId) {
+        List<Long> claimed = new java.util.ArrayList<>();
+        if (fileIds == null || fileIds.isEmpty()) {
+            return claimed;
+        }
+        String bucketName = minioService.getContentManagementVideoBucket();
+        for (Long fileId : new java.util.LinkedHashSet<>(fileIds)) {
+            if (resourceFileService.claimDirectUpload(fileId, currentUserId, bucketName, "video/")) {
+                claimed.add(fileId);
+            } else {
+                log.warn("直传文件不可用（不存在、未完成上传、不属于当前用户、非视频或已被引用），忽略: {}", fileId);
+            }
+        }
+        return claimed;
+    }
+    
     /**
      * 根据文件ID列表删除指定的文件
      * @param fileIds 要删除的文件ID列表
@@ -1001,39 +953,9 @@ public class ProtectedReservationInfoServiceImpl extends ServiceImpl<ProtectedRe
             System.out.println("=== 开始删除指定的" + fileType + "文件 ===");
             System.out.println("要删除的文件ID列表: " + fileIds);
             
-            for (Long fileId : fileIds) {
-                try {
-                    if (fileId == null) {
-                        System.out.println("文件ID为null，跳过删除");
-                        continue;
-                    }
-                    
-                    System.out.println("尝试删除" + fileType + "文件，ID: " + fileId);
-                    
-                    // 查询文件记录
-                    ResourceFile resourceFile = resourceFileMapper.selectById(fileId);
-                    if (resourceFile != null) {
-                        System.out.println("找到文件记录: " + resourceFile.getFileName() + ", Bucket: " + resourceFile.getBucketName() + ", Key: " + resourceFile.getFileKey());
-                        
-                        // 从MinIO删除文件
-                        try {
-                            minioService.removeObject(resourceFile.getBucketName(), resourceFile.getFileKey());
-                            System.out.println("从MinIO删除文件成功: " + resourceFile.getBucketName() + "/" + resourceFile.getFileKey());
-                        } catch (Exception e) {
-                            System.err.println("从MinIO删除文件失败: " + e.getMessage());
-                        }
-                        
-                        // 从数据库删除记录
-                        int result = resourceFileMapper.deleteById(fileId);
-                        System.out.println("从数据库删除文件记录结果: " + (result > 0 ? "成功" : "失败"));
-                    } else {
-                        System.err.println("未找到ID为" + fileId + "的文件记录");
-                    }
-                } catch (Exception e) {
-                    System.err.println("删除文件时发生异常: " + e.getMessage());
-                    e.printStackTrace();
-                }
-            }
+            // 释放文件引用，引用计数归零的文件才删除记录和MinIO对象
+            int deleted = resourceFileService.release(fileIds);
+            log.debug("释放{}文件引用完成，删除的文件记录数量: {}", fileType, deleted);
             
             System.out.println("删除指定的" + fileType + "文件完成");
         } catch (Exception e) {
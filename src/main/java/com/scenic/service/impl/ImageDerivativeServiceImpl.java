@@ -0,0 +1,447 @@
+package com.scenic.service.impl;
+
+import com.scenic.config.ImageDerivativeProperties;
+import com.scenic.entity.ResourceFile;
+import com.scenic.mapper.ResourceFileMapper;
+import com.scenic.service.ImageDerivativeService;
+import com.scenic.service.MinioService;
+import com.scenic.utils.ResourceFileUrlResolver;
+import io.minio.errors.ErrorResponseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.w3c.dom.Node;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.imageio.IIOException;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 图片派生尺寸服务实现类
+ * 固定线程数 + 有界队列，队列满时直接放弃，记录保持未生成状态，由补偿任务稍后补提交。
+ * 用ImageIO解码：先读尺寸，按目标尺寸设置解码降采样以减少内存，再逐级减半缩放，最后按EXIF方向旋转并输出JPEG。
+ * 原图不大于目标尺寸、像素过多或无法解码时，派生尺寸直接记为原图的文件键，不再重试。
+ */
+@Service
+public class ImageDerivativeServiceImpl implements ImageDerivativeService {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageDerivativeServiceImpl.class);
+
+    private static final String THUMBNAIL_SUFFIX = "_thumb.jpg";
+
+    private static final String MEDIUM_SUFFIX = "_medium.jpg";
+
+    private static final String JPEG_CONTENT_TYPE = "image/jpeg";
+
+    /**
+     * JPEG元数据中APP1（Exif）标记
+     */
+    private static final int EXIF_MARKER = 0xE1;
+
+    private static final int ORIENTATION_TAG = 0x0112;
+
+    @Autowired
+    private ImageDerivativeProperties derivativeProperties;
+
+    @Autowired
+    private ResourceFileMapper resourceFileMapper;
+
+    @Autowired
+    private MinioService minioService;
+
+    @Autowired
+    private ResourceFileUrlResolver resourceFileUrlResolver;
+
+    private ThreadPoolExecutor workers;
+
+    /**
+     * 已提交未完成的文件ID，避免上传与补偿任务重复生成
+     */
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 启动生成线程
+     */
+    @PostConstruct
+    public void start() {
+        if (!derivativeProperties.isEnabled()) {
+            return;
+        }
+        AtomicInteger threadIndex = new AtomicInteger();
+        workers = new ThreadPoolExecutor(derivativeProperties.getWorkerThreads(), derivativeProperties.getWorkerThreads(),
+                0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(derivativeProperties.getQueueCapacity()), r -> {
+                    Thread thread = new Thread(r, "image-derivative-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                });
+        log.info("图片派生尺寸生成已启动，缩略图: {}px, 预览图: {}px, 线程数: {}",
+                derivativeProperties.getThumbnailSize(), derivativeProperties.getMediumSize(),
+                derivativeProperties.getWorkerThreads());
+    }
+
+    /**
+     * 停止生成线程，队列中未生成的图片由补偿任务在下次启动后处理
+     */
+    @PreDestroy
+    public void stop() {
+        if (workers != null) {
+            workers.shutdownNow();
+        }
+    }
+
+    @Override
+    public boolean isEligible(ResourceFile resourceFile) {
+        if (resourceFile == null || resourceFile.getId() == null || resourceFile.getThumbnailKey() != null
+                || Integer.valueOf(1).equals(resourceFile.getIsTemp())) {
+            return false;
+        }
+        String mimeType = resourceFile.getMimeType();
+        return mimeType != null && mimeType.startsWith("image/")
+                && derivativeBuckets().contains(resourceFile.getBucketName());
+    }
+
+    @Override
+    public boolean submit(ResourceFile resourceFile) {
+        if (workers == null || !isEligible(resourceFile)) {
+            return false;
+        }
+        Long fileId = resourceFile.getId();
+        if (!inFlight.add(fileId)) {
+            return true;
+        }
+        try {
+            workers.execute(() -> {
+                try {
+                    generate(resourceFile);
+                } finally {
+                    inFlight.remove(fileId);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(fileId);
+            log.debug("图片派生尺寸队列已满，稍后补偿生成，文件ID: {}", fileId);
+            return false;
+        }
+    }
+
+    @Override
+    public int backfill() {
+        if (workers == null) {
+            return 0;
+        }
+        int limit = Math.min(workers.getQueue().remainingCapacity(), derivativeProperties.getBackfillBatchSize());
+        if (limit <= 0) {
+            return 0;
+        }
+        int submitted = 0;
+        for (ResourceFile resourceFile : resourceFileMapper.selectMissingDerivatives(derivativeBuckets(), limit)) {
+            if (!inFlight.contains(resourceFile.getId()) && submit(resourceFile)) {
+                submitted++;
+            }
+        }
+        return submitted;
+    }
+
+    /**
+     * 生成单个文件的派生尺寸并保存对象键
+     */
+    private void generate(ResourceFile resourceFile) {
+        String bucketName = resourceFile.getBucketName();
+        String fileKey = resourceFile.getFileKey();
+        try (InputStream inputStream = minioService.getObject(bucketName, fileKey);
+             ImageInputStream imageInputStream = ImageIO.createImageInputStream(inputStream)) {
+            Iterator<ImageReader> readers = imageInputStream != null
+                    ? ImageIO.getImageReaders(imageInputStream) : Collections.emptyIterator();
+            if (!readers.hasNext()) {
+                log.info("不支持的图片格式，使用原图，文件ID: {}", resourceFile.getId());
+                saveKeys(resourceFile, fileKey, fileKey, null, null);
+                return;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(imageInputStream, true, false);
+                generate(resourceFile, reader);
+            } finally {
+                reader.dispose();
+            }
+        } catch (ErrorResponseException e) {
+            if ("NoSuchKey".equals(e.errorResponse().code())) {
+                // 原图对象已不存在，不再重试
+                log.warn("原图对象不存在，文件ID: {}", resourceFile.getId());
+                saveKeys(resourceFile, fileKey, fileKey, null, null);
+            } else {
+                log.warn("读取原图失败，文件ID: {}, 原因: {}", resourceFile.getId(), e.getMessage());
+            }
+        } catch (IIOException e) {
+            // 文件损坏或编码不受支持（如CMYK JPEG），以后也无法生成，记为原图
+            log.warn("图片解码失败，使用原图，文件ID: {}, 原因: {}", resourceFile.getId(), e.getMessage());
+            saveKeys(resourceFile, fileKey, fileKey, null, null);
+        } catch (Exception e) {
+            // 读写MinIO失败等可恢复的错误，记录保持未生成状态，由补偿任务重试
+            log.warn("生成图片派生尺寸失败，文件ID: {}, 原因: {}", resourceFile.getId(), e.getMessage());
+        }
+    }
+
+    private void generate(ResourceFile resourceFile, ImageReader reader) throws Exception {
+        String fileKey = resourceFile.getFileKey();
+        int orientation = readExifOrientation(reader);
+        boolean swapAxes = orientation >= 5 && orientation <= 8;
+        int width = reader.getWidth(0);
+        int height = reader.getHeight(0);
+        Integer displayWidth = swapAxes ? height : width;
+        Integer displayHeight = swapAxes ? width : height;
+        int longest = Math.max(width, height);
+
+        if ((long) width * height > derivativeProperties.getMaxSourcePixels()) {
+            log.info("图片像素过多，使用原图，文件ID: {}, 尺寸: {}x{}", resourceFile.getId(), width, height);
+            saveKeys(resourceFile, fileKey, fileKey, displayWidth, displayHeight);
+            return;
+        }
+        if (longest <= derivativeProperties.getThumbnailSize() && orientation <= 1) {
+            saveKeys(resourceFile, fileKey, fileKey, displayWidth, displayHeight);
+            return;
+        }
+
+        // 解码时按行列降采样，解码结果仍不小于最大目标尺寸的2倍，保证后续缩放质量
+        ImageReadParam param = reader.getDefaultReadParam();
+        int subsampling = Math.max(1, longest / (derivativeProperties.getMediumSize() * 2));
+        param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+        BufferedImage source = reader.read(0, param);
+
+        String mediumKey = fileKey;
+        BufferedImage medium = source;
+        if (longest > derivativeProperties.getMediumSize() || orientation > 1) {
+            medium = resize(source, derivativeProperties.getMediumSize(), orientation);
+            mediumKey = derivativeKey(fileKey, MEDIUM_SUFFIX);
+            writeJpeg(resourceFile.getBucketName(), mediumKey, medium);
+            orientation = 1;
+        }
+        String thumbnailKey = derivativeKey(fileKey, THUMBNAIL_SUFFIX);
+        writeJpeg(resourceFile.getBucketName(), thumbnailKey,
+                resize(medium, derivativeProperties.getThumbnailSize(), orientation));
+
+        if (!saveKeys(resourceFile, thumbnailKey, mediumKey, displayWidth, displayHeight)) {
+            // 生成期间文件已被删除，清理刚写入的派生图
+            removeObjectQuietly(resourceFile.getBucketName(), thumbnailKey);
+            if (!fileKey.equals(mediumKey)) {
+                removeObjectQuietly(resourceFile.getBucketName(), mediumKey);
+            }
+        }
+    }
+
+    /**
+     * 保存派生尺寸的对象键并清除URL缓存
+     * @return 文件记录是否仍存在
+     */
+    private boolean saveKeys(ResourceFile resourceFile, String thumbnailKey, String mediumKey,
+                             Integer width, Integer height) {
+        // width、height列为smallint，超出范围时不记录
+        Integer savedWidth = width != null && width <= Short.MAX_VALUE ? width : null;
+        Integer savedHeight = height != null && height <= Short.MAX_VALUE ? height : null;
+        boolean exists = resourceFileMapper.updateDerivativeKeys(resourceFile.getId(), thumbnailKey, mediumKey,
+                savedWidth, savedHeight) > 0;
+        resourceFileUrlResolver.evict(Collections.singletonList(resourceFile.getId()));
+        return exists;
+    }
+
+    /**
+     * 缩放图片使最长边不超过目标尺寸，并按EXIF方向旋转
+     * 缩小超过一半时先逐级减半，避免一次双线性插值缩小过多产生锯齿
+     */
+    private BufferedImage resize(BufferedImage source, int targetSize, int orientation) {
+        BufferedImage current = source;
+        while (Math.max(current.getWidth(), current.getHeight()) / 2 >= targetSize) {
+            current = draw(current, current.getWidth() / 2, current.getHeight() / 2, new AffineTransform());
+        }
+        int width = current.getWidth();
+        int height = current.getHeight();
+        double scale = Math.min(1.0, (double) targetSize / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * scale));
+        int targetHeight = Math.max(1, (int) Math.round(height * scale));
+        boolean swapAxes = orientation >= 5 && orientation <= 8;
+
+        AffineTransform transform = AffineTransform.getScaleInstance(scale, scale);
+        transform.concatenate(orientationTransform(orientation, width, height));
+        return swapAxes
+                ? draw(current, targetHeight, targetWidth, transform)
+                : draw(current, targetWidth, targetHeight, transform);
+    }
+
+    /**
+     * 按变换绘制到白色背景的RGB图片上（透明区域填充白色）
+     */
+    private BufferedImage draw(BufferedImage source, int width, int height, AffineTransform transform) {
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            if (transform.isIdentity()) {
+                graphics.drawImage(source, 0, 0, width, height, null);
+            } else {
+                graphics.drawImage(source, transform, null);
+            }
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    /**
+     * EXIF方向对应的坐标变换（原图宽高为width、height）
+     */
+    private static AffineTransform orientationTransform(int orientation, int width, int height) {
+        switch (orientation) {
+            case 2: return new AffineTransform(-1, 0, 0, 1, width, 0);
+            case 3: return new AffineTransform(-1, 0, 0, -1, width, height);
+            case 4: return new AffineTransform(1, 0, 0, -1, 0, height);
+            case 5: return new AffineTransform(0, 1, 1, 0, 0, 0);
+            case 6: return new AffineTransform(0, 1, -1, 0, height, 0);
+            case 7: return new AffineTransform(0, -1, -1, 0, height, width);
+            case 8: return new AffineTransform(0, -1, 1, 0, 0, width);
+            default: return new AffineTransform();
+        }
+    }
+
+    /**
+     * 从JPEG元数据的APP1段读取EXIF方向，读取失败或不是JPEG时返回1（正常方向）
+     */
+    private static int readExifOrientation(ImageReader reader) {
+        try {
+            IIOMetadata metadata = reader.getImageMetadata(0);
+            if (metadata == null || !Arrays.asList(metadata.getMetadataFormatNames()).contains("javax_imageio_jpeg_image_1.0")) {
+                return 1;
+            }
+            Node root = metadata.getAsTree("javax_imageio_jpeg_image_1.0");
+            for (Node child = root.getFirstChild(); child != null; child = child.getNextSibling()) {
+                if (!"markerSequence".equals(child.getNodeName())) {
+                    continue;
+                }
+                for (Node marker = child.getFirstChild(); marker != null; marker = marker.getNextSibling()) {
+                    if (marker instanceof IIOMetadataNode && "unknown".equals(marker.getNodeName())
+                            && String.valueOf(EXIF_MARKER).equals(((IIOMetadataNode) marker).getAttribute("MarkerTag"))) {
+                        Object data = ((IIOMetadataNode) marker).getUserObject();
+                        if (data instanceof byte[]) {
+                            return parseExifOrientation((byte[]) data);
+                        }
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.debug("读取EXIF方向失败: {}", e.getMessage());
+        }
+        return 1;
+    }
+
+    /**
+     * 解析APP1段（"Exif\0\0" + TIFF头 + IFD0）中的方向标签
+     */
+    private static int parseExifOrientation(byte[] data) {
+        int tiff = 6;
+        if (data.length < tiff + 8 || data[0] != 'E' || data[1] != 'x' || data[2] != 'i' || data[3] != 'f') {
+            return 1;
+        }
+        boolean littleEndian = data[tiff] == 'I' && data[tiff + 1] == 'I';
+        int ifd = tiff + readInt(data, tiff + 4, littleEndian);
+        if (ifd < tiff || ifd + 2 > data.length) {
+            return 1;
+        }
+        int entries = readShort(data, ifd, littleEndian);
+        for (int i = 0; i < entries; i++) {
+            int entry = ifd + 2 + i * 12;
+            if (entry + 12 > data.length) {
+                break;
+            }
+            if (readShort(data, entry, littleEndian) == ORIENTATION_TAG) {
+                int orientation = readShort(data, entry + 8, littleEndian);
+                return orientation >= 1 && orientation <= 8 ? orientation : 1;
+            }
+        }
+        return 1;
+    }
+
+    private static int readShort(byte[] data, int offset, boolean littleEndian) {
+        int b0 = data[offset] & 0xFF;
+        int b1 = data[offset + 1] & 0xFF;
+        return littleEndian ? (b1 << 8) | b0 : (b0 << 8) | b1;
+    }
+
+    private static int readInt(byte[] data, int offset, boolean littleEndian) {
+        int high = readShort(data, littleEndian ? offset + 2 : offset, littleEndian);
+        int low = readShort(data, littleEndian ? offset : offset + 2, littleEndian);
+        return (high << 16) | low;
+    }
+
+    private void writeJpeg(String bucketName, String objectName, BufferedImage image) throws Exception {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (ImageOutputStream imageOutputStream = ImageIO.createImageOutputStream(outputStream)) {
+            writer.setOutput(imageOutputStream);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(derivativeProperties.getJpegQuality());
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        byte[] bytes = outputStream.toByteArray();
+        minioService.putObject(bucketName, objectName, new ByteArrayInputStream(bytes), bytes.length, JPEG_CONTENT_TYPE);
+    }
+
+    /**
+     * 派生图对象键：原文件键去掉扩展名后加后缀，与原图同目录
+     */
+    private static String derivativeKey(String fileKey, String suffix) {
+        int dot = fileKey.lastIndexOf('.');
+        String base = dot > fileKey.lastIndexOf('/') ? fileKey.substring(0, dot) : fileKey;
+        return base + suffix;
+    }
+
+    private Set<String> derivativeBuckets() {
+        return new LinkedHashSet<>(List.of(minioService.getPhotoCheckinBucket(),
+                minioService.getContentManagementPhotoBucket()));
+    }
+
+    private void removeObjectQuietly(String bucketName, String objectName) {
+        try {
+            minioService.removeObject(bucketName, objectName);
+        } catch (Exception e) {
+            log.warn("删除MinIO对象失败: {}/{}, 原因: {}", bucketName, objectName, e.getMessage());
+        }
+    }
+}
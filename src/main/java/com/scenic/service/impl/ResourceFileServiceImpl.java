@@ -0,0 +1,231 @@
+package com.scenic.service.impl;
+
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import io.minio.StatObjectResponse;
+import io.minio.errors.ErrorResponseException;
+
+import com.scenic.config.DirectUploadProperties;
+import com.scenic.entity.ResourceFile;
+import com.scenic.mapper.ResourceFileMapper;
+import com.scenic.service.ImageDerivativeService;
+import com.scenic.service.MinioService;
+import com.scenic.service.ResourceFileService;
+import com.scenic.utils.ResourceFileUrlResolver;
+
+/**
+ * 文件资源存储服务实现类
+ * 新对象总是先写入调用方指定的文件键，写入时用DigestInputStream同步计算SHA-256，文件只读取一次；
+ * 写入后再按 (bucket_name, sha256) 查重。唯一索引 uk_resource_file_sha256 保证并发上传相同内容时只有一条记录胜出，
+ * 其余请求删除自己写入的对象并转为增加引用计数。
+ * 直传的文件由客户端PUT到MinIO，记录先以 is_temp = 1 保存，完成回调用statObject核对对象后才激活；
+ * 服务端不读取文件内容，因此直传的文件不计算哈希、不参与去重。
+ * 新保存或激活的图片提交异步生成派生尺寸，最后一个引用释放时连同派生图一起删除。
+ */
+@Service
+public class ResourceFileServiceImpl implements ResourceFileService {
+
+    private static final Logger log = LoggerFactory.getLogger(ResourceFileServiceImpl.class);
+
+    /**
+     * 引用计数与删除并发时的最大重试次数
+     */
+    private static final int MAX_ATTEMPTS = 3;
+
+    @Autowired
+    private ResourceFileMapper resourceFileMapper;
+
+    @Autowired
+    private MinioService minioService;
+
+    @Autowired
+    private ResourceFileUrlResolver resourceFileUrlResolver;
+
+    @Autowired
+    private DirectUploadProperties directUploadProperties;
+
+    @Autowired
+    private ImageDerivativeService imageDerivativeService;
+
+    @Override
+    public ResourceFile store(ResourceFile resourceFile, MultipartFile file) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        try (InputStream inputStream = new DigestInputStream(file.getInputStream(), digest)) {
+            minioService.putObject(resourceFile.getBucketName(), resourceFile.getFileKey(), inputStream,
+                    file.getSize(), file.getContentType());
+        }
+        String sha256 = toHex(digest.digest());
+        resourceFile.setSha256(sha256);
+        resourceFile.setRefCount(1);
+
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            ResourceFile existing = resourceFileMapper.selectByBucketAndSha256(resourceFile.getBucketName(), sha256);
+            if (existing != null) {
+                if (resourceFileMapper.incrementRefCount(existing.getId()) > 0) {
+                    removeObjectQuietly(resourceFile.getBucketName(), resourceFile.getFileKey());
+                    log.info("文件内容重复，复用已有文件记录，ID: {}, SHA-256: {}", existing.getId(), sha256);
+                    return existing;
+                }
+                // 已有记录恰好被释放，重新查重
+                continue;
+            }
+            try {
+                resourceFileMapper.insert(resourceFile);
+                imageDerivativeService.submit(resourceFile);
+                return resourceFile;
+            } catch (DuplicateKeyException e) {
+                // 并发上传了相同内容，重新查重后复用对方的记录
+                log.debug("并发上传相同内容，SHA-256: {}", sha256);
+            }
+        }
+        removeObjectQuietly(resourceFile.getBucketName(), resourceFile.getFileKey());
+        throw new IllegalStateException("保存文件记录失败，请重试");
+    }
+
+    @Override
+    public int release(Collection<Long> fileIds) {
+        Map<Long, ResourceFile> resourceFiles = resourceFileUrlResolver.loadFiles(fileIds);
+        List<Long> deletedIds = new ArrayList<>();
+        for (ResourceFile resourceFile : resourceFiles.values()) {
+            try {
+                if (releaseOne(resourceFile)) {
+                    deletedIds.add(resourceFile.getId());
+                }
+            } catch (Exception e) {
+                log.error("释放文件引用失败，文件ID: {}", resourceFile.getId(), e);
+            }
+        }
+        resourceFileUrlResolver.evict(deletedIds);
+        return deletedIds.size();
+    }
+
+    @Override
+    public String createPendingUpload(ResourceFile resourceFile) throws Exception {
+        resourceFile.setIsTemp(1);
+        // 被业务记录认领前没有引用
+        resourceFile.setRefCount(0);
+        resourceFileMapper.insert(resourceFile);
+        return minioService.getPresignedUploadUrl(resourceFile.getBucketName(), resourceFile.getFileKey(),
+                directUploadProperties.getUploadUrlExpirySeconds());
+    }
+
+    @Override
+    public ResourceFile completeUpload(Long fileId, Long userId) throws Exception {
+        ResourceFile resourceFile = fileId != null ? resourceFileMapper.selectById(fileId) : null;
+        if (resourceFile == null || (userId != null && !userId.equals(resourceFile.getUploadUserId()))) {
+            throw new IllegalArgumentException("上传记录不存在");
+        }
+        if (!Integer.valueOf(1).equals(resourceFile.getIsTemp())) {
+            // 重复回调直接返回已激活的记录
+            return resourceFile;
+        }
+
+        StatObjectResponse stat;
+        try {
+            stat = minioService.statObject(resourceFile.getBucketName(), resourceFile.getFileKey());
+        } catch (ErrorResponseException e) {
+            if ("NoSuchKey".equals(e.errorResponse().code())) {
+                throw new IllegalArgumentException("文件尚未上传完成");
+            }
+            throw e;
+        }
+        Long declaredSize = resourceFile.getFileSize();
+        if (declaredSize != null && declaredSize > 0 && stat.size() != declaredSize) {
+            throw new IllegalArgumentException("上传的文件大小与声明不一致");
+        }
+
+        String mimeType = stat.contentType() != null ? stat.contentType() : resourceFile.getMimeType();
+        if (resourceFileMapper.activatePendingUpload(fileId, stat.size(), mimeType) == 0) {
+            // 并发回调已激活该记录
+            return resourceFileMapper.selectById(fileId);
+        }
+        resourceFile.setIsTemp(0);
+        resourceFile.setFileSize(stat.size());
+        resourceFile.setMimeType(mimeType);
+        imageDerivativeService.submit(resourceFile);
+        return resourceFile;
+    }
+
+    @Override
+    public boolean claimDirectUpload(Long fileId, Long userId, String bucketName, String mimeTypePrefix) {
+        if (fileId == null || userId == null) {
+            return false;
+        }
+        return resourceFileMapper.claimDirectUpload(fileId, userId, bucketName, mimeTypePrefix) > 0;
+    }
+
+    @Override
+    public int cleanupPendingUploads() {
+        LocalDateTime before = LocalDateTime.now().minusHours(directUploadProperties.getPendingExpireHours());
+        int cleaned = 0;
+        for (ResourceFile resourceFile : resourceFileMapper.selectExpiredPendingUploads(before,
+                directUploadProperties.getCleanupBatchSize())) {
+            if (resourceFileMapper.deletePendingUpload(resourceFile.getId()) > 0) {
+                // 客户端可能已上传但未回调，对象不存在时删除操作也会成功
+                removeObjectQuietly(resourceFile.getBucketName(), resourceFile.getFileKey());
+                cleaned++;
+            }
+        }
+        return cleaned;
+    }
+
+    /**
+     * 释放单个文件的一个引用
+     * @return 文件记录和对象是否已删除
+     */
+    private boolean releaseOne(ResourceFile resourceFile) {
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            if (resourceFileMapper.decrementRefCount(resourceFile.getId()) > 0) {
+                return false;
+            }
+            if (resourceFileMapper.deleteLastReference(resourceFile.getId()) > 0) {
+                removeObjectQuietly(resourceFile.getBucketName(), resourceFile.getFileKey());
+                removeDerivative(resourceFile, resourceFile.getThumbnailKey());
+                removeDerivative(resourceFile, resourceFile.getMediumKey());
+                return true;
+            }
+            // 两条语句之间有新的上传复用了该文件，重新尝试减少引用
+        }
+        log.warn("释放文件引用时竞争过多，文件ID: {}", resourceFile.getId());
+        return false;
+    }
+
+    /**
+     * 删除派生图对象，派生尺寸直接使用原图时跳过
+     */
+    private void removeDerivative(ResourceFile resourceFile, String derivativeKey) {
+        if (derivativeKey != null && !derivativeKey.equals(resourceFile.getFileKey())) {
+            removeObjectQuietly(resourceFile.getBucketName(), derivativeKey);
+        }
+    }
+
+    private void removeObjectQuietly(String bucketName, String objectName) {
+        try {
+            minioService.removeObject(bucketName, objectName);
+        } catch (Exception e) {
+            log.warn("删除MinIO对象失败: {}/{}, 原因: {}", bucketName, objectName, e.getMessage());
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder builder = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return builder.toString();
+    }
+}
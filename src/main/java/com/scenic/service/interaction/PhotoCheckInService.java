@@ -4,6 +4,7 @@ import java.util.List;
 
 import org.springframework.web.multipart.MultipartFile;
 
+import com.scenic.common.dto.CursorPageResult;
 import com.scenic.common.dto.PageResult;
 import com.scenic.common.dto.Result;
 import com.scenic.dto.interaction.PhotoCheckInDTO;
@@ -23,6 +24,14 @@ public interface PhotoCheckInService {
      */
     Result<String> uploadPhotoCheckIn(PhotoCheckInDTO photoCheckInDTO);
     
+    /**
+     * 上传照片打卡并保存照片文件（内容相同的照片复用已有文件）
+     * @param photoCheckInDTO 照片打卡信息
+     * @param photo 照片文件
+     * @return 操作结果
+     */
+    Result<String> uploadPhotoCheckIn(PhotoCheckInDTO photoCheckInDTO, MultipartFile photo);
+    
     /**
      * 获取所有照片打卡记录
      * @param photoCheckInQueryDTO 查询条件
@@ -38,6 +47,27 @@ public interface PhotoCheckInService {
      */
     PageResult<PhotoCheckInVO> getAllPhotoCheckIns(PhotoCheckInQueryDTO photoCheckInQueryDTO, Long userId);
     
+    /**
+     * 小程序端 - 按游标获取最新照片打卡记录（按发布时间倒序，不统计总数）
+     * @param title 标题（可选）
+     * @param categoryId 分类ID（可选）
+     * @param cursor 上一页返回的nextCursor，首页不传
+     * @param pageSize 每页条数
+     * @param userId 用户ID，用于判断互动状态
+     * @return 游标分页结果
+     * @throws IllegalArgumentException 游标无效
+     */
+    CursorPageResult<PhotoCheckInVO> getPhotoCheckInFeed(String title, Long categoryId, String cursor, Integer pageSize, Long userId);
+    
+    /**
+     * 小程序端 - 获取热门照片打卡（按时间衰减的点赞、收藏热度排序）
+     * @param categoryId 分类ID（可选）
+     * @param limit 返回条数
+     * @param userId 用户ID，用于判断互动状态
+     * @return 热门照片打卡列表
+     */
+    List<PhotoCheckInVO> getHotPhotoCheckIns(Long categoryId, Integer limit, Long userId);
+    
     
     /**
      * 点赞照片打卡
@@ -50,9 +80,10 @@ public interface PhotoCheckInService {
     /**
      * 取消点赞照片打卡
      * @param photoCheckInId 照片打卡ID
+     * @param userId 用户ID
      * @return 操作结果
      */
-    Result<String> unlikePhotoCheckIn(Long photoCheckInId);
+    Result<String> unlikePhotoCheckIn(Long photoCheckInId, Long userId);
     
     /**
      * 收藏照片打卡
@@ -0,0 +1,67 @@
+package com.scenic.service.interaction;
+
+import java.util.List;
+
+import com.scenic.entity.interaction.PhotoCheckIn;
+
+/**
+ * 照片打卡热门排行服务接口
+ * 按时间衰减的热度（点赞、收藏、发布）维护全部照片和各分类的排行，点赞、收藏时增量更新，定时从数据库重建
+ */
+public interface PhotoHotRankingService {
+
+    /**
+     * 记录点赞或取消点赞
+     * @param photo 照片打卡
+     * @param liked true为点赞，false为取消点赞
+     */
+    void recordLike(PhotoCheckIn photo, boolean liked);
+
+    /**
+     * 记录收藏或取消收藏
+     * @param photo 照片打卡
+     * @param favorited true为收藏，false为取消收藏
+     */
+    void recordFavorite(PhotoCheckIn photo, boolean favorited);
+
+    /**
+     * 记录新发布的照片
+     * @param photo 照片打卡
+     */
+    void recordPublish(PhotoCheckIn photo);
+
+    /**
+     * 修改分类后把照片的热度从原分类排行移到新分类排行
+     * @param photoCheckInId 照片打卡ID
+     * @param oldCategoryId 原分类ID
+     * @param newCategoryId 新分类ID（可选）
+     */
+    void moveCategory(Long photoCheckInId, Long oldCategoryId, Long newCategoryId);
+
+    /**
+     * 从全部照片排行和指定分类排行中移除照片（删除照片时调用）
+     * @param photoCheckInId 照片打卡ID
+     * @param categoryId 分类ID（可选）
+     */
+    void remove(Long photoCheckInId, Long categoryId);
+
+    /**
+     * 获取热度最高的照片ID
+     * @param categoryId 分类ID，为null时取全部照片排行
+     * @param limit 条数
+     * @return 照片打卡ID列表（按热度降序），排行尚未构建或Redis不可用时返回null
+     */
+    List<Long> getTopPhotoIds(Long categoryId, int limit);
+
+    /**
+     * 判断排行是否已构建
+     * @return 是否已构建
+     */
+    boolean isBuilt();
+
+    /**
+     * 从数据库重建排行并替换现有排行
+     * @return 进入排行的照片数，未获得重建锁时返回-1
+     */
+    int rebuild();
+}
@@ -0,0 +1,39 @@
+package com.scenic.service.interaction;
+
+import com.scenic.entity.interaction.PhotoCheckIn;
+
+/**
+ * 照片打卡互动（收藏、点赞）服务接口
+ * 互动记录依赖 user_favorite 的唯一键 (user_id, content_id, content_type)，添加和取消都是幂等的单条语句；
+ * 只有记录实际发生变化时才累加点赞数、更新热门排行
+ */
+public interface PhotoInteractionService {
+
+    /**
+     * 收藏
+     */
+    int TYPE_FAVORITE = 1;
+
+    /**
+     * 点赞
+     */
+    int TYPE_LIKE = 2;
+
+    /**
+     * 添加互动
+     * @param photo 照片打卡
+     * @param userId 用户ID
+     * @param contentType 互动类型：1-收藏，2-点赞
+     * @return 是否新增了记录（已存在时返回false）
+     */
+    boolean add(PhotoCheckIn photo, Long userId, int contentType);
+
+    /**
+     * 取消互动
+     * @param photo 照片打卡
+     * @param userId 用户ID
+     * @param contentType 互动类型：1-收藏，2-点赞
+     * @return 是否删除了记录（不存在时返回false）
+     */
+    boolean remove(PhotoCheckIn photo, Long userId, int contentType);
+}
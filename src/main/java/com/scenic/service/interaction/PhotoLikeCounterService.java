@@ -0,0 +1,31 @@
+package com.scenic.service.interaction;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * 照片打卡点赞计数服务接口
+ * 点赞增量先累加在Redis中，定期合并为批量 UPDATE ... SET like_count = like_count + ? 写回数据库
+ */
+public interface PhotoLikeCounterService {
+
+    /**
+     * 累加点赞增量
+     * @param photoCheckInId 照片打卡ID
+     * @param delta 增量（点赞为1，取消点赞为-1）
+     */
+    void increment(Long photoCheckInId, long delta);
+
+    /**
+     * 查询尚未写回数据库的点赞增量
+     * @param photoCheckInIds 照片打卡ID集合
+     * @return 照片打卡ID到增量的映射（无增量的照片不在结果中）
+     */
+    Map<Long, Long> getPendingDeltas(Collection<Long> photoCheckInIds);
+
+    /**
+     * 把累加的增量写回数据库
+     * @return 写回的照片数
+     */
+    int flush();
+}
@@ -1,6 +1,7 @@
 package com.scenic.service.interaction.impl;
 
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
@@ -14,6 +15,8 @@ import com.scenic.dto.interaction.ArContentDTO;
 import com.scenic.entity.interaction.ArContent;
 import com.scenic.mapper.interaction.ArContentMapper;
 import com.scenic.service.interaction.ArContentService;
+import com.scenic.utils.CursorScanner;
+import com.scenic.utils.RedisUtil;
 
 /**
  * AR内容服务实现类
@@ -27,6 +30,12 @@ public class ArContentServiceImpl implements ArContentService {
     @Autowired
     private RedisTemplate<String, Object> redisTemplate;
     
+    @Autowired
+    private CursorScanner cursorScanner;
+    
+    @Autowired
+    private RedisUtil redisUtil;
+    
     // Redis缓存键前缀
     private static final String AR_CONTENT_CACHE_PREFIX = "ar_content:";
     private static final String ALL_AR_CONTENTS_CACHE_KEY = "all_ar_contents";
@@ -57,9 +66,10 @@ public class ArContentServiceImpl implements ArContentService {
             arContentMapper.insert(content);
             
             // 清除相关缓存
-            redisTemplate.delete(ALL_AR_CONTENTS_CACHE_KEY);
-            redisTemplate.delete(AR_CONTENTS_BY_TARGET_CACHE_PREFIX + arContentDTO.getTargetId() + "_" + arContentDTO.getTargetType());
-            redisTemplate.delete(AR_CONTENTS_BY_CONTENT_TYPE_CACHE_PREFIX + arContentDTO.getContentType());
+            redisUtil.delete(Arrays.asList(
+                    ALL_AR_CONTENTS_CACHE_KEY,
+                    AR_CONTENTS_BY_TARGET_CACHE_PREFIX + arContentDTO.getTargetId() + "_" + arContentDTO.getTargetType(),
+                    AR_CONTENTS_BY_CONTENT_TYPE_CACHE_PREFIX + arContentDTO.getContentType()));
             
             return Result.success("操作成功", "AR内容上传成功");
         } catch (Exception e) {
@@ -80,11 +90,8 @@ public class ArContentServiceImpl implements ArContentService {
                 return Result.success("查询成功", cachedContents);
             }
             
-            // 缓存中没有则从数据库查询
-            List<ArContent> contents = arContentMapper.selectAllEnabled();
-            List<ArContentDTO> contentDTOs = contents.stream()
-                    .map(this::convertToDTO)
-                    .collect(Collectors.toList());
+            // 缓存中没有则从数据库流式读取
+            List<ArContentDTO> contentDTOs = cursorScanner.map(arContentMapper::scanAllEnabled, CursorScanner.MAX_LIST_ROWS, this::convertToDTO);
             
             // 将结果存入Redis缓存，过期时间1小时
             redisTemplate.opsForValue().set(ALL_AR_CONTENTS_CACHE_KEY, contentDTOs, 1, TimeUnit.HOURS);
@@ -141,11 +148,8 @@ public class ArContentServiceImpl implements ArContentService {
                 return Result.success("查询成功", cachedContents);
             }
             
-            // 缓存中没有则从数据库查询
-            List<ArContent> contents = arContentMapper.selectByContentType(contentType, 0, 1000);
-            List<ArContentDTO> contentDTOs = contents.stream()
-                    .map(this::convertToDTO)
-                    .collect(Collectors.toList());
+            // 缓存中没有则从数据库流式读取
+            List<ArContentDTO> contentDTOs = cursorScanner.map(limit -> arContentMapper.scanByContentType(contentType, limit), CursorScanner.MAX_LIST_ROWS, this::convertToDTO);
             
             // 将结果存入Redis缓存，过期时间1小时
             redisTemplate.opsForValue().set(cacheKey, contentDTOs, 1, TimeUnit.HOURS);
@@ -170,14 +174,12 @@ public class ArContentServiceImpl implements ArContentService {
                 content.setUpdateTime(LocalDateTime.now());
                 arContentMapper.updateById(content);
                 
-                // 删除缓存
-                String cacheKey = AR_CONTENT_CACHE_PREFIX + id;
-                redisTemplate.delete(cacheKey);
-                
-                // 清除相关缓存
-                redisTemplate.delete(ALL_AR_CONTENTS_CACHE_KEY);
-                redisTemplate.delete(AR_CONTENTS_BY_TARGET_CACHE_PREFIX + content.getTargetId() + "_" + content.getTargetType());
-                redisTemplate.delete(AR_CONTENTS_BY_CONTENT_TYPE_CACHE_PREFIX + content.getContentType());
+                // 删除缓存及相关缓存
+                redisUtil.delete(Arrays.asList(
+                        AR_CONTENT_CACHE_PREFIX + id,
+                        ALL_AR_CONTENTS_CACHE_KEY,
+                        AR_CONTENTS_BY_TARGET_CACHE_PREFIX + content.getTargetId() + "_" + content.getTargetType(),
+                        AR_CONTENTS_BY_CONTENT_TYPE_CACHE_PREFIX + content.getContentType()));
                 
                 return Result.success("操作成功", "AR内容已删除");
             }
@@ -215,17 +217,15 @@ public class ArContentServiceImpl implements ArContentService {
                 
                 arContentMapper.updateById(content);
                 
-                // 更新缓存
+                // 更新缓存并清除相关缓存，通过同一个管道发送
                 String cacheKey = AR_CONTENT_CACHE_PREFIX + id;
                 ArContentDTO updatedDTO = convertToDTO(content);
-                redisTemplate.opsForValue().set(cacheKey, updatedDTO, 1, TimeUnit.HOURS);
-                
-                // 清除相关缓存
-                redisTemplate.delete(ALL_AR_CONTENTS_CACHE_KEY);
-                redisTemplate.delete(AR_CONTENTS_BY_TARGET_CACHE_PREFIX + oldTargetId + "_" + oldTargetType);
-                redisTemplate.delete(AR_CONTENTS_BY_TARGET_CACHE_PREFIX + arContentDTO.getTargetId() + "_" + arContentDTO.getTargetType());
-                redisTemplate.delete(AR_CONTENTS_BY_CONTENT_TYPE_CACHE_PREFIX + oldContentType);
-                redisTemplate.delete(AR_CONTENTS_BY_CONTENT_TYPE_CACHE_PREFIX + arContentDTO.getContentType());
+                redisUtil.setAndDelete(cacheKey, updatedDTO, TimeUnit.HOURS.toSeconds(1), Arrays.asList(
+                        ALL_AR_CONTENTS_CACHE_KEY,
+                        AR_CONTENTS_BY_TARGET_CACHE_PREFIX + oldTargetId + "_" + oldTargetType,
+                        AR_CONTENTS_BY_TARGET_CACHE_PREFIX + arContentDTO.getTargetId() + "_" + arContentDTO.getTargetType(),
+                        AR_CONTENTS_BY_CONTENT_TYPE_CACHE_PREFIX + oldContentType,
+                        AR_CONTENTS_BY_CONTENT_TYPE_CACHE_PREFIX + arContentDTO.getContentType()));
                 
                 return Result.success("操作成功", "AR内容更新成功");
             }
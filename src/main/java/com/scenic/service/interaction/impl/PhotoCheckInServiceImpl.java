@@ -1,14 +1,20 @@
 package com.scenic.service.interaction.impl;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.Objects;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.redis.core.RedisTemplate;
@@ -16,6 +22,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import com.github.pagehelper.PageHelper;
+import com.scenic.common.dto.CursorPageResult;
 import com.scenic.common.dto.PageResult;
 import com.scenic.common.dto.Result;
 import com.scenic.dto.interaction.PhotoCheckInDTO;
@@ -32,9 +39,15 @@ import com.scenic.mapper.ResourceFileMapper;
 import com.scenic.mapper.user.UserMapper;
 import com.scenic.mapper.user.UserFavoriteMapper;
 import com.scenic.service.MinioService;
+import com.scenic.service.ResourceFileService;
 import com.scenic.service.interaction.PhotoCheckInService;
-import com.scenic.utils.BloomFilterUtil;
+import com.scenic.service.interaction.PhotoHotRankingService;
+import com.scenic.service.interaction.PhotoInteractionService;
+import com.scenic.service.interaction.PhotoLikeCounterService;
 import com.scenic.utils.IdGenerator;
+import com.scenic.utils.PhotoFeedCache;
+import com.scenic.utils.RedisUtil;
+import com.scenic.utils.ResourceFileUrlResolver;
 import com.scenic.utils.UserContextUtil;
 import com.scenic.utils.UserInteractionCacheUtil;
 
@@ -44,6 +57,8 @@ import com.scenic.utils.UserInteractionCacheUtil;
 @Service
 public class PhotoCheckInServiceImpl implements PhotoCheckInService {
     
+    private static final Logger log = LoggerFactory.getLogger(PhotoCheckInServiceImpl.class);
+    
     @Autowired
     private PhotoCheckInMapper photoCheckInMapper;
     
@@ -59,6 +74,9 @@ public class PhotoCheckInServiceImpl implements PhotoCheckInService {
     @Autowired
     private RedisTemplate<String, Object> redisTemplate;
     
+    @Autowired
+    private RedisUtil redisUtil;
+    
     @Autowired
     private UserContextUtil userContextUtil;
     
@@ -68,28 +86,44 @@ public class PhotoCheckInServiceImpl implements PhotoCheckInService {
     @Autowired
     private UserFavoriteMapper userFavoriteMapper;
     
-    @Autowired
-    private BloomFilterUtil bloomFilterUtil;
-    
     @Autowired
     private UserInteractionCacheUtil userInteractionCacheUtil;
     
     @Autowired
     private IdGenerator idGenerator;
     
+    @Autowired
+    private PhotoFeedCache photoFeedCache;
+    
+    @Autowired
+    private ResourceFileUrlResolver resourceFileUrlResolver;
+    
+    @Autowired
+    private ResourceFileService resourceFileService;
+    
+    @Autowired
+    private PhotoLikeCounterService photoLikeCounterService;
+    
+    @Autowired
+    private PhotoHotRankingService photoHotRankingService;
+    
+    @Autowired
+    private PhotoInteractionService photoInteractionService;
+    
     // Redis缓存键前缀
     private static final String PHOTO_CHECK_IN_CACHE_PREFIX = "photo_check_in:";
     private static final String ALL_PHOTOS_CACHE_KEY = "all_photos";
     private static final String PHOTOS_BY_CATEGORY_CACHE_PREFIX = "photos_category:";
     private static final String PHOTOS_BY_USER_ID_CACHE_PREFIX = "photos_user_id:";
-    private static final String PHOTO_CHECK_IN_PAGE_CACHE_PREFIX = "photo_checkin:page:";
     private static final String CHECKIN_CATEGORY_LIST_CACHE_KEY = "checkin_category:list";
     
     // 缓存过期时间（分钟）
-    private static final int PAGE_CACHE_EXPIRE_MINUTES = 1; // 减少页面缓存过期时间，使新增或编辑的数据更快显示
-    private static final int EMPTY_RESULT_CACHE_EXPIRE_MINUTES = 2;
     private static final int CATEGORY_LIST_CACHE_EXPIRE_MINUTES = 10; // 减少分类列表缓存过期时间
     
+    // 游标分页每页条数
+    private static final int DEFAULT_FEED_PAGE_SIZE = 10;
+    private static final int MAX_FEED_PAGE_SIZE = 50;
+    
     /**
      * 上传照片打卡
      * @param photoCheckInDTO 照片打卡信息
@@ -97,6 +131,17 @@ public class PhotoCheckInServiceImpl implements PhotoCheckInService {
      */
     @Override
     public Result<String> uploadPhotoCheckIn(PhotoCheckInDTO photoCheckInDTO) {
+        return uploadPhotoCheckIn(photoCheckInDTO, null);
+    }
+    
+    /**
+     * 上传照片打卡并保存照片文件
+     * @param photoCheckInDTO 照片打卡信息
+     * @param photo 照片文件（为null时使用photoCheckInDTO中已上传的照片URL）
+     * @return 操作结果
+     */
+    @Override
+    public Result<String> uploadPhotoCheckIn(PhotoCheckInDTO photoCheckInDTO, MultipartFile photo) {
         try {
             // 参数验证
             if (photoCheckInDTO.getUserId() == null) {
@@ -105,7 +150,7 @@ public class PhotoCheckInServiceImpl implements PhotoCheckInService {
             if (photoCheckInDTO.getUserName() == null || photoCheckInDTO.getUserName().trim().isEmpty()) {
                 return Result.error("用户名不能为空");
             }
-            if (photoCheckInDTO.getPhotoUrl() == null || photoCheckInDTO.getPhotoUrl().trim().isEmpty()) {
+            if (photo == null && (photoCheckInDTO.getPhotoUrl() == null || photoCheckInDTO.getPhotoUrl().trim().isEmpty())) {
                 return Result.error("照片URL不能为空");
             }
             // 验证分类ID
@@ -119,47 +164,52 @@ public class PhotoCheckInServiceImpl implements PhotoCheckInService {
                 return Result.error("指定的分类不存在或已禁用");
             }
             
-            // 从照片URL中提取文件名和文件键
-            String photoUrl = photoCheckInDTO.getPhotoUrl();
-            // 提取基本文件名（去除查询参数）
-            String fullFileName = photoUrl.substring(photoUrl.lastIndexOf("/") + 1);
-            String fileName = fullFileName;
-            // 如果文件名包含查询参数，只保留文件名部分
-            if (fileName.contains("?")) {
-                fileName = fileName.substring(0, fileName.indexOf("?"));
-            }
-            // 确保文件名不超过数据库字段长度限制（假设为255）
-            if (fileName.length() > 250) {
-                fileName = fileName.substring(0, 250);
-            }
-            String fileKey = fileName;
-            
-            // 检查文件是否已存在
-            ResourceFile existingFile = resourceFileMapper.selectByFileKey(fileKey);
             Long photoId;
-            
-            if (existingFile != null) {
-                // 文件已存在，使用现有记录
-                photoId = existingFile.getId();
+            if (photo != null) {
+                // 上传照片，内容相同的照片复用已有文件记录
+                photoId = storePhotoCheckinFile(photo, photoCheckInDTO.getUserId()).getId();
             } else {
-                // 创建新的文件记录
-                ResourceFile resourceFile = new ResourceFile();
-                // 使用雪花算法生成ID
-                resourceFile.setId(idGenerator.nextId());
-                resourceFile.setFileName(fileName);
-                resourceFile.setFileKey(fileKey);
-                resourceFile.setBucketName("photo-checkin");
-                resourceFile.setFileSize(0L); // 文件大小暂时设为0
-                resourceFile.setMimeType("image/jpeg"); // 默认MIME类型
-                resourceFile.setFileType(1); // 1表示图片
-                resourceFile.setCreateTime(LocalDateTime.now());
-                resourceFile.setUpdateTime(LocalDateTime.now());
-                resourceFile.setCreateBy(photoCheckInDTO.getUserId());
-                resourceFile.setUpdateBy(photoCheckInDTO.getUserId());
-                resourceFile.setUploadUserId(photoCheckInDTO.getUserId());
+                // 从照片URL中提取文件名和文件键
+                String photoUrl = photoCheckInDTO.getPhotoUrl();
+                // 提取基本文件名（去除查询参数）
+                String fullFileName = photoUrl.substring(photoUrl.lastIndexOf("/") + 1);
+                String fileName = fullFileName;
+                // 如果文件名包含查询参数，只保留文件名部分
+                if (fileName.contains("?")) {
+                    fileName = fileName.substring(0, fileName.indexOf("?"));
+                }
+                // 确保文件名不超过数据库字段长度限制（假设为255）
+                if (fileName.length() > 250) {
+                    fileName = fileName.substring(0, 250);
+                }
+                String fileKey = fileName;
+            
+                // 检查文件是否已存在
+                ResourceFile existingFile = resourceFileMapper.selectByFileKey(fileKey);
+            
+                if (existingFile != null) {
+                    // 文件已存在，使用现有记录
+                    photoId = existingFile.getId();
+                } else {
+                    // 创建新的文件记录
+                    ResourceFile resourceFile = new ResourceFile();
+                    // 使用雪花算法生成ID
+                    resourceFile.setId(idGenerator.nextId());
+                    resourceFile.setFileName(fileName);
+                    resourceFile.setFileKey(fileKey);
+                    resourceFile.setBucketName("photo-checkin");
+                    resourceFile.setFileSize(0L); // 文件大小暂时设为0
+                    resourceFile.setMimeType("image/jpeg"); // 默认MIME类型
+                    resourceFile.setFileType(1); // 1表示图片
+                    resourceFile.setCreateTime(LocalDateTime.now());
+                    resourceFile.setUpdateTime(LocalDateTime.now());
+                    resourceFile.setCreateBy(photoCheckInDTO.getUserId());
+                    resourceFile.setUpdateBy(photoCheckInDTO.getUserId());
+                    resourceFile.setUploadUserId(photoCheckInDTO.getUserId());
                 
-                resourceFileMapper.insert(resourceFile);
-                photoId = resourceFile.getId();
+                    resourceFileMapper.insert(resourceFile);
+                    photoId = resourceFile.getId();
+                }
             }
             
             // 使用传入的分类ID
@@ -198,12 +248,12 @@ public class PhotoCheckInServiceImpl implements PhotoCheckInService {
             
             // 保存到数据库
             photoCheckInMapper.insert(photoCheckIn);
+            photoHotRankingService.recordPublish(photoCheckIn);
             
             // 清除相关缓存
-            redisTemplate.delete(ALL_PHOTOS_CACHE_KEY);
-            redisTemplate.delete(CHECKIN_CATEGORY_LIST_CACHE_KEY);
-            // 清除分页缓存
-            clearPageCaches();
+            redisUtil.delete(Arrays.asList(ALL_PHOTOS_CACHE_KEY, CHECKIN_CATEGORY_LIST_CACHE_KEY));
+            // 失效列表缓存
+            photoFeedCache.invalidate(categoryId);
             
             return Result.success("操作成功", "照片打卡上传成功，ID: " + photoCheckIn.getId());
         } catch (Exception e) {
@@ -211,6 +261,33 @@ public class PhotoCheckInServiceImpl implements PhotoCheckInService {
         }
     }
     
+    /**
+     * 上传照片到photo-checkin存储桶并保存文件记录
+     * @param photo 照片文件
+     * @param userId 上传用户ID
+     * @return 文件记录（内容重复时为已有记录）
+     */
+    private ResourceFile storePhotoCheckinFile(MultipartFile photo, Long userId) throws Exception {
+        String originalFilename = photo.getOriginalFilename();
+        String fileExtension = originalFilename != null && originalFilename.contains(".")
+            ? originalFilename.substring(originalFilename.lastIndexOf(".")) : "";
+        
+        ResourceFile resourceFile = new ResourceFile();
+        resourceFile.setId(idGenerator.nextId()); // 生成雪花ID
+        resourceFile.setFileName(originalFilename);
+        resourceFile.setFileKey(java.util.UUID.randomUUID().toString() + fileExtension);
+        resourceFile.setBucketName("photo-checkin"); // MinIO存储桶名称
+        resourceFile.setFileSize(photo.getSize());
+        resourceFile.setMimeType(photo.getContentType());
+        resourceFile.setFileType(1); // 1表示图片
+        resourceFile.setCreateTime(LocalDateTime.now());
+        resourceFile.setUpdateTime(LocalDateTime.now());
+        resourceFile.setCreateBy(userId);
+        resourceFile.setUpdateBy(userId);
+        resourceFile.setUploadUserId(userId);
+        return resourceFileService.store(resourceFile, photo);
+    }
+    
     /**
      * 收藏照片打卡
      * @param photoCheckInId 照片打卡ID
@@ -226,28 +303,11 @@ public class PhotoCheckInServiceImpl implements PhotoCheckInService {
                 return Result.error("照片打卡不存在");
             }
             
-            // 检查是否已经收藏
-            com.scenic.entity.user.UserFavorite existingFavorite = 
-                userFavoriteMapper.selectByUserAndContent(userId, photoCheckInId, 1);
-            if (existingFavorite != null) {
+            // 唯一键保证重复收藏只插入一次
+            if (!photoInteractionService.add(photo, userId, PhotoInteractionService.TYPE_FAVORITE)) {
                 return Result.success("操作成功", "已收藏");
             }
             
-            // 创建收藏记录
-            com.scenic.entity.user.UserFavorite userFavorite = new com.scenic.entity.user.UserFavorite();
-            userFavorite.setUserId(userId);
-            userFavorite.setContentId(photoCheckInId);
-            userFavorite.setContentType(1); // 1表示收藏
-            userFavorite.setVersion(0);
-            userFavorite.setCreateTime(LocalDateTime.now());
-            userFavorite.setUpdateTime(LocalDateTime.now());
-            userFavorite.setCreateBy(userId);
-            userFavorite.setUpdateBy(userId);
-            userFavorite.setCategoryId(photo.getCategoryId().intValue()); // 设置分类ID
-            
-            // 插入收藏记录
-            userFavoriteMapper.insert(userFavorite);
-            
             return Result.success("操作成功", "收藏成功");
         } catch (Exception e) {
             return Result.error("收藏失败：" + e.getMessage());
@@ -270,8 +330,7 @@ public class PhotoCheckInServiceImpl implements PhotoCheckInService {
             }
             
             // 删除收藏记录（硬删除）
-            int result = userFavoriteMapper.deleteByUserAndContent(userId, photoCheckInId, 1);
-            if (result > 0) {
+            if (photoInteractionService.remove(photo, userId, PhotoInteractionService.TYPE_FAVORITE)) {
                 return Result.success("操作成功", "取消收藏成功");
             } else {
                 return Result.success("操作成功", "未收藏或已取消收藏");
@@ -387,16 +446,13 @@ public class PhotoCheckInServiceImpl implements PhotoCheckInService {
      */
     @Override
     public PageResult<PhotoCheckInVO> getAllPhotoCheckIns(PhotoCheckInQueryDTO photoCheckInQueryDTO, Long userId) {
-        // 生成缓存键
-        String cacheKey = generatePageCacheKey(photoCheckInQueryDTO);
+        // 生成缓存键（包含当前代次），必须在查库之前生成
+        String cacheKey = photoFeedCache.pageKey(photoCheckInQueryDTO);
         
-        // 清除缓存，确保每次都从数据库获取最新数据
-        redisTemplate.delete(cacheKey);
-        
-        // 尝试从Redis获取缓存 - 这里实际上不会命中，因为我们已经删除了缓存
-        PageResult<PhotoCheckInVO> cachedResult = (PageResult<PhotoCheckInVO>) redisTemplate.opsForValue().get(cacheKey);
+        // 缓存的分页与用户无关，命中后叠加当前用户的互动状态
+        PageResult<PhotoCheckInVO> cachedResult = photoFeedCache.get(cacheKey);
         if (cachedResult != null) {
-            System.out.println("--------------------cache-----------------------");
+            applyUserInteraction(cachedResult.getRecords(), userId);
             return cachedResult;
         }
         
@@ -407,7 +463,8 @@ public class PhotoCheckInServiceImpl implements PhotoCheckInService {
         LocalDateTime createTime = photoCheckInQueryDTO.getCreateTime();
         
         // 设置分页参数 - 必须在查询之前设置，且在获取查询参数之后设置
-        PageHelper.startPage(photoCheckInQueryDTO.getPageNum(), photoCheckInQueryDTO.getPageSize());
+        // 总数由下面的count查询单独获取，关闭PageHelper自动生成的count查询，避免每页统计两次
+        PageHelper.startPage(photoCheckInQueryDTO.getPageNum(), photoCheckInQueryDTO.getPageSize(), false);
         
         List<PhotoCheckIn> photoCheckIns;
         int totalCount;
@@ -433,25 +490,122 @@ public class PhotoCheckInServiceImpl implements PhotoCheckInService {
             totalCount = photoCheckInMapper.selectCountForMiniapp(title, categoryId);
         }
         
-        // 转换为VO对象，包含用户互动状态
-        // 使用传入的userId而不是从上下文获取
-        List<PhotoCheckInVO> photoCheckInVOs = convertToVOsWithUserInteraction(photoCheckIns, userId);
+        // 转换为VO对象（不含用户互动状态）
+        List<PhotoCheckInVO> photoCheckInVOs = convertToVOs(photoCheckIns);
         
         // 构造分页结果
         PageResult<PhotoCheckInVO> pageResult = PageResult.of(totalCount, photoCheckInQueryDTO.getPageSize(), photoCheckInQueryDTO.getPageNum(), photoCheckInVOs);
         
-        // 缓存结果
-        if (photoCheckInVOs.isEmpty()) {
-            // 空结果缓存较短时间
-            redisTemplate.opsForValue().set(cacheKey, pageResult, EMPTY_RESULT_CACHE_EXPIRE_MINUTES, TimeUnit.MINUTES);
-        } else {
-            // 非空结果缓存较长时间
-            redisTemplate.opsForValue().set(cacheKey, pageResult, PAGE_CACHE_EXPIRE_MINUTES, TimeUnit.MINUTES);
+        // 缓存与用户无关的分页结果，再叠加当前用户的互动状态
+        photoFeedCache.put(cacheKey, pageResult);
+        applyUserInteraction(photoCheckInVOs, userId);
+        
+        return pageResult;
+    }
+    
+    /**
+     * 小程序端 - 按游标获取最新照片打卡记录
+     * 以上一页最后一条的 (create_time, id) 为游标，多查一条判断是否还有下一页，不统计总数，
+     * 翻到第几页都只读取一页数据
+     */
+    @Override
+    public CursorPageResult<PhotoCheckInVO> getPhotoCheckInFeed(String title, Long categoryId, String cursor,
+                                                               Integer pageSize, Long userId) {
+        int size = pageSize == null || pageSize <= 0 ? DEFAULT_FEED_PAGE_SIZE : Math.min(pageSize, MAX_FEED_PAGE_SIZE);
+        FeedCursor position = cursor != null && !cursor.isEmpty() ? FeedCursor.decode(cursor) : null;
+        
+        // 缓存的分页与用户无关，命中后叠加当前用户的互动状态
+        String cacheKey = photoFeedCache.cursorPageKey(title, categoryId, cursor, size);
+        CursorPageResult<PhotoCheckInVO> cachedResult = photoFeedCache.getCursorPage(cacheKey);
+        if (cachedResult != null) {
+            applyUserInteraction(cachedResult.getRecords(), userId);
+            return cachedResult;
         }
         
+        List<PhotoCheckIn> photoCheckIns = photoCheckInMapper.selectFeedForMiniapp(title, categoryId,
+                position != null ? position.createTime : null, position != null ? position.id : null, size + 1);
+        boolean hasMore = photoCheckIns.size() > size;
+        if (hasMore) {
+            photoCheckIns = photoCheckIns.subList(0, size);
+        }
+        String nextCursor = null;
+        if (hasMore) {
+            PhotoCheckIn last = photoCheckIns.get(photoCheckIns.size() - 1);
+            nextCursor = new FeedCursor(last.getCreateTime(), last.getId()).encode();
+        }
+        
+        CursorPageResult<PhotoCheckInVO> pageResult = CursorPageResult.of(convertToVOs(photoCheckIns), nextCursor, hasMore);
+        photoFeedCache.putCursorPage(cacheKey, pageResult);
+        applyUserInteraction(pageResult.getRecords(), userId);
         return pageResult;
     }
     
+    /**
+     * 小程序端 - 获取热门照片打卡
+     * 从Redis热门排行取前N个ID后按ID回表；排行中可能残留已下架的照片，因此多取一倍再按排行顺序截断。
+     * 排行尚未构建或Redis不可用时退化为最新发布的照片
+     */
+    @Override
+    public List<PhotoCheckInVO> getHotPhotoCheckIns(Long categoryId, Integer limit, Long userId) {
+        int size = limit == null || limit <= 0 ? DEFAULT_FEED_PAGE_SIZE : Math.min(limit, MAX_FEED_PAGE_SIZE);
+        List<Long> rankedIds = photoHotRankingService.getTopPhotoIds(categoryId, size * 2);
+        
+        List<PhotoCheckIn> photoCheckIns;
+        if (rankedIds == null) {
+            photoCheckIns = photoCheckInMapper.selectFeedForMiniapp(null, categoryId, null, null, size);
+        } else if (rankedIds.isEmpty()) {
+            photoCheckIns = new ArrayList<>();
+        } else {
+            Map<Long, PhotoCheckIn> photoMap = photoCheckInMapper.selectPublishedByIds(rankedIds).stream()
+                    .collect(Collectors.toMap(PhotoCheckIn::getId, photo -> photo, (a, b) -> a));
+            photoCheckIns = new ArrayList<>(size);
+            for (Long id : rankedIds) {
+                PhotoCheckIn photo = photoMap.get(id);
+                if (photo != null) {
+                    photoCheckIns.add(photo);
+                    if (photoCheckIns.size() >= size) {
+                        break;
+                    }
+                }
+            }
+        }
+        
+        List<PhotoCheckInVO> photoCheckInVOs = convertToVOs(photoCheckIns);
+        applyUserInteraction(photoCheckInVOs, userId);
+        return photoCheckInVOs;
+    }
+    
+    /**
+     * 照片打卡列表游标：上一页最后一条的创建时间和ID，对客户端不透明（Base64编码）
+     */
+    private static final class FeedCursor {
+        
+        private final LocalDateTime createTime;
+        
+        private final Long id;
+        
+        private FeedCursor(LocalDateTime createTime, Long id) {
+            this.createTime = createTime;
+            this.id = id;
+        }
+        
+        private String encode() {
+            String value = createTime + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+        }
+        
+        private static FeedCursor decode(String cursor) {
+            try {
+                String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = value.indexOf('|');
+                return new FeedCursor(LocalDateTime.parse(value.substring(0, separator)),
+                        Long.parseLong(value.substring(separator + 1)));
+            } catch (IllegalArgumentException | DateTimeParseException | StringIndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("无效的游标");
+            }
+        }
+    }
+    
 
     /**
      * 点赞照片打卡
@@ -464,47 +618,20 @@ public class PhotoCheckInServiceImpl implements PhotoCheckInService {
         try {
             PhotoCheckIn photo = photoCheckInMapper.selectById(photoCheckInId);
             if (photo != null) {
-                // 检查是否已经点赞
-                com.scenic.entity.user.UserFavorite existingLike = 
-                    userFavoriteMapper.selectByUserAndContent(userId, photoCheckInId, 2);
-                if (existingLike != null) {
+                // 唯一键保证重复点赞只插入一次，插入成功后才累加点赞增量（由定时任务批量写回数据库）
+                if (!photoInteractionService.add(photo, userId, PhotoInteractionService.TYPE_LIKE)) {
                     return Result.success("操作成功", "已点赞");
                 }
+                photo.setLikeCount(currentLikeCount(photo));
                 
-                // 增加点赞数
-                photo.setLikeCount(photo.getLikeCount() + 1);
-                photo.setUpdateTime(LocalDateTime.now());
-                photoCheckInMapper.updateById(photo);
-                
-                // 创建点赞记录
-                com.scenic.entity.user.UserFavorite userLike = new com.scenic.entity.user.UserFavorite();
-                userLike.setUserId(userId);
-                userLike.setContentId(photoCheckInId);
-                userLike.setContentType(2); // 2表示点赞
-                userLike.setVersion(0);
-                userLike.setCreateTime(LocalDateTime.now());
-                userLike.setUpdateTime(LocalDateTime.now());
-                userLike.setCreateBy(userId);
-                userLike.setUpdateBy(userId);
-                userLike.setCategoryId(photo.getCategoryId().intValue()); // 设置分类ID
-                
-                // 插入点赞记录
-                userFavoriteMapper.insert(userLike);
-                
-                // 更新缓存
+                // 更新缓存并清除相关缓存，通过同一个管道发送
                 String cacheKey = PHOTO_CHECK_IN_CACHE_PREFIX + photoCheckInId;
                 PhotoCheckInDTO updatedDTO = convertToDTO(photo);
-                redisTemplate.opsForValue().set(cacheKey, updatedDTO, 1, TimeUnit.HOURS);
+                redisUtil.setAndDelete(cacheKey, updatedDTO, TimeUnit.HOURS.toSeconds(1),
+                        photoListCacheKeys(photo.getCategoryId(), photo.getUserId()));
+                // 列表缓存不含点赞状态，按点赞数的排序在列表缓存过期后更新，无需失效
                 
-                // 清除相关缓存
-                redisTemplate.delete(ALL_PHOTOS_CACHE_KEY);
-                redisTemplate.delete(PHOTOS_BY_CATEGORY_CACHE_PREFIX + photo.getCategoryId());
-                redisTemplate.delete(PHOTOS_BY_USER_ID_CACHE_PREFIX + photo.getUserId());
-                redisTemplate.delete(CHECKIN_CATEGORY_LIST_CACHE_KEY);
-                // 清除分页缓存
-                clearPageCaches();
-                
-                System.out.println("点赞照片打卡后清除缓存完成");
+                log.debug("点赞照片打卡后清除缓存完成");
                 
                 return Result.success("操作成功", "点赞成功");
             }
@@ -517,40 +644,30 @@ public class PhotoCheckInServiceImpl implements PhotoCheckInService {
     /**
      * 取消点赞照片打卡
      * @param photoCheckInId 照片打卡ID
+     * @param userId 用户ID
      * @return 操作结果
      */
     @Override
-    public Result<String> unlikePhotoCheckIn(Long photoCheckInId) {
-        // 注意：当前接口设计存在问题，缺少userId参数
-        // 在实际使用中应该传入userId来确保只能取消自己的点赞
-        // 这里暂时使用默认逻辑，但在实际应用中需要修改接口设计
+    public Result<String> unlikePhotoCheckIn(Long photoCheckInId, Long userId) {
         try {
             PhotoCheckIn photo = photoCheckInMapper.selectById(photoCheckInId);
             if (photo != null) {
-                // 减少点赞数
-                if (photo.getLikeCount() > 0) {
-                    photo.setLikeCount(photo.getLikeCount() - 1);
-                    photo.setUpdateTime(LocalDateTime.now());
-                    photoCheckInMapper.updateById(photo);
+                // 只有删除了当前用户的点赞记录才减少点赞数
+                if (photoInteractionService.remove(photo, userId, PhotoInteractionService.TYPE_LIKE)) {
+                    photo.setLikeCount(currentLikeCount(photo));
                     
-                    // 更新缓存
+                    // 更新缓存并清除相关缓存，通过同一个管道发送
                     String cacheKey = PHOTO_CHECK_IN_CACHE_PREFIX + photoCheckInId;
                     PhotoCheckInDTO updatedDTO = convertToDTO(photo);
-                    redisTemplate.opsForValue().set(cacheKey, updatedDTO, 1, TimeUnit.HOURS);
+                    redisUtil.setAndDelete(cacheKey, updatedDTO, TimeUnit.HOURS.toSeconds(1),
+                            photoListCacheKeys(photo.getCategoryId(), photo.getUserId()));
+                    // 列表缓存不含点赞状态，按点赞数的排序在列表缓存过期后更新，无需失效
                     
-                    // 清除相关缓存
-                    redisTemplate.delete(ALL_PHOTOS_CACHE_KEY);
-                    redisTemplate.delete(PHOTOS_BY_CATEGORY_CACHE_PREFIX + photo.getCategoryId());
-                    redisTemplate.delete(PHOTOS_BY_USER_ID_CACHE_PREFIX + photo.getUserId());
-                    redisTemplate.delete(CHECKIN_CATEGORY_LIST_CACHE_KEY);
-                    // 清除分页缓存
-                    clearPageCaches();
-                    
-                    System.out.println("取消点赞照片打卡后清除缓存完成");
+                    log.debug("取消点赞照片打卡后清除缓存完成");
                     
                     return Result.success("操作成功", "取消点赞成功");
                 } else {
-                    return Result.error("点赞数已为0");
+                    return Result.success("操作成功", "未点赞或已取消点赞");
                 }
             }
             return Result.error("照片不存在");
@@ -574,19 +691,15 @@ public class PhotoCheckInServiceImpl implements PhotoCheckInService {
                 photo.setUpdateTime(LocalDateTime.now());
                 photoCheckInMapper.updateById(photo);
                 
-                // 删除缓存
-                String cacheKey = PHOTO_CHECK_IN_CACHE_PREFIX + photoCheckInId;
-                redisTemplate.delete(cacheKey);
-                
-                // 清除相关缓存
-                redisTemplate.delete(ALL_PHOTOS_CACHE_KEY);
-                redisTemplate.delete(PHOTOS_BY_CATEGORY_CACHE_PREFIX + photo.getCategoryId());
-                redisTemplate.delete(PHOTOS_BY_USER_ID_CACHE_PREFIX + photo.getUserId());
-                redisTemplate.delete(CHECKIN_CATEGORY_LIST_CACHE_KEY);
-                // 清除分页缓存
-                clearPageCaches();
+                // 删除缓存及相关缓存
+                List<String> cacheKeys = photoListCacheKeys(photo.getCategoryId(), photo.getUserId());
+                cacheKeys.add(PHOTO_CHECK_IN_CACHE_PREFIX + photoCheckInId);
+                redisUtil.delete(cacheKeys);
+                // 失效列表缓存，移出热门排行
+                photoFeedCache.invalidate(photo.getCategoryId());
+                photoHotRankingService.remove(photoCheckInId, photo.getCategoryId());
                 
-                System.out.println("删除照片打卡记录后清除缓存完成");
+                log.debug("删除照片打卡记录后清除缓存完成");
                 
                 return Result.success("操作成功", "照片已删除");
             }
@@ -597,6 +710,31 @@ public class PhotoCheckInServiceImpl implements PhotoCheckInService {
     }
     
     
+    /**
+     * 计算照片当前的点赞数：数据库中的点赞数加上尚未写回的增量
+     * @param photo PhotoCheckIn实体
+     * @return 点赞数
+     */
+    private int currentLikeCount(PhotoCheckIn photo) {
+        int likeCount = photo.getLikeCount() != null ? photo.getLikeCount() : 0;
+        Long delta = photoLikeCounterService.getPendingDeltas(java.util.Collections.singletonList(photo.getId())).get(photo.getId());
+        return (int) Math.max(0L, likeCount + (delta != null ? delta : 0L));
+    }
+
+    /**
+     * 照片变更时需要清除的缓存键：全部照片、所属分类、所属用户的照片缓存及分类列表缓存
+     * @param categoryId 分类ID
+     * @param userId 用户ID
+     * @return 可继续追加的缓存键列表
+     */
+    private List<String> photoListCacheKeys(Long categoryId, Long userId) {
+        return new ArrayList<>(Arrays.asList(
+                ALL_PHOTOS_CACHE_KEY,
+                PHOTOS_BY_CATEGORY_CACHE_PREFIX + categoryId,
+                PHOTOS_BY_USER_ID_CACHE_PREFIX + userId,
+                CHECKIN_CATEGORY_LIST_CACHE_KEY));
+    }
+
     /**
      * 将PhotoCheckIn实体转换为PhotoCheckInDTO
      * @param photo PhotoCheckIn实体
@@ -608,23 +746,9 @@ public class PhotoCheckInServiceImpl implements PhotoCheckInService {
         // 特别处理photoId字段，根据photoId获取文件URL
         Long photoId = photo.getPhotoId();
         if (photoId != null) {
-            ResourceFile resourceFile = resourceFileMapper.selectById(photoId);
-            if (resourceFile != null) {
-                try {
-                    // 根据存储桶名称生成对应的预签名URL
-                    String fileUrl;
-                    if ("photo-checkin".equals(resourceFile.getBucketName())) {
-                        // 对于photo-checkin存储桶，使用7天有效期的URL
-                        fileUrl = minioService.getPresignedObjectUrl(resourceFile.getBucketName(), resourceFile.getFileKey(), 7 * 24 * 3600);
-                    } else {
-                        // 对于其他存储桶，使用1小时有效期的URL
-                        fileUrl = minioService.getPresignedObjectUrl(resourceFile.getFileKey(), 3600);
-                    }
-                    dto.setPhotoUrl(fileUrl);
-                } catch (Exception e) {
-                    // 如果获取URL失败，使用文件键作为备用
-                    dto.setPhotoUrl(resourceFile.getFileKey());
-                }
+            String fileUrl = resourceFileUrlResolver.resolveUrl(photoId, ResourceFileUrlResolver.LONG_EXPIRY_SECONDS);
+            if (fileUrl != null) {
+                dto.setPhotoUrl(fileUrl);
             }
         }
         return dto;
@@ -688,122 +812,74 @@ public class PhotoCheckInServiceImpl implements PhotoCheckInService {
      * @return PhotoCheckInVO
      */
     private PhotoCheckInVO convertToVO(PhotoCheckIn photo) {
-        PhotoCheckInVO vo = new PhotoCheckInVO();
-        BeanUtils.copyProperties(photo, vo);
-        // 特别处理photoId字段，根据photoId获取文件路径
-        Long photoId = photo.getPhotoId();
-        if (photoId != null) {
-            ResourceFile resourceFile = resourceFileMapper.selectById(photoId);
-            if (resourceFile != null) {
-                try {
-                    // 根据存储桶名称生成对应的预签名URL
-                    String fileUrl;
-                    if ("photo-checkin".equals(resourceFile.getBucketName())) {
-                        // 对于photo-checkin存储桶，使用7天有效期的URL
-                        fileUrl = minioService.getPresignedObjectUrl(resourceFile.getBucketName(), resourceFile.getFileKey(), 7 * 24 * 3600);
-                    } else {
-                        // 对于其他存储桶，使用1小时有效期的URL
-                        fileUrl = minioService.getPresignedObjectUrl(resourceFile.getFileKey(), 3600);
-                    }
-                    vo.setPhotoPath(fileUrl);
-                } catch (Exception e) {
-                    // 如果获取URL失败，使用文件键作为备用
-                    vo.setPhotoPath(resourceFile.getFileKey());
-                }
-            }
+        return convertToVOs(java.util.Collections.singletonList(photo)).get(0);
+    }
+    
+    /**
+     * 批量将PhotoCheckIn实体转换为PhotoCheckInVO
+     * 照片和头像的文件ID合并后一次解析访问URL（一条查询，已签名的URL走缓存），照片另外解析缩略图和预览图URL
+     * @param photos PhotoCheckIn实体列表
+     * @return PhotoCheckInVO列表
+     */
+    private List<PhotoCheckInVO> convertToVOs(List<PhotoCheckIn> photos) {
+        if (photos == null || photos.isEmpty()) {
+            return new ArrayList<>();
         }
         
-        // 处理用户头像URL
-        String userAvatarStr = photo.getUserAvatar();
-        if (userAvatarStr != null && !userAvatarStr.isEmpty()) {
-            try {
-                // 尝试将userAvatar转换为Long类型的文件ID
-                Long userAvatarFileId = Long.parseLong(userAvatarStr);
-                ResourceFile avatarFile = resourceFileMapper.selectById(userAvatarFileId);
-                if (avatarFile != null) {
-                    try {
-                        // 生成头像URL
-                        String avatarUrl;
-                        if (avatarFile.getBucketName() != null) {
-                            // 使用指定的存储桶名称
-                            avatarUrl = minioService.getPresignedObjectUrl(
-                                avatarFile.getBucketName(),
-                                avatarFile.getFileKey(),
-                                7 * 24 * 3600 // 7天有效期
-                            );
-                        } else {
-                            // 默认使用user-avatars存储桶
-                            avatarUrl = minioService.getPresignedObjectUrl(
-                                "user-avatars",
-                                avatarFile.getFileKey(),
-                                7 * 24 * 3600 // 7天有效期
-                            );
-                        }
-                        vo.setUserAvatarUrl(avatarUrl);
-                    } catch (Exception e) {
-                        // 如果获取URL失败，使用文件键作为备用
-                        vo.setUserAvatarUrl(avatarFile.getFileKey());
-                        System.err.println("获取用户头像URL失败：" + e.getMessage());
-                    }
+        // 收集照片文件ID和头像文件ID
+        List<Long> photoFileIds = new ArrayList<>();
+        List<Long> fileIds = new ArrayList<>();
+        for (PhotoCheckIn photo : photos) {
+            photoFileIds.add(photo.getPhotoId());
+            fileIds.add(photo.getPhotoId());
+            fileIds.add(parseAvatarFileId(photo.getUserAvatar()));
+        }
+        Map<Long, String> urls = resourceFileUrlResolver.resolveUrls(fileIds, ResourceFileUrlResolver.LONG_EXPIRY_SECONDS);
+        Map<Long, String> thumbnailUrls = resourceFileUrlResolver.resolveUrls(photoFileIds,
+                ResourceFileUrlResolver.LONG_EXPIRY_SECONDS, ResourceFileUrlResolver.Variant.THUMBNAIL);
+        Map<Long, String> mediumUrls = resourceFileUrlResolver.resolveUrls(photoFileIds,
+                ResourceFileUrlResolver.LONG_EXPIRY_SECONDS, ResourceFileUrlResolver.Variant.MEDIUM);
+        
+        List<PhotoCheckInVO> photoCheckInVOs = new ArrayList<>(photos.size());
+        for (PhotoCheckIn photo : photos) {
+            PhotoCheckInVO vo = new PhotoCheckInVO();
+            BeanUtils.copyProperties(photo, vo);
+            if (photo.getPhotoId() != null) {
+                vo.setPhotoPath(urls.get(photo.getPhotoId()));
+                vo.setThumbnailUrl(thumbnailUrls.get(photo.getPhotoId()));
+                vo.setMediumUrl(mediumUrls.get(photo.getPhotoId()));
+            }
+            
+            // 处理用户头像URL：文件ID解析为访问URL，非数字的按直接存储的URL使用
+            String userAvatarStr = photo.getUserAvatar();
+            if (userAvatarStr != null && !userAvatarStr.isEmpty()) {
+                Long userAvatarFileId = parseAvatarFileId(userAvatarStr);
+                if (userAvatarFileId != null) {
+                    vo.setUserAvatarUrl(urls.get(userAvatarFileId));
+                } else {
+                    vo.setUserAvatarUrl(userAvatarStr);
                 }
-            } catch (NumberFormatException e) {
-                // 如果userAvatar不是数字，可能是直接存储的URL
-                vo.setUserAvatarUrl(userAvatarStr);
-                System.err.println("用户头像不是有效的文件ID：" + e.getMessage());
             }
+            
+            // 设置分类名称
+            vo.setCategoryName(photo.getCategoryName());
+            photoCheckInVOs.add(vo);
         }
-        
-        // 设置分类名称
-        vo.setCategoryName(photo.getCategoryName());
-        return vo;
+        return photoCheckInVOs;
     }
     
     /**
-     * 将PhotoCheckIn实体转换为PhotoCheckInVO，并包含用户互动状态
-     * @param photo PhotoCheckIn实体
-     * @param userId 用户ID
-     * @return PhotoCheckInVO
+     * 解析头像文件ID，userAvatar不是数字时返回null
      */
-    private PhotoCheckInVO convertToVOWithUserInteraction(PhotoCheckIn photo, Long userId) {
-        PhotoCheckInVO vo = convertToVO(photo);
-        
-        if (userId != null) {
-            // 使用Bloom Filter快速判断用户是否可能有互动记录
-            if (bloomFilterUtil.mightContainUserInteraction(userId, photo.getId())) {
-                // Bloom Filter可能存在，进一步检查缓存或数据库
-                Map<String, Boolean> interactionStatus = userInteractionCacheUtil.getUserInteractionStatus(userId, photo.getId());
-                
-                if (interactionStatus != null) {
-                    // 从缓存获取状态
-                    vo.setIsCollected(interactionStatus.getOrDefault("collected", false));
-                    vo.setIsLiked(interactionStatus.getOrDefault("liked", false));
-                } else {
-                    // 从数据库查询并缓存
-                    UserFavorite collectedFavorite = userFavoriteMapper.selectByUserAndContent(userId, photo.getId(), 1);
-                    UserFavorite likedFavorite = userFavoriteMapper.selectByUserAndContent(userId, photo.getId(), 2);
-                    
-                    boolean isCollected = collectedFavorite != null;
-                    boolean isLiked = likedFavorite != null;
-                    
-                    vo.setIsCollected(isCollected);
-                    vo.setIsLiked(isLiked);
-                    
-                    // 缓存结果
-                    userInteractionCacheUtil.cacheUserInteractionStatus(userId, photo.getId(), isCollected, isLiked);
-                    
-                    // 更新Bloom Filter
-                    if (isCollected || isLiked) {
-                        bloomFilterUtil.addUserInteractionToBloomFilter(userId, photo.getId());
-                    }
-                }
-            } else {
-                // Bloom Filter确定没有互动记录
-                vo.setIsCollected(false);
-                vo.setIsLiked(false);
-            }
+    private Long parseAvatarFileId(String userAvatar) {
+        if (userAvatar == null || userAvatar.isEmpty()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(userAvatar);
+        } catch (NumberFormatException e) {
+            return null;
         }
-        
-        return vo;
     }
     
     /**
@@ -813,109 +889,60 @@ public class PhotoCheckInServiceImpl implements PhotoCheckInService {
      * @return PhotoCheckInVO列表
      */
     private List<PhotoCheckInVO> convertToVOsWithUserInteraction(List<PhotoCheckIn> photos, Long userId) {
-        // 如果 userId 为 null 或照片列表为空，直接返回不包含用户互动状态的 VO 列表
-        if (userId == null || photos == null || photos.isEmpty()) {
-            return photos == null ? new ArrayList<>() : photos.stream().map(this::convertToVO).collect(Collectors.toList());
+        if (photos == null || photos.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<PhotoCheckInVO> photoCheckInVOs = convertToVOs(photos);
+        applyUserInteraction(photoCheckInVOs, userId);
+        return photoCheckInVOs;
+    }
+    
+    /**
+     * 为VO列表叠加用户的收藏、点赞状态
+     * 先用一次HMGET读取用户互动哈希，未命中的照片一次查询数据库后按读取时的版本号回填
+     * @param photoCheckInVOs PhotoCheckInVO列表
+     * @param userId 用户ID（为null时不设置互动状态）
+     */
+    private void applyUserInteraction(List<PhotoCheckInVO> photoCheckInVOs, Long userId) {
+        if (userId == null || photoCheckInVOs == null || photoCheckInVOs.isEmpty()) {
+            return;
         }
         
         // 提取照片ID列表
-        List<Long> photoIds = photos.stream().map(PhotoCheckIn::getId).collect(Collectors.toList());
+        List<Long> photoIds = photoCheckInVOs.stream().map(PhotoCheckInVO::getId).collect(Collectors.toList());
         
-        Map<Long, PhotoCheckInVO> result = new HashMap<>();
+        // 一次读取用户互动哈希中已缓存的标志位及写版本号
+        UserInteractionCacheUtil.CachedFlags cached = userInteractionCacheUtil.getInteractionFlags(userId, photoIds);
+        Map<Long, Integer> flags = cached.getFlags();
         
-        // 先从缓存获取已有的状态
-        Map<Long, Map<String, Boolean>> cachedStatuses = userInteractionCacheUtil.batchGetUserInteractionStatus(userId, photoIds);
-        
-        // 所有未缓存的照片ID都需要查询数据库
+        // 未缓存的照片一次查询数据库，无互动的照片也写入0
         List<Long> needQueryPhotoIds = photoIds.stream()
-            .filter(photoId -> !cachedStatuses.containsKey(photoId))
+            .filter(photoId -> !flags.containsKey(photoId))
+            .distinct()
             .collect(Collectors.toList());
-        
-        // 从数据库批量查询需要查询的照片互动状态
         if (!needQueryPhotoIds.isEmpty()) {
-            List<UserFavorite> userFavorites = userFavoriteMapper.selectByUserAndContentIds(userId, needQueryPhotoIds);
-            
-            // 按照片ID分组
-            Map<Long, List<UserFavorite>> favoritesByPhotoId = userFavorites.stream()
-                .collect(Collectors.groupingBy(UserFavorite::getContentId));
-            
-            // 处理每个需要查询的照片
+            Map<Long, Integer> loaded = new HashMap<>();
             for (Long photoId : needQueryPhotoIds) {
-                PhotoCheckIn photo = photos.stream().filter(p -> p.getId().equals(photoId)).findFirst().orElse(null);
-                if (photo != null) {
-                    List<UserFavorite> favorites = favoritesByPhotoId.getOrDefault(photoId, java.util.Collections.emptyList());
-                    
-                    boolean isCollected = favorites.stream().anyMatch(fav -> Integer.valueOf(1).equals(fav.getContentType()));
-                    boolean isLiked = favorites.stream().anyMatch(fav -> Integer.valueOf(2).equals(fav.getContentType()));
-                    
-                    PhotoCheckInVO vo = convertToVO(photo);
-                    vo.setIsCollected(isCollected);
-                    vo.setIsLiked(isLiked);
-                    result.put(photoId, vo);
-                    
-                    // 缓存结果
-                    userInteractionCacheUtil.cacheUserInteractionStatus(userId, photoId, isCollected, isLiked);
-                    
-                    // 更新Bloom Filter
-                    if (isCollected || isLiked) {
-                        bloomFilterUtil.addUserInteractionToBloomFilter(userId, photoId);
-                    }
+                loaded.put(photoId, 0);
+            }
+            for (UserFavorite favorite : userFavoriteMapper.selectByUserAndContentIds(userId, needQueryPhotoIds)) {
+                if (Integer.valueOf(1).equals(favorite.getContentType())) {
+                    loaded.merge(favorite.getContentId(), UserInteractionCacheUtil.FLAG_COLLECTED, (x, y) -> x | y);
+                } else if (Integer.valueOf(2).equals(favorite.getContentType())) {
+                    loaded.merge(favorite.getContentId(), UserInteractionCacheUtil.FLAG_LIKED, (x, y) -> x | y);
                 }
             }
+            userInteractionCacheUtil.cacheInteractionFlags(userId, loaded, cached.getVersion());
+            flags.putAll(loaded);
         }
         
-        // 处理缓存中的状态
-        cachedStatuses.forEach((photoId, status) -> {
-            PhotoCheckIn photo = photos.stream().filter(p -> p.getId().equals(photoId)).findFirst().orElse(null);
-            if (photo != null) {
-                PhotoCheckInVO vo = convertToVO(photo);
-                vo.setIsCollected(status.getOrDefault("collected", false));
-                vo.setIsLiked(status.getOrDefault("liked", false));
-                result.put(photoId, vo);
-            }
-        });
-        
-        // 按原始顺序返回结果
-        return photos.stream()
-            .map(photo -> result.getOrDefault(photo.getId(), convertToVO(photo)))
-            .collect(Collectors.toList());
-    }
-
-    /**
-     * 生成分页查询缓存键
-     * @param queryDTO 查询条件
-     * @return 缓存键
-     */
-    private String generatePageCacheKey(PhotoCheckInQueryDTO queryDTO) {
-        StringBuilder key = new StringBuilder(PHOTO_CHECK_IN_PAGE_CACHE_PREFIX);
-        key.append(queryDTO.getPageNum()).append(":")
-           .append(queryDTO.getPageSize()).append(":")
-           .append("title:").append(queryDTO.getTitle() != null ? queryDTO.getTitle() : "").append(":")
-           .append("user:").append(queryDTO.getUserName() != null ? queryDTO.getUserName() : "").append(":")
-           .append("category:").append(queryDTO.getCategoryId() != null ? queryDTO.getCategoryId() : "").append(":")
-           .append("createTime:").append(queryDTO.getCreateTime() != null ? queryDTO.getCreateTime().toString() : "");
-        return key.toString();
-    }
-    
-    /**
-     * 清除分页缓存
-     * 使用模式匹配清除所有分页相关的缓存
-     */
-    private void clearPageCaches() {
-        try {
-            // 获取所有匹配的键
-            Set<String> keys = redisTemplate.keys(PHOTO_CHECK_IN_PAGE_CACHE_PREFIX + "*");
-            if (keys != null && !keys.isEmpty()) {
-                // 批量删除匹配的键
-                redisTemplate.delete(keys);
-                System.out.println("已清除" + keys.size() + "个分页缓存");
-            }
-        } catch (Exception e) {
-            System.err.println("清除分页缓存失败：" + e.getMessage());
+        for (PhotoCheckInVO vo : photoCheckInVOs) {
+            Integer flag = flags.get(vo.getId());
+            vo.setIsCollected(UserInteractionCacheUtil.hasFlag(flag, UserInteractionCacheUtil.FLAG_COLLECTED));
+            vo.setIsLiked(UserInteractionCacheUtil.hasFlag(flag, UserInteractionCacheUtil.FLAG_LIKED));
         }
     }
 
-    
     /**
      * 获取打卡分类列表
      * @return 分类列表
@@ -976,8 +1003,8 @@ public class PhotoCheckInServiceImpl implements PhotoCheckInService {
                 // 清除分类列表缓存
                 redisTemplate.delete(CHECKIN_CATEGORY_LIST_CACHE_KEY);
                 
-                // 清除分页缓存（因为分类状态改变可能影响查询结果）
-                clearPageCaches();
+                // 失效该分类的列表缓存（分类状态改变可能影响查询结果）
+                photoFeedCache.invalidate(categoryId);
                 
                 return Result.success("操作成功", "分类删除成功");
             } else {
@@ -1035,8 +1062,7 @@ public class PhotoCheckInServiceImpl implements PhotoCheckInService {
                 // 清除分类列表缓存
                 redisTemplate.delete(CHECKIN_CATEGORY_LIST_CACHE_KEY);
                 
-                // 清除分页缓存
-                clearPageCaches();
+                // 新分类下还没有照片，列表缓存无需失效
                 
                 return Result.success("操作成功", "分类添加成功，ID: " + newCategory.getId());
             } else {
@@ -1103,31 +1129,9 @@ public class PhotoCheckInServiceImpl implements PhotoCheckInService {
                 return Result.error("文件名不能为空");
             }
             
-            // 生成唯一文件名
-            String fileExtension = originalFilename.substring(originalFilename.lastIndexOf("."));
-            String uniqueFilename = java.util.UUID.randomUUID().toString() + fileExtension;
-            
-            // 上传到MinIO的photo-checkin存储桶
-            String fileUrl = minioService.uploadPhotoCheckinFile(photo, uniqueFilename);
-            
-            // 保存文件信息到resource_file表
-            ResourceFile resourceFile = new ResourceFile();
-            resourceFile.setId(idGenerator.nextId()); // 生成雪花ID
-            resourceFile.setFileName(originalFilename);
-            resourceFile.setFileKey(uniqueFilename);
-            resourceFile.setBucketName("photo-checkin"); // MinIO存储桶名称
-            resourceFile.setFileSize(photo.getSize());
-            resourceFile.setMimeType(photo.getContentType());
-            resourceFile.setFileType(1); // 1表示图片
-            resourceFile.setCreateTime(java.time.LocalDateTime.now());
-            resourceFile.setUpdateTime(java.time.LocalDateTime.now());
-            // 使用当前用户信息
+            // 上传到photo-checkin存储桶，内容相同的照片复用已有文件记录
             Long currentUserId = userContextUtil.getCurrentUserId();
-            resourceFile.setCreateBy(currentUserId != null ? currentUserId : 1L);
-            resourceFile.setUpdateBy(currentUserId != null ? currentUserId : 1L);
-            resourceFile.setUploadUserId(currentUserId != null ? currentUserId : 1L);
-            
-            resourceFileMapper.insert(resourceFile);
+            ResourceFile resourceFile = storePhotoCheckinFile(photo, currentUserId != null ? currentUserId : 1L);
             
             // 创建照片打卡记录
             PhotoCheckIn photoCheckIn = new PhotoCheckIn();
@@ -1196,16 +1200,14 @@ public class PhotoCheckInServiceImpl implements PhotoCheckInService {
             
             // 保存到数据库
             photoCheckInMapper.insert(photoCheckIn);
+            photoHotRankingService.recordPublish(photoCheckIn);
             
             // 清除相关缓存
-            redisTemplate.delete(ALL_PHOTOS_CACHE_KEY);
-            redisTemplate.delete(PHOTOS_BY_CATEGORY_CACHE_PREFIX + categoryId);
-            redisTemplate.delete(PHOTOS_BY_USER_ID_CACHE_PREFIX + userId);
-            redisTemplate.delete(CHECKIN_CATEGORY_LIST_CACHE_KEY);
-            // 清除分页缓存
-            clearPageCaches();
+            redisUtil.delete(photoListCacheKeys(categoryId, userId));
+            // 失效列表缓存
+            photoFeedCache.invalidate(categoryId);
             
-            System.out.println("新增照片打卡记录后清除缓存完成");
+            log.debug("新增照片打卡记录后清除缓存完成");
             
             return Result.success("操作成功", "照片打卡记录添加成功，ID: " + photoCheckIn.getId());
         } catch (Exception e) {
@@ -1213,6 +1215,15 @@ public class PhotoCheckInServiceImpl implements PhotoCheckInService {
         }
     }
     
+    /**
+     * 记录更新失败时释放本次上传占用的照片引用
+     */
+    private void releaseStoredPhoto(boolean photoStored, Long photoId) {
+        if (photoStored && photoId != null) {
+            resourceFileService.release(java.util.Collections.singletonList(photoId));
+        }
+    }
+    
     /**
      * 管理后台端 - 更新照片打卡记录
      * @param id 照片打卡记录ID
@@ -1250,7 +1261,9 @@ public class PhotoCheckInServiceImpl implements PhotoCheckInService {
             Long oldCategoryId = existingPhotoCheckIn.getCategoryId();
             
             // 如果上传了新图片，处理图片上传
-            Long photoId = existingPhotoCheckIn.getPhotoId();
+            Long oldPhotoId = existingPhotoCheckIn.getPhotoId();
+            Long photoId = oldPhotoId;
+            boolean photoStored = false;
             if (photo != null && !photo.isEmpty()) {
                 // 上传新文件到MinIO
                 String originalFilename = photo.getOriginalFilename();
@@ -1258,39 +1271,18 @@ public class PhotoCheckInServiceImpl implements PhotoCheckInService {
                     return Result.error("文件名不能为空");
                 }
                 
-                // 生成唯一文件名
-                String fileExtension = originalFilename.substring(originalFilename.lastIndexOf("."));
-                String uniqueFilename = java.util.UUID.randomUUID().toString() + fileExtension;
-                
-                // 上传到MinIO的photo-checkin存储桶
-                String fileUrl = minioService.uploadPhotoCheckinFile(photo, uniqueFilename);
-                
-                // 保存文件信息到resource_file表
-                ResourceFile resourceFile = new ResourceFile();
-                resourceFile.setId(idGenerator.nextId()); // 生成雪花ID
-                resourceFile.setFileName(originalFilename);
-                resourceFile.setFileKey(uniqueFilename);
-                resourceFile.setBucketName("photo-checkin"); // MinIO存储桶名称
-                resourceFile.setFileSize(photo.getSize());
-                resourceFile.setMimeType(photo.getContentType());
-                resourceFile.setFileType(1); // 1表示图片
-                resourceFile.setCreateTime(java.time.LocalDateTime.now());
-                resourceFile.setUpdateTime(java.time.LocalDateTime.now());
-                // 使用当前用户信息
+                // 上传到photo-checkin存储桶，内容相同的照片复用已有文件记录
                 Long currentUserId = userContextUtil.getCurrentUserId();
-                resourceFile.setCreateBy(currentUserId != null ? currentUserId : 1L);
-                resourceFile.setUpdateBy(currentUserId != null ? currentUserId : 1L);
-                resourceFile.setUploadUserId(currentUserId != null ? currentUserId : 1L);
-                
-                resourceFileMapper.insert(resourceFile);
+                ResourceFile resourceFile = storePhotoCheckinFile(photo, currentUserId != null ? currentUserId : 1L);
                 
                 photoId = resourceFile.getId();
+                photoStored = true;
             }
             
             // 更新照片打卡记录
             existingPhotoCheckIn.setTitle(title.trim());
             existingPhotoCheckIn.setCategoryId(categoryId);
-            if (photoId != null && photoId != existingPhotoCheckIn.getPhotoId()) {
+            if (photoId != null && !Objects.equals(photoId, existingPhotoCheckIn.getPhotoId())) {
                 existingPhotoCheckIn.setPhotoId(photoId);
             }
             existingPhotoCheckIn.setUpdateTime(java.time.LocalDateTime.now());
@@ -1343,19 +1335,35 @@ public class PhotoCheckInServiceImpl implements PhotoCheckInService {
             }
             
             // 保存到数据库
-            photoCheckInMapper.updateById(existingPhotoCheckIn);
+            int updated;
+            try {
+                updated = photoCheckInMapper.updateById(existingPhotoCheckIn);
+            } catch (Exception e) {
+                releaseStoredPhoto(photoStored, photoId);
+                throw e;
+            }
+            if (updated <= 0) {
+                releaseStoredPhoto(photoStored, photoId);
+                return Result.error("更新照片打卡记录失败");
+            }
+            // 新照片已占用一个引用（内容相同时复用了原文件记录并增加了引用），释放原照片的引用
+            if (photoStored && oldPhotoId != null) {
+                int deleted = resourceFileService.release(java.util.Collections.singletonList(oldPhotoId));
+                log.debug("释放原照片文件引用完成，照片ID: {}, 删除的文件记录数量: {}", oldPhotoId, deleted);
+            }
             
             // 清除相关缓存
-            redisTemplate.delete(ALL_PHOTOS_CACHE_KEY);
-            redisTemplate.delete(PHOTOS_BY_CATEGORY_CACHE_PREFIX + oldCategoryId);
-            redisTemplate.delete(PHOTOS_BY_CATEGORY_CACHE_PREFIX + categoryId);
-            redisTemplate.delete(PHOTOS_BY_USER_ID_CACHE_PREFIX + userId);
-            redisTemplate.delete(CHECKIN_CATEGORY_LIST_CACHE_KEY);
-            redisTemplate.delete(PHOTO_CHECK_IN_CACHE_PREFIX + id);
-            // 清除分页缓存
-            clearPageCaches();
-            
-            System.out.println("更新照片打卡记录后清除缓存完成");
+            List<String> cacheKeys = photoListCacheKeys(categoryId, userId);
+            cacheKeys.add(PHOTOS_BY_CATEGORY_CACHE_PREFIX + oldCategoryId);
+            cacheKeys.add(PHOTO_CHECK_IN_CACHE_PREFIX + id);
+            redisUtil.delete(cacheKeys);
+            // 失效新旧分类的列表缓存
+            photoFeedCache.invalidate(oldCategoryId, categoryId);
+            if (oldCategoryId != null && !oldCategoryId.equals(categoryId)) {
+                photoHotRankingService.moveCategory(id, oldCategoryId, categoryId);
+            }
+            
+            log.debug("更新照片打卡记录后清除缓存完成");
             
             return Result.success("操作成功", "照片打卡记录更新成功，ID: " + id);
         } catch (Exception e) {
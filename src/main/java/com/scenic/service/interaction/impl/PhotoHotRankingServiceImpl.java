@@ -0,0 +1,312 @@
+package com.scenic.service.interaction.impl;
+
+import com.scenic.config.PhotoHotRankingProperties;
+import com.scenic.entity.interaction.PhotoCheckIn;
+import com.scenic.mapper.interaction.PhotoCheckInMapper;
+import com.scenic.service.interaction.PhotoHotRankingService;
+import com.scenic.utils.RedisUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * 照片打卡热门排行服务实现类
+ * 排行保存在Redis有序集合中：photo:hot:all 为全部照片，photo:hot:c:{categoryId} 为各分类。
+ * 热度按指数衰减，但不定期改写分数：每个事件按 权重 * e^((事件时间 - 基准时间) / tau) 累加，
+ * 所有照片的分数同比例衰减，排序与当前时刻的衰减热度一致。基准时间保存在 photo:hot:epoch，每次重建时前移，避免分数溢出。
+ * 点赞、收藏用Lua脚本原子地累加全局和分类两个排行并截断到最大长度；取前N名为 O(log n + N) 的ZREVRANGE。
+ * 取消点赞、收藏按当前时间扣减，与原事件的贡献不完全相等，误差在下次重建时消除；重建期间的增量会被重建结果覆盖。
+ */
+@Service
+public class PhotoHotRankingServiceImpl implements PhotoHotRankingService {
+
+    private static final Logger log = LoggerFactory.getLogger(PhotoHotRankingServiceImpl.class);
+
+    private static final String EPOCH_KEY = "photo:hot:epoch";
+    private static final String ALL_KEY = "photo:hot:all";
+    private static final String CATEGORY_KEY_PREFIX = "photo:hot:c:";
+    private static final String CATEGORIES_KEY = "photo:hot:categories";
+    private static final String REBUILD_KEY_PREFIX = "photo:hot:rebuild:";
+    private static final String LOCK_KEY = "photo:hot:lock";
+
+    private static final int REBUILD_BATCH_SIZE = 500;
+
+    /**
+     * 累加热度：KEYS[1]=基准时间，KEYS[2]=全部排行，KEYS[3]=分类集合，KEYS[4]=分类排行（可选）；
+     * ARGV[1]=当前秒数，ARGV[2]=权重，ARGV[3]=tau，ARGV[4]=照片ID，ARGV[5]=最大长度，ARGV[6]=分类ID（可选）。
+     * 排行尚未构建时不累加，分数不大于0时移出排行
+     */
+    private static final RedisScript<Long> INCREMENT_SCRIPT = new DefaultRedisScript<>(
+            "local epoch = tonumber(redis.call('GET', KEYS[1])) " +
+            "if not epoch then return 0 end " +
+            "local inc = tonumber(ARGV[2]) * math.exp((tonumber(ARGV[1]) - epoch) / tonumber(ARGV[3])) " +
+            "local max = tonumber(ARGV[5]) " +
+            "local zsets = {KEYS[2]} " +
+            "if KEYS[4] then zsets[2] = KEYS[4]; redis.call('SADD', KEYS[3], ARGV[6]) end " +
+            "for _, key in ipairs(zsets) do " +
+            "  local score = tonumber(redis.call('ZINCRBY', key, inc, ARGV[4])) " +
+            "  if score <= 0 then redis.call('ZREM', key, ARGV[4]) end " +
+            "  if redis.call('ZCARD', key) > max then redis.call('ZREMRANGEBYRANK', key, 0, -max - 1) end " +
+            "end " +
+            "return 1",
+            Long.class);
+
+    /**
+     * 修改分类：KEYS[1]=原分类排行，KEYS[2]=新分类排行，KEYS[3]=分类集合；ARGV[1]=照片ID，ARGV[2]=新分类ID
+     */
+    private static final RedisScript<Long> MOVE_SCRIPT = new DefaultRedisScript<>(
+            "local score = redis.call('ZSCORE', KEYS[1], ARGV[1]) " +
+            "if not score then return 0 end " +
+            "redis.call('ZREM', KEYS[1], ARGV[1]) " +
+            "redis.call('ZADD', KEYS[2], score, ARGV[1]) " +
+            "redis.call('SADD', KEYS[3], ARGV[2]) " +
+            "return 1",
+            Long.class);
+
+    /**
+     * 替换排行：KEYS[1]=基准时间，KEYS[2]=分类集合，其后为 重建键、正式键 交替排列；
+     * ARGV[1]=新基准时间，ARGV[2]=分类排行键前缀，其后为本次重建的分类ID
+     */
+    private static final RedisScript<Long> SWAP_SCRIPT = new DefaultRedisScript<>(
+            "for _, id in ipairs(redis.call('SMEMBERS', KEYS[2])) do redis.call('DEL', ARGV[2] .. id) end " +
+            "redis.call('DEL', KEYS[2]) " +
+            "for i = 3, #KEYS, 2 do " +
+            "  if redis.call('EXISTS', KEYS[i]) == 1 then redis.call('RENAME', KEYS[i], KEYS[i + 1]) " +
+            "  else redis.call('DEL', KEYS[i + 1]) end " +
+            "end " +
+            "for i = 3, #ARGV do redis.call('SADD', KEYS[2], ARGV[i]) end " +
+            "redis.call('SET', KEYS[1], ARGV[1]) " +
+            "return 1",
+            Long.class);
+
+    /**
+     * 仅当锁仍属于本节点时释放
+     */
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end return 0",
+            Long.class);
+
+    @Autowired
+    private PhotoHotRankingProperties rankingProperties;
+
+    @Autowired
+    private PhotoCheckInMapper photoCheckInMapper;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisUtil redisUtil;
+
+    private final String ownerToken = UUID.randomUUID().toString();
+
+    @Override
+    public void recordLike(PhotoCheckIn photo, boolean liked) {
+        double weight = rankingProperties.getLikeWeight();
+        increment(photo, liked ? weight : -weight);
+    }
+
+    @Override
+    public void recordFavorite(PhotoCheckIn photo, boolean favorited) {
+        double weight = rankingProperties.getFavoriteWeight();
+        increment(photo, favorited ? weight : -weight);
+    }
+
+    @Override
+    public void recordPublish(PhotoCheckIn photo) {
+        increment(photo, rankingProperties.getPublishWeight());
+    }
+
+    @Override
+    public void moveCategory(Long photoCheckInId, Long oldCategoryId, Long newCategoryId) {
+        if (photoCheckInId == null || oldCategoryId == null || !redisUtil.isRedisAvailable()) {
+            return;
+        }
+        try {
+            if (newCategoryId == null) {
+                stringRedisTemplate.opsForZSet().remove(CATEGORY_KEY_PREFIX + oldCategoryId, String.valueOf(photoCheckInId));
+                return;
+            }
+            stringRedisTemplate.execute(MOVE_SCRIPT,
+                    Arrays.asList(CATEGORY_KEY_PREFIX + oldCategoryId, CATEGORY_KEY_PREFIX + newCategoryId, CATEGORIES_KEY),
+                    String.valueOf(photoCheckInId), String.valueOf(newCategoryId));
+        } catch (Exception e) {
+            log.warn("移动热门排行分类失败，照片打卡ID: {}, 原因: {}", photoCheckInId, e.getMessage());
+        }
+    }
+
+    @Override
+    public void remove(Long photoCheckInId, Long categoryId) {
+        if (photoCheckInId == null || !redisUtil.isRedisAvailable()) {
+            return;
+        }
+        String member = String.valueOf(photoCheckInId);
+        try {
+            stringRedisTemplate.opsForZSet().remove(ALL_KEY, member);
+            if (categoryId != null) {
+                stringRedisTemplate.opsForZSet().remove(CATEGORY_KEY_PREFIX + categoryId, member);
+            }
+        } catch (Exception e) {
+            log.warn("移出热门排行失败，照片打卡ID: {}, 原因: {}", photoCheckInId, e.getMessage());
+        }
+    }
+
+    @Override
+    public List<Long> getTopPhotoIds(Long categoryId, int limit) {
+        if (limit <= 0 || !redisUtil.isRedisAvailable()) {
+            return null;
+        }
+        try {
+            if (!Boolean.TRUE.equals(stringRedisTemplate.hasKey(EPOCH_KEY))) {
+                return null;
+            }
+            String key = categoryId != null ? CATEGORY_KEY_PREFIX + categoryId : ALL_KEY;
+            Set<String> members = stringRedisTemplate.opsForZSet().reverseRange(key, 0, limit - 1);
+            List<Long> ids = new ArrayList<>();
+            if (members != null) {
+                for (String member : members) {
+                    ids.add(Long.valueOf(member));
+                }
+            }
+            return ids;
+        } catch (Exception e) {
+            log.warn("读取热门排行失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public boolean isBuilt() {
+        try {
+            return redisUtil.isRedisAvailable() && Boolean.TRUE.equals(stringRedisTemplate.hasKey(EPOCH_KEY));
+        } catch (Exception e) {
+            log.warn("读取热门排行状态失败: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public int rebuild() {
+        if (!redisUtil.isRedisAvailable()) {
+            return -1;
+        }
+        Boolean locked = stringRedisTemplate.opsForValue().setIfAbsent(LOCK_KEY, ownerToken,
+                Duration.ofSeconds(rankingProperties.getLockTtlSeconds()));
+        if (!Boolean.TRUE.equals(locked)) {
+            return -1;
+        }
+        try {
+            // 基准时间取重建开始时刻，数据库与Redis使用同一时刻
+            long epochSeconds = System.currentTimeMillis() / 1000;
+            LocalDateTime epochTime = LocalDateTime.now();
+            double halfLifeSeconds = rankingProperties.getHalfLifeHours() * 3600;
+            LocalDateTime since = epochTime.minusSeconds(
+                    (long) (halfLifeSeconds * rankingProperties.getRebuildWindowHalfLives()));
+            List<Map<String, Object>> rows = photoCheckInMapper.selectHotScores(since, epochTime, tauSeconds(),
+                    rankingProperties.getLikeWeight(), rankingProperties.getFavoriteWeight(),
+                    rankingProperties.getPublishWeight());
+
+            // 按排行分组：null为全部照片
+            Map<Long, Set<ZSetOperations.TypedTuple<String>>> scopes = new LinkedHashMap<>();
+            scopes.put(null, new HashSet<>());
+            for (Map<String, Object> row : rows) {
+                double score = ((Number) row.get("score")).doubleValue();
+                if (score <= 0) {
+                    continue;
+                }
+                ZSetOperations.TypedTuple<String> tuple =
+                        new DefaultTypedTuple<>(String.valueOf(row.get("photo_id")), score);
+                scopes.get(null).add(tuple);
+                Object categoryId = row.get("category_id");
+                if (categoryId != null) {
+                    scopes.computeIfAbsent(((Number) categoryId).longValue(), k -> new HashSet<>()).add(tuple);
+                }
+            }
+
+            List<String> keys = new ArrayList<>(Arrays.asList(EPOCH_KEY, CATEGORIES_KEY));
+            List<String> args = new ArrayList<>(Arrays.asList(String.valueOf(epochSeconds), CATEGORY_KEY_PREFIX));
+            for (Map.Entry<Long, Set<ZSetOperations.TypedTuple<String>>> scope : scopes.entrySet()) {
+                Long categoryId = scope.getKey();
+                String rebuildKey = REBUILD_KEY_PREFIX + (categoryId != null ? "c:" + categoryId : "all");
+                writeRebuildKey(rebuildKey, scope.getValue());
+                keys.add(rebuildKey);
+                keys.add(categoryId != null ? CATEGORY_KEY_PREFIX + categoryId : ALL_KEY);
+                if (categoryId != null) {
+                    args.add(String.valueOf(categoryId));
+                }
+            }
+            stringRedisTemplate.execute(SWAP_SCRIPT, keys, args.toArray());
+
+            int size = Math.min(scopes.get(null).size(), rankingProperties.getMaxSize());
+            log.info("热门排行重建完成，照片数: {}, 分类数: {}", size, scopes.size() - 1);
+            return size;
+        } finally {
+            stringRedisTemplate.execute(RELEASE_SCRIPT, Collections.singletonList(LOCK_KEY), ownerToken);
+        }
+    }
+
+    /**
+     * 累加单个事件的热度
+     */
+    private void increment(PhotoCheckIn photo, double weight) {
+        if (photo == null || photo.getId() == null || !redisUtil.isRedisAvailable()) {
+            return;
+        }
+        Long categoryId = photo.getCategoryId();
+        List<String> keys = new ArrayList<>(Arrays.asList(EPOCH_KEY, ALL_KEY, CATEGORIES_KEY));
+        List<String> args = new ArrayList<>(Arrays.asList(
+                String.valueOf(System.currentTimeMillis() / 1000), String.valueOf(weight),
+                String.valueOf(tauSeconds()), String.valueOf(photo.getId()),
+                String.valueOf(rankingProperties.getMaxSize())));
+        if (categoryId != null) {
+            keys.add(CATEGORY_KEY_PREFIX + categoryId);
+            args.add(String.valueOf(categoryId));
+        }
+        try {
+            stringRedisTemplate.execute(INCREMENT_SCRIPT, keys, args.toArray());
+        } catch (Exception e) {
+            // 排行允许短暂不准确，下次重建时修正
+            log.warn("更新热门排行失败，照片打卡ID: {}, 原因: {}", photo.getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * 写入重建中的排行，只保留热度最高的照片
+     */
+    private void writeRebuildKey(String rebuildKey, Set<ZSetOperations.TypedTuple<String>> tuples) {
+        stringRedisTemplate.delete(rebuildKey);
+        List<ZSetOperations.TypedTuple<String>> all = new ArrayList<>(tuples);
+        for (int from = 0; from < all.size(); from += REBUILD_BATCH_SIZE) {
+            List<ZSetOperations.TypedTuple<String>> batch = all.subList(from, Math.min(from + REBUILD_BATCH_SIZE, all.size()));
+            stringRedisTemplate.opsForZSet().add(rebuildKey, new HashSet<>(batch));
+        }
+        if (all.size() > rankingProperties.getMaxSize()) {
+            stringRedisTemplate.opsForZSet().removeRange(rebuildKey, 0, -rankingProperties.getMaxSize() - 1L);
+        }
+    }
+
+    /**
+     * 衰减时间常数（秒）：半衰期 / ln2
+     */
+    private double tauSeconds() {
+        return rankingProperties.getHalfLifeHours() * 3600 / Math.log(2);
+    }
+}
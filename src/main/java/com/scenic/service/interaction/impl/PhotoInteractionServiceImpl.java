@@ -0,0 +1,98 @@
+package com.scenic.service.interaction.impl;
+
+import java.time.LocalDateTime;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.scenic.entity.interaction.PhotoCheckIn;
+import com.scenic.entity.user.UserFavorite;
+import com.scenic.mapper.user.UserFavoriteMapper;
+import com.scenic.service.interaction.PhotoHotRankingService;
+import com.scenic.service.interaction.PhotoInteractionService;
+import com.scenic.service.interaction.PhotoLikeCounterService;
+import com.scenic.utils.UserInteractionCacheUtil;
+
+/**
+ * 照片打卡互动服务实现类
+ * 添加用 INSERT IGNORE、取消用按唯一键的 DELETE，由影响行数判断记录是否变化，不再先查询后写入：
+ * 连续点击或并发请求只有一次能改变记录，点赞增量和热门排行也只累加一次。
+ * 互动状态缓存总是更新为数据库中的最终状态；点赞增量、排行等Redis写入在事务提交后执行，回滚时不会留下增量
+ */
+@Service
+public class PhotoInteractionServiceImpl implements PhotoInteractionService {
+
+    @Autowired
+    private UserFavoriteMapper userFavoriteMapper;
+
+    @Autowired
+    private PhotoLikeCounterService photoLikeCounterService;
+
+    @Autowired
+    private PhotoHotRankingService photoHotRankingService;
+
+    @Autowired
+    private UserInteractionCacheUtil userInteractionCacheUtil;
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public boolean add(PhotoCheckIn photo, Long userId, int contentType) {
+        LocalDateTime now = LocalDateTime.now();
+        UserFavorite userFavorite = new UserFavorite();
+        userFavorite.setUserId(userId);
+        userFavorite.setContentId(photo.getId());
+        userFavorite.setContentType(contentType);
+        userFavorite.setVersion(0);
+        userFavorite.setCreateTime(now);
+        userFavorite.setUpdateTime(now);
+        userFavorite.setCreateBy(userId);
+        userFavorite.setUpdateBy(userId);
+        userFavorite.setCategoryId(photo.getCategoryId() != null ? photo.getCategoryId().intValue() : null);
+
+        boolean changed = userFavoriteMapper.insertIgnore(userFavorite) > 0;
+        afterCommit(photo, userId, contentType, true, changed);
+        return changed;
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public boolean remove(PhotoCheckIn photo, Long userId, int contentType) {
+        boolean changed = userFavoriteMapper.deleteByUserAndContent(userId, photo.getId(), contentType) > 0;
+        afterCommit(photo, userId, contentType, false, changed);
+        return changed;
+    }
+
+    /**
+     * 在当前事务提交后同步Redis中的互动状态、点赞增量和热门排行；没有事务时立即执行
+     */
+    private void afterCommit(PhotoCheckIn photo, Long userId, int contentType, boolean active, boolean changed) {
+        Runnable action = () -> applyChange(photo, userId, contentType, active, changed);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private void applyChange(PhotoCheckIn photo, Long userId, int contentType, boolean active, boolean changed) {
+        int flag = contentType == TYPE_LIKE ? UserInteractionCacheUtil.FLAG_LIKED : UserInteractionCacheUtil.FLAG_COLLECTED;
+        userInteractionCacheUtil.updateInteractionFlag(userId, photo.getId(), flag, active);
+        if (!changed) {
+            return;
+        }
+        if (contentType == TYPE_LIKE) {
+            photoLikeCounterService.increment(photo.getId(), active ? 1 : -1);
+            photoHotRankingService.recordLike(photo, active);
+        } else {
+            photoHotRankingService.recordFavorite(photo, active);
+        }
+    }
+}
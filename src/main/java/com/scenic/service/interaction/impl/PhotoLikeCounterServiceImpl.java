@@ -0,0 +1,317 @@
+package com.scenic.service.interaction.impl;
+
+import com.scenic.config.PhotoLikeCounterProperties;
+import com.scenic.mapper.interaction.PhotoCheckInMapper;
+import com.scenic.mapper.interaction.PhotoLikeFlushBatchMapper;
+import com.scenic.service.interaction.PhotoLikeCounterService;
+import com.scenic.utils.RedisUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 照片打卡点赞计数服务实现类
+ * 点赞增量用HINCRBY累加在Redis哈希 photo:like:pending 中，热门照片的点赞不再争抢数据库行锁。
+ * 写回时先把 pending 原子地改名为 photo:like:flushing，再每次从 flushing 中原子地移出一批字段，
+ * 存入以批次号命名的哈希 photo:like:batch:{批次号}，并把批次号登记到 photo:like:batches。
+ * 每批在一个事务中插入批次记录并执行 UPDATE ... SET like_count = like_count + CASE id ... END，
+ * 提交后删除Redis中的批次。写库失败或节点宕机时批次保留，下次写回先重试这些批次；
+ * 批次记录已存在说明已提交过，只清理Redis，增量不会重复累加。
+ * 读取点赞数时需合并 pending、flushing 及未清理批次中的增量。
+ */
+@Service
+public class PhotoLikeCounterServiceImpl implements PhotoLikeCounterService {
+
+    private static final Logger log = LoggerFactory.getLogger(PhotoLikeCounterServiceImpl.class);
+
+    private static final String PENDING_KEY = "photo:like:pending";
+    private static final String FLUSHING_KEY = "photo:like:flushing";
+    private static final String BATCHES_KEY = "photo:like:batches";
+    private static final String BATCH_KEY_PREFIX = "photo:like:batch:";
+    private static final String LOCK_KEY = "photo:like:flush:lock";
+
+    /**
+     * 批次记录保留时间（小时），需远长于批次在Redis中滞留的时间
+     */
+    private static final long BATCH_RECORD_RETENTION_HOURS = 24L;
+
+    /**
+     * 清理过期批次记录的间隔（毫秒）
+     */
+    private static final long PURGE_INTERVAL_MILLIS = 3600_000L;
+
+    /**
+     * 开始写回：flushing 仍有上次未写完的增量时直接返回1，否则把 pending 改名为 flushing
+     */
+    private static final RedisScript<Long> BEGIN_FLUSH_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[2]) == 1 then return 1 end " +
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end " +
+            "redis.call('RENAME', KEYS[1], KEYS[2]) " +
+            "return 1",
+            Long.class);
+
+    /**
+     * 移出一批：KEYS[1]=flushing，KEYS[2]=批次哈希，KEYS[3]=批次登记集合，ARGV[1]=批大小，ARGV[2]=批次号
+     * 从 flushing 中取出至多ARGV[1]个字段写入批次哈希并删除，返回移出的字段数
+     */
+    private static final RedisScript<Long> TAKE_BATCH_SCRIPT = new DefaultRedisScript<>(
+            "local limit = tonumber(ARGV[1]) " +
+            "local n = 0 " +
+            "local cursor = '0' " +
+            "repeat " +
+            "  local page = redis.call('HSCAN', KEYS[1], cursor, 'COUNT', limit) " +
+            "  cursor = page[1] " +
+            "  local fields = page[2] " +
+            "  for i = 1, #fields, 2 do " +
+            "    if n >= limit then break end " +
+            "    redis.call('HSET', KEYS[2], fields[i], fields[i + 1]) " +
+            "    redis.call('HDEL', KEYS[1], fields[i]) " +
+            "    n = n + 1 " +
+            "  end " +
+            "until n >= limit or cursor == '0' " +
+            "if n > 0 then redis.call('SADD', KEYS[3], ARGV[2]) end " +
+            "return n",
+            Long.class);
+
+    /**
+     * 读取增量：KEYS[1]=pending，KEYS[2]=flushing，KEYS[3]=批次登记集合，ARGV[1]=批次哈希前缀，其余ARGV为照片ID
+     * 返回每个照片在 pending、flushing 和未清理批次中的增量之和
+     */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> PENDING_DELTAS_SCRIPT = new DefaultRedisScript<>(
+            "local fields = {} " +
+            "for i = 2, #ARGV do fields[i - 1] = ARGV[i] end " +
+            "local result = {} " +
+            "for i = 1, #fields do result[i] = 0 end " +
+            "local sources = {KEYS[1], KEYS[2]} " +
+            "for _, batchId in ipairs(redis.call('SMEMBERS', KEYS[3])) do " +
+            "  sources[#sources + 1] = ARGV[1] .. batchId " +
+            "end " +
+            "for _, key in ipairs(sources) do " +
+            "  local values = redis.call('HMGET', key, unpack(fields)) " +
+            "  for i = 1, #fields do result[i] = result[i] + (tonumber(values[i]) or 0) end " +
+            "end " +
+            "return result",
+            List.class);
+
+    /**
+     * 仅当锁仍属于本节点时续期
+     */
+    private static final RedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('EXPIRE', KEYS[1], ARGV[2]) end return 0",
+            Long.class);
+
+    /**
+     * 仅当锁仍属于本节点时释放
+     */
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end return 0",
+            Long.class);
+
+    @Autowired
+    private PhotoLikeCounterProperties counterProperties;
+
+    @Autowired
+    private PhotoCheckInMapper photoCheckInMapper;
+
+    @Autowired
+    private PhotoLikeFlushBatchMapper photoLikeFlushBatchMapper;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisUtil redisUtil;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    private final String ownerToken = UUID.randomUUID().toString();
+
+    private final AtomicLong lastPurgeMillis = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public void increment(Long photoCheckInId, long delta) {
+        if (photoCheckInId == null || delta == 0) {
+            return;
+        }
+        if (redisUtil.isRedisAvailable()) {
+            try {
+                stringRedisTemplate.opsForHash().increment(PENDING_KEY, String.valueOf(photoCheckInId), delta);
+                return;
+            } catch (Exception e) {
+                log.warn("累加点赞增量失败，直接写库，照片打卡ID: {}", photoCheckInId);
+            }
+        }
+        // Redis不可用时退回单条增量更新
+        photoCheckInMapper.addLikeCounts(Collections.singletonMap(photoCheckInId, delta), LocalDateTime.now());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<Long, Long> getPendingDeltas(Collection<Long> photoCheckInIds) {
+        if (photoCheckInIds == null || photoCheckInIds.isEmpty() || !redisUtil.isRedisAvailable()) {
+            return Collections.emptyMap();
+        }
+        List<Long> ids = new ArrayList<>(photoCheckInIds);
+        List<Object> args = new ArrayList<>(ids.size() + 1);
+        args.add(BATCH_KEY_PREFIX);
+        ids.forEach(id -> args.add(String.valueOf(id)));
+        try {
+            List<Long> deltas = stringRedisTemplate.execute(PENDING_DELTAS_SCRIPT,
+                    Arrays.asList(PENDING_KEY, FLUSHING_KEY, BATCHES_KEY), args.toArray());
+            Map<Long, Long> result = new HashMap<>();
+            for (int i = 0; deltas != null && i < ids.size(); i++) {
+                Long delta = deltas.get(i);
+                if (delta != null && delta != 0L) {
+                    result.put(ids.get(i), delta);
+                }
+            }
+            return result;
+        } catch (Exception e) {
+            log.warn("读取点赞增量失败: {}", e.getMessage());
+            return Collections.emptyMap();
+        }
+    }
+
+    @Override
+    public int flush() {
+        if (!redisUtil.isRedisAvailable()) {
+            return 0;
+        }
+        Boolean locked = stringRedisTemplate.opsForValue().setIfAbsent(LOCK_KEY, ownerToken,
+                Duration.ofSeconds(counterProperties.getLockTtlSeconds()));
+        if (!Boolean.TRUE.equals(locked)) {
+            return 0;
+        }
+        try {
+            int flushed = 0;
+
+            // 1. 先重试上次未清理的批次（写库失败或清理前宕机）
+            Set<String> leftover = stringRedisTemplate.opsForSet().members(BATCHES_KEY);
+            if (leftover != null) {
+                for (String batchId : leftover) {
+                    if (!renewLock()) {
+                        return flushed;
+                    }
+                    flushed += applyBatch(batchId);
+                }
+            }
+
+            // 2. 把新的增量分批移出并写回
+            Long started = stringRedisTemplate.execute(BEGIN_FLUSH_SCRIPT, Arrays.asList(PENDING_KEY, FLUSHING_KEY));
+            if (started != null && started != 0L) {
+                while (renewLock()) {
+                    String batchId = UUID.randomUUID().toString();
+                    Long taken = stringRedisTemplate.execute(TAKE_BATCH_SCRIPT,
+                            Arrays.asList(FLUSHING_KEY, BATCH_KEY_PREFIX + batchId, BATCHES_KEY),
+                            String.valueOf(counterProperties.getBatchSize()), batchId);
+                    if (taken == null || taken == 0L) {
+                        break;
+                    }
+                    flushed += applyBatch(batchId);
+                }
+            }
+
+            purgeBatchRecords();
+            log.debug("点赞增量写回完成，照片数: {}", flushed);
+            return flushed;
+        } finally {
+            stringRedisTemplate.execute(RELEASE_SCRIPT, Collections.singletonList(LOCK_KEY), ownerToken);
+        }
+    }
+
+    /**
+     * 在一个事务中登记批次并写回增量，提交后删除Redis中的批次
+     * 批次记录已存在说明此前已提交，只删除Redis中的批次；写库失败时批次保留，异常抛给调用方
+     * @param batchId 批次号
+     * @return 本次写入数据库的照片数
+     */
+    private int applyBatch(String batchId) {
+        String batchKey = BATCH_KEY_PREFIX + batchId;
+        Map<Object, Object> entries = stringRedisTemplate.opsForHash().entries(batchKey);
+        Map<Long, Long> deltas = new LinkedHashMap<>();
+        for (Map.Entry<Object, Object> entry : entries.entrySet()) {
+            long delta = Long.parseLong(String.valueOf(entry.getValue()));
+            if (delta != 0L) {
+                deltas.put(Long.valueOf(String.valueOf(entry.getKey())), delta);
+            }
+        }
+
+        Integer applied = 0;
+        if (!deltas.isEmpty()) {
+            applied = transactionTemplate.execute(status -> {
+                if (photoLikeFlushBatchMapper.insertIgnore(batchId, deltas.size()) == 0) {
+                    log.info("点赞增量批次已写回过，跳过，批次号: {}", batchId);
+                    return 0;
+                }
+                photoCheckInMapper.addLikeCounts(deltas, LocalDateTime.now());
+                return deltas.size();
+            });
+        }
+
+        stringRedisTemplate.delete(batchKey);
+        stringRedisTemplate.opsForSet().remove(BATCHES_KEY, batchId);
+        return applied != null ? applied : 0;
+    }
+
+    /**
+     * 续期写回锁，锁已被其他节点持有时返回false，本节点停止写回
+     */
+    private boolean renewLock() {
+        Long renewed = stringRedisTemplate.execute(RENEW_SCRIPT, Collections.singletonList(LOCK_KEY),
+                ownerToken, String.valueOf(counterProperties.getLockTtlSeconds()));
+        if (renewed == null || renewed == 0L) {
+            log.warn("点赞增量写回锁已失效，停止本次写回");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 定期删除过期的批次记录
+     */
+    private void purgeBatchRecords() {
+        long now = System.currentTimeMillis();
+        long last = lastPurgeMillis.get();
+        if (now - last < PURGE_INTERVAL_MILLIS || !lastPurgeMillis.compareAndSet(last, now)) {
+            return;
+        }
+        try {
+            int deleted = photoLikeFlushBatchMapper.deleteBefore(LocalDateTime.now().minusHours(BATCH_RECORD_RETENTION_HOURS));
+            if (deleted > 0) {
+                log.debug("清理点赞增量写回批次记录: {}", deleted);
+            }
+        } catch (Exception e) {
+            log.warn("清理点赞增量写回批次记录失败: {}", e.getMessage());
+        }
+    }
+}
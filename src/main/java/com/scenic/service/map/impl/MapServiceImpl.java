@@ -19,6 +19,7 @@ import com.scenic.mapper.map.GuideRouteMapper;
 import com.scenic.mapper.map.RouteNodeMapper;
 import com.scenic.mapper.map.ScenicSpotMapper;
 import com.scenic.service.map.MapService;
+import com.scenic.utils.CursorScanner;
 
 /**
  * 地图导览服务实现类
@@ -35,6 +36,9 @@ public class MapServiceImpl implements MapService {
     @Autowired
     private RouteNodeMapper routeNodeMapper;
     
+    @Autowired
+    private CursorScanner cursorScanner;
+    
     /**
      * 获取所有启用的景点信息
      * @return 景点列表
@@ -42,16 +46,8 @@ public class MapServiceImpl implements MapService {
     @Override
     public Result<List<ScenicSpotDTO>> getAllScenicSpots() {
         try {
-            List<ScenicSpot> scenicSpots = scenicSpotMapper.selectList(0, 1000);
-            // 过滤出启用的景点
-            List<ScenicSpot> enabledScenicSpots = scenicSpots.stream()
-                    .filter(ScenicSpot::getEnabled)
-                    .collect(Collectors.toList());
-            
-            // 转换为DTO
-            List<ScenicSpotDTO> scenicSpotDTOs = enabledScenicSpots.stream()
-                    .map(this::convertToScenicSpotDTO)
-                    .collect(Collectors.toList());
+            // 流式读取启用的景点并逐条转换为DTO
+            List<ScenicSpotDTO> scenicSpotDTOs = cursorScanner.map(scenicSpotMapper::scanEnabled, CursorScanner.MAX_LIST_ROWS, this::convertToScenicSpotDTO);
             
             return Result.success(scenicSpotDTOs);
         } catch (Exception e) {
@@ -67,16 +63,8 @@ public class MapServiceImpl implements MapService {
     @Override
     public Result<List<ScenicSpotDTO>> getScenicSpotsByCategory(String category) {
         try {
-            List<ScenicSpot> scenicSpots = scenicSpotMapper.selectByCategory(category, 0, 1000);
-            // 过滤出启用的景点
-            List<ScenicSpot> enabledScenicSpots = scenicSpots.stream()
-                    .filter(ScenicSpot::getEnabled)
-                    .collect(Collectors.toList());
-            
-            // 转换为DTO
-            List<ScenicSpotDTO> scenicSpotDTOs = enabledScenicSpots.stream()
-                    .map(this::convertToScenicSpotDTO)
-                    .collect(Collectors.toList());
+            // 流式读取启用的景点并逐条转换为DTO
+            List<ScenicSpotDTO> scenicSpotDTOs = cursorScanner.map(limit -> scenicSpotMapper.scanByCategory(category, limit), CursorScanner.MAX_LIST_ROWS, this::convertToScenicSpotDTO);
             
             return Result.success(scenicSpotDTOs);
         } catch (Exception e) {
@@ -91,16 +79,8 @@ public class MapServiceImpl implements MapService {
     @Override
     public Result<List<GuideRouteDTO>> getAllGuideRoutes() {
         try {
-            List<GuideRoute> guideRoutes = guideRouteMapper.selectList(0, 1000);
-            // 过滤出启用的路线
-            List<GuideRoute> enabledGuideRoutes = guideRoutes.stream()
-                    .filter(GuideRoute::getEnabled)
-                    .collect(Collectors.toList());
-            
-            // 转换为DTO
-            List<GuideRouteDTO> guideRouteDTOs = enabledGuideRoutes.stream()
-                    .map(this::convertToGuideRouteDTO)
-                    .collect(Collectors.toList());
+            // 流式读取启用的路线并逐条转换为DTO
+            List<GuideRouteDTO> guideRouteDTOs = cursorScanner.map(guideRouteMapper::scanEnabled, CursorScanner.MAX_LIST_ROWS, this::convertToGuideRouteDTO);
             
             return Result.success(guideRouteDTOs);
         } catch (Exception e) {
@@ -116,16 +96,8 @@ public class MapServiceImpl implements MapService {
     @Override
     public Result<List<GuideRouteDTO>> getGuideRoutesByCategory(String category) {
         try {
-            List<GuideRoute> guideRoutes = guideRouteMapper.selectByCategory(category, 0, 1000);
-            // 过滤出启用的路线
-            List<GuideRoute> enabledGuideRoutes = guideRoutes.stream()
-                    .filter(GuideRoute::getEnabled)
-                    .collect(Collectors.toList());
-            
-            // 转换为DTO
-            List<GuideRouteDTO> guideRouteDTOs = enabledGuideRoutes.stream()
-                    .map(this::convertToGuideRouteDTO)
-                    .collect(Collectors.toList());
+            // 流式读取启用的路线并逐条转换为DTO
+            List<GuideRouteDTO> guideRouteDTOs = cursorScanner.map(limit -> guideRouteMapper.scanByCategory(category, limit), CursorScanner.MAX_LIST_ROWS, this::convertToGuideRouteDTO);
             
             return Result.success(guideRouteDTOs);
         } catch (Exception e) {
@@ -166,12 +138,8 @@ public class MapServiceImpl implements MapService {
     @Override
     public Result<List<ScenicSpotDTO>> getAllScenicSpotsForAdmin() {
         try {
-            List<ScenicSpot> scenicSpots = scenicSpotMapper.selectList(0, 1000);
-            
-            // 转换为DTO
-            List<ScenicSpotDTO> scenicSpotDTOs = scenicSpots.stream()
-                    .map(this::convertToScenicSpotDTO)
-                    .collect(Collectors.toList());
+            // 流式读取并逐条转换为DTO
+            List<ScenicSpotDTO> scenicSpotDTOs = cursorScanner.map(scenicSpotMapper::scanAll, CursorScanner.MAX_LIST_ROWS, this::convertToScenicSpotDTO);
             
             return Result.success(scenicSpotDTOs);
         } catch (Exception e) {
@@ -228,12 +196,8 @@ public class MapServiceImpl implements MapService {
     @Override
     public Result<List<GuideRouteDTO>> getAllGuideRoutesForAdmin() {
         try {
-            List<GuideRoute> guideRoutes = guideRouteMapper.selectList(0, 1000);
-            
-            // 转换为DTO
-            List<GuideRouteDTO> guideRouteDTOs = guideRoutes.stream()
-                    .map(this::convertToGuideRouteDTO)
-                    .collect(Collectors.toList());
+            // 流式读取并逐条转换为DTO
+            List<GuideRouteDTO> guideRouteDTOs = cursorScanner.map(guideRouteMapper::scanAll, CursorScanner.MAX_LIST_ROWS, this::convertToGuideRouteDTO);
             
             return Result.success(guideRouteDTOs);
         } catch (Exception e) {
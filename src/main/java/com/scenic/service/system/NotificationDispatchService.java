@@ -0,0 +1,18 @@
+package com.scenic.service.system;
+
+import com.scenic.entity.system.Notification;
+
+/**
+ * 全员通知分发服务接口
+ * 按用户ID分批加载用户，在有界线程池中按渠道限速发送，并按批记录断点
+ */
+public interface NotificationDispatchService {
+
+    /**
+     * 提交一条全员通知进行后台分发
+     * 同一通知正在分发（本节点或其他节点）或已不是待发送状态时不会重复提交；发送完成后更新通知的发送状态
+     * @param notification 通知实体
+     * @return 是否提交成功
+     */
+    boolean submit(Notification notification);
+}
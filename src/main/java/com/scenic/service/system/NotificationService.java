@@ -4,6 +4,7 @@ import com.scenic.common.dto.PageResult;
 import com.scenic.common.dto.Result;
 import com.scenic.dto.system.NotificationDTO;
 import com.scenic.entity.system.Notification;
+import com.scenic.entity.user.User;
 
 import java.util.List;
 
@@ -65,4 +66,12 @@ public interface NotificationService {
      * @return 发送结果
      */
     Result<String> sendNotificationByChannel(Notification notification);
+    
+    /**
+     * 根据渠道发送通知给已加载的用户
+     * @param notification 通知实体
+     * @param user 接收用户
+     * @return 发送结果
+     */
+    Result<String> sendNotificationByChannel(Notification notification, User user);
 }
@@ -0,0 +1,297 @@
+package com.scenic.service.system.impl;
+
+import com.google.common.util.concurrent.RateLimiter;
+import com.scenic.config.NotificationDispatchProperties;
+import com.scenic.entity.system.Notification;
+import com.scenic.entity.user.User;
+import com.scenic.mapper.system.NotificationMapper;
+import com.scenic.mapper.user.UserMapper;
+import com.scenic.service.system.NotificationDispatchService;
+import com.scenic.service.system.NotificationService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 全员通知分发服务实现类
+ * 每条通知由一个分发线程按用户ID分批加载用户，每批在共享的有界发送线程池中并发发送，
+ * 各渠道使用独立的限速器。每批全部完成后把最后一个用户ID写入Redis断点，
+ * 进程重启或节点宕机后从断点继续（断点所在批次可能重复发送，为至少一次语义）。
+ * 分发锁获取后重新读取发送状态，已发送完成的通知不会被再次分发。
+ */
+@Service
+public class NotificationDispatchServiceImpl implements NotificationDispatchService {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificationDispatchServiceImpl.class);
+
+    private static final String LOCK_KEY_PREFIX = "notification:dispatch:lock:";
+    private static final String CHECKPOINT_KEY_PREFIX = "notification:dispatch:checkpoint:";
+
+    /**
+     * 仅当锁仍属于本节点时续期
+     */
+    private static final RedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('EXPIRE', KEYS[1], ARGV[2]) end return 0",
+            Long.class);
+
+    /**
+     * 仅当锁仍属于本节点时释放
+     */
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end return 0",
+            Long.class);
+
+    @Autowired
+    private NotificationDispatchProperties dispatchProperties;
+
+    @Autowired
+    private NotificationMapper notificationMapper;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private UserMapper userMapper;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    private final String ownerToken = UUID.randomUUID().toString();
+
+    private final Map<String, RateLimiter> rateLimiters = new ConcurrentHashMap<>();
+
+    private ThreadPoolExecutor dispatchers;
+
+    private ThreadPoolExecutor senders;
+
+    private volatile boolean running;
+
+    /**
+     * 创建分发线程池和发送线程池
+     */
+    @PostConstruct
+    public void start() {
+        AtomicInteger dispatcherIndex = new AtomicInteger();
+        dispatchers = new ThreadPoolExecutor(
+                dispatchProperties.getConcurrentNotifications(), dispatchProperties.getConcurrentNotifications(),
+                0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(dispatchProperties.getConcurrentNotifications()),
+                r -> {
+                    Thread thread = new Thread(r, "notification-dispatcher-" + dispatcherIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        // 队列满时由分发线程自己发送，形成背压
+        AtomicInteger senderIndex = new AtomicInteger();
+        senders = new ThreadPoolExecutor(
+                dispatchProperties.getSenderThreads(), dispatchProperties.getSenderThreads(),
+                0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(dispatchProperties.getChunkSize()),
+                r -> {
+                    Thread thread = new Thread(r, "notification-sender-" + senderIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        running = true;
+    }
+
+    /**
+     * 停止分发，正在处理的批次完成后退出，剩余用户由断点续发
+     */
+    @PreDestroy
+    public void stop() {
+        running = false;
+        dispatchers.shutdown();
+        try {
+            if (!dispatchers.awaitTermination(30, TimeUnit.SECONDS)) {
+                log.warn("通知分发线程未能在30秒内退出");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        senders.shutdown();
+    }
+
+    @Override
+    public boolean submit(Notification notification) {
+        if (!running || notification.getId() == null) {
+            return false;
+        }
+        String lockKey = LOCK_KEY_PREFIX + notification.getId();
+        Boolean locked;
+        try {
+            locked = stringRedisTemplate.opsForValue().setIfAbsent(lockKey, ownerToken,
+                    Duration.ofSeconds(dispatchProperties.getLockTtlSeconds()));
+        } catch (Exception e) {
+            // 断点和分发锁依赖Redis，不可用时留待下次执行
+            log.warn("Redis不可用，通知ID {} 暂不分发: {}", notification.getId(), e.getMessage());
+            return false;
+        }
+        if (!Boolean.TRUE.equals(locked)) {
+            log.debug("通知ID {} 正在分发中，跳过", notification.getId());
+            return false;
+        }
+        // 调用方在加锁前读取的状态可能已过时：其他节点可能刚发送完并释放了锁，加锁后重新读取
+        Notification current;
+        try {
+            current = notificationMapper.selectById(notification.getId());
+        } catch (Exception e) {
+            log.warn("读取通知发送状态失败，通知ID {} 暂不分发: {}", notification.getId(), e.getMessage());
+            releaseLock(notification.getId());
+            return false;
+        }
+        if (current == null || current.getSendStatus() == null || current.getSendStatus() != 0) {
+            log.debug("通知ID {} 已不是待发送状态，跳过", notification.getId());
+            releaseLock(notification.getId());
+            return false;
+        }
+        try {
+            dispatchers.execute(() -> dispatch(current));
+            return true;
+        } catch (RejectedExecutionException e) {
+            log.info("同时分发的通知数已达上限，通知ID {} 留待下次执行", notification.getId());
+            releaseLock(notification.getId());
+            return false;
+        }
+    }
+
+    /**
+     * 分批发送一条全员通知
+     * @param notification 通知实体
+     */
+    private void dispatch(Notification notification) {
+        Long notificationId = notification.getId();
+        String checkpointKey = CHECKPOINT_KEY_PREFIX + notificationId;
+        RateLimiter rateLimiter = rateLimiters.computeIfAbsent(String.valueOf(notification.getChannel()),
+                channel -> RateLimiter.create(dispatchProperties.getRateLimit(channel)));
+
+        try {
+            long lastId = loadCheckpoint(checkpointKey);
+            if (lastId > 0) {
+                log.info("通知ID {} 从断点继续发送，上次发送到用户ID: {}", notificationId, lastId);
+            } else {
+                log.info("开始发送通知给所有用户，通知ID: {}, 渠道: {}", notificationId, notification.getChannel());
+            }
+
+            long start = System.currentTimeMillis();
+            int successCount = 0;
+            int failCount = 0;
+            while (running) {
+                List<User> users = userMapper.selectActiveUsersAfter(lastId, dispatchProperties.getChunkSize());
+                if (users.isEmpty()) {
+                    break;
+                }
+
+                List<CompletableFuture<Boolean>> futures = new ArrayList<>(users.size());
+                for (User user : users) {
+                    futures.add(CompletableFuture.supplyAsync(() -> sendToUser(notification, user, rateLimiter), senders));
+                }
+                for (CompletableFuture<Boolean> future : futures) {
+                    if (future.join()) {
+                        successCount++;
+                    } else {
+                        failCount++;
+                    }
+                }
+
+                lastId = users.get(users.size() - 1).getId();
+                // 锁已过期并可能被其他节点接管时停止发送，不写断点也不标记发送完成，由持锁节点继续
+                if (!renewLock(notificationId)) {
+                    log.warn("通知ID {} 分发锁已失效，停止发送，已发送到用户ID: {}", notificationId, lastId);
+                    return;
+                }
+                stringRedisTemplate.opsForValue().set(checkpointKey, String.valueOf(lastId),
+                        Duration.ofSeconds(dispatchProperties.getCheckpointTtlSeconds()));
+                log.debug("通知ID {} 批次发送完成，批大小: {}, 断点用户ID: {}", notificationId, users.size(), lastId);
+            }
+
+            if (!running) {
+                log.info("应用关闭，通知ID {} 暂停发送，断点用户ID: {}", notificationId, lastId);
+                return;
+            }
+
+            notification.setSendStatus(1);
+            notification.setSendTime(LocalDateTime.now());
+            notification.setUpdateTime(LocalDateTime.now());
+            notificationMapper.update(notification);
+            stringRedisTemplate.delete(checkpointKey);
+            log.info("通知ID {} 发送完成，成功: {}, 失败: {}, 耗时: {}ms",
+                    notificationId, successCount, failCount, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("通知ID {} 发送失败: {}", notificationId, e.getMessage(), e);
+            notification.setSendStatus(2);
+            notification.setUpdateTime(LocalDateTime.now());
+            notificationMapper.update(notification);
+        } finally {
+            releaseLock(notificationId);
+        }
+    }
+
+    /**
+     * 限速后发送给单个用户
+     * @return 是否发送成功
+     */
+    private boolean sendToUser(Notification notification, User user, RateLimiter rateLimiter) {
+        try {
+            rateLimiter.acquire();
+            Notification userNotification = new Notification();
+            userNotification.setTitle(notification.getTitle());
+            userNotification.setContent(notification.getContent());
+            userNotification.setChannel(notification.getChannel());
+            userNotification.setReceiverId(user.getId());
+            userNotification.setReceiverType("user");
+            userNotification.setSendStatus(0);
+            userNotification.setCreateTime(LocalDateTime.now());
+            userNotification.setUpdateTime(LocalDateTime.now());
+            return notificationService.sendNotificationByChannel(userNotification, user).getCode() == 200;
+        } catch (Exception e) {
+            log.error("向用户ID {} 发送通知失败: {}", user.getId(), e.getMessage());
+            return false;
+        }
+    }
+
+    private long loadCheckpoint(String checkpointKey) {
+        String value = stringRedisTemplate.opsForValue().get(checkpointKey);
+        return value != null ? Long.parseLong(value) : 0L;
+    }
+
+    /**
+     * 续期分发锁
+     * @return 锁仍属于本节点并已续期时返回true
+     */
+    private boolean renewLock(Long notificationId) {
+        Long renewed = stringRedisTemplate.execute(RENEW_SCRIPT, Collections.singletonList(LOCK_KEY_PREFIX + notificationId),
+                ownerToken, String.valueOf(dispatchProperties.getLockTtlSeconds()));
+        return renewed != null && renewed == 1L;
+    }
+
+    private void releaseLock(Long notificationId) {
+        try {
+            stringRedisTemplate.execute(RELEASE_SCRIPT, Collections.singletonList(LOCK_KEY_PREFIX + notificationId), ownerToken);
+        } catch (Exception e) {
+            log.warn("释放通知分发锁失败，通知ID: {}", notificationId);
+        }
+    }
+}
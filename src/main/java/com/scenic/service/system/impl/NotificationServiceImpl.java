@@ -6,6 +6,7 @@ import com.scenic.common.dto.PageResult;
 import com.scenic.common.dto.Result;
 import com.scenic.dto.system.NotificationDTO;
 import com.scenic.entity.system.Notification;
+import com.scenic.entity.user.User;
 import com.scenic.mapper.system.NotificationMapper;
 import com.scenic.mapper.user.UserMapper;
 import com.scenic.service.system.NotificationService;
@@ -218,21 +219,38 @@ public class NotificationServiceImpl implements NotificationService {
      */
     @Override
     public Result<String> sendNotificationByChannel(Notification notification) {
+        // 获取接收人信息
+        Long receiverId = notification.getReceiverId();
+        if (receiverId == null) {
+            return Result.error("接收人ID不能为空");
+        }
+        User user = userMapper.selectById(receiverId);
+        return sendNotificationByChannel(notification, user);
+    }
+    
+    /**
+     * 根据渠道发送通知（接收用户已加载，批量发送时避免逐个查询用户）
+     * @param notification 通知实体
+     * @param user 接收用户
+     * @return 发送结果
+     */
+    @Override
+    public Result<String> sendNotificationByChannel(Notification notification, User user) {
         try {
             // 根据不同的渠道调用不同的发送接口
             switch (notification.getChannel()) {
                 case "短信":
                     // 调用短信发送接口
-                    return sendSmsNotification(notification);
+                    return sendSmsNotification(notification, user);
                 case "邮件":
                     // 调用邮件发送接口
-                    return sendEmailNotification(notification);
+                    return sendEmailNotification(notification, user);
                 case "小程序":
                     // 调用小程序推送接口
-                    return sendMiniappNotification(notification);
+                    return sendMiniappNotification(notification, user);
                 case "服务号":
                     // 调用服务号推送接口
-                    return sendServiceNotification(notification);
+                    return sendServiceNotification(notification, user);
                 default:
                     return Result.error("不支持的通知渠道");
             }
@@ -248,18 +266,14 @@ public class NotificationServiceImpl implements NotificationService {
     /**
      * 发送短信通知
      * @param notification 通知实体
+     * @param user 接收用户
      * @return 发送结果
      */
-    private Result<String> sendSmsNotification(Notification notification) {
+    private Result<String> sendSmsNotification(Notification notification, User user) {
         try {
-            // 获取接收人信息
             Long receiverId = notification.getReceiverId();
-            if (receiverId == null) {
-                return Result.error("接收人ID不能为空");
-            }
             
-            // 查询用户手机号
-            com.scenic.entity.user.User user = userMapper.selectById(receiverId);
+            // 校验用户手机号
             if (user == null || user.getPhone() == null || user.getPhone().isEmpty()) {
                 return Result.error("用户不存在或未绑定手机号");
             }
@@ -283,18 +297,14 @@ public class NotificationServiceImpl implements NotificationService {
     /**
      * 发送邮件通知
      * @param notification 通知实体
+     * @param user 接收用户
      * @return 发送结果
      */
-    private Result<String> sendEmailNotification(Notification notification) {
+    private Result<String> sendEmailNotification(Notification notification, User user) {
         try {
-            // 获取接收人信息
             Long receiverId = notification.getReceiverId();
-            if (receiverId == null) {
-                return Result.error("接收人ID不能为空");
-            }
             
-            // 查询用户邮箱
-            com.scenic.entity.user.User user = userMapper.selectById(receiverId);
+            // 校验用户邮箱
             if (user == null || user.getEmail() == null || user.getEmail().isEmpty()) {
                 return Result.error("用户不存在或未绑定邮箱");
             }
@@ -319,18 +329,14 @@ public class NotificationServiceImpl implements NotificationService {
     /**
      * 发送小程序通知
      * @param notification 通知实体
+     * @param user 接收用户
      * @return 发送结果
      */
-    private Result<String> sendMiniappNotification(Notification notification) {
+    private Result<String> sendMiniappNotification(Notification notification, User user) {
         try {
-            // 获取接收人信息
             Long receiverId = notification.getReceiverId();
-            if (receiverId == null) {
-                return Result.error("接收人ID不能为空");
-            }
             
-            // 查询用户OpenID
-            com.scenic.entity.user.User user = userMapper.selectById(receiverId);
+            // 校验用户OpenID
             if (user == null || user.getOpenId() == null || user.getOpenId().isEmpty()) {
                 return Result.error("用户不存在或未绑定微信");
             }
@@ -357,18 +363,14 @@ public class NotificationServiceImpl implements NotificationService {
     /**
      * 发送服务号通知
      * @param notification 通知实体
+     * @param user 接收用户
      * @return 发送结果
      */
-    private Result<String> sendServiceNotification(Notification notification) {
+    private Result<String> sendServiceNotification(Notification notification, User user) {
         try {
-            // 获取接收人信息
             Long receiverId = notification.getReceiverId();
-            if (receiverId == null) {
-                return Result.error("接收人ID不能为空");
-            }
             
-            // 查询用户OpenID（服务号和小程序可能使用不同的OpenID，这里简化处理）
-            com.scenic.entity.user.User user = userMapper.selectById(receiverId);
+            // 校验用户OpenID（服务号和小程序可能使用不同的OpenID，这里简化处理）
             if (user == null || user.getOpenId() == null || user.getOpenId().isEmpty()) {
                 return Result.error("用户不存在或未关注服务号");
             }
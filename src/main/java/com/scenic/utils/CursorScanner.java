@@ -0,0 +1,74 @@
+package com.scenic.utils;
+
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Mapper流式查询工具，用于不分页的基础数据列表接口（景点、导览路线、AR内容、活动）
+ * 配合返回 Cursor 且 fetchSize = Integer.MIN_VALUE 的Mapper方法使用，MySQL驱动逐行读取结果集，
+ * 实体逐行转换为DTO后即被丢弃，只保留转换结果。转换结果仍一次性返回，内存占用与结果行数成正比，
+ * 因此行数受 MAX_LIST_ROWS 限制，超过上限时直接报错而不是截断返回。
+ * 游标只能在打开它的SqlSession内读取，这里用只读事务包裹整个遍历过程。
+ * 注意：遍历期间连接被流式结果集独占，转换逻辑中不能再执行SQL；需要关联查询的数据应先收集ID，遍历结束后批量查询。
+ */
+@Component
+public class CursorScanner {
+
+    /**
+     * 不分页的列表接口单次返回的最大行数
+     * 这些表为后台维护的基础数据，正常规模远小于该值；数据异常增长超过上限时接口报错，应改为分页查询
+     */
+    public static final int MAX_LIST_ROWS = 5000;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate readOnlyTransaction;
+
+    @PostConstruct
+    public void init() {
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * 遍历查询结果并逐行转换，只保留转换后的结果（返回null的行被丢弃）
+     * SQL多读取一行用于判断是否超过上限，超过时抛出异常，不返回不完整的列表
+     * @param query 接收行数上限、返回游标的Mapper调用，如 mapper::scanAll
+     * @param maxRows 最多返回的行数，不分页的列表接口使用 MAX_LIST_ROWS
+     * @param mapper 转换逻辑
+     * @return 转换后的列表
+     * @throws IllegalStateException 查询结果超过 maxRows 行
+     */
+    public <T, R> List<R> map(IntFunction<Cursor<T>> query, int maxRows, Function<? super T, ? extends R> mapper) {
+        return readOnlyTransaction.execute(status -> {
+            List<R> results = new ArrayList<>();
+            int rows = 0;
+            try (Cursor<T> cursor = query.apply(maxRows + 1)) {
+                for (T item : cursor) {
+                    if (++rows > maxRows) {
+                        throw new IllegalStateException("查询结果超过" + maxRows + "行，请改用分页查询");
+                    }
+                    R result = mapper.apply(item);
+                    if (result != null) {
+                        results.add(result);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("关闭游标失败", e);
+            }
+            return results;
+        });
+    }
+}
@@ -0,0 +1,100 @@
+package com.scenic.utils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.scenic.config.RequestLoggingProperties;
+
+/**
+ * 接口耗时统计
+ * 按“请求方法 + 接口路径模式”分别统计请求数、出错数、耗时直方图和每个请求的SQL条数，自进程启动（或上次重置）起累计
+ */
+@Component
+public class EndpointMetrics {
+
+    /**
+     * 接口数超过上限后新接口合并统计的名称
+     */
+    private static final String OTHER_ENDPOINT = "OTHER";
+
+    @Autowired
+    private RequestLoggingProperties requestLoggingProperties;
+
+    private final ConcurrentMap<String, Stats> endpoints = new ConcurrentHashMap<>();
+
+    /**
+     * 记录一个请求
+     * @param endpoint 接口名称
+     * @param durationMillis 耗时（毫秒）
+     * @param sqlCount SQL条数
+     * @param error 是否出错（5xx或抛出异常）
+     */
+    public void record(String endpoint, long durationMillis, int sqlCount, boolean error) {
+        Stats stats = endpoints.get(endpoint);
+        if (stats == null) {
+            String key = endpoints.size() < requestLoggingProperties.getMaxEndpoints() ? endpoint : OTHER_ENDPOINT;
+            stats = endpoints.computeIfAbsent(key, k -> new Stats());
+        }
+        stats.latency.record(durationMillis);
+        stats.sqlCount.addAndGet(sqlCount);
+        stats.maxSqlCount.accumulateAndGet(sqlCount, Math::max);
+        if (error) {
+            stats.errors.incrementAndGet();
+        }
+    }
+
+    /**
+     * 获取各接口的统计快照，按累计耗时倒序
+     * @return 统计列表
+     */
+    public List<Map<String, Object>> snapshot() {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Map.Entry<String, Stats> entry : endpoints.entrySet()) {
+            Stats stats = entry.getValue();
+            LatencyHistogram latency = stats.latency;
+            long count = latency.getCount();
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("endpoint", entry.getKey());
+            item.put("count", count);
+            item.put("errors", stats.errors.get());
+            item.put("meanMs", Math.round(latency.getMeanMillis() * 10) / 10.0);
+            item.put("p50Ms", latency.percentile(0.50));
+            item.put("p95Ms", latency.percentile(0.95));
+            item.put("p99Ms", latency.percentile(0.99));
+            item.put("maxMs", latency.getMaxMillis());
+            item.put("avgSqlCount", count == 0 ? 0 : Math.round(stats.sqlCount.get() * 10.0 / count) / 10.0);
+            item.put("maxSqlCount", stats.maxSqlCount.get());
+            result.add(item);
+        }
+        result.sort(Comparator.comparingDouble(
+                (Map<String, Object> item) -> (Double) item.get("meanMs") * (Long) item.get("count")).reversed());
+        return result;
+    }
+
+    /**
+     * 清空统计
+     */
+    public void reset() {
+        endpoints.clear();
+    }
+
+    private static final class Stats {
+
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        private final AtomicLong errors = new AtomicLong();
+
+        private final AtomicLong sqlCount = new AtomicLong();
+
+        private final AtomicLong maxSqlCount = new AtomicLong();
+    }
+}
@@ -50,6 +50,9 @@ public class IdGenerator {
     // 上次生成ID的时间截
     private long lastTimestamp = -1L;
     
+    // 工作ID有效期（毫秒时间戳），租约未按时续期时拒绝生成，默认永不过期
+    private volatile long workerIdValidUntil = Long.MAX_VALUE;
+    
     /**
      * 构造函数
      */
@@ -73,6 +76,30 @@ public class IdGenerator {
         this.datacenterId = datacenterId;
     }
     
+    /**
+     * 重新设置工作ID和数据中心ID（启动时由WorkerIdLease分配）
+     * @param workerId 工作ID (0~31)
+     * @param datacenterId 数据中心ID (0~31)
+     */
+    public synchronized void setWorkerId(long workerId, long datacenterId) {
+        if (workerId > maxWorkerId || workerId < 0) {
+            throw new IllegalArgumentException(String.format("worker Id can't be greater than %d or less than 0", maxWorkerId));
+        }
+        if (datacenterId > maxDatacenterId || datacenterId < 0) {
+            throw new IllegalArgumentException(String.format("datacenter Id can't be greater than %d or less than 0", maxDatacenterId));
+        }
+        this.workerId = workerId;
+        this.datacenterId = datacenterId;
+    }
+    
+    /**
+     * 设置工作ID有效期（由WorkerIdLease在每次租用或续约成功后延长）
+     * @param validUntilMillis 有效期截止的毫秒时间戳
+     */
+    public void setWorkerIdValidUntil(long validUntilMillis) {
+        this.workerIdValidUntil = validUntilMillis;
+    }
+    
     /**
      * 获得下一个ID (该方法是线程安全的)
      * @return SnowflakeId
@@ -80,6 +107,10 @@ public class IdGenerator {
     public synchronized long nextId() {
         long timestamp = timeGen();
         
+        if (timestamp > workerIdValidUntil) {
+            throw new IllegalStateException("工作机器ID租约已过期，拒绝生成ID");
+        }
+        
         // 如果当前时间小于上一次ID生成的时间戳，说明系统时钟回退过这个时候应当抛出异常
         if (timestamp < lastTimestamp) {
             throw new RuntimeException(
@@ -1,17 +1,32 @@
 package com.scenic.utils;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.stereotype.Component;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
 import com.scenic.config.JwtConfig;
 
 import io.jsonwebtoken.Claims;
@@ -21,20 +36,72 @@ import io.jsonwebtoken.security.Keys;
 
 /**
  * JWT工具类，用于生成和验证JWT令牌
+ * 签名密钥在启动时计算一次。验证通过的令牌连同声明缓存在本地，直到令牌过期、被吊销或本地缓存到期，
+ * 命中时验证只是一次哈希查找，不再验签、也不再读取Redis中保存的令牌。
+ * 令牌失效或被新登录替换时通过Redis频道 jwt:revoke 通知所有节点清除该用户的本地缓存，
+ * 首次登录或旧令牌已过期时没有需要清除的令牌，不发布通知；
+ * 本地缓存按用户建立索引，收到通知时只清除该用户的令牌。本地缓存到期时间兜底错过的通知。
  */
 @Component
 public class JwtUtil {
     
+    private static final Logger log = LoggerFactory.getLogger(JwtUtil.class);
+    
     @Autowired
     private JwtConfig jwtConfig;
     
     @Autowired
     private RedisTemplate<String, String> redisTemplate;
     
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+    
     // Redis中存储token的key前缀
     private static final String ADMIN_TOKEN_KEY_PREFIX = "admin:token:";
     private static final String MINIAPP_TOKEN_KEY_PREFIX = "miniapp:token:";
     
+    // 令牌吊销通知频道，消息为 “类型:用户ID”
+    private static final String REVOKE_CHANNEL = "jwt:revoke";
+    
+    // 本地缓存的最大令牌数和最长保留时间（秒），保留时间决定错过吊销通知时的最长延迟
+    private static final int LOCAL_CACHE_MAX_SIZE = 20000;
+    private static final long LOCAL_CACHE_EXPIRE_SECONDS = 300;
+    
+    private static final String TYPE_ADMIN = "admin";
+    private static final String TYPE_MINIAPP = "miniapp";
+    
+    // 保存新令牌并返回被替换的旧令牌，没有旧令牌时返回null
+    private static final DefaultRedisScript<String> REPLACE_TOKEN_SCRIPT = new DefaultRedisScript<>(
+            "local old = redis.call('GET', KEYS[1]) "
+                    + "redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[2]) "
+                    + "return old",
+            String.class);
+    
+    private Key adminKey;
+    private Key miniappKey;
+    
+    // 已缓存令牌的用户索引，键为 “类型:用户ID”，值为该用户已缓存的令牌
+    private final Map<String, Set<String>> tokensByUser = new ConcurrentHashMap<>();
+    
+    // 已验证的令牌，键为令牌字符串；条目移除时同步清理用户索引
+    private final Cache<String, VerifiedToken> verifiedTokens = CacheBuilder.newBuilder()
+            .maximumSize(LOCAL_CACHE_MAX_SIZE)
+            .expireAfterWrite(LOCAL_CACHE_EXPIRE_SECONDS, TimeUnit.SECONDS)
+            .<String, VerifiedToken>removalListener(this::onTokenRemoved)
+            .build();
+    
+    // 每次收到吊销通知加一；验证期间发生过吊销时移除刚写入的缓存，避免吊销前读到的旧令牌留在缓存中
+    private final AtomicLong revocationVersion = new AtomicLong();
+    
+    @PostConstruct
+    public void init() {
+        adminKey = Keys.hmacShaKeyFor(jwtConfig.getAdminSecret().getBytes());
+        miniappKey = Keys.hmacShaKeyFor(jwtConfig.getMiniappSecret().getBytes());
+        redisMessageListenerContainer.addMessageListener(
+                (message, pattern) -> onRevoke(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(REVOKE_CHANNEL));
+    }
+    
     // 生成管理员JWT令牌
     public String generateAdminToken(String username, Long userId) {
         String redisKey = ADMIN_TOKEN_KEY_PREFIX + userId;
@@ -77,9 +144,13 @@ public class JwtUtil {
         // 生成唯一的tokenId
         String tokenId = UUID.randomUUID().toString();
         
-        // 将token存储到Redis中
+        // 将token存储到Redis中，新令牌替换了该用户未过期的旧令牌时通知各节点清除旧令牌
         String redisKey = MINIAPP_TOKEN_KEY_PREFIX + userId;
-        redisTemplate.opsForValue().set(redisKey, token, jwtConfig.getMiniappExpiration(), TimeUnit.MILLISECONDS);
+        String previousToken = redisTemplate.execute(REPLACE_TOKEN_SCRIPT, Collections.singletonList(redisKey),
+                token, String.valueOf(jwtConfig.getMiniappExpiration()));
+        if (previousToken != null && !previousToken.equals(token)) {
+            publishRevocation(TYPE_MINIAPP, userId);
+        }
         
         return token;
     }
@@ -97,69 +168,39 @@ public class JwtUtil {
         // 生成唯一的tokenId
         String tokenId = UUID.randomUUID().toString();
         
-        // 将token存储到Redis中
+        // 将token存储到Redis中，新令牌替换了该用户未过期的旧令牌时通知各节点清除旧令牌
         String redisKey = MINIAPP_TOKEN_KEY_PREFIX + userId;
-        redisTemplate.opsForValue().set(redisKey, token, jwtConfig.getMiniappExpiration(), TimeUnit.MILLISECONDS);
+        String previousToken = redisTemplate.execute(REPLACE_TOKEN_SCRIPT, Collections.singletonList(redisKey),
+                token, String.valueOf(jwtConfig.getMiniappExpiration()));
+        if (previousToken != null && !previousToken.equals(token)) {
+            publishRevocation(TYPE_MINIAPP, userId);
+        }
         
         return token;
     }
     
     // 验证管理员JWT令牌
     public boolean validateAdminToken(String token) {
-        try {
-            // 从JWT令牌中获取用户ID
-            Claims claims = getAllClaimsFromToken(token, jwtConfig.getAdminSecret());
-            Long userId = claims.get("userId", Long.class);
-            
-            // 从Redis中获取token
-            String redisKey = ADMIN_TOKEN_KEY_PREFIX + userId;
-            String storedToken = redisTemplate.opsForValue().get(redisKey);
-            
-            // 验证token是否存在于Redis中，并且与传入的token一致
-            if (storedToken == null || !storedToken.equals(token)) {
-                return false;
-            }
-            
-            // 验证token是否过期
-            return !isTokenExpired(token, jwtConfig.getAdminSecret());
-        } catch (Exception e) {
-            return false;
-        }
+        return validateToken(token, TYPE_ADMIN);
     }
     
     // 验证小程序用户JWT令牌
     public boolean validateMiniappToken(String token) {
-        try {
-            // 从JWT令牌中获取用户ID
-            Claims claims = getAllClaimsFromToken(token, jwtConfig.getMiniappSecret());
-            Long userId = claims.get("userId", Long.class);
-            
-            // 从Redis中获取token
-            String redisKey = MINIAPP_TOKEN_KEY_PREFIX + userId;
-            String storedToken = redisTemplate.opsForValue().get(redisKey);
-            
-            // 验证token是否存在于Redis中，并且与传入的token一致
-            if (storedToken == null || !storedToken.equals(token)) {
-                return false;
-            }
-            
-            // 验证token是否过期
-            return !isTokenExpired(token, jwtConfig.getMiniappSecret());
-        } catch (Exception e) {
-            return false;
-        }
+        return validateToken(token, TYPE_MINIAPP);
     }
     
     // 使管理员JWT令牌失效
     public void invalidateAdminToken(Long userId) {
         String redisKey = ADMIN_TOKEN_KEY_PREFIX + userId;
         redisTemplate.delete(redisKey);
+        publishRevocation(TYPE_ADMIN, userId);
     }
     
     // 使小程序用户JWT令牌失效
     public void invalidateMiniappToken(Long userId) {
         String redisKey = MINIAPP_TOKEN_KEY_PREFIX + userId;
         redisTemplate.delete(redisKey);
+        publishRevocation(TYPE_MINIAPP, userId);
     }
     
     // 获取管理员密钥
@@ -167,6 +208,11 @@ public class JwtUtil {
         return jwtConfig.getAdminSecret();
     }
     
+    // 获取小程序密钥
+    public String getMiniappSecret() {
+        return jwtConfig.getMiniappSecret();
+    }
+    
     // 从JWT令牌中获取用户名
     public String getUsernameFromToken(String token, String secret) {
         return getClaimFromToken(token, Claims::getSubject, secret);
@@ -183,9 +229,96 @@ public class JwtUtil {
         return claimsResolver.apply(claims);
     }
     
-    // 从JWT令牌中获取所有声明
+    // 从JWT令牌中获取所有声明，已验证的令牌直接返回缓存的声明
     public Claims getAllClaimsFromToken(String token, String secret) {
-        Key key = Keys.hmacShaKeyFor(secret.getBytes());
+        VerifiedToken verified = verifiedTokens.getIfPresent(token);
+        if (verified != null && verified.type.equals(typeOf(secret)) && !verified.isExpired()) {
+            return verified.claims;
+        }
+        return parseClaims(token, signingKey(secret));
+    }
+    
+    // 验证令牌：本地缓存未命中时验签并核对Redis中保存的令牌
+    private boolean validateToken(String token, String type) {
+        VerifiedToken verified = verifiedTokens.getIfPresent(token);
+        if (verified != null) {
+            if (verified.type.equals(type) && !verified.isExpired()) {
+                return true;
+            }
+            if (verified.isExpired()) {
+                verifiedTokens.invalidate(token);
+            }
+            return false;
+        }
+        
+        long version = revocationVersion.get();
+        try {
+            boolean admin = TYPE_ADMIN.equals(type);
+            // 解析时已校验签名和过期时间
+            Claims claims = parseClaims(token, admin ? adminKey : miniappKey);
+            Long userId = claims.get("userId", Long.class);
+            
+            // 验证token是否存在于Redis中，并且与传入的token一致
+            String redisKey = (admin ? ADMIN_TOKEN_KEY_PREFIX : MINIAPP_TOKEN_KEY_PREFIX) + userId;
+            String storedToken = redisTemplate.opsForValue().get(redisKey);
+            if (storedToken == null || !storedToken.equals(token)) {
+                return false;
+            }
+            
+            // 先登记索引再写入缓存，吊销时总能找到该令牌
+            tokensByUser.computeIfAbsent(userKey(type, userId), key -> ConcurrentHashMap.newKeySet()).add(token);
+            verifiedTokens.put(token, new VerifiedToken(type, userId, claims));
+            if (revocationVersion.get() != version) {
+                verifiedTokens.invalidate(token);
+            }
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+    
+    // 通知所有节点清除该用户的本地令牌缓存
+    private void publishRevocation(String type, Long userId) {
+        // 本节点立即清除，不依赖频道回送
+        onRevoke(userKey(type, userId));
+        try {
+            redisTemplate.convertAndSend(REVOKE_CHANNEL, userKey(type, userId));
+        } catch (Exception e) {
+            log.warn("发布令牌吊销通知失败，类型: {}, 用户ID: {}, 原因: {}", type, userId, e.getMessage());
+        }
+    }
+    
+    // 处理吊销通知
+    private void onRevoke(String message) {
+        int separator = message.indexOf(':');
+        if (separator <= 0) {
+            return;
+        }
+        revocationVersion.incrementAndGet();
+        Set<String> tokens = tokensByUser.remove(message);
+        if (tokens != null) {
+            verifiedTokens.invalidateAll(tokens);
+        }
+    }
+    
+    // 缓存条目被移除（吊销、过期或容量淘汰）时清理用户索引；同一令牌被重新写入时保留
+    private void onTokenRemoved(RemovalNotification<String, VerifiedToken> notification) {
+        String token = notification.getKey();
+        VerifiedToken verified = notification.getValue();
+        if (token == null || verified == null || verifiedTokens.asMap().containsKey(token)) {
+            return;
+        }
+        tokensByUser.computeIfPresent(userKey(verified.type, verified.userId), (key, tokens) -> {
+            tokens.remove(token);
+            return tokens.isEmpty() ? null : tokens;
+        });
+    }
+    
+    private static String userKey(String type, Long userId) {
+        return type + ":" + userId;
+    }
+    
+    private Claims parseClaims(String token, Key key) {
         return Jwts.parserBuilder()
                 .setSigningKey(key)
                 .build()
@@ -193,15 +326,27 @@ public class JwtUtil {
                 .getBody();
     }
     
-    // 检查JWT令牌是否过期
-    private Boolean isTokenExpired(String token, String secret) {
-        final Date expiration = getExpirationDateFromToken(token, secret);
-        return expiration.before(new Date());
+    private String typeOf(String secret) {
+        if (jwtConfig.getAdminSecret().equals(secret)) {
+            return TYPE_ADMIN;
+        }
+        return jwtConfig.getMiniappSecret().equals(secret) ? TYPE_MINIAPP : null;
+    }
+    
+    private Key signingKey(String secret) {
+        String type = typeOf(secret);
+        if (TYPE_ADMIN.equals(type)) {
+            return adminKey;
+        }
+        if (TYPE_MINIAPP.equals(type)) {
+            return miniappKey;
+        }
+        return Keys.hmacShaKeyFor(secret.getBytes());
     }
     
     // 创建JWT令牌
     private String createToken(Map<String, Object> claims, String subject, String secret, long expiration) {
-        Key key = Keys.hmacShaKeyFor(secret.getBytes());
+        Key key = signingKey(secret);
         return Jwts.builder()
                 .setClaims(claims)
                 .setSubject(subject)
@@ -210,4 +355,29 @@ public class JwtUtil {
                 .signWith(key, SignatureAlgorithm.HS256)
                 .compact();
     }
+    
+    /**
+     * 已验证的令牌
+     */
+    private static final class VerifiedToken {
+        
+        private final String type;
+        
+        private final Long userId;
+        
+        private final Claims claims;
+        
+        private final long expiresAt;
+        
+        private VerifiedToken(String type, Long userId, Claims claims) {
+            this.type = type;
+            this.userId = userId;
+            this.claims = claims;
+            this.expiresAt = claims.getExpiration() != null ? claims.getExpiration().getTime() : Long.MAX_VALUE;
+        }
+        
+        private boolean isExpired() {
+            return System.currentTimeMillis() >= expiresAt;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,241 @@
+package com.scenic.utils;
+
+import com.scenic.common.dto.CursorPageResult;
+import com.scenic.common.dto.PageResult;
+import com.scenic.dto.interaction.PhotoCheckInQueryDTO;
+import com.scenic.entity.interaction.vo.PhotoCheckInVO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 照片打卡列表分页缓存
+ * 缓存与用户无关的分页结果（不含点赞、收藏状态），由调用方在读取后叠加当前用户的互动状态。
+ *
+ * 缓存键中带有代次号：不按分类筛选的查询使用全局代次，按分类筛选的查询使用该分类的代次。
+ * 照片新增、修改、删除时对全局代次和所属分类代次各执行一次INCR，旧代次的缓存不再被读取、随过期时间淘汰，
+ * 不需要用KEYS扫描删除。读取代次在查库之前完成，查库期间发生的变更会使本次回填写入旧代次，不会被读到。
+ * 游标分页的结果同样按代次缓存，键中包含游标本身。
+ */
+@Component
+public class PhotoFeedCache {
+
+    private static final Logger log = LoggerFactory.getLogger(PhotoFeedCache.class);
+
+    private static final String GENERATION_KEY = "photo:feed:gen";
+    private static final String CATEGORY_GENERATION_KEY_PREFIX = "photo:feed:gen:";
+    private static final String PAGE_KEY_PREFIX = "photo:feed:page:";
+    private static final String CURSOR_KEY_PREFIX = "photo:feed:cursor:";
+
+    /**
+     * 分页缓存时间（秒），小程序端按点赞数排序，点赞不递增代次，排序变化在此时间内生效
+     */
+    private static final long PAGE_TTL_SECONDS = 60L;
+
+    /**
+     * 空结果缓存时间（秒）
+     */
+    private static final long EMPTY_PAGE_TTL_SECONDS = 120L;
+
+    /**
+     * 递增代次的最大尝试次数
+     */
+    private static final int BUMP_MAX_ATTEMPTS = 3;
+
+    /**
+     * 递增代次重试的退避基数（毫秒），第n次重试前等待 n 倍
+     */
+    private static final long BUMP_RETRY_BACKOFF_MILLIS = 50L;
+
+    /**
+     * 递增代次脚本：对KEYS中的每个代次键执行INCR
+     */
+    private static final RedisScript<Long> BUMP_SCRIPT = new DefaultRedisScript<>(
+            "for i = 1, #KEYS do redis.call('INCR', KEYS[i]) end return #KEYS",
+            Long.class);
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisUtil redisUtil;
+
+    /**
+     * 生成分页查询的缓存键（包含当前代次），需在查库之前调用
+     * @param query 查询条件
+     * @return 缓存键，Redis不可用时返回null
+     */
+    public String pageKey(PhotoCheckInQueryDTO query) {
+        String scope = generationScope(query.getCategoryId());
+        return scope != null ? PAGE_KEY_PREFIX + scope + ":" + shapeHash(query) : null;
+    }
+
+    /**
+     * 生成游标分页查询的缓存键（包含当前代次），需在查库之前调用
+     * @param title 标题（可选）
+     * @param categoryId 分类ID（可选）
+     * @param cursor 游标（首页为null）
+     * @param pageSize 每页条数
+     * @return 缓存键，Redis不可用时返回null
+     */
+    public String cursorPageKey(String title, Long categoryId, String cursor, int pageSize) {
+        String scope = generationScope(categoryId);
+        if (scope == null) {
+            return null;
+        }
+        String shape = nullToEmpty(cursor) + "|" + pageSize + "|" + nullToEmpty(title);
+        return CURSOR_KEY_PREFIX + scope + ":" + DigestUtils.md5DigestAsHex(shape.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 读取分页缓存
+     * @param pageKey 由pageKey生成的缓存键
+     * @return 分页结果，未命中时返回null
+     */
+    @SuppressWarnings("unchecked")
+    public PageResult<PhotoCheckInVO> get(String pageKey) {
+        if (pageKey == null) {
+            return null;
+        }
+        Object cached = redisUtil.get(pageKey);
+        return cached instanceof PageResult ? (PageResult<PhotoCheckInVO>) cached : null;
+    }
+
+    /**
+     * 读取游标分页缓存
+     * @param cursorPageKey 由cursorPageKey生成的缓存键
+     * @return 游标分页结果，未命中时返回null
+     */
+    @SuppressWarnings("unchecked")
+    public CursorPageResult<PhotoCheckInVO> getCursorPage(String cursorPageKey) {
+        if (cursorPageKey == null) {
+            return null;
+        }
+        Object cached = redisUtil.get(cursorPageKey);
+        return cached instanceof CursorPageResult ? (CursorPageResult<PhotoCheckInVO>) cached : null;
+    }
+
+    /**
+     * 回填游标分页缓存
+     * @param cursorPageKey 查库之前生成的缓存键
+     * @param page 与用户无关的游标分页结果
+     */
+    public void putCursorPage(String cursorPageKey, CursorPageResult<PhotoCheckInVO> page) {
+        if (cursorPageKey == null || page == null) {
+            return;
+        }
+        write(cursorPageKey, page, page.getRecords() == null || page.getRecords().isEmpty());
+    }
+
+    /**
+     * 回填分页缓存
+     * @param pageKey 查库之前生成的缓存键
+     * @param page 与用户无关的分页结果
+     */
+    public void put(String pageKey, PageResult<PhotoCheckInVO> page) {
+        if (pageKey == null || page == null) {
+            return;
+        }
+        write(pageKey, page, page.getRecords() == null || page.getRecords().isEmpty());
+    }
+
+    private void write(String key, Object page, boolean empty) {
+        try {
+            redisTemplate.opsForValue().set(key, page,
+                    empty ? EMPTY_PAGE_TTL_SECONDS : PAGE_TTL_SECONDS, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            log.warn("写入照片列表缓存失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 照片变更后失效相关分页缓存：递增全局代次及各分类的代次
+     * 失败时重试，仍失败则记录错误，旧列表最长在分页缓存过期前可见
+     * @param categoryIds 受影响的分类ID（修改分类时传入新旧两个分类）
+     */
+    public void invalidate(Long... categoryIds) {
+        Set<String> keys = new LinkedHashSet<>();
+        keys.add(GENERATION_KEY);
+        for (Long categoryId : categoryIds) {
+            if (categoryId != null) {
+                keys.add(CATEGORY_GENERATION_KEY_PREFIX + categoryId);
+            }
+        }
+        List<String> keyList = new ArrayList<>(keys);
+        // 照片写库已提交，失效失败无法回滚写操作，短暂重试INCR
+        for (int attempt = 1; attempt <= BUMP_MAX_ATTEMPTS; attempt++) {
+            try {
+                stringRedisTemplate.execute(BUMP_SCRIPT, keyList);
+                return;
+            } catch (Exception e) {
+                if (attempt == BUMP_MAX_ATTEMPTS) {
+                    // 旧代次的分页缓存最多保留 EMPTY_PAGE_TTL_SECONDS，过期后列表恢复正确
+                    log.error("照片列表缓存失效失败，已重试{}次，旧列表将在缓存过期后恢复: {}", attempt, keyList, e);
+                    return;
+                }
+                log.warn("照片列表缓存失效失败，第{}次重试: {}", attempt, e.getMessage());
+                try {
+                    Thread.sleep(BUMP_RETRY_BACKOFF_MILLIS * attempt);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    log.error("照片列表缓存失效重试被中断: {}", keyList);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * 缓存范围及其当前代次，如 "all:12"、"c3:5"
+     * @param categoryId 分类ID（可选）
+     * @return 范围与代次，Redis不可用或读取失败时返回null
+     */
+    private String generationScope(Long categoryId) {
+        if (!redisUtil.isRedisAvailable()) {
+            return null;
+        }
+        String generationKey = categoryId != null ? CATEGORY_GENERATION_KEY_PREFIX + categoryId : GENERATION_KEY;
+        try {
+            String generation = stringRedisTemplate.opsForValue().get(generationKey);
+            String scope = categoryId != null ? "c" + categoryId : "all";
+            return scope + ":" + (generation != null ? generation : "0");
+        } catch (Exception e) {
+            log.warn("读取照片列表缓存代次失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 查询条件（不含分类，分类已体现在代次中）的摘要
+     */
+    private String shapeHash(PhotoCheckInQueryDTO query) {
+        // 带用户名的是管理端查询，与小程序端使用不同的SQL和排序
+        boolean admin = query.getUserName() != null && !query.getUserName().isEmpty();
+        String shape = (admin ? "admin" : "miniapp")
+                + "|" + query.getPageNum() + "|" + query.getPageSize()
+                + "|" + nullToEmpty(query.getTitle())
+                + "|" + nullToEmpty(query.getUserName())
+                + "|" + (query.getCreateTime() != null ? query.getCreateTime().toLocalDate() : "");
+        return DigestUtils.md5DigestAsHex(shape.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+}
@@ -1,6 +1,10 @@
 package com.scenic.utils;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
@@ -22,6 +26,9 @@ public class RedisSessionUtil {
     @Autowired
     private RedisTemplate<String, Object> redisTemplate;
     
+    @Autowired
+    private RedisUtil redisUtil;
+    
     // Redis中存储微信会话信息的key前缀
     private static final String WECHAT_SESSION_KEY_PREFIX = "wechat:session:";
     private static final String WECHAT_TOKEN_KEY_PREFIX = "wechat:token:";
@@ -61,19 +68,17 @@ public class RedisSessionUtil {
      */
     public void clearUserSessionFromRedis(Long userId, String openid) {
         try {
+            // 清除会话信息
+            List<String> keys = new ArrayList<>(Arrays.asList(
+                    WECHAT_SESSION_KEY_PREFIX + userId, WECHAT_SESSION_KEY_PREFIX + openid));
+            
             // 获取旧的会话信息，以便清除旧的token
             Map<String, Object> oldSessionInfo = getUserSessionFromRedis(openid);
             if (oldSessionInfo != null && oldSessionInfo.containsKey("token")) {
                 String oldToken = (String) oldSessionInfo.get("token");
-                String oldTokenKey = WECHAT_TOKEN_KEY_PREFIX + oldToken;
-                redisTemplate.delete(oldTokenKey);
+                keys.add(WECHAT_TOKEN_KEY_PREFIX + oldToken);
             }
-            
-            // 清除会话信息
-            String sessionKey1 = WECHAT_SESSION_KEY_PREFIX + userId;
-            String sessionKey2 = WECHAT_SESSION_KEY_PREFIX + openid;
-            redisTemplate.delete(sessionKey1);
-            redisTemplate.delete(sessionKey2);
+            redisUtil.delete(keys);
             
             logger.info("用户 {} 的微信会话信息已从Redis中清除", userId);
         } catch (Exception e) {
@@ -107,13 +112,15 @@ public class RedisSessionUtil {
             sessionInfo.put("token", token);
             sessionInfo.put("loginTime", System.currentTimeMillis());
             
-            // 存储会话信息，有效期24小时
-            redisTemplate.opsForValue().set(sessionKey1, sessionInfo, 24, TimeUnit.HOURS);
-            redisTemplate.opsForValue().set(sessionKey2, sessionInfo, 24, TimeUnit.HOURS);
-            
-            // 存储token，有效期24小时
-            String tokenKey = WECHAT_TOKEN_KEY_PREFIX + token;
-            redisTemplate.opsForValue().set(tokenKey, userId, 24, TimeUnit.HOURS);
+            // 存储会话信息和token，有效期24小时，通过同一个管道发送
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put(sessionKey1, sessionInfo);
+            values.put(sessionKey2, sessionInfo);
+            values.put(WECHAT_TOKEN_KEY_PREFIX + token, userId);
+            if (!redisUtil.multiSet(values, TimeUnit.HOURS.toSeconds(24))) {
+                logger.error("存储微信会话信息到Redis失败，用户ID: {}, openid: {}", userId, openid);
+                return false;
+            }
             
             logger.info("用户 {} 的微信会话信息已存储到Redis", userId);
             return true;
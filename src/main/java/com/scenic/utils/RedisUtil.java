@@ -4,14 +4,26 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
 import org.springframework.data.redis.core.ValueOperations;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * Redis工具类
+ * 除单键操作外提供批量操作：multiGet用一条MGET读取多个键，delete(Collection)用一条DEL删除多个键，
+ * multiSet和executePipelined把多条命令放进同一个管道发送。批量操作各只需一次网络往返，
+ * 适合缓存失效这类一次要处理多个键的场景。
  */
 @Component
 public class RedisUtil {
@@ -150,6 +162,135 @@ public class RedisUtil {
         }
     }
     
+    /**
+     * 批量获取缓存（MGET）
+     * @param keys 键
+     * @return 与keys顺序一致的值列表，不存在的键对应null；Redis不可用时全部为null
+     */
+    public List<Object> multiGet(Collection<String> keys) {
+        if (keys == null || keys.isEmpty()) {
+            return Collections.emptyList();
+        }
+        try {
+            List<Object> values = redisTemplate.opsForValue().multiGet(keys);
+            redisAvailable = true;
+            return values != null ? values : new ArrayList<>(Collections.nCopies(keys.size(), null));
+        } catch (RedisConnectionFailureException e) {
+            log.warn("Redis连接失败，批量获取缓存失败，键数量: {}", keys.size());
+            redisAvailable = false;
+        } catch (Exception e) {
+            log.error("批量获取缓存异常，键数量: {}", keys.size(), e);
+        }
+        return new ArrayList<>(Collections.nCopies(keys.size(), null));
+    }
+    
+    /**
+     * 批量获取指定类型的缓存（MGET）
+     * @param keys 键
+     * @param type 值类型
+     * @return 键到值的映射，按keys顺序排列，不存在或类型不符的键不在结果中
+     */
+    public <T> Map<String, T> multiGet(Collection<String> keys, Class<T> type) {
+        Map<String, T> result = new LinkedHashMap<>();
+        if (keys == null || keys.isEmpty()) {
+            return result;
+        }
+        List<String> keyList = new ArrayList<>(keys);
+        List<Object> values = multiGet(keyList);
+        for (int i = 0; i < keyList.size(); i++) {
+            Object value = values.get(i);
+            if (type.isInstance(value)) {
+                result.put(keyList.get(i), type.cast(value));
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * 批量设置缓存并设置过期时间，所有SET命令通过同一个管道发送
+     * @param values 键值映射
+     * @param timeout 时间(秒)
+     * @return 是否设置成功
+     */
+    public boolean multiSet(Map<String, ?> values, long timeout) {
+        if (values == null || values.isEmpty()) {
+            return true;
+        }
+        return executePipelined(operations -> {
+            for (Map.Entry<String, ?> entry : values.entrySet()) {
+                operations.opsForValue().set(entry.getKey(), entry.getValue(), timeout, TimeUnit.SECONDS);
+            }
+        }) != null;
+    }
+    
+    /**
+     * 批量删除缓存（一条DEL命令）
+     * @param keys 键
+     * @return 实际删除的键数量
+     */
+    public long delete(Collection<String> keys) {
+        if (keys == null || keys.isEmpty()) {
+            return 0;
+        }
+        try {
+            Long result = redisTemplate.delete(keys);
+            redisAvailable = true;
+            return result != null ? result : 0;
+        } catch (RedisConnectionFailureException e) {
+            log.warn("Redis连接失败，批量删除缓存失败: {}", keys);
+            redisAvailable = false;
+            return 0;
+        } catch (Exception e) {
+            log.error("批量删除缓存异常: {}", keys, e);
+            return 0;
+        }
+    }
+    
+    /**
+     * 更新一个缓存并删除相关缓存，SET和DEL通过同一个管道发送
+     * @param key 要更新的键
+     * @param value 值
+     * @param timeout 时间(秒)
+     * @param deleteKeys 要删除的键
+     * @return 是否执行成功
+     */
+    public boolean setAndDelete(String key, Object value, long timeout, Collection<String> deleteKeys) {
+        return executePipelined(operations -> {
+            operations.opsForValue().set(key, value, timeout, TimeUnit.SECONDS);
+            if (deleteKeys != null && !deleteKeys.isEmpty()) {
+                operations.delete(deleteKeys);
+            }
+        }) != null;
+    }
+    
+    /**
+     * 以管道方式执行一组命令
+     * 回调中的命令不会立即返回结果（返回值均为null），全部命令在回调结束后一次发送，结果按命令顺序返回
+     * @param commands 要执行的命令
+     * @return 各命令的结果，执行失败时返回null
+     */
+    public List<Object> executePipelined(Consumer<RedisOperations<String, Object>> commands) {
+        try {
+            List<Object> results = redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) {
+                    commands.accept((RedisOperations<String, Object>) operations);
+                    return null;
+                }
+            });
+            redisAvailable = true;
+            return results;
+        } catch (RedisConnectionFailureException e) {
+            log.warn("Redis连接失败，管道命令执行失败");
+            redisAvailable = false;
+            return null;
+        } catch (Exception e) {
+            log.error("管道命令执行异常", e);
+            return null;
+        }
+    }
+    
     /**
      * Redis是否可用
      * @return 是否可用
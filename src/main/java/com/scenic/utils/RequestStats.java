@@ -0,0 +1,78 @@
+package com.scenic.utils;
+
+/**
+ * 当前请求的统计信息（SQL条数、耗时、行数、慢SQL条数），由请求日志过滤器在请求开始时创建、结束时清除，
+ * 由MyBatis拦截器在每条SQL执行后累加。不在请求线程中执行的SQL不计入
+ */
+public final class RequestStats {
+
+    private static final ThreadLocal<RequestStats> CURRENT = new ThreadLocal<>();
+
+    private int sqlCount;
+
+    private long sqlNanos;
+
+    private long sqlRows;
+
+    private int slowSqlCount;
+
+    private RequestStats() {
+    }
+
+    /**
+     * 开始统计当前线程的请求
+     */
+    public static RequestStats begin() {
+        RequestStats stats = new RequestStats();
+        CURRENT.set(stats);
+        return stats;
+    }
+
+    /**
+     * 结束统计当前线程的请求
+     */
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    /**
+     * 获取当前请求的统计信息，不在请求中时返回null
+     */
+    public static RequestStats current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 累加一条SQL
+     * @param elapsedNanos 执行耗时（纳秒）
+     * @param rows 返回或影响的行数
+     * @param slow 是否慢SQL
+     */
+    public static void recordSql(long elapsedNanos, long rows, boolean slow) {
+        RequestStats stats = CURRENT.get();
+        if (stats != null) {
+            stats.sqlCount++;
+            stats.sqlNanos += elapsedNanos;
+            stats.sqlRows += rows;
+            if (slow) {
+                stats.slowSqlCount++;
+            }
+        }
+    }
+
+    public int getSqlCount() {
+        return sqlCount;
+    }
+
+    public long getSqlMillis() {
+        return sqlNanos / 1_000_000;
+    }
+
+    public long getSqlRows() {
+        return sqlRows;
+    }
+
+    public int getSlowSqlCount() {
+        return slowSqlCount;
+    }
+}
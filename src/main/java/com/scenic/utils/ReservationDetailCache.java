@@ -0,0 +1,183 @@
+package com.scenic.utils;
+
+import com.scenic.entity.appointment.IndividualReservation;
+import com.scenic.exception.reservation.ServiceUnavailableException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 个人预约详情缓存
+ * 缓存组装好的预约（含人员），按ID存储，预约编号只映射到ID。
+ *
+ * 使用version列做版本栅栏：每次写库后把栅栏设为新版本号并删除缓存，
+ * 回填缓存时只有版本号不低于栅栏才写入。这样即使读请求在写库前查到旧数据、在写库后才回填，
+ * 也会因版本号低于栅栏被拒绝，状态变更后不会读到旧数据。
+ */
+@Component
+public class ReservationDetailCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ReservationDetailCache.class);
+
+    private static final String DETAIL_KEY_PREFIX = "reservation:detail:";
+    private static final String FENCE_KEY_PREFIX = "reservation:detail:fence:";
+    private static final String NO_KEY_PREFIX = "reservation:detail:no:";
+
+    /**
+     * 详情缓存时间（秒）
+     */
+    private static final long DETAIL_TTL_SECONDS = 300L;
+
+    /**
+     * 栅栏保留时间（秒），需长于详情缓存时间
+     */
+    private static final long FENCE_TTL_SECONDS = 600L;
+
+    /**
+     * 回填脚本：KEYS[1]=详情键，KEYS[2]=栅栏键，ARGV[1]=版本号，ARGV[2]=详情，ARGV[3]=过期秒数
+     */
+    private static final RedisScript<Long> PUT_SCRIPT = new DefaultRedisScript<>(
+            "local fence = tonumber(redis.call('GET', KEYS[2]) or '0') " +
+            "if tonumber(ARGV[1]) < fence then return 0 end " +
+            "redis.call('SET', KEYS[1], ARGV[2], 'EX', ARGV[3]) " +
+            "return 1",
+            Long.class);
+
+    /**
+     * 失效脚本：KEYS依次为（栅栏键，详情键）对，ARGV[1]=栅栏过期秒数，ARGV[i+1]=第i个预约的新版本号
+     */
+    private static final RedisScript<Long> INVALIDATE_SCRIPT = new DefaultRedisScript<>(
+            "local n = #ARGV - 1 " +
+            "for i = 1, n do " +
+            "  local fenceKey = KEYS[2 * i - 1] " +
+            "  local version = tonumber(ARGV[i + 1]) " +
+            "  local fence = tonumber(redis.call('GET', fenceKey) or '0') " +
+            "  if version > fence then fence = version end " +
+            "  redis.call('SET', fenceKey, fence, 'EX', ARGV[1]) " +
+            "  redis.call('DEL', KEYS[2 * i]) " +
+            "end " +
+            "return n",
+            Long.class);
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisUtil redisUtil;
+
+    /**
+     * 按ID读取预约详情
+     * @param id 预约ID
+     * @return 预约详情，未命中或Redis不可用时返回null
+     */
+    public IndividualReservation get(Long id) {
+        if (id == null || !redisUtil.isRedisAvailable()) {
+            return null;
+        }
+        Object cached = redisUtil.get(DETAIL_KEY_PREFIX + id);
+        return cached instanceof IndividualReservation ? (IndividualReservation) cached : null;
+    }
+
+    /**
+     * 按预约编号查找预约ID
+     * @param reservationNo 预约编号
+     * @return 预约ID，未命中时返回null
+     */
+    public Long getIdByNo(String reservationNo) {
+        if (reservationNo == null || !redisUtil.isRedisAvailable()) {
+            return null;
+        }
+        try {
+            String id = stringRedisTemplate.opsForValue().get(NO_KEY_PREFIX + reservationNo);
+            return id != null ? Long.valueOf(id) : null;
+        } catch (Exception e) {
+            log.warn("读取预约编号映射失败: {}", reservationNo);
+            return null;
+        }
+    }
+
+    /**
+     * 回填预约详情（版本号低于栅栏时放弃写入）
+     * @param reservation 从数据库加载的完整预约
+     */
+    public void put(IndividualReservation reservation) {
+        if (reservation == null || reservation.getId() == null || reservation.getVersion() == null
+                || !redisUtil.isRedisAvailable()) {
+            return;
+        }
+        try {
+            Long id = reservation.getId();
+            Long written = redisTemplate.execute(PUT_SCRIPT,
+                    Arrays.asList(DETAIL_KEY_PREFIX + id, FENCE_KEY_PREFIX + id),
+                    reservation.getVersion(), reservation, DETAIL_TTL_SECONDS);
+            if (reservation.getReservationNo() != null) {
+                // 预约编号与ID的对应关系不会变化，无需版本控制
+                stringRedisTemplate.opsForValue().set(NO_KEY_PREFIX + reservation.getReservationNo(),
+                        String.valueOf(id), Duration.ofSeconds(DETAIL_TTL_SECONDS));
+            }
+            if (written == null || written == 0L) {
+                log.debug("预约详情版本低于栅栏，放弃回填，预约ID: {}, 版本: {}", id, reservation.getVersion());
+            }
+        } catch (Exception e) {
+            log.warn("写入预约详情缓存失败，预约ID: {}", reservation.getId());
+        }
+    }
+
+    /**
+     * 写库后失效预约详情
+     * 需在写库之后、事务提交之前调用，失效失败时抛出异常，调用方的事务随之回滚
+     * @param id 预约ID
+     * @param newVersion 写库后的版本号
+     */
+    public void invalidate(Long id, Integer newVersion) {
+        if (id == null) {
+            return;
+        }
+        IndividualReservation reservation = new IndividualReservation();
+        reservation.setId(id);
+        reservation.setVersion(newVersion);
+        invalidateAll(Collections.singletonList(reservation));
+    }
+
+    /**
+     * 批量失效预约详情
+     * @param reservations 预约列表（仅使用id和写库后的version）
+     * @throws ServiceUnavailableException 栅栏写入失败
+     */
+    public void invalidateAll(Collection<IndividualReservation> reservations) {
+        if (reservations == null || reservations.isEmpty()) {
+            return;
+        }
+        List<String> keys = new ArrayList<>(reservations.size() * 2);
+        List<String> args = new ArrayList<>(reservations.size() + 1);
+        args.add(String.valueOf(FENCE_TTL_SECONDS));
+        for (IndividualReservation reservation : reservations) {
+            keys.add(FENCE_KEY_PREFIX + reservation.getId());
+            keys.add(DETAIL_KEY_PREFIX + reservation.getId());
+            // 版本号未知时使用极大值，在栅栏过期前不再回填
+            args.add(String.valueOf(reservation.getVersion() != null ? reservation.getVersion() : Integer.MAX_VALUE));
+        }
+        try {
+            stringRedisTemplate.execute(INVALIDATE_SCRIPT, keys, args.toArray());
+        } catch (Exception e) {
+            // 栅栏未生效时其他节点仍可能回填旧数据，抛出异常使写库事务回滚
+            log.error("预约详情缓存失效失败，数量: {}", reservations.size(), e);
+            throw new ServiceUnavailableException("缓存服务暂时不可用，请稍后重试");
+        }
+    }
+}
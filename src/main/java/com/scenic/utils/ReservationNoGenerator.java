@@ -0,0 +1,118 @@
+package com.scenic.utils;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * 预约编号生成器
+ * 基于SnowflakeIdGenerator生成可读且全局唯一的编号：
+ * 前缀 + yyyyMMddHHmmss + 3位毫秒 + 4位工作机器ID + 4位序列号，例如 RES20250301093015123000100042。
+ * 时间、机器ID、序列号均取自同一个雪花ID，唯一性由雪花ID保证，无锁、无随机数。
+ */
+@Component
+public class ReservationNoGenerator {
+
+    /**
+     * 个人预约编号前缀
+     */
+    public static final String PREFIX_RESERVATION = "RES";
+
+    /**
+     * 团队预约编号前缀
+     */
+    public static final String PREFIX_TEAM = "TA";
+
+    /**
+     * 活动预约编号前缀
+     */
+    public static final String PREFIX_ACTIVITY = "ACT";
+
+    private static final DateTimeFormatter SECOND_FORMATTER =
+            DateTimeFormatter.ofPattern("yyyyMMddHHmmss").withZone(ZoneId.systemDefault());
+
+    @Autowired
+    private SnowflakeIdGenerator snowflakeIdGenerator;
+
+    /**
+     * 按秒缓存的时间字符串，同一秒内的编号无需重复格式化
+     */
+    private volatile SecondCache secondCache = new SecondCache(Long.MIN_VALUE, "");
+
+    public ReservationNoGenerator() {
+    }
+
+    public ReservationNoGenerator(SnowflakeIdGenerator snowflakeIdGenerator) {
+        this.snowflakeIdGenerator = snowflakeIdGenerator;
+    }
+
+    /**
+     * 生成个人预约编号
+     * @return 预约编号
+     */
+    public String nextReservationNo() {
+        return nextNo(PREFIX_RESERVATION);
+    }
+
+    /**
+     * 生成团队预约编号
+     * @return 预约编号
+     */
+    public String nextTeamAppointmentNo() {
+        return nextNo(PREFIX_TEAM);
+    }
+
+    /**
+     * 生成活动预约编号
+     * @return 预约编号
+     */
+    public String nextActivityRegistrationNo() {
+        return nextNo(PREFIX_ACTIVITY);
+    }
+
+    /**
+     * 生成指定前缀的编号
+     * @param prefix 前缀
+     * @return 编号
+     */
+    public String nextNo(String prefix) {
+        long id = snowflakeIdGenerator.nextId();
+        long timestamp = SnowflakeIdGenerator.extractTimestamp(id);
+        long epochSecond = Math.floorDiv(timestamp, 1000L);
+
+        SecondCache cache = secondCache;
+        if (cache.epochSecond != epochSecond) {
+            cache = new SecondCache(epochSecond, SECOND_FORMATTER.format(Instant.ofEpochSecond(epochSecond)));
+            secondCache = cache;
+        }
+
+        StringBuilder sb = new StringBuilder(prefix.length() + 25);
+        sb.append(prefix).append(cache.text);
+        appendPadded(sb, Math.floorMod(timestamp, 1000L), 3);
+        appendPadded(sb, SnowflakeIdGenerator.extractMachineId(id), 4);
+        appendPadded(sb, SnowflakeIdGenerator.extractSequence(id), 4);
+        return sb.toString();
+    }
+
+    private static void appendPadded(StringBuilder sb, long value, int width) {
+        for (long bound = 10; width > 1; width--, bound *= 10) {
+            if (value < bound) {
+                sb.append('0');
+            }
+        }
+        sb.append(value);
+    }
+
+    private static final class SecondCache {
+        private final long epochSecond;
+        private final String text;
+
+        private SecondCache(long epochSecond, String text) {
+            this.epochSecond = epochSecond;
+            this.text = text;
+        }
+    }
+}
@@ -21,6 +21,9 @@ public class ReservationUtil {
     @Autowired
     private RedisUtil redisUtil;
     
+    @Autowired
+    private ReservationNoGenerator reservationNoGenerator;
+    
     private static final String RESERVATION_LOCK_PREFIX = "reservation:lock:";
     private static final long LOCK_TIMEOUT = 30L; // 锁超时时间30秒
     
@@ -130,8 +133,6 @@ public class ReservationUtil {
      * @return 预约编号
      */
     public String generateReservationNo() {
-        String timestamp = new SimpleDateFormat("yyyyMMddHHmmss").format(new Date());
-        String random = String.format("%04d", (int)(Math.random() * 10000));
-        return "RES" + timestamp + random;
+        return reservationNoGenerator.nextReservationNo();
     }
 }
\ No newline at end of file
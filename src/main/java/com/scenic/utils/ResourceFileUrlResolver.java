@@ -0,0 +1,353 @@
+package com.scenic.utils;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.scenic.entity.ResourceFile;
+import com.scenic.mapper.ResourceFileMapper;
+import com.scenic.service.MinioService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 文件资源访问URL解析器
+ * 按文件ID批量生成预签名URL：先查本地缓存，再查Redis，仍未命中的文件用一条IN查询加载记录后签名并回填两级缓存。
+ * 签名URL在剩余有效期不少于 max(有效期/10, 60秒) 时复用，调用方拿到的URL总能再使用一段时间。
+ * 文件ID由雪花算法生成且文件键不会修改，文件删除或派生图生成后只需清除对应缓存。
+ * 图片可按派生尺寸解析，派生图尚未生成时返回原图URL且不缓存，生成后即可命中派生图。
+ */
+@Component
+public class ResourceFileUrlResolver {
+
+    private static final Logger log = LoggerFactory.getLogger(ResourceFileUrlResolver.class);
+
+    /**
+     * 图片类文件（打卡照片、头像、活动图片）的URL有效期（秒）
+     */
+    public static final int LONG_EXPIRY_SECONDS = 7 * 24 * 3600;
+
+    private static final String URL_KEY_PREFIX = "file:url:";
+
+    /**
+     * Redis中每个文件一个哈希，字段为“[尺寸:]有效期秒数”，值为“过期时间戳|URL”
+     */
+    private static final long REDIS_TTL_SECONDS = LONG_EXPIRY_SECONDS;
+
+    private static final long MIN_REMAINING_MILLIS = 60_000L;
+
+    /**
+     * 批量读取：ARGV[1]=字段，返回每个KEYS对应字段的值
+     */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> MGET_SCRIPT = new DefaultRedisScript<>(
+            "local result = {} " +
+            "for i = 1, #KEYS do result[i] = redis.call('HGET', KEYS[i], ARGV[1]) or '' end " +
+            "return result",
+            List.class);
+
+    /**
+     * 批量写入：ARGV[1]=字段，ARGV[2]=哈希过期秒数，ARGV[i+2]=第i个文件的值
+     */
+    private static final RedisScript<Long> MSET_SCRIPT = new DefaultRedisScript<>(
+            "for i = 1, #KEYS do " +
+            "  redis.call('HSET', KEYS[i], ARGV[1], ARGV[i + 2]) " +
+            "  redis.call('EXPIRE', KEYS[i], ARGV[2]) " +
+            "end " +
+            "return #KEYS",
+            Long.class);
+
+    @Autowired
+    private ResourceFileMapper resourceFileMapper;
+
+    @Autowired
+    private MinioService minioService;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisUtil redisUtil;
+
+    /**
+     * 图片尺寸
+     */
+    public enum Variant {
+        /** 原图 */
+        ORIGINAL,
+        /** 缩略图（列表） */
+        THUMBNAIL,
+        /** 中等尺寸预览图（详情） */
+        MEDIUM
+    }
+
+    /**
+     * 本地缓存，键为“文件ID:[尺寸:]有效期秒数”
+     */
+    private final Cache<String, SignedUrl> localCache = CacheBuilder.newBuilder()
+            .maximumSize(20000)
+            .expireAfterWrite(1, TimeUnit.HOURS)
+            .build();
+
+    /**
+     * 解析单个文件的访问URL
+     * @param fileId 文件ID
+     * @param expirySeconds 有效期（秒）
+     * @return 访问URL，文件不存在时返回null
+     */
+    public String resolveUrl(Long fileId, int expirySeconds) {
+        return resolveUrl(fileId, expirySeconds, Variant.ORIGINAL);
+    }
+
+    /**
+     * 解析单个文件指定尺寸的访问URL
+     * @param fileId 文件ID
+     * @param expirySeconds 有效期（秒）
+     * @param variant 图片尺寸
+     * @return 访问URL，文件不存在时返回null
+     */
+    public String resolveUrl(Long fileId, int expirySeconds, Variant variant) {
+        if (fileId == null) {
+            return null;
+        }
+        return resolveUrls(Collections.singletonList(fileId), expirySeconds, variant).get(fileId);
+    }
+
+    /**
+     * 批量解析文件的访问URL
+     * @param fileIds 文件ID集合（可包含null和重复ID）
+     * @param expirySeconds 有效期（秒）
+     * @return 文件ID到访问URL的映射，不存在的文件不在结果中
+     */
+    public Map<Long, String> resolveUrls(Collection<Long> fileIds, int expirySeconds) {
+        return resolveUrls(fileIds, expirySeconds, Variant.ORIGINAL);
+    }
+
+    /**
+     * 批量解析文件指定尺寸的访问URL
+     * @param fileIds 文件ID集合（可包含null和重复ID）
+     * @param expirySeconds 有效期（秒）
+     * @param variant 图片尺寸，派生图尚未生成时返回原图URL
+     * @return 文件ID到访问URL的映射，不存在的文件不在结果中
+     */
+    public Map<Long, String> resolveUrls(Collection<Long> fileIds, int expirySeconds, Variant variant) {
+        Map<Long, String> result = new HashMap<>();
+        if (fileIds == null || fileIds.isEmpty()) {
+            return result;
+        }
+        long now = System.currentTimeMillis();
+        long minRemaining = Math.max(expirySeconds * 100L, MIN_REMAINING_MILLIS);
+        String field = cacheField(expirySeconds, variant);
+
+        // 1. 本地缓存
+        List<Long> misses = new ArrayList<>();
+        for (Long fileId : new LinkedHashSet<>(fileIds)) {
+            if (fileId == null) {
+                continue;
+            }
+            SignedUrl cached = localCache.getIfPresent(localKey(fileId, field));
+            if (cached != null && cached.expiresAt - now >= minRemaining) {
+                result.put(fileId, cached.url);
+            } else {
+                misses.add(fileId);
+            }
+        }
+        if (misses.isEmpty()) {
+            return result;
+        }
+
+        // 2. Redis
+        misses = resolveFromRedis(misses, field, now, minRemaining, result);
+        if (misses.isEmpty()) {
+            return result;
+        }
+
+        // 3. 一次查询加载文件记录并签名
+        Map<Long, String> signed = new HashMap<>();
+        long expiresAt = now + expirySeconds * 1000L;
+        for (ResourceFile file : loadFiles(misses).values()) {
+            String objectKey = variantKey(file, variant);
+            try {
+                String url = file.getBucketName() != null
+                        ? minioService.getPresignedObjectUrl(file.getBucketName(),
+                                objectKey != null ? objectKey : file.getFileKey(), expirySeconds)
+                        : minioService.getPresignedObjectUrl(file.getFileKey(), expirySeconds);
+                result.put(file.getId(), url);
+                if (objectKey == null) {
+                    // 派生图尚未生成，临时返回原图且不缓存
+                    continue;
+                }
+                signed.put(file.getId(), url);
+                localCache.put(localKey(file.getId(), field), new SignedUrl(url, expiresAt));
+            } catch (Exception e) {
+                // 签名失败时使用文件键作为备用，不缓存
+                log.warn("生成文件访问URL失败，文件ID: {}, 原因: {}", file.getId(), e.getMessage());
+                result.put(file.getId(), file.getFileKey());
+            }
+        }
+        saveToRedis(signed, field, expiresAt);
+        return result;
+    }
+
+    /**
+     * 按ID批量加载文件记录（一条IN查询）
+     * @param fileIds 文件ID集合（可包含null和重复ID）
+     * @return 文件ID到文件记录的映射
+     */
+    public Map<Long, ResourceFile> loadFiles(Collection<Long> fileIds) {
+        Map<Long, ResourceFile> files = new HashMap<>();
+        if (fileIds == null) {
+            return files;
+        }
+        Set<Long> ids = new LinkedHashSet<>(fileIds);
+        ids.remove(null);
+        if (ids.isEmpty()) {
+            return files;
+        }
+        for (ResourceFile file : resourceFileMapper.selectByIds(ids)) {
+            files.put(file.getId(), file);
+        }
+        return files;
+    }
+
+    /**
+     * 文件删除后清除其URL缓存
+     * @param fileIds 文件ID集合
+     */
+    public void evict(Collection<Long> fileIds) {
+        if (fileIds == null || fileIds.isEmpty()) {
+            return;
+        }
+        List<String> keys = new ArrayList<>(fileIds.size());
+        for (Long fileId : fileIds) {
+            if (fileId != null) {
+                localCache.asMap().keySet().removeIf(key -> key.startsWith(fileId + ":"));
+                keys.add(URL_KEY_PREFIX + fileId);
+            }
+        }
+        if (keys.isEmpty() || !redisUtil.isRedisAvailable()) {
+            return;
+        }
+        try {
+            stringRedisTemplate.delete(keys);
+        } catch (Exception e) {
+            log.warn("清除文件URL缓存失败: {}", e.getMessage());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Long> resolveFromRedis(List<Long> fileIds, String field, long now, long minRemaining,
+                                        Map<Long, String> result) {
+        if (!redisUtil.isRedisAvailable()) {
+            return fileIds;
+        }
+        List<String> keys = new ArrayList<>(fileIds.size());
+        for (Long fileId : fileIds) {
+            keys.add(URL_KEY_PREFIX + fileId);
+        }
+        List<Object> values;
+        try {
+            values = stringRedisTemplate.execute(MGET_SCRIPT, keys, field);
+        } catch (Exception e) {
+            log.warn("读取文件URL缓存失败: {}", e.getMessage());
+            return fileIds;
+        }
+        if (values == null) {
+            return fileIds;
+        }
+
+        List<Long> misses = new ArrayList<>();
+        for (int i = 0; i < fileIds.size(); i++) {
+            SignedUrl cached = i < values.size() ? SignedUrl.parse(String.valueOf(values.get(i))) : null;
+            if (cached != null && cached.expiresAt - now >= minRemaining) {
+                localCache.put(localKey(fileIds.get(i), field), cached);
+                result.put(fileIds.get(i), cached.url);
+            } else {
+                misses.add(fileIds.get(i));
+            }
+        }
+        return misses;
+    }
+
+    private void saveToRedis(Map<Long, String> signed, String field, long expiresAt) {
+        if (signed.isEmpty() || !redisUtil.isRedisAvailable()) {
+            return;
+        }
+        List<String> keys = new ArrayList<>(signed.size());
+        List<String> args = new ArrayList<>(signed.size() + 2);
+        args.add(field);
+        args.add(String.valueOf(REDIS_TTL_SECONDS));
+        for (Map.Entry<Long, String> entry : signed.entrySet()) {
+            keys.add(URL_KEY_PREFIX + entry.getKey());
+            args.add(expiresAt + "|" + entry.getValue());
+        }
+        try {
+            stringRedisTemplate.execute(MSET_SCRIPT, keys, args.toArray());
+        } catch (Exception e) {
+            log.warn("写入文件URL缓存失败: {}", e.getMessage());
+        }
+    }
+
+    private static String localKey(Long fileId, String field) {
+        return fileId + ":" + field;
+    }
+
+    private static String cacheField(int expirySeconds, Variant variant) {
+        return variant == null || variant == Variant.ORIGINAL
+                ? String.valueOf(expirySeconds)
+                : variant.name().toLowerCase() + ":" + expirySeconds;
+    }
+
+    /**
+     * 文件指定尺寸的对象键，派生图尚未生成时返回null
+     */
+    private static String variantKey(ResourceFile file, Variant variant) {
+        if (variant == Variant.THUMBNAIL) {
+            return file.getThumbnailKey();
+        }
+        if (variant == Variant.MEDIUM) {
+            return file.getMediumKey();
+        }
+        return file.getFileKey();
+    }
+
+    /**
+     * 已签名的URL及其过期时间
+     */
+    private static final class SignedUrl {
+
+        private final String url;
+
+        private final long expiresAt;
+
+        private SignedUrl(String url, long expiresAt) {
+            this.url = url;
+            this.expiresAt = expiresAt;
+        }
+
+        private static SignedUrl parse(String value) {
+            int separator = value != null ? value.indexOf('|') : -1;
+            if (separator <= 0) {
+                return null;
+            }
+            try {
+                return new SignedUrl(value.substring(separator + 1), Long.parseLong(value.substring(0, separator)));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -2,97 +2,155 @@ package com.scenic.utils;
 
 import org.springframework.stereotype.Component;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * 雪花ID生成器
  * Twitter Snowflake算法实现
  * 生成64位的Long型ID，结构如下：
  * 1位符号位 + 41位时间戳 + 10位工作机器ID + 12位序列号
+ *
+ * 无锁实现：将（毫秒时间戳，序列号）打包在一个AtomicLong中通过CAS推进。
+ * 同一毫秒序列号用尽或系统时钟回退时，借用下一毫秒继续生成，不阻塞也不抛异常，保证单调递增。
+ * 机器ID来自Redis租约时设置有效期，租约未按时续期则拒绝生成，避免与接手该机器ID的节点产生重复ID。
  */
 @Component
 public class SnowflakeIdGenerator {
-    
+
     // 起始时间戳 (2025-01-01)
     private final static long START_TIMESTAMP = 1735689600000L;
-    
+
     // 各部分位数
     private final static long SEQUENCE_BIT = 12;  // 序列号位数
     private final static long MACHINE_BIT = 10;   // 机器ID位数
-    
+
     // 最大值
     private final static long MAX_SEQUENCE = ~(-1L << SEQUENCE_BIT);
     private final static long MAX_MACHINE_NUM = ~(-1L << MACHINE_BIT);
-    
+
     // 位移量
     private final static long MACHINE_LEFT = SEQUENCE_BIT;
     private final static long TIMESTAMP_LEFT = SEQUENCE_BIT + MACHINE_BIT;
-    
-    private long machineId;     // 机器ID
-    private long sequence = 0L; // 序列号
-    private long lastTimestamp = -1L; // 上次时间戳
-    
+
+    private volatile long machineId;     // 机器ID
+
+    // 机器ID有效期（毫秒时间戳），默认永不过期
+    private volatile long machineIdValidUntil = Long.MAX_VALUE;
+
+    // 高位为上次时间戳（毫秒），低12位为序列号
+    private final AtomicLong state = new AtomicLong();
+
     /**
-     * 构造函数
-     * @param machineId 机器ID (0-1023)
+     * 构造函数，默认机器ID为1
      */
     public SnowflakeIdGenerator() {
         this.machineId = 1L; // 默认机器ID为1
     }
-    
+
     /**
      * 构造函数
      * @param machineId 机器ID (0-1023)
      */
     public SnowflakeIdGenerator(long machineId) {
+        setMachineId(machineId);
+    }
+
+    /**
+     * 设置机器ID（启动时由WorkerIdLease分配）
+     * @param machineId 机器ID (0-1023)
+     */
+    public void setMachineId(long machineId) {
         if (machineId > MAX_MACHINE_NUM || machineId < 0) {
             throw new IllegalArgumentException("machineId must be between 0 and " + MAX_MACHINE_NUM);
         }
         this.machineId = machineId;
     }
-    
+
+    /**
+     * 设置机器ID有效期（由WorkerIdLease在每次租用或续约成功后延长）
+     * @param validUntilMillis 有效期截止的毫秒时间戳
+     */
+    public void setMachineIdValidUntil(long validUntilMillis) {
+        this.machineIdValidUntil = validUntilMillis;
+    }
+
+    /**
+     * 获取机器ID
+     * @return 机器ID
+     */
+    public long getMachineId() {
+        return machineId;
+    }
+
     /**
      * 生成下一个ID
      * @return 雪花ID
      */
-    public synchronized long nextId() {
-        long currentTimestamp = getCurrentTimestamp();
-        
-        // 如果当前时间小于上次时间戳，说明系统时钟回退，抛出异常
-        if (currentTimestamp < lastTimestamp) {
-            throw new RuntimeException("Clock moved backwards. Refusing to generate id");
-        }
-        
-        // 如果是同一毫秒内生成的，则序列号自增
-        if (currentTimestamp == lastTimestamp) {
-            sequence = (sequence + 1) & MAX_SEQUENCE;
-            // 如果序列号溢出，阻塞到下一毫秒
-            if (sequence == 0) {
-                currentTimestamp = getNextTimestamp();
-            }
-        } else {
-            // 如果是新的毫秒，序列号重置为0
-            sequence = 0L;
+    public long nextId() {
+        if (getCurrentTimestamp() > machineIdValidUntil) {
+            throw new IllegalStateException("工作机器ID租约已过期，拒绝生成ID，机器ID: " + machineId);
         }
-        
-        lastTimestamp = currentTimestamp;
-        
-        // 生成ID
-        return ((currentTimestamp - START_TIMESTAMP) << TIMESTAMP_LEFT) 
-                | (machineId << MACHINE_LEFT) 
+        long next = nextState();
+        long timestamp = next >>> SEQUENCE_BIT;
+        long sequence = next & MAX_SEQUENCE;
+        return ((timestamp - START_TIMESTAMP) << TIMESTAMP_LEFT)
+                | (machineId << MACHINE_LEFT)
                 | sequence;
     }
-    
+
     /**
-     * 获取下一个毫秒数
-     * @return 下一个毫秒数
+     * 通过CAS推进（时间戳，序列号）状态
+     * @return 新状态
      */
-    private long getNextTimestamp() {
-        long timestamp = getCurrentTimestamp();
-        while (timestamp <= lastTimestamp) {
-            timestamp = getCurrentTimestamp();
+    private long nextState() {
+        while (true) {
+            long currentTimestamp = getCurrentTimestamp();
+            long prev = state.get();
+            long lastTimestamp = prev >>> SEQUENCE_BIT;
+            long next;
+            if (currentTimestamp > lastTimestamp) {
+                // 新的毫秒，序列号重置为0
+                next = currentTimestamp << SEQUENCE_BIT;
+            } else if ((prev & MAX_SEQUENCE) < MAX_SEQUENCE) {
+                // 同一毫秒（或时钟回退），序列号自增
+                next = prev + 1;
+            } else {
+                // 序列号用尽，借用下一毫秒
+                next = (lastTimestamp + 1) << SEQUENCE_BIT;
+            }
+            if (state.compareAndSet(prev, next)) {
+                return next;
+            }
         }
-        return timestamp;
     }
-    
+
+    /**
+     * 解析ID中的时间戳
+     * @param id 雪花ID
+     * @return 毫秒时间戳
+     */
+    public static long extractTimestamp(long id) {
+        return (id >>> TIMESTAMP_LEFT) + START_TIMESTAMP;
+    }
+
+    /**
+     * 解析ID中的机器ID
+     * @param id 雪花ID
+     * @return 机器ID
+     */
+    public static long extractMachineId(long id) {
+        return (id >>> MACHINE_LEFT) & MAX_MACHINE_NUM;
+    }
+
+    /**
+     * 解析ID中的序列号
+     * @param id 雪花ID
+     * @return 序列号
+     */
+    public static long extractSequence(long id) {
+        return id & MAX_SEQUENCE;
+    }
+
     /**
      * 获取当前时间戳
      * @return 当前时间戳
@@ -100,4 +158,4 @@ public class SnowflakeIdGenerator {
     private long getCurrentTimestamp() {
         return System.currentTimeMillis();
     }
-}
\ No newline at end of file
+}
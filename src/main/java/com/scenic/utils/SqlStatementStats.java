@@ -0,0 +1,137 @@
+package com.scenic.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.scenic.config.SqlStatsProperties;
+
+/**
+ * SQL语句滑动窗口统计
+ * 按分钟分槽，每槽按语句ID（Mapper方法全名）累计执行次数、耗时、行数和慢SQL次数；
+ * 槽数等于窗口分钟数，过期的槽在写入时整体替换，排行时合并窗口内的槽
+ */
+@Component
+public class SqlStatementStats {
+
+    private static final long SLOT_MILLIS = 60_000;
+
+    @Autowired
+    private SqlStatsProperties sqlStatsProperties;
+
+    private AtomicReferenceArray<Slot> slots;
+
+    @PostConstruct
+    public void init() {
+        slots = new AtomicReferenceArray<>(Math.max(1, sqlStatsProperties.getWindowMinutes()));
+    }
+
+    /**
+     * 记录一条语句的执行
+     * @param statementId 语句ID
+     * @param elapsedNanos 耗时（纳秒）
+     * @param rows 返回或影响的行数
+     * @param slow 是否慢SQL
+     */
+    public void record(String statementId, long elapsedNanos, long rows, boolean slow) {
+        long slotIndex = System.currentTimeMillis() / SLOT_MILLIS;
+        int position = (int) (slotIndex % slots.length());
+        Slot slot = slots.get(position);
+        while (slot == null || slot.index != slotIndex) {
+            if (slot != null && slot.index > slotIndex) {
+                // 时钟回拨，计入较新的槽
+                break;
+            }
+            Slot fresh = new Slot(slotIndex);
+            if (slots.compareAndSet(position, slot, fresh)) {
+                slot = fresh;
+            } else {
+                slot = slots.get(position);
+            }
+        }
+        Aggregate aggregate = slot.statements.computeIfAbsent(statementId, k -> new Aggregate());
+        aggregate.count.incrementAndGet();
+        aggregate.totalNanos.addAndGet(elapsedNanos);
+        aggregate.maxNanos.accumulateAndGet(elapsedNanos, Math::max);
+        aggregate.rows.addAndGet(rows);
+        if (slow) {
+            aggregate.slowCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * 获取窗口内累计耗时最多的语句
+     * @return 语句统计列表，按累计耗时倒序
+     */
+    public List<Map<String, Object>> top() {
+        long currentIndex = System.currentTimeMillis() / SLOT_MILLIS;
+        Map<String, long[]> merged = new HashMap<>();
+        for (int i = 0; i < slots.length(); i++) {
+            Slot slot = slots.get(i);
+            if (slot == null || currentIndex - slot.index >= slots.length()) {
+                continue;
+            }
+            for (Map.Entry<String, Aggregate> entry : slot.statements.entrySet()) {
+                Aggregate aggregate = entry.getValue();
+                long[] total = merged.computeIfAbsent(entry.getKey(), k -> new long[5]);
+                total[0] += aggregate.count.get();
+                total[1] += aggregate.totalNanos.get();
+                total[2] = Math.max(total[2], aggregate.maxNanos.get());
+                total[3] += aggregate.rows.get();
+                total[4] += aggregate.slowCount.get();
+            }
+        }
+
+        List<Map.Entry<String, long[]>> entries = new ArrayList<>(merged.entrySet());
+        entries.sort((a, b) -> Long.compare(b.getValue()[1], a.getValue()[1]));
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Map.Entry<String, long[]> entry : entries.subList(0, Math.min(entries.size(), sqlStatsProperties.getTopSize()))) {
+            long[] total = entry.getValue();
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("statementId", entry.getKey());
+            item.put("count", total[0]);
+            item.put("totalMs", total[1] / 1_000_000);
+            item.put("meanMs", total[0] == 0 ? 0 : Math.round(total[1] / 100_000.0 / total[0]) / 10.0);
+            item.put("maxMs", total[2] / 1_000_000);
+            item.put("rows", total[3]);
+            item.put("slowCount", total[4]);
+            result.add(item);
+        }
+        return result;
+    }
+
+    private static final class Slot {
+
+        private final long index;
+
+        private final ConcurrentMap<String, Aggregate> statements = new ConcurrentHashMap<>();
+
+        private Slot(long index) {
+            this.index = index;
+        }
+    }
+
+    private static final class Aggregate {
+
+        private final AtomicLong count = new AtomicLong();
+
+        private final AtomicLong totalNanos = new AtomicLong();
+
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        private final AtomicLong rows = new AtomicLong();
+
+        private final AtomicLong slowCount = new AtomicLong();
+    }
+}
@@ -1,118 +1,236 @@
 package com.scenic.utils;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
 
 /**
  * 用户互动状态缓存工具类
- * 管理用户对照片的收藏/点赞状态缓存
+ * 每个用户一个Redis哈希 user:interaction:{userId}，字段为照片打卡ID，值为互动标志位（1=收藏，2=点赞，0=无互动）。
+ * 一页照片的互动状态用一次HMGET读取，未命中的照片由调用方查库后一次写回；
+ * 收藏、点赞变化时只修改已缓存的字段，未缓存的字段下次读取时从数据库加载。
+ *
+ * 哈希中的字段 v 是写版本号：每次收藏、点赞变化都递增。读取时一并取回版本号，
+ * 回填时版本号已变化则放弃整批回填，避免查库后、回填前提交的点赞被回填的旧值覆盖；
+ * 回填使用HSETNX，不覆盖已有字段。过期时间只在哈希新建时设置，不随读写刷新。
  */
 @Component
 public class UserInteractionCacheUtil {
-    
+
+    private static final Logger log = LoggerFactory.getLogger(UserInteractionCacheUtil.class);
+
+    /**
+     * 收藏标志位
+     */
+    public static final int FLAG_COLLECTED = 1;
+
+    /**
+     * 点赞标志位
+     */
+    public static final int FLAG_LIKED = 2;
+
+    private static final String KEY_PREFIX = "user:interaction:";
+
+    /**
+     * 写版本号字段（照片打卡ID均为数字，不会冲突）
+     */
+    private static final String VERSION_FIELD = "v";
+
+    // 缓存过期时间（秒），哈希新建时设置
+    private static final long CACHE_EXPIRE_SECONDS = 30 * 60;
+
+    /**
+     * 批量回填：ARGV[1]=过期秒数，ARGV[2]=读取时的版本号，其后为字段和值交替排列
+     * 版本号已变化时不写入，返回0
+     */
+    private static final RedisScript<Long> PUT_SCRIPT = new DefaultRedisScript<>(
+            "local version = redis.call('HGET', KEYS[1], 'v') or '0' " +
+            "if version ~= ARGV[2] then return 0 end " +
+            "for i = 3, #ARGV, 2 do redis.call('HSETNX', KEYS[1], ARGV[i], ARGV[i + 1]) end " +
+            "if redis.call('TTL', KEYS[1]) < 0 then redis.call('EXPIRE', KEYS[1], ARGV[1]) end " +
+            "return 1",
+            Long.class);
+
+    /**
+     * 修改标志位：ARGV[1]=字段，ARGV[2]=标志位，ARGV[3]=1设置/0清除，ARGV[4]=过期秒数
+     * 先递增版本号使进行中的回填失效；字段未缓存时只递增版本号
+     */
+    private static final RedisScript<Long> UPDATE_FLAG_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('HINCRBY', KEYS[1], 'v', 1) " +
+            "if redis.call('TTL', KEYS[1]) < 0 then redis.call('EXPIRE', KEYS[1], ARGV[4]) end " +
+            "local current = redis.call('HGET', KEYS[1], ARGV[1]) " +
+            "if not current then return -1 end " +
+            "local flags = tonumber(current) " +
+            "local flag = tonumber(ARGV[2]) " +
+            "local has = math.floor(flags / flag) % 2 == 1 " +
+            "if ARGV[3] == '1' and not has then flags = flags + flag " +
+            "elseif ARGV[3] == '0' and has then flags = flags - flag end " +
+            "redis.call('HSET', KEYS[1], ARGV[1], flags) " +
+            "return flags",
+            Long.class);
+
     @Autowired
-    private RedisTemplate<String, Object> redisTemplate;
-    
+    private StringRedisTemplate stringRedisTemplate;
+
     @Autowired
-    private ObjectMapper objectMapper;
-    
-    // 缓存过期时间（分钟）
-    private static final int CACHE_EXPIRE_MINUTES = 30;
-    
+    private RedisUtil redisUtil;
+
     /**
-     * 缓存用户对照片的互动状态
+     * 批量获取用户对多个照片的互动标志位（一次HMGET，同时读取写版本号）
      * @param userId 用户ID
-     * @param photoCheckInId 照片打卡ID
-     * @param isCollected 是否收藏
-     * @param isLiked 是否点赞
+     * @param photoCheckInIds 照片打卡ID集合
+     * @return 已缓存的标志位及读取时的版本号，未缓存的照片不在结果中
      */
-    public void cacheUserInteractionStatus(Long userId, Long photoCheckInId, Boolean isCollected, Boolean isLiked) {
-        String cacheKey = buildCacheKey(userId, photoCheckInId);
-        
-        Map<String, Boolean> status = new HashMap<>();
-        status.put("collected", isCollected != null ? isCollected : false);
-        status.put("liked", isLiked != null ? isLiked : false);
-        
-        redisTemplate.opsForValue().set(cacheKey, status, CACHE_EXPIRE_MINUTES, TimeUnit.MINUTES);
+    public CachedFlags getInteractionFlags(Long userId, Collection<Long> photoCheckInIds) {
+        Map<Long, Integer> result = new HashMap<>();
+        if (userId == null || photoCheckInIds == null || photoCheckInIds.isEmpty() || !redisUtil.isRedisAvailable()) {
+            return new CachedFlags(result, null);
+        }
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(photoCheckInIds));
+        ids.remove(null);
+        List<Object> fields = new ArrayList<>(ids.size() + 1);
+        for (Long id : ids) {
+            fields.add(String.valueOf(id));
+        }
+        fields.add(VERSION_FIELD);
+        try {
+            List<Object> values = stringRedisTemplate.opsForHash().multiGet(buildCacheKey(userId), fields);
+            if (values == null) {
+                return new CachedFlags(result, null);
+            }
+            for (int i = 0; i < ids.size(); i++) {
+                Object value = values.get(i);
+                if (value != null) {
+                    result.put(ids.get(i), Integer.valueOf(value.toString()));
+                }
+            }
+            Object version = values.get(ids.size());
+            return new CachedFlags(result, version != null ? version.toString() : "0");
+        } catch (Exception e) {
+            log.warn("读取用户互动状态缓存失败，用户ID: {}, 原因: {}", userId, e.getMessage());
+            return new CachedFlags(result, null);
+        }
     }
-    
+
     /**
-     * 批量缓存用户对多个照片的互动状态
+     * 批量回填用户对多个照片的互动标志位，读取后发生过收藏、点赞变化时放弃回填
      * @param userId 用户ID
-     * @param interactionStatus 互动状态映射 {photoCheckInId: {collected: true/false, liked: true/false}}
+     * @param flags 照片打卡ID到标志位的映射（无互动也需写入0，避免重复查库）
+     * @param version 查库之前 getInteractionFlags 返回的版本号，为null时不回填
      */
-    public void batchCacheUserInteractionStatus(Long userId, Map<Long, Map<String, Boolean>> interactionStatus) {
-        interactionStatus.forEach((photoCheckInId, status) -> {
-            String cacheKey = buildCacheKey(userId, photoCheckInId);
-            redisTemplate.opsForValue().set(cacheKey, status, CACHE_EXPIRE_MINUTES, TimeUnit.MINUTES);
+    public void cacheInteractionFlags(Long userId, Map<Long, Integer> flags, String version) {
+        if (userId == null || flags == null || flags.isEmpty() || version == null || !redisUtil.isRedisAvailable()) {
+            return;
+        }
+        List<String> args = new ArrayList<>(flags.size() * 2 + 2);
+        args.add(String.valueOf(CACHE_EXPIRE_SECONDS));
+        args.add(version);
+        flags.forEach((photoCheckInId, flag) -> {
+            args.add(String.valueOf(photoCheckInId));
+            args.add(String.valueOf(flag));
         });
+        try {
+            Long written = stringRedisTemplate.execute(PUT_SCRIPT, Collections.singletonList(buildCacheKey(userId)), args.toArray());
+            if (written == null || written == 0L) {
+                log.debug("用户互动状态已变化，放弃回填，用户ID: {}", userId);
+            }
+        } catch (Exception e) {
+            log.warn("缓存用户互动状态失败，用户ID: {}, 原因: {}", userId, e.getMessage());
+        }
     }
-    
+
     /**
-     * 获取用户对照片的互动状态
+     * 收藏或点赞状态变化后修改已缓存的标志位
      * @param userId 用户ID
      * @param photoCheckInId 照片打卡ID
-     * @return 互动状态 {collected: true/false, liked: true/false}
+     * @param flag 标志位（FLAG_COLLECTED 或 FLAG_LIKED）
+     * @param set true为设置，false为清除
      */
-    public Map<String, Boolean> getUserInteractionStatus(Long userId, Long photoCheckInId) {
-        String cacheKey = buildCacheKey(userId, photoCheckInId);
-        return (Map<String, Boolean>) redisTemplate.opsForValue().get(cacheKey);
+    public void updateInteractionFlag(Long userId, Long photoCheckInId, int flag, boolean set) {
+        if (userId == null || photoCheckInId == null || !redisUtil.isRedisAvailable()) {
+            return;
+        }
+        try {
+            stringRedisTemplate.execute(UPDATE_FLAG_SCRIPT, Collections.singletonList(buildCacheKey(userId)),
+                    String.valueOf(photoCheckInId), String.valueOf(flag), set ? "1" : "0",
+                    String.valueOf(CACHE_EXPIRE_SECONDS));
+        } catch (Exception e) {
+            // 修改失败时删除字段，下次读取从数据库加载；进行中的回填可能写入旧值，最长保留到缓存过期
+            log.warn("更新用户互动状态缓存失败，用户ID: {}, 原因: {}", userId, e.getMessage());
+            clearUserInteractionCache(userId, photoCheckInId);
+        }
     }
-    
+
     /**
-     * 批量获取用户对多个照片的互动状态
+     * 清除用户对照片的互动状态缓存
      * @param userId 用户ID
-     * @param photoCheckInIds 照片打卡ID列表
-     * @return 互动状态映射 {photoCheckInId: {collected: true/false, liked: true/false}}
+     * @param photoCheckInId 照片打卡ID
      */
-    public Map<Long, Map<String, Boolean>> batchGetUserInteractionStatus(Long userId, List<Long> photoCheckInIds) {
-        Map<Long, Map<String, Boolean>> result = new HashMap<>();
-        
-        for (Long photoCheckInId : photoCheckInIds) {
-            String cacheKey = buildCacheKey(userId, photoCheckInId);
-            Map<String, Boolean> status = (Map<String, Boolean>) redisTemplate.opsForValue().get(cacheKey);
-            if (status != null) {
-                result.put(photoCheckInId, status);
-            }
+    public void clearUserInteractionCache(Long userId, Long photoCheckInId) {
+        try {
+            stringRedisTemplate.opsForHash().delete(buildCacheKey(userId), String.valueOf(photoCheckInId));
+        } catch (Exception e) {
+            log.warn("清除用户互动状态缓存失败，用户ID: {}, 原因: {}", userId, e.getMessage());
         }
-        
-        return result;
     }
-    
+
     /**
-     * 构建缓存键
-     * @param userId 用户ID
-     * @param photoCheckInId 照片打卡ID
-     * @return 缓存键
+     * 判断标志位中是否包含指定互动
+     * @param flags 标志位
+     * @param flag FLAG_COLLECTED 或 FLAG_LIKED
+     * @return 是否包含
      */
-    private String buildCacheKey(Long userId, Long photoCheckInId) {
-        return "user_interactions:" + userId + ":" + photoCheckInId;
+    public static boolean hasFlag(Integer flags, int flag) {
+        return flags != null && (flags & flag) != 0;
     }
-    
+
     /**
-     * 清除用户对照片的互动状态缓存
+     * 构建缓存键
      * @param userId 用户ID
-     * @param photoCheckInId 照片打卡ID
+     * @return 缓存键
      */
-    public void clearUserInteractionCache(Long userId, Long photoCheckInId) {
-        String cacheKey = buildCacheKey(userId, photoCheckInId);
-        redisTemplate.delete(cacheKey);
+    private String buildCacheKey(Long userId) {
+        return KEY_PREFIX + userId;
     }
-    
+
     /**
-     * 批量清除用户对多个照片的互动状态缓存
-     * @param userId 用户ID
-     * @param photoCheckInIds 照片打卡ID列表
+     * 已缓存的互动标志位及读取时的写版本号
      */
-    public void batchClearUserInteractionCache(Long userId, List<Long> photoCheckInIds) {
-        photoCheckInIds.forEach(photoCheckInId -> clearUserInteractionCache(userId, photoCheckInId));
+    public static class CachedFlags {
+
+        private final Map<Long, Integer> flags;
+
+        private final String version;
+
+        public CachedFlags(Map<Long, Integer> flags, String version) {
+            this.flags = flags;
+            this.version = version;
+        }
+
+        /**
+         * @return 照片打卡ID到标志位的映射（可修改）
+         */
+        public Map<Long, Integer> getFlags() {
+            return flags;
+        }
+
+        /**
+         * @return 写版本号，Redis不可用时为null
+         */
+        public String getVersion() {
+            return version;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,226 @@
+package com.scenic.utils;
+
+import com.scenic.config.IdGeneratorProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 工作机器ID租约
+ * 启动时为本节点分配唯一的工作机器ID（0-1023），并同步到SnowflakeIdGenerator和IdGenerator。
+ * 优先使用配置的固定ID；未配置时在Redis中以SET NX方式租用一个空闲ID并定期续约。
+ * 续约在独立线程上执行，不受其他定时任务阻塞。每次租用或续约成功后，把生成器的有效期延长到
+ * 发起请求时刻 + 租约有效期；续约持续失败时生成器在租约到期后拒绝生成ID，不会与接手该ID的节点重复。
+ */
+@Component
+public class WorkerIdLease {
+
+    private static final Logger log = LoggerFactory.getLogger(WorkerIdLease.class);
+
+    private static final String LEASE_KEY_PREFIX = "id:worker:lease:";
+
+    private static final int MAX_WORKER_ID = 1023;
+
+    /**
+     * 仅当租约仍属于本节点时续期
+     */
+    private static final RedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('EXPIRE', KEYS[1], ARGV[2]) end return 0",
+            Long.class);
+
+    /**
+     * 仅当租约仍属于本节点时释放
+     */
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end return 0",
+            Long.class);
+
+    @Autowired
+    private IdGeneratorProperties idGeneratorProperties;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private SnowflakeIdGenerator snowflakeIdGenerator;
+
+    @Autowired
+    private IdGenerator idGenerator;
+
+    private final String ownerToken = UUID.randomUUID().toString();
+
+    private volatile long workerId = -1;
+
+    private volatile boolean leased;
+
+    private ScheduledExecutorService renewer;
+
+    /**
+     * 分配工作机器ID
+     */
+    @PostConstruct
+    public void init() {
+        long configured = idGeneratorProperties.getWorkerId();
+        if (configured >= 0) {
+            apply(configured, Long.MAX_VALUE);
+            log.info("使用配置的工作机器ID: {}", configured);
+            return;
+        }
+
+        try {
+            long requestedAt = System.currentTimeMillis();
+            long acquired = acquireLease();
+            if (acquired >= 0) {
+                leased = true;
+                apply(acquired, leaseDeadline(requestedAt));
+                startRenewer();
+                log.info("通过Redis租约获得工作机器ID: {}", acquired);
+                return;
+            }
+            log.error("Redis中已无空闲的工作机器ID");
+        } catch (Exception e) {
+            log.warn("Redis租约分配工作机器ID失败: {}", e.getMessage());
+        }
+
+        long fallback = fallbackWorkerId();
+        apply(fallback, Long.MAX_VALUE);
+        log.warn("使用主机名和进程号推导的工作机器ID: {}，多节点部署时请配置id-generator.worker-id", fallback);
+    }
+
+    /**
+     * 启动续约线程，续约间隔为租约有效期的三分之一
+     */
+    private void startRenewer() {
+        long interval = Math.max(1L, idGeneratorProperties.getLeaseTtlSeconds() / 3);
+        renewer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "worker-id-lease");
+            thread.setDaemon(true);
+            return thread;
+        });
+        renewer.scheduleWithFixedDelay(this::renew, interval, interval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 续约
+     */
+    void renew() {
+        if (!leased) {
+            return;
+        }
+        try {
+            long requestedAt = System.currentTimeMillis();
+            Long renewed = stringRedisTemplate.execute(RENEW_SCRIPT,
+                    Collections.singletonList(LEASE_KEY_PREFIX + workerId),
+                    ownerToken, String.valueOf(idGeneratorProperties.getLeaseTtlSeconds()));
+            if (renewed != null && renewed == 1L) {
+                extend(leaseDeadline(requestedAt));
+                return;
+            }
+            // 租约已丢失（如Redis故障期间过期），重新租用一个空闲ID，避免与其他节点冲突
+            log.error("工作机器ID租约已丢失: {}，重新申请", workerId);
+            requestedAt = System.currentTimeMillis();
+            long acquired = acquireLease();
+            if (acquired >= 0) {
+                apply(acquired, leaseDeadline(requestedAt));
+                log.info("重新获得工作机器ID: {}", acquired);
+            } else {
+                log.error("Redis中已无空闲的工作机器ID，租约到期后将拒绝生成ID");
+            }
+        } catch (Exception e) {
+            log.warn("工作机器ID续约失败，租约到期后将拒绝生成ID: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 应用关闭时释放租约
+     */
+    @PreDestroy
+    public void release() {
+        if (!leased) {
+            return;
+        }
+        if (renewer != null) {
+            renewer.shutdownNow();
+        }
+        try {
+            stringRedisTemplate.execute(RELEASE_SCRIPT, Collections.singletonList(LEASE_KEY_PREFIX + workerId), ownerToken);
+        } catch (Exception e) {
+            log.warn("释放工作机器ID租约失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 获取当前工作机器ID
+     * @return 工作机器ID
+     */
+    public long getWorkerId() {
+        return workerId;
+    }
+
+    /**
+     * 从随机位置开始依次尝试租用空闲ID
+     * @return 租到的ID，全部被占用时返回-1
+     */
+    private long acquireLease() {
+        int start = ThreadLocalRandom.current().nextInt(MAX_WORKER_ID + 1);
+        for (int i = 0; i <= MAX_WORKER_ID; i++) {
+            int candidate = (start + i) % (MAX_WORKER_ID + 1);
+            Boolean ok = stringRedisTemplate.opsForValue().setIfAbsent(LEASE_KEY_PREFIX + candidate, ownerToken,
+                    idGeneratorProperties.getLeaseTtlSeconds(), TimeUnit.SECONDS);
+            if (Boolean.TRUE.equals(ok)) {
+                return candidate;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 切换工作机器ID并设置有效期
+     * @param id 工作机器ID
+     * @param validUntilMillis 有效期截止的毫秒时间戳，固定ID为Long.MAX_VALUE
+     */
+    private void apply(long id, long validUntilMillis) {
+        this.workerId = id;
+        snowflakeIdGenerator.setMachineId(id);
+        // IdGenerator为5位数据中心ID + 5位工作ID，拆分同一个10位ID
+        idGenerator.setWorkerId(id & 31, id >> 5);
+        extend(validUntilMillis);
+    }
+
+    private void extend(long validUntilMillis) {
+        snowflakeIdGenerator.setMachineIdValidUntil(validUntilMillis);
+        idGenerator.setWorkerIdValidUntil(validUntilMillis);
+    }
+
+    /**
+     * 租约在Redis中最早的过期时刻：以发起请求的时间为起点计算
+     */
+    private long leaseDeadline(long requestedAtMillis) {
+        return requestedAtMillis + TimeUnit.SECONDS.toMillis(idGeneratorProperties.getLeaseTtlSeconds());
+    }
+
+    private long fallbackWorkerId() {
+        String identity;
+        try {
+            identity = InetAddress.getLocalHost().getHostName() + "/" + ManagementFactory.getRuntimeMXBean().getName();
+        } catch (Exception e) {
+            identity = ManagementFactory.getRuntimeMXBean().getName();
+        }
+        return (identity.hashCode() & 0x7fffffff) % (MAX_WORKER_ID + 1);
+    }
+}
@@ -0,0 +1,4 @@
+-- resource_file表增加图片派生尺寸的对象键，派生图与原图存放在同一存储桶
+-- 为NULL表示尚未生成；原图已不大于目标尺寸或无法解码时直接保存原图的file_key
+ALTER TABLE resource_file ADD COLUMN thumbnail_key varchar(500) NULL COMMENT '缩略图对象键（与原图同桶）' AFTER ref_count;
+ALTER TABLE resource_file ADD COLUMN medium_key varchar(500) NULL COMMENT '中等尺寸预览图对象键（与原图同桶）' AFTER thumbnail_key;
@@ -0,0 +1,6 @@
+-- 小程序端照片打卡游标分页（按 create_time, id 倒序）使用的组合索引
+-- 等值条件列在前、排序列在后，按游标定位后顺序读取一页，翻到第几页开销都相同
+CREATE INDEX idx_photo_checkin_feed ON photo_checkin (status, deleted, create_time, id);
+
+-- 按分类筛选时使用
+CREATE INDEX idx_photo_checkin_category_feed ON photo_checkin (category_id, status, deleted, create_time, id);
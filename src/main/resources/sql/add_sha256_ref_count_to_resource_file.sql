@@ -0,0 +1,6 @@
+-- 恢复resource_file表的sha256列并增加引用计数，用于按内容去重
+ALTER TABLE resource_file ADD COLUMN sha256 char(64) NULL COMMENT '文件内容SHA-256' AFTER duration;
+ALTER TABLE resource_file ADD COLUMN ref_count int NOT NULL DEFAULT 1 COMMENT '引用计数' AFTER sha256;
+
+-- 同一存储桶内相同内容只保留一个对象（sha256为NULL的历史记录不受限制）
+CREATE UNIQUE INDEX uk_resource_file_sha256 ON resource_file (bucket_name, sha256);
@@ -0,0 +1,14 @@
+-- 为user_favorite表添加互动唯一键 (user_id, content_id, content_type)
+-- 作用：收藏、点赞使用 INSERT IGNORE 和按唯一键的 DELETE，同一用户对同一内容的同一种互动只有一条记录
+
+-- 删除先查询后插入的并发请求留下的重复记录，保留最早的一条
+DELETE f1 FROM user_favorite f1
+JOIN user_favorite f2
+  ON f1.user_id = f2.user_id
+ AND f1.content_id = f2.content_id
+ AND f1.content_type = f2.content_type
+ AND f1.id > f2.id;
+
+ALTER TABLE user_favorite
+ADD CONSTRAINT uk_user_content
+UNIQUE (user_id, content_id, content_type);
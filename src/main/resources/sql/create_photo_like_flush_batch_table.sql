@@ -0,0 +1,10 @@
+-- 创建点赞增量写回批次表
+-- 作用：点赞增量按批写回时，批次号与 like_count 的UPDATE在同一事务中写入。
+-- 写库提交后、清理Redis中的批次之前宕机时，重试发现批次号已存在即跳过UPDATE，增量不会重复累加
+CREATE TABLE IF NOT EXISTS photo_like_flush_batch (
+    batch_id CHAR(36) NOT NULL PRIMARY KEY COMMENT '批次号',
+    photo_count INT NOT NULL DEFAULT 0 COMMENT '批次包含的照片数',
+    create_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '写回时间',
+    
+    INDEX idx_create_time (create_time)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='点赞增量写回批次表';
@@ -0,0 +1,3 @@
+-- 直传文件被业务记录认领前引用计数为0，认领时置为1，每个直传文件只能认领一次
+-- 把尚未完成上传的直传记录改为未认领状态
+UPDATE resource_file SET ref_count = 0 WHERE is_temp = 1;
@@ -0,0 +1,246 @@
+package com.scenic.service;
+
+import com.scenic.entity.ResourceFile;
+import com.scenic.mapper.ResourceFileMapper;
+import com.scenic.service.impl.ResourceFileServiceImpl;
+import com.scenic.utils.ResourceFileUrlResolver;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * 文件去重存储与引用计数测试
+ * 模拟的Mapper在内存中维护 resource_file 表，按 (bucket_name, sha256) 唯一约束插入，
+ * 增减引用计数和删除语句的条件与SQL一致
+ */
+public class ResourceFileServiceTest {
+
+    private static final String BUCKET = "scenic";
+
+    private final Map<Long, ResourceFile> table = new HashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    private MinioService minioService;
+    private ResourceFileServiceImpl service;
+
+    /**
+     * deleteLastReference 执行前的钩子，用于模拟两条语句之间的并发上传
+     */
+    private Runnable beforeDeleteLastReference = () -> { };
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        ResourceFileMapper mapper = mock(ResourceFileMapper.class);
+        when(mapper.selectByBucketAndSha256(anyString(), anyString())).thenAnswer(invocation -> {
+            synchronized (table) {
+                return table.values().stream()
+                        .filter(row -> row.getBucketName().equals(invocation.getArgument(0))
+                                && row.getSha256().equals(invocation.getArgument(1)))
+                        .findFirst().map(ResourceFileServiceTest::copy).orElse(null);
+            }
+        });
+        when(mapper.insert(any())).thenAnswer(invocation -> {
+            ResourceFile resourceFile = invocation.getArgument(0);
+            synchronized (table) {
+                boolean duplicate = table.values().stream()
+                        .anyMatch(row -> row.getBucketName().equals(resourceFile.getBucketName())
+                                && row.getSha256().equals(resourceFile.getSha256()));
+                if (duplicate) {
+                    throw new DuplicateKeyException("uk_resource_file_sha256");
+                }
+                resourceFile.setId(sequence.incrementAndGet());
+                table.put(resourceFile.getId(), copy(resourceFile));
+                return 1;
+            }
+        });
+        when(mapper.incrementRefCount(anyLong())).thenAnswer(invocation -> {
+            synchronized (table) {
+                ResourceFile row = table.get(invocation.<Long>getArgument(0));
+                if (row == null) {
+                    return 0;
+                }
+                row.setRefCount(row.getRefCount() + 1);
+                return 1;
+            }
+        });
+        when(mapper.decrementRefCount(anyLong())).thenAnswer(invocation -> {
+            synchronized (table) {
+                ResourceFile row = table.get(invocation.<Long>getArgument(0));
+                if (row == null || row.getRefCount() <= 1) {
+                    return 0;
+                }
+                row.setRefCount(row.getRefCount() - 1);
+                return 1;
+            }
+        });
+        when(mapper.deleteLastReference(anyLong())).thenAnswer(invocation -> {
+            beforeDeleteLastReference.run();
+            synchronized (table) {
+                ResourceFile row = table.get(invocation.<Long>getArgument(0));
+                if (row == null || row.getRefCount() > 1) {
+                    return 0;
+                }
+                table.remove(row.getId());
+                return 1;
+            }
+        });
+
+        ResourceFileUrlResolver resolver = mock(ResourceFileUrlResolver.class);
+        when(resolver.loadFiles(any())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            Map<Long, ResourceFile> files = new HashMap<>();
+            synchronized (table) {
+                for (Long id : ids) {
+                    ResourceFile row = table.get(id);
+                    if (row != null) {
+                        files.put(id, copy(row));
+                    }
+                }
+            }
+            return files;
+        });
+
+        minioService = mock(MinioService.class);
+        // 读完上传流，摘要在读取过程中计算
+        doAnswer(invocation -> {
+            InputStream inputStream = invocation.getArgument(2);
+            inputStream.readAllBytes();
+            return null;
+        }).when(minioService).putObject(anyString(), anyString(), any(), anyLong(), any());
+        service = new ResourceFileServiceImpl();
+        ReflectionTestUtils.setField(service, "resourceFileMapper", mapper);
+        ReflectionTestUtils.setField(service, "minioService", minioService);
+        ReflectionTestUtils.setField(service, "resourceFileUrlResolver", resolver);
+        ReflectionTestUtils.setField(service, "imageDerivativeService", mock(ImageDerivativeService.class));
+    }
+
+    @Test
+    public void testSameContentIsStoredOnce() throws Exception {
+        ResourceFile first = service.store(newFile("a.jpg"), upload("same"));
+        ResourceFile second = service.store(newFile("b.jpg"), upload("same"));
+
+        assertEquals(first.getId(), second.getId(), "内容相同的文件应复用已有记录");
+        assertEquals(1, table.size());
+        assertEquals(Integer.valueOf(2), table.get(first.getId()).getRefCount());
+        verify(minioService).removeObject(BUCKET, "b.jpg");
+        verify(minioService, never()).removeObject(BUCKET, "a.jpg");
+    }
+
+    @Test
+    public void testDifferentContentCreatesSeparateRecords() throws Exception {
+        ResourceFile first = service.store(newFile("a.jpg"), upload("one"));
+        ResourceFile second = service.store(newFile("b.jpg"), upload("two"));
+
+        assertNotEquals(first.getId(), second.getId());
+        assertNotEquals(first.getSha256(), second.getSha256());
+        verify(minioService, never()).removeObject(anyString(), anyString());
+    }
+
+    @Test
+    public void testObjectIsDeletedOnlyWithLastReference() throws Exception {
+        ResourceFile stored = newFile("a.jpg");
+        stored.setThumbnailKey("a_thumb.jpg");
+        stored = service.store(stored, upload("same"));
+        service.store(newFile("b.jpg"), upload("same"));
+
+        assertEquals(0, service.release(Collections.singletonList(stored.getId())), "仍有引用时不应删除");
+        assertEquals(Integer.valueOf(1), table.get(stored.getId()).getRefCount());
+        verify(minioService, never()).removeObject(BUCKET, "a.jpg");
+
+        assertEquals(1, service.release(Collections.singletonList(stored.getId())));
+        assertTrue(table.isEmpty());
+        verify(minioService).removeObject(BUCKET, "a.jpg");
+        verify(minioService).removeObject(BUCKET, "a_thumb.jpg");
+    }
+
+    @Test
+    public void testReuseBetweenDecrementAndDeleteKeepsFile() throws Exception {
+        ResourceFile stored = service.store(newFile("a.jpg"), upload("same"));
+        // 减少引用失败（只剩一个引用）后、删除之前，另一个上传复用了该文件
+        beforeDeleteLastReference = () -> {
+            synchronized (table) {
+                ResourceFile row = table.get(stored.getId());
+                row.setRefCount(row.getRefCount() + 1);
+            }
+            beforeDeleteLastReference = () -> { };
+        };
+
+        assertEquals(0, service.release(Collections.singletonList(stored.getId())));
+
+        assertEquals(Integer.valueOf(1), table.get(stored.getId()).getRefCount(), "复用的引用应保留");
+        verify(minioService, never()).removeObject(BUCKET, "a.jpg");
+    }
+
+    @Test
+    public void testConcurrentUploadsOfSameContentShareOneRecord() throws Exception {
+        int uploads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(uploads);
+        List<Future<ResourceFile>> futures = new ArrayList<>();
+        for (int i = 0; i < uploads; i++) {
+            String fileKey = "f" + i + ".jpg";
+            futures.add(executor.submit(() -> {
+                start.await();
+                return service.store(newFile(fileKey), upload("same"));
+            }));
+        }
+        start.countDown();
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        for (Future<ResourceFile> future : futures) {
+            ids.add(future.get().getId());
+        }
+        executor.shutdown();
+
+        assertEquals(1, ids.size(), "并发上传相同内容只应保留一条记录");
+        assertEquals(Integer.valueOf(uploads), table.get(ids.iterator().next()).getRefCount());
+        verify(minioService, times(uploads - 1)).removeObject(eq(BUCKET), anyString());
+    }
+
+    private static ResourceFile newFile(String fileKey) {
+        ResourceFile resourceFile = new ResourceFile();
+        resourceFile.setBucketName(BUCKET);
+        resourceFile.setFileKey(fileKey);
+        resourceFile.setFileName(fileKey);
+        return resourceFile;
+    }
+
+    private static MockMultipartFile upload(String content) {
+        return new MockMultipartFile("file", "upload.jpg", "image/jpeg", content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static ResourceFile copy(ResourceFile source) {
+        ResourceFile copy = new ResourceFile();
+        copy.setId(source.getId());
+        copy.setBucketName(source.getBucketName());
+        copy.setFileKey(source.getFileKey());
+        copy.setSha256(source.getSha256());
+        copy.setRefCount(source.getRefCount());
+        copy.setThumbnailKey(source.getThumbnailKey());
+        copy.setMediumKey(source.getMediumKey());
+        return copy;
+    }
+}
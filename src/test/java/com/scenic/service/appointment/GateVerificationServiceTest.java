@@ -0,0 +1,220 @@
+package com.scenic.service.appointment;
+
+import com.scenic.config.ReservationExpireProperties;
+import com.scenic.dto.appointment.GateVerifyRequestDTO;
+import com.scenic.dto.appointment.GateVerifyResultDTO;
+import com.scenic.entity.appointment.IndividualReservation;
+import com.scenic.exception.reservation.ServiceUnavailableException;
+import com.scenic.mapper.appointment.IndividualReservationMapper;
+import com.scenic.service.appointment.impl.GateVerificationServiceImpl;
+import com.scenic.utils.ReservationDetailCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+/**
+ * 闸机条件核销测试
+ * 模拟的Mapper按 WHERE status = ? AND version = ? 的语义更新内存中的一行预约
+ */
+public class GateVerificationServiceTest {
+
+    private static final Long ID = 1L;
+    private static final String RESERVATION_NO = "RES0001";
+
+    private IndividualReservationMapper mapper;
+    private ReservationDetailCache cache;
+    private GateVerificationServiceImpl service;
+
+    /**
+     * 数据库中的预约行
+     */
+    private final IndividualReservation row = new IndividualReservation();
+
+    @BeforeEach
+    public void setUp() {
+        row.setId(ID);
+        row.setReservationNo(RESERVATION_NO);
+        row.setVisitDate(java.sql.Date.valueOf("2099-01-01"));
+        row.setTimeSlot(1);
+        row.setStatus(0);
+        row.setVersion(0);
+
+        mapper = mock(IndividualReservationMapper.class);
+        when(mapper.selectVerifyStates(any(), any())).thenAnswer(invocation -> {
+            List<Long> ids = invocation.getArgument(0);
+            List<String> reservationNos = invocation.getArgument(1);
+            boolean matched = (ids != null && ids.contains(ID))
+                    || (reservationNos != null && reservationNos.contains(RESERVATION_NO));
+            return matched ? Collections.singletonList(readRow()) : Collections.emptyList();
+        });
+        when(mapper.verifyIfUnchanged(any(), anyInt(), anyInt())).thenAnswer(invocation -> {
+            IndividualReservation update = invocation.getArgument(0);
+            int expectedStatus = invocation.getArgument(1);
+            int expectedVersion = invocation.getArgument(2);
+            synchronized (row) {
+                if (row.getStatus() != expectedStatus || row.getVersion() != expectedVersion) {
+                    return 0;
+                }
+                row.setStatus(10);
+                row.setVersion(expectedVersion + 1);
+                row.setVerificationTime(update.getVerificationTime());
+                return 1;
+            }
+        });
+        cache = mock(ReservationDetailCache.class);
+
+        service = new GateVerificationServiceImpl();
+        ReflectionTestUtils.setField(service, "individualReservationMapper", mapper);
+        ReflectionTestUtils.setField(service, "reservationDetailCache", cache);
+        ReflectionTestUtils.setField(service, "expireProperties", new ReservationExpireProperties());
+    }
+
+    @Test
+    public void testRepeatedScanIsIdempotent() {
+        GateVerifyResultDTO first = service.verify(request(null));
+        GateVerifyResultDTO second = service.verify(request(null));
+
+        assertEquals(GateVerifyResultDTO.RESULT_VERIFIED, first.getResult());
+        assertEquals(GateVerifyResultDTO.RESULT_ALREADY_VERIFIED, second.getResult());
+        assertEquals(first.getVerificationTime(), second.getVerificationTime(), "重复扫码应返回首次核销时间");
+        verify(mapper, times(1)).verifyIfUnchanged(any(), eq(0), eq(0));
+        verify(cache).invalidate(ID, 1);
+    }
+
+    @Test
+    public void testConcurrentScansVerifyExactlyOnce() throws InterruptedException {
+        int gates = 16;
+        Map<String, AtomicInteger> counts = new ConcurrentHashMap<>();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(gates);
+        for (int i = 0; i < gates; i++) {
+            executor.submit(() -> {
+                start.await();
+                String result = service.verify(request(null)).getResult();
+                counts.computeIfAbsent(result, key -> new AtomicInteger()).incrementAndGet();
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(1, counts.get(GateVerifyResultDTO.RESULT_VERIFIED).get(), "只能有一个闸机核销成功");
+        assertEquals(gates - 1, counts.get(GateVerifyResultDTO.RESULT_ALREADY_VERIFIED).get());
+        assertEquals(1, row.getVersion());
+    }
+
+    @Test
+    public void testStaleVersionIsReloadedAndRetried() {
+        // 缓存中的状态是后台修改前的版本
+        IndividualReservation stale = readRow();
+        when(cache.get(ID)).thenReturn(stale);
+        row.setVersion(3);
+
+        GateVerifyResultDTO result = service.verify(request(null));
+
+        assertEquals(GateVerifyResultDTO.RESULT_VERIFIED, result.getResult());
+        verify(mapper).verifyIfUnchanged(any(), eq(0), eq(0));
+        verify(mapper).verifyIfUnchanged(any(), eq(0), eq(3));
+        assertEquals(4, row.getVersion());
+    }
+
+    @Test
+    public void testCancelledReservationIsNotVerified() {
+        row.setStatus(1);
+
+        GateVerifyResultDTO result = service.verify(request(null));
+
+        assertEquals(GateVerifyResultDTO.RESULT_CANCELLED, result.getResult());
+        verify(mapper, never()).verifyIfUnchanged(any(), anyInt(), anyInt());
+    }
+
+    @Test
+    public void testExpiredReservationIsRejectedOnline() {
+        row.setStatus(11);
+
+        assertEquals(GateVerifyResultDTO.RESULT_EXPIRED, service.verify(request(null)).getResult());
+        verify(mapper, never()).verifyIfUnchanged(any(), anyInt(), anyInt());
+    }
+
+    @Test
+    public void testOfflineScanBeforeSlotEndVerifiesExpiredReservation() {
+        // 断网期间在时段结束前扫码，恢复后补传时预约已被过期任务处理
+        row.setStatus(11);
+        long firstScan = scanTime("2099-01-01T10:00:00");
+        long secondScan = scanTime("2099-01-01T10:05:00");
+
+        List<GateVerifyResultDTO> results = service.verifyBatch(Arrays.asList(request(secondScan), request(firstScan)));
+
+        assertEquals(GateVerifyResultDTO.RESULT_ALREADY_VERIFIED, results.get(0).getResult());
+        assertEquals(GateVerifyResultDTO.RESULT_VERIFIED, results.get(1).getResult());
+        assertEquals(firstScan, row.getVerificationTime().getTime(), "核销时间应为最早的扫码时间");
+        verify(mapper, times(1)).verifyIfUnchanged(any(), eq(11), eq(0));
+        verify(mapper, times(1)).selectVerifyStates(anyList(), anyList());
+    }
+
+    @Test
+    public void testOfflineScanAfterSlotEndStaysExpired() {
+        row.setStatus(11);
+
+        List<GateVerifyResultDTO> results = service.verifyBatch(
+                Collections.singletonList(request(scanTime("2099-01-01T12:30:00"))));
+
+        assertEquals(GateVerifyResultDTO.RESULT_EXPIRED, results.get(0).getResult());
+        verify(mapper, never()).verifyIfUnchanged(any(), anyInt(), anyInt());
+    }
+
+    @Test
+    public void testCacheFenceFailureAbortsUpdate() {
+        doThrow(new ServiceUnavailableException()).when(cache).invalidate(any(), any());
+
+        assertThrows(ServiceUnavailableException.class, () -> service.verify(request(null)));
+        verify(mapper, never()).verifyIfUnchanged(any(), anyInt(), anyInt());
+        assertEquals(0, row.getStatus());
+    }
+
+    private IndividualReservation readRow() {
+        synchronized (row) {
+            IndividualReservation copy = new IndividualReservation();
+            copy.setId(row.getId());
+            copy.setReservationNo(row.getReservationNo());
+            copy.setVisitDate(row.getVisitDate());
+            copy.setTimeSlot(row.getTimeSlot());
+            copy.setStatus(row.getStatus());
+            copy.setVersion(row.getVersion());
+            copy.setVerificationTime(row.getVerificationTime());
+            return copy;
+        }
+    }
+
+    private static GateVerifyRequestDTO request(Long scanTime) {
+        GateVerifyRequestDTO request = new GateVerifyRequestDTO();
+        request.setReservationId(ID);
+        request.setOperatorId(100L);
+        request.setScanTime(scanTime);
+        return request;
+    }
+
+    private static long scanTime(String dateTime) {
+        return LocalDateTime.parse(dateTime).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
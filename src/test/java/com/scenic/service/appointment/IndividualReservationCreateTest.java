@@ -0,0 +1,106 @@
+package com.scenic.service.appointment;
+
+import com.scenic.common.dto.Result;
+import com.scenic.entity.appointment.IndividualReservation;
+import com.scenic.exception.reservation.ServiceUnavailableException;
+import com.scenic.mapper.appointment.IndividualReservationMapper;
+import com.scenic.service.appointment.impl.IndividualReservationServiceImpl;
+import com.scenic.utils.ReservationUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+/**
+ * 创建个人预约时余量台账的占用与释放
+ */
+public class IndividualReservationCreateTest {
+
+    private IndividualReservationMapper mapper;
+    private ReservationCapacityService capacityService;
+    private ReservationUtil reservationUtil;
+    private IndividualReservationServiceImpl service;
+
+    @BeforeEach
+    public void setUp() {
+        mapper = mock(IndividualReservationMapper.class);
+        capacityService = mock(ReservationCapacityService.class);
+        reservationUtil = mock(ReservationUtil.class);
+        ReservationWriteBehindService writeBehindService = mock(ReservationWriteBehindService.class);
+        when(reservationUtil.generateReservationNo()).thenReturn("RES0001");
+        when(writeBehindService.isEnabled()).thenReturn(false);
+
+        service = new IndividualReservationServiceImpl();
+        ReflectionTestUtils.setField(service, "individualReservationMapper", mapper);
+        ReflectionTestUtils.setField(service, "reservationCapacityService", capacityService);
+        ReflectionTestUtils.setField(service, "reservationUtil", reservationUtil);
+        ReflectionTestUtils.setField(service, "reservationWriteBehindService", writeBehindService);
+    }
+
+    @Test
+    public void testFullSlotIsRejectedWithoutInsert() {
+        IndividualReservation reservation = newReservation();
+        when(capacityService.tryAcquire(any(Date.class), anyInt(), anyInt())).thenReturn(false);
+
+        Result<String> result = service.createReservation(reservation);
+
+        assertNotEquals(200, result.getCode());
+        verify(mapper, never()).insert(any());
+        verify(capacityService, never()).release(any(), any(), anyInt());
+        verify(reservationUtil).releaseReservationLock(reservation);
+    }
+
+    @Test
+    public void testCapacityReleasedWhenInsertFails() {
+        IndividualReservation reservation = newReservation();
+        when(capacityService.tryAcquire(any(Date.class), anyInt(), anyInt())).thenReturn(true);
+        when(mapper.insert(any())).thenThrow(new DataIntegrityViolationException("duplicate"));
+
+        assertThrows(ServiceUnavailableException.class, () -> service.createReservation(reservation));
+
+        verify(capacityService).release(reservation.getVisitDate(), 1, 3);
+        verify(reservationUtil).releaseReservationLock(reservation);
+    }
+
+    @Test
+    public void testCapacityReleasedWhenInsertAffectsNoRow() {
+        IndividualReservation reservation = newReservation();
+        when(capacityService.tryAcquire(any(Date.class), anyInt(), anyInt())).thenReturn(true);
+        when(mapper.insert(any())).thenReturn(0);
+
+        Result<String> result = service.createReservation(reservation);
+
+        assertNotEquals(200, result.getCode());
+        verify(capacityService).release(reservation.getVisitDate(), 1, 3);
+    }
+
+    @Test
+    public void testCapacityKeptWhenInsertSucceeds() {
+        IndividualReservation reservation = newReservation();
+        when(capacityService.tryAcquire(any(Date.class), anyInt(), anyInt())).thenReturn(true);
+        when(mapper.insert(any())).thenReturn(1);
+
+        Result<String> result = service.createReservation(reservation);
+
+        assertEquals("RES0001", result.getData());
+        verify(capacityService).tryAcquire(reservation.getVisitDate(), 1, 3);
+        verify(capacityService, never()).release(any(), any(), anyInt());
+    }
+
+    private static IndividualReservation newReservation() {
+        IndividualReservation reservation = new IndividualReservation();
+        reservation.setVisitDate(java.sql.Date.valueOf("2099-01-01"));
+        reservation.setTimeSlot(1);
+        reservation.setAdultCount(2);
+        reservation.setChildCount(1);
+        reservation.setContactIdNumber("110101199001011234");
+        return reservation;
+    }
+}
@@ -0,0 +1,207 @@
+package com.scenic.service.appointment;
+
+import com.scenic.common.dto.Result;
+import com.scenic.entity.appointment.IndividualReservation;
+import com.scenic.mapper.appointment.IndividualReservationMapper;
+import com.scenic.service.appointment.impl.IndividualReservationServiceImpl;
+import com.scenic.utils.ReservationDetailCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 修改、取消、核销个人预约的版本号条件更新及余量台账调整
+ * 模拟的Mapper按 WHERE id = ? AND version = ? 的语义更新内存中的一行预约
+ */
+public class IndividualReservationUpdateTest {
+
+    private static final Long ID = 1L;
+
+    private IndividualReservationMapper mapper;
+    private ReservationCapacityService capacityService;
+    private ReservationDetailCache cache;
+    private IndividualReservationServiceImpl service;
+
+    /**
+     * 数据库中的预约行
+     */
+    private final IndividualReservation row = new IndividualReservation();
+
+    @BeforeEach
+    public void setUp() {
+        row.setId(ID);
+        row.setVisitDate(java.sql.Date.valueOf("2099-01-01"));
+        row.setTimeSlot(1);
+        row.setTotalCount(2);
+        row.setStatus(0);
+        row.setVersion(0);
+
+        mapper = mock(IndividualReservationMapper.class);
+        when(mapper.selectById(ID)).thenAnswer(invocation -> readRow());
+        when(mapper.updateById(any(), any())).thenAnswer(invocation -> {
+            IndividualReservation update = invocation.getArgument(0);
+            Integer expectedVersion = invocation.getArgument(1);
+            synchronized (row) {
+                if (!row.getVersion().equals(expectedVersion)) {
+                    return 0;
+                }
+                if (update.getStatus() != null) {
+                    row.setStatus(update.getStatus());
+                }
+                if (update.getVisitDate() != null) {
+                    row.setVisitDate(update.getVisitDate());
+                }
+                if (update.getTimeSlot() != null) {
+                    row.setTimeSlot(update.getTimeSlot());
+                }
+                if (update.getTotalCount() != null) {
+                    row.setTotalCount(update.getTotalCount());
+                }
+                row.setVersion(update.getVersion());
+                return 1;
+            }
+        });
+        capacityService = mock(ReservationCapacityService.class);
+        cache = mock(ReservationDetailCache.class);
+
+        service = new IndividualReservationServiceImpl();
+        ReflectionTestUtils.setField(service, "individualReservationMapper", mapper);
+        ReflectionTestUtils.setField(service, "reservationCapacityService", capacityService);
+        ReflectionTestUtils.setField(service, "reservationDetailCache", cache);
+    }
+
+    @Test
+    public void testCancelBumpsVersionAndReleasesCapacity() {
+        Result<String> result = service.cancelReservation(ID, "行程变更", 100L);
+
+        assertEquals(200, result.getCode());
+        assertEquals(1, row.getStatus());
+        assertEquals(1, row.getVersion());
+        verify(mapper).updateById(any(), eq(0));
+        verify(cache).invalidate(ID, 1);
+        verify(capacityService).release(row.getVisitDate(), 1, 2);
+    }
+
+    @Test
+    public void testCancelLosingToGateVerificationKeepsVerifiedStatus() {
+        // 取消读取预约后、写库之前，闸机完成了核销
+        when(mapper.selectById(ID)).thenAnswer(invocation -> {
+            IndividualReservation read = readRow();
+            synchronized (row) {
+                row.setStatus(10);
+                row.setVersion(row.getVersion() + 1);
+            }
+            return read;
+        });
+
+        Result<String> result = service.cancelReservation(ID, "行程变更", 100L);
+
+        assertNotEquals(200, result.getCode());
+        assertEquals(10, row.getStatus(), "已核销的预约不应被取消覆盖");
+        verify(cache, never()).invalidate(any(), any());
+        verify(capacityService, never()).release(any(), any(), anyInt());
+    }
+
+    @Test
+    public void testConcurrentVerifyAndCancelOnlyOneWins() {
+        // 两个请求读到同一版本
+        IndividualReservation stale = readRow();
+        when(mapper.selectById(ID)).thenReturn(stale, readRow());
+
+        Result<String> verified = service.verifyReservation(ID, 100L, "东门", null, null, 100L);
+        Result<String> cancelled = service.cancelReservation(ID, "行程变更", 100L);
+
+        assertEquals(200, verified.getCode());
+        assertNotEquals(200, cancelled.getCode());
+        assertEquals(10, row.getStatus());
+        verify(cache, times(1)).invalidate(ID, 1);
+        verify(capacityService, never()).release(any(), any(), anyInt());
+    }
+
+    @Test
+    public void testMoveToFullSlotIsRejected() {
+        when(capacityService.tryAcquire(any(), any(), anyInt())).thenReturn(false);
+
+        Result<String> result = service.updateReservation(update(2, null));
+
+        assertNotEquals(200, result.getCode());
+        verify(mapper, never()).updateById(any(), any());
+        verify(capacityService, never()).release(any(), any(), anyInt());
+        assertEquals(1, row.getTimeSlot());
+    }
+
+    @Test
+    public void testMoveAcquiresNewSlotAndReleasesOldSlot() {
+        when(capacityService.tryAcquire(any(), any(), anyInt())).thenReturn(true);
+
+        Result<String> result = service.updateReservation(update(2, null));
+
+        assertEquals(200, result.getCode());
+        assertEquals(2, row.getTimeSlot());
+        verify(capacityService).tryAcquire(row.getVisitDate(), 2, 2);
+        verify(capacityService).release(row.getVisitDate(), 1, 2);
+    }
+
+    @Test
+    public void testCountChangeAdjustsOnlyTheDelta() {
+        when(capacityService.tryAcquire(any(), any(), anyInt())).thenReturn(true);
+
+        service.updateReservation(update(null, 5));
+        verify(capacityService).tryAcquire(row.getVisitDate(), 1, 3);
+        verify(capacityService, never()).release(any(), any(), anyInt());
+
+        service.updateReservation(update(null, 1));
+        verify(capacityService).release(row.getVisitDate(), 1, 4);
+    }
+
+    @Test
+    public void testAcquisitionReturnedWhenUpdateConflicts() {
+        when(capacityService.tryAcquire(any(), any(), anyInt())).thenReturn(true);
+        when(mapper.updateById(any(), any())).thenReturn(0);
+
+        Result<String> result = service.updateReservation(update(2, null));
+
+        assertNotEquals(200, result.getCode());
+        verify(capacityService).release(row.getVisitDate(), 2, 2);
+        verify(capacityService, never()).release(row.getVisitDate(), 1, 2);
+        verify(cache, never()).invalidate(any(), any());
+    }
+
+    @Test
+    public void testCancelledReservationMovesWithoutCapacity() {
+        row.setStatus(1);
+
+        Result<String> result = service.updateReservation(update(2, null));
+
+        assertEquals(200, result.getCode());
+        verify(capacityService, never()).tryAcquire(any(), any(), anyInt());
+        verify(capacityService, never()).release(any(), any(), anyInt());
+    }
+
+    private static IndividualReservation update(Integer timeSlot, Integer totalCount) {
+        IndividualReservation update = new IndividualReservation();
+        update.setId(ID);
+        update.setTimeSlot(timeSlot);
+        update.setTotalCount(totalCount);
+        return update;
+    }
+
+    private IndividualReservation readRow() {
+        synchronized (row) {
+            IndividualReservation copy = new IndividualReservation();
+            copy.setId(row.getId());
+            copy.setVisitDate(row.getVisitDate());
+            copy.setTimeSlot(row.getTimeSlot());
+            copy.setTotalCount(row.getTotalCount());
+            copy.setStatus(row.getStatus());
+            copy.setVersion(row.getVersion());
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.scenic.service.appointment;
+
+import com.google.common.util.concurrent.RateLimiter;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 排队准入本地压测
+ * 用信号量模拟容量为20的数据库连接池，对比突发流量直接打到数据库与经过限速出队两种方式下
+ * 单次预约写入（等待连接 + 执行）的p99延迟
+ */
+public class ReservationAdmissionLoadTest {
+
+    private static final int POOL_SIZE = 20;
+    private static final long DB_MILLIS = 10;
+    private static final int BASE_BURST = 30;
+    private static final double PERMITS_PER_SECOND = 300;
+    private static final int WORKER_THREADS = 4;
+
+    @Test
+    public void testP99StaysFlatUnderTenTimesBurst() throws InterruptedException {
+        long directBase = p99(runDirect(BASE_BURST));
+        long directBurst = p99(runDirect(BASE_BURST * 10));
+        long admittedBase = p99(runAdmitted(BASE_BURST));
+        long admittedBurst = p99(runAdmitted(BASE_BURST * 10));
+
+        System.out.println("直接写入 p99(ms): 1x=" + directBase + ", 10x=" + directBurst);
+        System.out.println("排队准入 p99(ms): 1x=" + admittedBase + ", 10x=" + admittedBurst);
+
+        // 直接写入时连接池排队，p99随突发倍数放大
+        assertTrue(directBurst > directBase * 3, "直接写入在10倍突发下p99应明显升高");
+        // 经过限速出队后，数据库侧p99基本不变
+        assertTrue(admittedBurst <= Math.max(admittedBase * 2, DB_MILLIS * 3), "排队准入在10倍突发下p99应保持平稳");
+    }
+
+    /**
+     * 所有请求同时访问数据库
+     */
+    private List<Long> runDirect(int requests) throws InterruptedException {
+        Semaphore pool = new Semaphore(POOL_SIZE);
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService clients = Executors.newFixedThreadPool(requests);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(requests);
+        for (int i = 0; i < requests; i++) {
+            clients.submit(() -> {
+                try {
+                    start.await();
+                    latencies.add(writeReservation(pool));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        start.countDown();
+        done.await(60, TimeUnit.SECONDS);
+        clients.shutdownNow();
+        return latencies;
+    }
+
+    /**
+     * 请求先入队，由固定数量的出队线程按速率写入数据库
+     */
+    private List<Long> runAdmitted(int requests) throws InterruptedException {
+        Semaphore pool = new Semaphore(POOL_SIZE);
+        BlockingQueue<Integer> queue = new LinkedBlockingQueue<>();
+        for (int i = 0; i < requests; i++) {
+            queue.add(i);
+        }
+        RateLimiter rateLimiter = RateLimiter.create(PERMITS_PER_SECOND);
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService workers = Executors.newFixedThreadPool(WORKER_THREADS);
+        CountDownLatch done = new CountDownLatch(requests);
+        for (int i = 0; i < WORKER_THREADS; i++) {
+            workers.submit(() -> {
+                while (queue.poll() != null) {
+                    rateLimiter.acquire();
+                    try {
+                        latencies.add(writeReservation(pool));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            });
+        }
+        done.await(60, TimeUnit.SECONDS);
+        workers.shutdownNow();
+        return latencies;
+    }
+
+    /**
+     * 模拟一次预约写入：获取连接后执行固定耗时
+     */
+    private long writeReservation(Semaphore pool) throws InterruptedException {
+        long begin = System.nanoTime();
+        pool.acquire();
+        try {
+            Thread.sleep(DB_MILLIS);
+        } finally {
+            pool.release();
+        }
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+    }
+
+    private long p99(List<Long> latencies) {
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        assertFalse(sorted.isEmpty());
+        int index = (int) Math.ceil(sorted.size() * 0.99) - 1;
+        return sorted.get(Math.max(0, index));
+    }
+}
@@ -0,0 +1,152 @@
+package com.scenic.service.appointment;
+
+import com.scenic.common.dto.Result;
+import com.scenic.config.ReservationAdmissionProperties;
+import com.scenic.dto.appointment.ReservationAdmissionDTO;
+import com.scenic.entity.appointment.IndividualReservation;
+import com.scenic.exception.reservation.DuplicateReservationException;
+import com.scenic.service.appointment.impl.ReservationAdmissionServiceImpl;
+import com.scenic.support.RedisTestSupport;
+import com.scenic.utils.RedisUtil;
+import com.scenic.utils.ReservationUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * 预约排队准入测试
+ * 出队、续期、巡检的Lua脚本在本地Redis上执行，预约创建由模拟的服务提供
+ */
+public class ReservationAdmissionServiceTest {
+
+    private static final String QUEUE_KEY = "reservation:admission:queue";
+    private static final String PROCESSING_KEY = "reservation:admission:processing";
+    private static final String CLAIM_KEY_PREFIX = "reservation:admission:claim:";
+    private static final String RESERVATION_NO = "R20990101000001";
+
+    private RedisTestSupport redis;
+    private StringRedisTemplate stringRedisTemplate;
+    private IndividualReservationService reservationService;
+    private ReservationAdmissionServiceImpl service;
+
+    @BeforeEach
+    public void setUp() {
+        redis = RedisTestSupport.connect("reservation:admission:*");
+        stringRedisTemplate = redis.stringRedisTemplate();
+        RedisUtil redisUtil = new RedisUtil();
+        ReflectionTestUtils.setField(redisUtil, "redisTemplate", redis.redisTemplate());
+        ReservationUtil reservationUtil = mock(ReservationUtil.class);
+        when(reservationUtil.generateReservationNo()).thenReturn(RESERVATION_NO);
+        reservationService = mock(IndividualReservationService.class);
+
+        ReservationAdmissionProperties properties = new ReservationAdmissionProperties();
+        properties.setEnabled(true);
+
+        service = new ReservationAdmissionServiceImpl();
+        ReflectionTestUtils.setField(service, "stringRedisTemplate", stringRedisTemplate);
+        ReflectionTestUtils.setField(service, "redisUtil", redisUtil);
+        ReflectionTestUtils.setField(service, "individualReservationService", reservationService);
+        ReflectionTestUtils.setField(service, "reservationUtil", reservationUtil);
+        ReflectionTestUtils.setField(service, "admissionProperties", properties);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (redis != null) {
+            redis.close();
+        }
+    }
+
+    @Test
+    public void testClaimIsRenewedWhileProcessingAndNotRequeued() throws Exception {
+        CountDownLatch creating = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        when(reservationService.createReservation(any())).thenAnswer(invocation -> {
+            creating.countDown();
+            finish.await(10, TimeUnit.SECONDS);
+            return Result.success("预约创建成功", RESERVATION_NO);
+        });
+        String ticketNo = service.enqueue(new IndividualReservation()).getTicketNo();
+        String owner = "node-a";
+        assertEquals(ticketNo, ReflectionTestUtils.invokeMethod(service, "pollTicket", owner));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> processing = executor.submit(() -> ReflectionTestUtils.invokeMethod(service, "process", ticketNo, owner));
+        assertTrue(creating.await(5, TimeUnit.SECONDS));
+
+        // 处理耗时接近认领过期时间，续期后认领键恢复完整的过期时间
+        stringRedisTemplate.expire(CLAIM_KEY_PREFIX + ticketNo, 2, TimeUnit.SECONDS);
+        ReflectionTestUtils.invokeMethod(service, "renewClaims");
+        assertTrue(stringRedisTemplate.getExpire(CLAIM_KEY_PREFIX + ticketNo) > 2, "处理中的凭证应续期");
+
+        ReflectionTestUtils.invokeMethod(service, "recoverIfDue");
+        assertEquals(0L, stringRedisTemplate.opsForList().size(QUEUE_KEY), "仍在处理的凭证不应放回队列");
+
+        finish.countDown();
+        processing.get(5, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assertEquals(ReservationAdmissionDTO.STATUS_SUCCESS, service.getTicketStatus(ticketNo).getStatus());
+        assertEquals(0L, stringRedisTemplate.opsForList().size(PROCESSING_KEY));
+        assertFalse(stringRedisTemplate.hasKey(CLAIM_KEY_PREFIX + ticketNo));
+    }
+
+    @Test
+    public void testExpiredClaimIsNotRenewedOrReleasedByFormerOwner() {
+        when(reservationService.createReservation(any())).thenReturn(Result.success("预约创建成功", RESERVATION_NO));
+        String ticketNo = service.enqueue(new IndividualReservation()).getTicketNo();
+        ReflectionTestUtils.invokeMethod(service, "pollTicket", "node-a");
+
+        // 原认领过期后凭证被其他节点重新认领
+        stringRedisTemplate.opsForValue().set(CLAIM_KEY_PREFIX + ticketNo, "node-b");
+        ReflectionTestUtils.invokeMethod(service, "renewClaims");
+        assertEquals(-1L, stringRedisTemplate.getExpire(CLAIM_KEY_PREFIX + ticketNo), "不应续期其他节点的认领");
+
+        ReflectionTestUtils.invokeMethod(service, "process", ticketNo, "node-a");
+        assertEquals("node-b", stringRedisTemplate.opsForValue().get(CLAIM_KEY_PREFIX + ticketNo), "不应删除其他节点的认领");
+    }
+
+    @Test
+    public void testRequeuedTicketWhoseReservationExistsReportsSuccess() {
+        when(reservationService.createReservation(any()))
+                .thenThrow(new DuplicateReservationException("操作过于频繁，请稍后再试"));
+        IndividualReservation existing = new IndividualReservation();
+        existing.setReservationNo(RESERVATION_NO);
+        when(reservationService.getReservationByNo(RESERVATION_NO)).thenReturn(Result.success("查询成功", existing));
+
+        String ticketNo = service.enqueue(new IndividualReservation()).getTicketNo();
+        ReflectionTestUtils.invokeMethod(service, "pollTicket", "node-a");
+        ReflectionTestUtils.invokeMethod(service, "process", ticketNo, "node-a");
+
+        ReservationAdmissionDTO status = service.getTicketStatus(ticketNo);
+        assertEquals(ReservationAdmissionDTO.STATUS_SUCCESS, status.getStatus(), "命中本凭证已创建的预约应按成功返回");
+        assertEquals(RESERVATION_NO, status.getReservationNo());
+    }
+
+    @Test
+    public void testDuplicateOfAnotherReservationFails() {
+        when(reservationService.createReservation(any()))
+                .thenThrow(new DuplicateReservationException("操作过于频繁，请稍后再试"));
+        when(reservationService.getReservationByNo(RESERVATION_NO)).thenReturn(Result.error("预约记录不存在"));
+
+        String ticketNo = service.enqueue(new IndividualReservation()).getTicketNo();
+        ReflectionTestUtils.invokeMethod(service, "pollTicket", "node-a");
+        ReflectionTestUtils.invokeMethod(service, "process", ticketNo, "node-a");
+
+        ReservationAdmissionDTO status = service.getTicketStatus(ticketNo);
+        assertEquals(ReservationAdmissionDTO.STATUS_FAILED, status.getStatus());
+        assertEquals("操作过于频繁，请稍后再试", status.getMessage());
+    }
+}
@@ -0,0 +1,179 @@
+package com.scenic.service.appointment;
+
+import com.scenic.config.ReservationCapacityProperties;
+import com.scenic.mapper.appointment.IndividualReservationMapper;
+import com.scenic.service.appointment.impl.ReservationCapacityServiceImpl;
+import com.scenic.support.RedisTestSupport;
+import com.scenic.utils.RedisUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 预约余量台账测试
+ * 占用、释放、对账的Lua脚本在本地Redis上执行，数据库统计由模拟的Mapper提供
+ */
+public class ReservationCapacityServiceTest {
+
+    private static final LocalDate VISIT_DATE = LocalDate.of(2099, 1, 1);
+    private static final String KEY = "reservation:capacity:2099-01-01:1";
+    private static final int LIMIT = 10;
+
+    private RedisTestSupport redis;
+    private StringRedisTemplate stringRedisTemplate;
+    private IndividualReservationMapper mapper;
+    private ReservationCapacityService service;
+
+    @BeforeEach
+    public void setUp() {
+        redis = RedisTestSupport.connect("reservation:capacity:2099-*");
+        stringRedisTemplate = redis.stringRedisTemplate();
+        mapper = mock(IndividualReservationMapper.class);
+        when(mapper.selectSlotBookedCounts(any(), any(), any())).thenReturn(Collections.emptyList());
+
+        ReservationCapacityProperties properties = new ReservationCapacityProperties();
+        properties.getSlotLimits().put(1, LIMIT);
+
+        service = new ReservationCapacityServiceImpl();
+        ReflectionTestUtils.setField(service, "stringRedisTemplate", stringRedisTemplate);
+        ReflectionTestUtils.setField(service, "individualReservationMapper", mapper);
+        ReflectionTestUtils.setField(service, "capacityProperties", properties);
+        ReflectionTestUtils.setField(service, "redisUtil", new RedisUtil());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (redis != null) {
+            redis.close();
+        }
+    }
+
+    @Test
+    public void testAcquireLoadsLedgerFromDatabaseAndStopsAtLimit() {
+        when(mapper.selectSlotBookedCounts(VISIT_DATE, VISIT_DATE, 1)).thenReturn(bookedRows(VISIT_DATE, 1, 7));
+
+        assertTrue(service.tryAcquire(visitDate(), 1, 3), "数据库已占用7人，再占用3人应成功");
+        assertEquals("10", stringRedisTemplate.opsForValue().get(KEY));
+        assertFalse(service.tryAcquire(visitDate(), 1, 1), "达到上限后应拒绝");
+        assertEquals("10", stringRedisTemplate.opsForValue().get(KEY), "拒绝时不应改变台账");
+        assertEquals(0, service.getRemaining(visitDate(), 1));
+    }
+
+    @Test
+    public void testConcurrentAcquireNeverExceedsLimit() throws InterruptedException {
+        stringRedisTemplate.opsForValue().set(KEY, "0");
+        int threads = 32;
+        AtomicInteger acquired = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < threads; i++) {
+            executor.submit(() -> {
+                try {
+                    start.await();
+                    if (service.tryAcquire(visitDate(), 1, 1)) {
+                        acquired.incrementAndGet();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        start.countDown();
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        assertEquals(LIMIT, acquired.get(), "并发占用成功的人数应等于上限");
+        assertEquals(String.valueOf(LIMIT), stringRedisTemplate.opsForValue().get(KEY));
+    }
+
+    @Test
+    public void testReleaseReturnsCapacityAndNeverGoesNegative() {
+        stringRedisTemplate.opsForValue().set(KEY, "5");
+
+        service.release(visitDate(), 1, 2);
+        assertEquals("3", stringRedisTemplate.opsForValue().get(KEY));
+
+        service.release(visitDate(), 1, 10);
+        assertEquals("0", stringRedisTemplate.opsForValue().get(KEY), "释放后人数不应低于0");
+    }
+
+    @Test
+    public void testReleaseDoesNotCreateMissingLedger() {
+        service.release(visitDate(), 1, 2);
+        assertNull(stringRedisTemplate.opsForValue().get(KEY), "台账不存在时释放不应创建键");
+    }
+
+    @Test
+    public void testReconcileOverwritesDriftedLedger() {
+        stringRedisTemplate.opsForValue().set(KEY, "9");
+        when(mapper.selectSlotBookedCounts(VISIT_DATE, VISIT_DATE, null)).thenReturn(bookedRows(VISIT_DATE, 1, 4));
+
+        service.reconcile(VISIT_DATE, VISIT_DATE);
+
+        assertEquals("4", stringRedisTemplate.opsForValue().get(KEY), "对账后台账应等于数据库人数");
+        assertEquals("0", stringRedisTemplate.opsForValue().get("reservation:capacity:2099-01-01:2"),
+                "数据库中没有预约的时段应重置为0");
+    }
+
+    @Test
+    public void testReconcileKeepsAcquisitionsMadeDuringDatabaseQuery() {
+        stringRedisTemplate.opsForValue().set(KEY, "4");
+        when(mapper.selectSlotBookedCounts(VISIT_DATE, VISIT_DATE, null)).thenAnswer(invocation -> {
+            // 查询数据库期间另一个请求占用了2人，尚未落库
+            assertTrue(service.tryAcquire(visitDate(), 1, 2));
+            return bookedRows(VISIT_DATE, 1, 4);
+        });
+
+        service.reconcile(VISIT_DATE, VISIT_DATE);
+
+        assertEquals("6", stringRedisTemplate.opsForValue().get(KEY), "对账不应覆盖查询期间的占用");
+    }
+
+    @Test
+    public void testDisabledLedgerAlwaysAdmits() {
+        ReservationCapacityProperties properties = new ReservationCapacityProperties();
+        properties.setEnabled(false);
+        ReflectionTestUtils.setField(service, "capacityProperties", properties);
+
+        assertTrue(service.tryAcquire(visitDate(), 1, 1000));
+        assertNull(stringRedisTemplate.opsForValue().get(KEY));
+        verify(mapper, never()).selectSlotBookedCounts(any(), any(), eq(1));
+    }
+
+    private static Date visitDate() {
+        return java.sql.Date.valueOf(VISIT_DATE);
+    }
+
+    private static List<Map<String, Object>> bookedRows(LocalDate date, int timeSlot, long bookedCount) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("visit_date", java.sql.Date.valueOf(date));
+        row.put("time_slot", timeSlot);
+        row.put("booked_count", bookedCount);
+        List<Map<String, Object>> rows = new ArrayList<>();
+        rows.add(row);
+        return rows;
+    }
+}
@@ -0,0 +1,146 @@
+package com.scenic.service.appointment;
+
+import com.scenic.config.ReservationWriteBehindProperties;
+import com.scenic.entity.appointment.IndividualReservation;
+import com.scenic.mapper.appointment.IndividualReservationMapper;
+import com.scenic.service.appointment.impl.ReservationWriteBehindServiceImpl;
+import com.scenic.utils.RedisUtil;
+import com.scenic.utils.ReservationUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+/**
+ * 个人预约异步批量写入测试
+ * 数据库和Redis均为模拟对象，记录实际写入的预约编号
+ */
+public class ReservationWriteBehindServiceTest {
+
+    private IndividualReservationMapper mapper;
+    private ReservationCapacityService capacityService;
+    private ReservationWriteBehindServiceImpl service;
+    private final Set<String> written = ConcurrentHashMap.newKeySet();
+
+    @BeforeEach
+    public void setUp() {
+        mapper = mock(IndividualReservationMapper.class);
+        capacityService = mock(ReservationCapacityService.class);
+        when(mapper.insertBatch(anyList())).thenAnswer(invocation -> {
+            List<IndividualReservation> batch = invocation.getArgument(0);
+            for (IndividualReservation reservation : batch) {
+                if (reservation.getReservationNo().startsWith("BAD")) {
+                    throw new DataIntegrityViolationException("duplicate");
+                }
+            }
+            batch.forEach(reservation -> written.add(reservation.getReservationNo()));
+            return batch.size();
+        });
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+
+        ReservationWriteBehindProperties properties = new ReservationWriteBehindProperties();
+        properties.setEnabled(true);
+        properties.setBatchSize(10);
+        properties.setFlushIntervalMillis(20);
+        properties.setWriterThreads(2);
+        properties.setQueueCapacity(100000);
+
+        service = new ReservationWriteBehindServiceImpl();
+        ReflectionTestUtils.setField(service, "writeBehindProperties", properties);
+        ReflectionTestUtils.setField(service, "individualReservationMapper", mapper);
+        ReflectionTestUtils.setField(service, "reservationCapacityService", capacityService);
+        ReflectionTestUtils.setField(service, "reservationUtil", mock(ReservationUtil.class));
+        ReflectionTestUtils.setField(service, "redisUtil", mock(RedisUtil.class));
+        ReflectionTestUtils.setField(service, "transactionManager", transactionManager);
+        service.start();
+    }
+
+    @Test
+    public void testAcceptedReservationsAreWrittenInBatches() {
+        for (int i = 0; i < 95; i++) {
+            assertTrue(service.submit(newReservation("RES" + i)));
+        }
+        service.stop();
+
+        assertEquals(95, written.size());
+        verify(mapper, atMost(95)).insertBatch(anyList());
+        verify(mapper, atLeast(10)).insertBatch(anyList());
+    }
+
+    @Test
+    public void testSubmitAfterStopIsRejected() {
+        service.stop();
+        assertFalse(service.isEnabled());
+        assertFalse(service.submit(newReservation("RES-late")));
+    }
+
+    @Test
+    public void testNoAcceptedReservationIsLostWhileStopping() throws InterruptedException {
+        int submitters = 8;
+        Set<String> accepted = ConcurrentHashMap.newKeySet();
+        AtomicInteger sequence = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(submitters);
+        ExecutorService executor = Executors.newFixedThreadPool(submitters);
+        for (int i = 0; i < submitters; i++) {
+            executor.submit(() -> {
+                started.countDown();
+                while (true) {
+                    String reservationNo = "RES" + sequence.incrementAndGet();
+                    if (!service.submit(newReservation(reservationNo))) {
+                        return;
+                    }
+                    accepted.add(reservationNo);
+                }
+            });
+        }
+        started.await();
+        Thread.sleep(50);
+        service.stop();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertFalse(accepted.isEmpty());
+        assertEquals(accepted, written, "已受理的预约应全部落库");
+    }
+
+    @Test
+    public void testFailedReservationIsIsolatedAndReleasesCapacity() {
+        assertTrue(service.submit(newReservation("RES1")));
+        assertTrue(service.submit(newReservation("BAD1")));
+        assertTrue(service.submit(newReservation("RES2")));
+        service.stop();
+
+        assertTrue(written.contains("RES1"));
+        assertTrue(written.contains("RES2"));
+        assertFalse(written.contains("BAD1"));
+        verify(capacityService).release(any(), eq(1), eq(2));
+        verify(capacityService, times(1)).release(any(), anyInt(), anyInt());
+    }
+
+    private static IndividualReservation newReservation(String reservationNo) {
+        IndividualReservation reservation = new IndividualReservation();
+        reservation.setReservationNo(reservationNo);
+        reservation.setVisitDate(java.sql.Date.valueOf("2099-01-01"));
+        reservation.setTimeSlot(1);
+        reservation.setTotalCount(2);
+        return reservation;
+    }
+}
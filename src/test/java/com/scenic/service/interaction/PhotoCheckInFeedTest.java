@@ -0,0 +1,167 @@
+package com.scenic.service.interaction;
+
+import com.scenic.common.dto.CursorPageResult;
+import com.scenic.entity.interaction.PhotoCheckIn;
+import com.scenic.entity.interaction.vo.PhotoCheckInVO;
+import com.scenic.mapper.interaction.PhotoCheckInMapper;
+import com.scenic.service.interaction.impl.PhotoCheckInServiceImpl;
+import com.scenic.utils.PhotoFeedCache;
+import com.scenic.utils.ResourceFileUrlResolver;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+/**
+ * 照片打卡游标分页测试
+ * 模拟的Mapper按 (create_time, id) 严格小于游标、倒序取 limit 条的语义查询内存中的照片
+ */
+public class PhotoCheckInFeedTest {
+
+    private static final LocalDateTime BASE_TIME = LocalDateTime.of(2026, 10, 1, 12, 0, 0);
+
+    private PhotoCheckInMapper mapper;
+    private PhotoCheckInServiceImpl service;
+
+    /**
+     * 数据库中已发布的照片
+     */
+    private final List<PhotoCheckIn> rows = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() {
+        mapper = mock(PhotoCheckInMapper.class);
+        when(mapper.selectFeedForMiniapp(any(), any(), any(), any(), anyInt())).thenAnswer(invocation -> {
+            LocalDateTime cursorTime = invocation.getArgument(2);
+            Long cursorId = invocation.getArgument(3);
+            int limit = invocation.getArgument(4);
+            return rows.stream()
+                    .filter(row -> cursorTime == null || cursorId == null
+                            || row.getCreateTime().isBefore(cursorTime)
+                            || (row.getCreateTime().isEqual(cursorTime) && row.getId() < cursorId))
+                    .sorted(Comparator.comparing(PhotoCheckIn::getCreateTime).thenComparing(PhotoCheckIn::getId).reversed())
+                    .limit(limit)
+                    .collect(Collectors.toList());
+        });
+
+        service = new PhotoCheckInServiceImpl();
+        ReflectionTestUtils.setField(service, "photoCheckInMapper", mapper);
+        ReflectionTestUtils.setField(service, "photoFeedCache", mock(PhotoFeedCache.class));
+        ReflectionTestUtils.setField(service, "resourceFileUrlResolver", mock(ResourceFileUrlResolver.class));
+    }
+
+    @Test
+    public void testPagesCoverEveryRowOnceAcrossSameCreateTime() {
+        // 每三条照片的创建时间相同，只靠ID区分先后
+        for (long id = 1; id <= 10; id++) {
+            addRow(id, BASE_TIME.plusSeconds((id - 1) / 3));
+        }
+
+        List<Long> seen = readAll(3);
+
+        assertEquals(List.of(10L, 9L, 8L, 7L, 6L, 5L, 4L, 3L, 2L, 1L), seen, "翻页不应重复或遗漏同一时间的照片");
+    }
+
+    @Test
+    public void testLastFullPageHasNoMore() {
+        for (long id = 1; id <= 4; id++) {
+            addRow(id, BASE_TIME.plusSeconds(id));
+        }
+
+        CursorPageResult<PhotoCheckInVO> first = service.getPhotoCheckInFeed(null, null, null, 2, null);
+        CursorPageResult<PhotoCheckInVO> second = service.getPhotoCheckInFeed(null, null, first.getNextCursor(), 2, null);
+
+        assertTrue(first.isHasMore());
+        assertEquals(2, second.getRecords().size());
+        assertFalse(second.isHasMore(), "恰好取完时不应返回下一页");
+        assertNull(second.getNextCursor());
+        verify(mapper, times(2)).selectFeedForMiniapp(any(), any(), any(), any(), eq(3));
+    }
+
+    @Test
+    public void testNewRowsDoNotShiftNextPage() {
+        for (long id = 1; id <= 6; id++) {
+            addRow(id, BASE_TIME.plusSeconds(id));
+        }
+        CursorPageResult<PhotoCheckInVO> first = service.getPhotoCheckInFeed(null, null, null, 3, null);
+
+        // 读完第一页后有新照片发布
+        addRow(7L, BASE_TIME.plusSeconds(7));
+        addRow(8L, BASE_TIME.plusSeconds(8));
+        CursorPageResult<PhotoCheckInVO> second = service.getPhotoCheckInFeed(null, null, first.getNextCursor(), 3, null);
+
+        assertEquals(List.of(6L, 5L, 4L), ids(first));
+        assertEquals(List.of(3L, 2L, 1L), ids(second), "新发布的照片不应使下一页重复");
+    }
+
+    @Test
+    public void testCursorRoundTripsLastRowPosition() {
+        LocalDateTime createTime = BASE_TIME.plusNanos(123456000);
+        addRow(1L, createTime);
+        addRow(2L, createTime);
+
+        String cursor = service.getPhotoCheckInFeed(null, null, null, 1, null).getNextCursor();
+
+        assertNotNull(cursor);
+        assertTrue(cursor.matches("[A-Za-z0-9_-]+"), "游标应为URL安全且不含填充的Base64");
+        service.getPhotoCheckInFeed(null, null, cursor, 1, null);
+        verify(mapper).selectFeedForMiniapp(isNull(), isNull(), eq(createTime), eq(2L), eq(2));
+    }
+
+    @Test
+    public void testInvalidCursorIsRejected() {
+        String missingSeparator = Base64.getUrlEncoder().encodeToString("2026-10-01T12:00".getBytes(StandardCharsets.UTF_8));
+        String badTime = Base64.getUrlEncoder().encodeToString("yesterday|5".getBytes(StandardCharsets.UTF_8));
+
+        assertThrows(IllegalArgumentException.class, () -> service.getPhotoCheckInFeed(null, null, "not base64!", 10, null));
+        assertThrows(IllegalArgumentException.class, () -> service.getPhotoCheckInFeed(null, null, missingSeparator, 10, null));
+        assertThrows(IllegalArgumentException.class, () -> service.getPhotoCheckInFeed(null, null, badTime, 10, null));
+        verify(mapper, never()).selectFeedForMiniapp(any(), any(), any(), any(), anyInt());
+    }
+
+    @Test
+    public void testPageSizeIsCapped() {
+        service.getPhotoCheckInFeed(null, null, null, 1000, null);
+        service.getPhotoCheckInFeed(null, null, null, null, null);
+
+        verify(mapper).selectFeedForMiniapp(any(), any(), any(), any(), eq(51));
+        verify(mapper).selectFeedForMiniapp(any(), any(), any(), any(), eq(11));
+    }
+
+    private List<Long> readAll(int pageSize) {
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        CursorPageResult<PhotoCheckInVO> page;
+        do {
+            page = service.getPhotoCheckInFeed(null, null, cursor, pageSize, null);
+            seen.addAll(ids(page));
+            cursor = page.getNextCursor();
+        } while (page.isHasMore());
+        return seen;
+    }
+
+    private void addRow(Long id, LocalDateTime createTime) {
+        PhotoCheckIn row = new PhotoCheckIn();
+        row.setId(id);
+        row.setCreateTime(createTime);
+        rows.add(row);
+    }
+
+    private static List<Long> ids(CursorPageResult<PhotoCheckInVO> page) {
+        return page.getRecords().stream().map(PhotoCheckInVO::getId).collect(Collectors.toList());
+    }
+}
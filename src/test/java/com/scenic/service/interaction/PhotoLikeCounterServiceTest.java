@@ -0,0 +1,234 @@
+package com.scenic.service.interaction;
+
+import com.scenic.config.PhotoLikeCounterProperties;
+import com.scenic.mapper.interaction.PhotoCheckInMapper;
+import com.scenic.mapper.interaction.PhotoLikeFlushBatchMapper;
+import com.scenic.service.interaction.impl.PhotoLikeCounterServiceImpl;
+import com.scenic.support.RedisTestSupport;
+import com.scenic.utils.RedisUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * 点赞增量写回测试
+ * 批次移出、登记、合并读取的Lua脚本在本地Redis上执行；
+ * 数据库由模拟的Mapper和事务管理器代替，事务回滚时撤销本事务登记的批次
+ */
+public class PhotoLikeCounterServiceTest {
+
+    private RedisTestSupport redis;
+    private StringRedisTemplate stringRedisTemplate;
+    private PhotoCheckInMapper photoCheckInMapper;
+    private PhotoLikeCounterProperties properties;
+    private PhotoLikeCounterServiceImpl service;
+
+    /**
+     * 数据库中的点赞数
+     */
+    private final Map<Long, Long> likeCounts = new ConcurrentHashMap<>();
+
+    /**
+     * 已提交的批次记录
+     */
+    private final Set<String> batchRecords = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 当前事务中登记的批次
+     */
+    private final List<String> transactionBatches = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() {
+        redis = RedisTestSupport.connect("photo:like:*");
+        stringRedisTemplate = redis.stringRedisTemplate();
+
+        photoCheckInMapper = mock(PhotoCheckInMapper.class);
+        when(photoCheckInMapper.addLikeCounts(anyMap(), any())).thenAnswer(invocation -> {
+            Map<Long, Long> deltas = invocation.getArgument(0);
+            deltas.forEach((id, delta) -> likeCounts.merge(id, delta, Long::sum));
+            return deltas.size();
+        });
+        PhotoLikeFlushBatchMapper batchMapper = mock(PhotoLikeFlushBatchMapper.class);
+        when(batchMapper.insertIgnore(anyString(), anyInt())).thenAnswer(invocation -> {
+            String batchId = invocation.getArgument(0);
+            if (!batchRecords.add(batchId)) {
+                return 0;
+            }
+            transactionBatches.add(batchId);
+            return 1;
+        });
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> {
+            transactionBatches.clear();
+            return new SimpleTransactionStatus();
+        });
+        doAnswer(invocation -> {
+            batchRecords.removeAll(transactionBatches);
+            return null;
+        }).when(transactionManager).rollback(any());
+
+        properties = new PhotoLikeCounterProperties();
+        service = new PhotoLikeCounterServiceImpl();
+        ReflectionTestUtils.setField(service, "counterProperties", properties);
+        ReflectionTestUtils.setField(service, "photoCheckInMapper", photoCheckInMapper);
+        ReflectionTestUtils.setField(service, "photoLikeFlushBatchMapper", batchMapper);
+        ReflectionTestUtils.setField(service, "stringRedisTemplate", stringRedisTemplate);
+        ReflectionTestUtils.setField(service, "redisUtil", new RedisUtil());
+        ReflectionTestUtils.setField(service, "transactionManager", transactionManager);
+        service.init();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (redis != null) {
+            redis.close();
+        }
+    }
+
+    @Test
+    public void testFlushWritesAccumulatedDeltas() {
+        service.increment(1L, 1);
+        service.increment(1L, 1);
+        service.increment(1L, 1);
+        service.increment(2L, 1);
+        service.increment(2L, -1);
+        service.increment(3L, -1);
+
+        assertEquals(2, service.flush());
+
+        assertEquals(Long.valueOf(3), likeCounts.get(1L));
+        assertEquals(Long.valueOf(-1), likeCounts.get(3L));
+        assertFalse(likeCounts.containsKey(2L), "增量为0的照片不应写库");
+        assertTrue(service.getPendingDeltas(Arrays.asList(1L, 2L, 3L)).isEmpty());
+        assertEquals(Collections.emptySet(), stringRedisTemplate.keys("photo:like:*"), "写回后不应残留键");
+    }
+
+    @Test
+    public void testFlushSplitsIntoBatches() {
+        properties.setBatchSize(2);
+        for (long id = 1; id <= 5; id++) {
+            service.increment(id, 1);
+        }
+
+        assertEquals(5, service.flush());
+
+        verify(photoCheckInMapper, times(3)).addLikeCounts(anyMap(), any());
+        assertEquals(3, batchRecords.size());
+        for (long id = 1; id <= 5; id++) {
+            assertEquals(Long.valueOf(1), likeCounts.get(id));
+        }
+    }
+
+    @Test
+    public void testCommittedBatchIsNotAppliedAgain() {
+        // 上次写回已提交，清理Redis中的批次之前宕机
+        leaveBatch("B1", 1L, 5L);
+        batchRecords.add("B1");
+
+        assertEquals(0, service.flush());
+
+        verify(photoCheckInMapper, never()).addLikeCounts(anyMap(), any());
+        assertTrue(likeCounts.isEmpty());
+        assertTrue(service.getPendingDeltas(Collections.singletonList(1L)).isEmpty(), "已提交的批次应被清理");
+    }
+
+    @Test
+    public void testUncommittedBatchIsRetried() {
+        // 批次已从 flushing 移出，写库提交之前宕机
+        leaveBatch("B2", 1L, 5L);
+        assertEquals(Collections.singletonMap(1L, 5L), service.getPendingDeltas(Collections.singletonList(1L)));
+
+        assertEquals(1, service.flush());
+
+        assertEquals(Long.valueOf(5), likeCounts.get(1L));
+        assertTrue(batchRecords.contains("B2"));
+        assertTrue(service.getPendingDeltas(Collections.singletonList(1L)).isEmpty());
+    }
+
+    @Test
+    public void testFailedBatchIsKeptAndAppliedOnce() {
+        AtomicInteger calls = new AtomicInteger();
+        when(photoCheckInMapper.addLikeCounts(anyMap(), any())).thenAnswer(invocation -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new QueryTimeoutException("lock wait timeout");
+            }
+            Map<Long, Long> deltas = invocation.getArgument(0);
+            deltas.forEach((id, delta) -> likeCounts.merge(id, delta, Long::sum));
+            return deltas.size();
+        });
+        service.increment(1L, 2);
+
+        assertThrows(QueryTimeoutException.class, () -> service.flush());
+        assertTrue(batchRecords.isEmpty(), "回滚后批次记录应撤销");
+        assertEquals(Collections.singletonMap(1L, 2L), service.getPendingDeltas(Collections.singletonList(1L)),
+                "写库失败的批次应保留在Redis中");
+
+        service.increment(1L, 1);
+        assertEquals(2, service.flush(), "失败的批次和新增量各写回一次");
+
+        assertEquals(Long.valueOf(3), likeCounts.get(1L));
+        assertTrue(service.getPendingDeltas(Collections.singletonList(1L)).isEmpty());
+    }
+
+    @Test
+    public void testPendingDeltasMergeEveryStage() {
+        stringRedisTemplate.opsForHash().put("photo:like:pending", "1", "1");
+        stringRedisTemplate.opsForHash().put("photo:like:flushing", "1", "2");
+        leaveBatch("B3", 1L, 4L);
+
+        Map<Long, Long> expected = new HashMap<>();
+        expected.put(1L, 7L);
+        assertEquals(expected, service.getPendingDeltas(Arrays.asList(1L, 2L)));
+    }
+
+    @Test
+    public void testFlushStopsWhenLockIsLost() {
+        properties.setBatchSize(1);
+        when(photoCheckInMapper.addLikeCounts(anyMap(), any())).thenAnswer(invocation -> {
+            // 写回期间锁过期并被其他节点获取
+            stringRedisTemplate.opsForValue().set("photo:like:flush:lock", "other-node");
+            Map<Long, Long> deltas = invocation.getArgument(0);
+            deltas.forEach((id, delta) -> likeCounts.merge(id, delta, Long::sum));
+            return deltas.size();
+        });
+        for (long id = 1; id <= 3; id++) {
+            service.increment(id, 1);
+        }
+
+        assertEquals(1, service.flush());
+
+        assertEquals(1, likeCounts.size());
+        assertEquals(Long.valueOf(2), stringRedisTemplate.opsForHash().size("photo:like:flushing"),
+                "未写回的增量应留在 flushing 中");
+        assertEquals("other-node", stringRedisTemplate.opsForValue().get("photo:like:flush:lock"),
+                "不应释放其他节点的锁");
+    }
+
+    private void leaveBatch(String batchId, Long photoCheckInId, long delta) {
+        stringRedisTemplate.opsForHash().put("photo:like:batch:" + batchId, String.valueOf(photoCheckInId), String.valueOf(delta));
+        stringRedisTemplate.opsForSet().add("photo:like:batches", batchId);
+    }
+}
@@ -0,0 +1,79 @@
+package com.scenic.support;
+
+import com.scenic.config.RedisConfig;
+import org.junit.jupiter.api.Assumptions;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.Set;
+
+/**
+ * 依赖Redis的测试使用的本地连接
+ * 连接 -Dredis.host、-Dredis.port 指定的Redis（默认 localhost:6379），连接不上时跳过测试。
+ * Lua脚本的行为只能在真实Redis上验证，因此这类测试不使用模拟对象。
+ */
+public final class RedisTestSupport implements AutoCloseable {
+
+    private final LettuceConnectionFactory connectionFactory;
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    private final String keyPattern;
+
+    private RedisTestSupport(LettuceConnectionFactory connectionFactory, String keyPattern) {
+        this.connectionFactory = connectionFactory;
+        this.keyPattern = keyPattern;
+        this.stringRedisTemplate = new StringRedisTemplate(connectionFactory);
+        this.redisTemplate = new RedisConfig().redisTemplate(connectionFactory);
+    }
+
+    /**
+     * 连接本地Redis，连接失败时跳过当前测试
+     * @param keyPattern 测试使用的键模式，连接前后按该模式清理
+     * @return 连接
+     */
+    public static RedisTestSupport connect(String keyPattern) {
+        RedisStandaloneConfiguration configuration = new RedisStandaloneConfiguration(
+                System.getProperty("redis.host", "localhost"), Integer.getInteger("redis.port", 6379));
+        LettuceConnectionFactory factory = new LettuceConnectionFactory(configuration);
+        factory.afterPropertiesSet();
+        try (RedisConnection connection = factory.getConnection()) {
+            connection.ping();
+        } catch (Exception e) {
+            factory.destroy();
+            Assumptions.abort("本地Redis不可用，跳过测试: " + e.getMessage());
+        }
+        RedisTestSupport support = new RedisTestSupport(factory, keyPattern);
+        support.clean();
+        return support;
+    }
+
+    public StringRedisTemplate stringRedisTemplate() {
+        return stringRedisTemplate;
+    }
+
+    public RedisTemplate<String, Object> redisTemplate() {
+        return redisTemplate;
+    }
+
+    /**
+     * 删除测试使用的键
+     */
+    public void clean() {
+        Set<String> keys = stringRedisTemplate.keys(keyPattern);
+        if (keys != null && !keys.isEmpty()) {
+            stringRedisTemplate.delete(keys);
+        }
+    }
+
+    @Override
+    public void close() {
+        clean();
+        connectionFactory.destroy();
+    }
+}
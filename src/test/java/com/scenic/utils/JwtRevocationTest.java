@@ -0,0 +1,146 @@
+package com.scenic.utils;
+
+import com.google.common.cache.Cache;
+import com.scenic.config.JwtConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * 令牌本地缓存与吊销通知测试
+ * 模拟的RedisTemplate在内存中保存令牌，替换令牌脚本按 GET 后 SET 的语义返回旧令牌
+ */
+public class JwtRevocationTest {
+
+    private static final Long USER_ID = 1L;
+    private static final String TOKEN_KEY = "miniapp:token:1";
+    private static final String REVOKE_MESSAGE = "miniapp:1";
+
+    private final Map<String, String> store = new ConcurrentHashMap<>();
+
+    private RedisTemplate<String, String> redisTemplate;
+    private ValueOperations<String, String> valueOperations;
+    private JwtConfig jwtConfig;
+    private JwtUtil jwtUtil;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        redisTemplate = mock(RedisTemplate.class);
+        valueOperations = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get(anyString())).thenAnswer(invocation -> store.get(invocation.<String>getArgument(0)));
+        when(redisTemplate.delete(anyString())).thenAnswer(invocation -> store.remove(invocation.<String>getArgument(0)) != null);
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(), any())).thenAnswer(invocation -> {
+            List<String> keys = invocation.getArgument(1);
+            return store.put(keys.get(0), invocation.getArgument(2));
+        });
+
+        jwtConfig = new JwtConfig();
+        ReflectionTestUtils.setField(jwtConfig, "miniappSecret", "miniapp-secret-for-tests-0123456789abcdef");
+        ReflectionTestUtils.setField(jwtConfig, "miniappExpiration", 3600000L);
+        ReflectionTestUtils.setField(jwtConfig, "adminSecret", "admin-secret-for-tests-0123456789abcdefgh");
+        ReflectionTestUtils.setField(jwtConfig, "adminExpiration", 3600000L);
+
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "jwtConfig", jwtConfig);
+        ReflectionTestUtils.setField(jwtUtil, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(jwtUtil, "redisMessageListenerContainer", mock(RedisMessageListenerContainer.class));
+        jwtUtil.init();
+    }
+
+    @Test
+    public void testCachedTokenIsRejectedAfterRevoke() {
+        String token = jwtUtil.generateMiniappToken("openid", USER_ID);
+        assertTrue(jwtUtil.validateMiniappToken(token));
+
+        // 其他节点删除了Redis中的令牌，通知到达前本地缓存仍然命中
+        store.remove(TOKEN_KEY);
+        assertTrue(jwtUtil.validateMiniappToken(token), "通知到达前应命中本地缓存");
+
+        ReflectionTestUtils.invokeMethod(jwtUtil, "onRevoke", REVOKE_MESSAGE);
+
+        assertFalse(jwtUtil.validateMiniappToken(token), "收到吊销通知后缓存的令牌应失效");
+        assertTrue(tokensByUser().isEmpty());
+    }
+
+    @Test
+    public void testTokenVerifiedDuringRevocationIsNotCached() {
+        String token = jwtUtil.generateMiniappToken("openid", USER_ID);
+        // 验证读取Redis中的令牌之后、写入本地缓存之前，吊销通知到达
+        AtomicBoolean revoked = new AtomicBoolean();
+        when(valueOperations.get(TOKEN_KEY)).thenAnswer(invocation -> {
+            String stored = store.get(TOKEN_KEY);
+            if (revoked.compareAndSet(false, true)) {
+                store.remove(TOKEN_KEY);
+                ReflectionTestUtils.invokeMethod(jwtUtil, "onRevoke", REVOKE_MESSAGE);
+            }
+            return stored;
+        });
+
+        jwtUtil.validateMiniappToken(token);
+
+        assertEquals(0, verifiedTokens().size(), "吊销前读到的令牌不应留在缓存中");
+        assertFalse(jwtUtil.validateMiniappToken(token), "吊销后再次验证应失败");
+    }
+
+    @Test
+    public void testIndexIsPrunedWhenTokenExpires() throws InterruptedException {
+        ReflectionTestUtils.setField(jwtConfig, "miniappExpiration", 1000L);
+        String token = jwtUtil.generateMiniappToken("openid", USER_ID);
+        assertTrue(jwtUtil.validateMiniappToken(token));
+        assertEquals(Set.of(token), tokensByUser().get(REVOKE_MESSAGE));
+
+        // 令牌过期时间精确到秒，等待足够长时间确保已过期
+        Thread.sleep(2100L);
+
+        assertFalse(jwtUtil.validateMiniappToken(token));
+        assertEquals(0, verifiedTokens().size());
+        assertTrue(tokensByUser().isEmpty(), "过期令牌移出缓存时应同步清理用户索引");
+    }
+
+    @Test
+    public void testRevocationIsPublishedOnlyWhenTokenIsReplaced() {
+        // 首次登录没有旧令牌
+        String token = jwtUtil.generateMiniappToken("openid", USER_ID);
+        verify(redisTemplate, never()).convertAndSend(anyString(), any());
+
+        // 同一秒内重复登录生成相同的令牌，不算替换
+        if (token.equals(jwtUtil.generateMiniappToken("openid", USER_ID))) {
+            verify(redisTemplate, never()).convertAndSend(anyString(), any());
+        }
+        clearInvocations(redisTemplate);
+
+        // 旧令牌被新令牌替换
+        store.put(TOKEN_KEY, "previous-token");
+        jwtUtil.generateMiniappToken("openid", USER_ID);
+        verify(redisTemplate).convertAndSend("jwt:revoke", REVOKE_MESSAGE);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Set<String>> tokensByUser() {
+        return (Map<String, Set<String>>) ReflectionTestUtils.getField(jwtUtil, "tokensByUser");
+    }
+
+    private Cache<?, ?> verifiedTokens() {
+        Cache<?, ?> cache = (Cache<?, ?>) ReflectionTestUtils.getField(jwtUtil, "verifiedTokens");
+        cache.cleanUp();
+        return cache;
+    }
+}
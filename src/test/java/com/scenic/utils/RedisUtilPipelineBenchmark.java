@@ -0,0 +1,166 @@
+package com.scenic.utils;
+
+import com.scenic.config.RedisConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RedisUtil批量操作基准测试
+ * 对比逐键读写与MGET、批量DEL、管道的耗时，每个方法的注释中注明一次操作的网络往返次数。
+ * 点赞、取消点赞原来是1次SET加4次DEL共5次往返，现在为1次管道往返；
+ * 读取一页（pageSize个键）的缓存由pageSize次往返降为1次。
+ * 需要可访问的Redis，默认 localhost:6379，可通过 -Dredis.host、-Dredis.port 指定。
+ * 运行方式：执行main方法（需先 mvn test-compile 以生成JMH元数据）。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RedisUtilPipelineBenchmark {
+
+    private static final String KEY_PREFIX = "bench:redis_util:";
+
+    /**
+     * 每页条数
+     */
+    @Param({"10", "20"})
+    private int pageSize;
+
+    private LettuceConnectionFactory connectionFactory;
+
+    private RedisTemplate<String, Object> redisTemplate;
+
+    private RedisUtil redisUtil;
+
+    private List<String> pageKeys;
+
+    private List<String> invalidateKeys;
+
+    private Map<String, Object> pageValues;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        RedisStandaloneConfiguration configuration = new RedisStandaloneConfiguration(
+                System.getProperty("redis.host", "localhost"), Integer.getInteger("redis.port", 6379));
+        connectionFactory = new LettuceConnectionFactory(configuration);
+        connectionFactory.afterPropertiesSet();
+        redisTemplate = new RedisConfig().redisTemplate(connectionFactory);
+        redisUtil = new RedisUtil();
+        ReflectionTestUtils.setField(redisUtil, "redisTemplate", redisTemplate);
+
+        pageKeys = new ArrayList<>();
+        pageValues = new LinkedHashMap<>();
+        for (int i = 0; i < pageSize; i++) {
+            String key = KEY_PREFIX + "photo:" + i;
+            pageKeys.add(key);
+            pageValues.put(key, "photo-" + i);
+        }
+        invalidateKeys = new ArrayList<>();
+        invalidateKeys.add(KEY_PREFIX + "all_photos");
+        invalidateKeys.add(KEY_PREFIX + "photos_category:1");
+        invalidateKeys.add(KEY_PREFIX + "photos_user_id:1");
+        invalidateKeys.add(KEY_PREFIX + "checkin_category_list");
+        redisUtil.multiSet(pageValues, 600);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        redisUtil.delete(pageKeys);
+        redisUtil.delete(invalidateKeys);
+        redisUtil.delete(KEY_PREFIX + "detail");
+        connectionFactory.destroy();
+    }
+
+    /**
+     * 逐键读取一页缓存：pageSize次往返
+     */
+    @Benchmark
+    public int pageGetPerKey() {
+        int hits = 0;
+        for (String key : pageKeys) {
+            if (redisUtil.get(key) != null) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * MGET读取一页缓存：1次往返
+     */
+    @Benchmark
+    public int pageMultiGet() {
+        return redisUtil.multiGet(pageKeys, String.class).size();
+    }
+
+    /**
+     * 逐键回填一页缓存：pageSize次往返
+     */
+    @Benchmark
+    public void pageSetPerKey() {
+        for (Map.Entry<String, Object> entry : pageValues.entrySet()) {
+            redisUtil.set(entry.getKey(), entry.getValue(), 600);
+        }
+    }
+
+    /**
+     * 管道回填一页缓存：1次往返
+     */
+    @Benchmark
+    public boolean pageMultiSet() {
+        return redisUtil.multiSet(pageValues, 600);
+    }
+
+    /**
+     * 原点赞实现：1次SET加4次DEL，5次往返
+     */
+    @Benchmark
+    public void likeInvalidatePerKey() {
+        redisUtil.set(KEY_PREFIX + "detail", "photo", 3600);
+        for (String key : invalidateKeys) {
+            redisUtil.delete(key);
+        }
+    }
+
+    /**
+     * 现点赞实现：SET与DEL通过同一个管道发送，1次往返
+     */
+    @Benchmark
+    public boolean likeInvalidatePipelined() {
+        return redisUtil.setAndDelete(KEY_PREFIX + "detail", "photo", 3600, invalidateKeys);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(RedisUtilPipelineBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
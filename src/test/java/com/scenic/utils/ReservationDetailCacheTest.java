@@ -0,0 +1,122 @@
+package com.scenic.utils;
+
+import com.scenic.entity.appointment.IndividualReservation;
+import com.scenic.exception.reservation.ServiceUnavailableException;
+import com.scenic.support.RedisTestSupport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+/**
+ * 预约详情缓存版本栅栏测试
+ * 回填、失效脚本在本地Redis上执行
+ */
+public class ReservationDetailCacheTest {
+
+    private static final long ID = 990000001L;
+    private static final String FENCE_KEY = "reservation:detail:fence:" + ID;
+
+    private RedisTestSupport redis;
+
+    @AfterEach
+    public void tearDown() {
+        if (redis != null) {
+            redis.close();
+        }
+    }
+
+    @Test
+    public void testPutThenGet() {
+        ReservationDetailCache cache = connect();
+
+        cache.put(newReservation(ID, 1));
+
+        IndividualReservation cached = cache.get(ID);
+        assertNotNull(cached);
+        assertEquals(1, cached.getVersion());
+        assertEquals(Long.valueOf(ID), cache.getIdByNo("RES" + ID));
+    }
+
+    @Test
+    public void testPutBelowFenceIsRejected() {
+        ReservationDetailCache cache = connect();
+        cache.put(newReservation(ID, 2));
+
+        cache.invalidate(ID, 3);
+        assertNull(cache.get(ID), "失效后详情应被删除");
+
+        // 写库前读到的旧版本在写库后回填
+        cache.put(newReservation(ID, 2));
+        assertNull(cache.get(ID), "低于栅栏的版本不应回填");
+
+        cache.put(newReservation(ID, 3));
+        assertEquals(3, cache.get(ID).getVersion(), "不低于栅栏的版本应回填");
+    }
+
+    @Test
+    public void testFenceNeverMovesBackwards() {
+        ReservationDetailCache cache = connect();
+
+        cache.invalidate(ID, 5);
+        cache.invalidate(ID, 3);
+
+        assertEquals("5", redis.stringRedisTemplate().opsForValue().get(FENCE_KEY));
+        cache.put(newReservation(ID, 4));
+        assertNull(cache.get(ID));
+    }
+
+    @Test
+    public void testUnknownVersionBlocksRefill() {
+        ReservationDetailCache cache = connect();
+
+        cache.invalidateAll(Arrays.asList(newReservation(ID, null), newReservation(ID + 1, 1)));
+
+        cache.put(newReservation(ID, 100));
+        assertNull(cache.get(ID), "版本号未知时在栅栏过期前不应回填");
+        cache.put(newReservation(ID + 1, 1));
+        assertNotNull(cache.get(ID + 1));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testInvalidateFailurePropagates() {
+        StringRedisTemplate stringRedisTemplate = mock(StringRedisTemplate.class);
+        when(stringRedisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class)))
+                .thenThrow(new RedisConnectionFailureException("connection refused"));
+        ReservationDetailCache cache = new ReservationDetailCache();
+        ReflectionTestUtils.setField(cache, "stringRedisTemplate", stringRedisTemplate);
+        ReflectionTestUtils.setField(cache, "redisUtil", new RedisUtil());
+
+        assertThrows(ServiceUnavailableException.class, () -> cache.invalidate(ID, 2),
+                "栅栏写入失败时应抛出异常，使写库事务回滚");
+    }
+
+    private ReservationDetailCache connect() {
+        redis = RedisTestSupport.connect("reservation:detail:*9900000*");
+        RedisUtil redisUtil = new RedisUtil();
+        ReflectionTestUtils.setField(redisUtil, "redisTemplate", redis.redisTemplate());
+        ReservationDetailCache cache = new ReservationDetailCache();
+        ReflectionTestUtils.setField(cache, "redisTemplate", redis.redisTemplate());
+        ReflectionTestUtils.setField(cache, "stringRedisTemplate", redis.stringRedisTemplate());
+        ReflectionTestUtils.setField(cache, "redisUtil", redisUtil);
+        return cache;
+    }
+
+    private static IndividualReservation newReservation(long id, Integer version) {
+        IndividualReservation reservation = new IndividualReservation();
+        reservation.setId(id);
+        reservation.setVersion(version);
+        reservation.setReservationNo("RES" + id);
+        return reservation;
+    }
+}
@@ -0,0 +1,59 @@
+package com.scenic.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 预约编号生成基准测试
+ * 对比原有 SimpleDateFormat + Math.random 方式与基于雪花ID的ReservationNoGenerator。
+ * 运行方式：执行main方法（需先 mvn test-compile 以生成JMH元数据）。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class ReservationNoGeneratorBenchmark {
+
+    private final ReservationNoGenerator generator = new ReservationNoGenerator(new SnowflakeIdGenerator(1));
+
+    /**
+     * 原有实现：每次新建SimpleDateFormat并使用随机数
+     */
+    @Benchmark
+    public String legacy() {
+        String timestamp = new SimpleDateFormat("yyyyMMddHHmmss").format(new Date());
+        String random = String.format("%04d", (int) (Math.random() * 10000));
+        return "RES" + timestamp + random;
+    }
+
+    @Benchmark
+    public String snowflake() {
+        return generator.nextReservationNo();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(ReservationNoGeneratorBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,56 @@
+package com.scenic.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReservationNoGeneratorTest {
+
+    @Test
+    public void testFormat() {
+        ReservationNoGenerator generator = new ReservationNoGenerator(new SnowflakeIdGenerator(37));
+
+        String reservationNo = generator.nextReservationNo();
+        String teamNo = generator.nextTeamAppointmentNo();
+
+        // RES + 14位时间 + 3位毫秒 + 4位机器ID + 4位序列号
+        assertEquals(28, reservationNo.length());
+        assertTrue(reservationNo.matches("RES\\d{25}"));
+        assertEquals("0037", reservationNo.substring(20, 24));
+        assertTrue(teamNo.matches("TA\\d{25}"));
+        // 不超过reservation_no字段长度
+        assertTrue(reservationNo.length() <= 32);
+    }
+
+    @Test
+    public void testConcurrentUniqueness() throws InterruptedException {
+        ReservationNoGenerator generator = new ReservationNoGenerator(new SnowflakeIdGenerator(1));
+        int threadCount = 8;
+        int perThread = 20000;
+        Set<String> numbers = ConcurrentHashMap.newKeySet();
+        CountDownLatch latch = new CountDownLatch(threadCount);
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+
+        for (int i = 0; i < threadCount; i++) {
+            executor.submit(() -> {
+                try {
+                    for (int j = 0; j < perThread; j++) {
+                        numbers.add(generator.nextReservationNo());
+                    }
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+        latch.await();
+        executor.shutdown();
+
+        assertEquals(threadCount * perThread, numbers.size());
+    }
+}
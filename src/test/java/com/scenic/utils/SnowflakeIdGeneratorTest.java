@@ -73,4 +73,20 @@ public class SnowflakeIdGeneratorTest {
         
         System.out.println("Generated " + uniqueIds.size() + " unique IDs in concurrent test");
     }
-}
\ No newline at end of file
+    
+    @Test
+    public void testRefusesAfterLeaseExpired() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(5);
+        generator.setMachineIdValidUntil(System.currentTimeMillis() + 60000);
+        assertEquals(5L, SnowflakeIdGenerator.extractMachineId(generator.nextId()));
+        
+        // 租约未续期：到期后拒绝生成，避免与接手该机器ID的节点重复
+        generator.setMachineIdValidUntil(System.currentTimeMillis() - 1);
+        assertThrows(IllegalStateException.class, generator::nextId);
+        assertThrows(IllegalStateException.class, () -> new ReservationNoGenerator(generator).nextReservationNo());
+        
+        IdGenerator idGenerator = new IdGenerator(1, 1);
+        idGenerator.setWorkerIdValidUntil(System.currentTimeMillis() - 1);
+        assertThrows(IllegalStateException.class, idGenerator::nextId);
+    }
+}
@@ -0,0 +1,115 @@
+package com.scenic.utils;
+
+import com.scenic.support.RedisTestSupport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 用户互动状态缓存测试
+ * 回填与修改标志位的Lua脚本在本地Redis上执行
+ */
+public class UserInteractionCacheUtilTest {
+
+    private static final Long USER_ID = 990000001L;
+    private static final String KEY = "user:interaction:" + USER_ID;
+
+    private RedisTestSupport redis;
+    private StringRedisTemplate stringRedisTemplate;
+    private UserInteractionCacheUtil cacheUtil;
+
+    @BeforeEach
+    public void setUp() {
+        redis = RedisTestSupport.connect(KEY);
+        stringRedisTemplate = redis.stringRedisTemplate();
+        cacheUtil = new UserInteractionCacheUtil();
+        ReflectionTestUtils.setField(cacheUtil, "stringRedisTemplate", stringRedisTemplate);
+        ReflectionTestUtils.setField(cacheUtil, "redisUtil", new RedisUtil());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (redis != null) {
+            redis.close();
+        }
+    }
+
+    @Test
+    public void testFillThenRead() {
+        UserInteractionCacheUtil.CachedFlags miss = cacheUtil.getInteractionFlags(USER_ID, Arrays.asList(1L, 2L));
+        assertTrue(miss.getFlags().isEmpty());
+        assertEquals("0", miss.getVersion());
+
+        cacheUtil.cacheInteractionFlags(USER_ID, flags(1L, 0, 2L, UserInteractionCacheUtil.FLAG_LIKED), miss.getVersion());
+
+        Map<Long, Integer> cached = cacheUtil.getInteractionFlags(USER_ID, Arrays.asList(1L, 2L)).getFlags();
+        assertEquals(flags(1L, 0, 2L, UserInteractionCacheUtil.FLAG_LIKED), cached);
+    }
+
+    @Test
+    public void testStaleFillAfterLikeIsRejected() {
+        // 读请求未命中后查库（此时尚未点赞）
+        UserInteractionCacheUtil.CachedFlags miss = cacheUtil.getInteractionFlags(USER_ID, Collections.singletonList(1L));
+        // 点赞提交，字段未缓存，只递增版本号
+        cacheUtil.updateInteractionFlag(USER_ID, 1L, UserInteractionCacheUtil.FLAG_LIKED, true);
+        // 读请求回填查库时的旧值
+        cacheUtil.cacheInteractionFlags(USER_ID, flags(1L, 0), miss.getVersion());
+
+        assertFalse(cacheUtil.getInteractionFlags(USER_ID, Collections.singletonList(1L)).getFlags().containsKey(1L),
+                "点赞后不应回填旧的0");
+    }
+
+    @Test
+    public void testFillDoesNotOverwriteCachedField() {
+        UserInteractionCacheUtil.CachedFlags first = cacheUtil.getInteractionFlags(USER_ID, Collections.singletonList(1L));
+        cacheUtil.cacheInteractionFlags(USER_ID, flags(1L, UserInteractionCacheUtil.FLAG_COLLECTED), first.getVersion());
+
+        cacheUtil.cacheInteractionFlags(USER_ID, flags(1L, 0), first.getVersion());
+
+        assertEquals(Integer.valueOf(UserInteractionCacheUtil.FLAG_COLLECTED),
+                cacheUtil.getInteractionFlags(USER_ID, Collections.singletonList(1L)).getFlags().get(1L));
+    }
+
+    @Test
+    public void testUpdateChangesCachedFlag() {
+        UserInteractionCacheUtil.CachedFlags miss = cacheUtil.getInteractionFlags(USER_ID, Collections.singletonList(1L));
+        cacheUtil.cacheInteractionFlags(USER_ID, flags(1L, UserInteractionCacheUtil.FLAG_COLLECTED), miss.getVersion());
+
+        cacheUtil.updateInteractionFlag(USER_ID, 1L, UserInteractionCacheUtil.FLAG_LIKED, true);
+        assertEquals(Integer.valueOf(3), cacheUtil.getInteractionFlags(USER_ID, Collections.singletonList(1L)).getFlags().get(1L));
+
+        cacheUtil.updateInteractionFlag(USER_ID, 1L, UserInteractionCacheUtil.FLAG_COLLECTED, false);
+        assertEquals(Integer.valueOf(2), cacheUtil.getInteractionFlags(USER_ID, Collections.singletonList(1L)).getFlags().get(1L));
+    }
+
+    @Test
+    public void testExpireIsNotRefreshedByFill() {
+        UserInteractionCacheUtil.CachedFlags miss = cacheUtil.getInteractionFlags(USER_ID, Collections.singletonList(1L));
+        cacheUtil.cacheInteractionFlags(USER_ID, flags(1L, 0), miss.getVersion());
+        stringRedisTemplate.expire(KEY, java.time.Duration.ofSeconds(100));
+
+        cacheUtil.cacheInteractionFlags(USER_ID, flags(2L, 0), miss.getVersion());
+        cacheUtil.updateInteractionFlag(USER_ID, 1L, UserInteractionCacheUtil.FLAG_LIKED, true);
+
+        Long ttl = stringRedisTemplate.getExpire(KEY);
+        assertNotNull(ttl);
+        assertTrue(ttl > 0 && ttl <= 100, "已有过期时间不应被刷新");
+    }
+
+    private static Map<Long, Integer> flags(Object... pairs) {
+        Map<Long, Integer> flags = new HashMap<>();
+        for (int i = 0; i < pairs.length; i += 2) {
+            flags.put((Long) pairs[i], (Integer) pairs[i + 1]);
+        }
+        return flags;
+    }
+}